@@ -1276,6 +1276,12 @@ public abstract class AbstractByteBuf extends ByteBuf {
     }
 
     private int forEachByteAsc0(int start, int end, ByteProcessor processor) throws Exception {
+        if (end - start >= SwarByteSearch.MIN_LENGTH) {
+            SwarByteSearch search = SwarByteSearch.of(processor);
+            if (search != null) {
+                return search.firstIndexOf(this, start, end);
+            }
+        }
         for (; start < end; ++start) {
             if (!processor.process(_getByte(start))) {
                 return start;
@@ -1308,6 +1314,12 @@ public abstract class AbstractByteBuf extends ByteBuf {
     }
 
     private int forEachByteDesc0(int rStart, final int rEnd, ByteProcessor processor) throws Exception {
+        if (rStart - rEnd >= SwarByteSearch.MIN_LENGTH) {
+            SwarByteSearch search = SwarByteSearch.of(processor);
+            if (search != null) {
+                return search.lastIndexOf(this, rStart, rEnd);
+            }
+        }
         for (; rStart >= rEnd; --rStart) {
             if (!processor.process(_getByte(rStart))) {
                 return rStart;
@@ -17,8 +17,12 @@
 package io.netty.buffer;
 
 import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
 import io.netty.util.internal.PlatformDependent;
 
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 import static io.netty.util.internal.ObjectUtil.checkPositive;
@@ -39,7 +43,23 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
         refCntUpdater = updater;
     }
 
+    // While biased, refCnt holds the shared count shifted by SHARED_SHIFT and these flags.
+    // Set once the owner merged its biased count into the shared count, which is the reference count from then on.
+    private static final int MERGED = 1;
+    // Set once the shared count dropped below 0, which made the owner merge its biased count.
+    private static final int QUEUED = 2;
+    private static final int FLAGS = MERGED | QUEUED;
+    private static final int SHARED_SHIFT = 2;
+    private static final int MAX_SHARED_REF_CNT = Integer.MAX_VALUE >> SHARED_SHIFT;
+    private static final int MIN_SHARED_REF_CNT = Integer.MIN_VALUE >> SHARED_SHIFT;
+
     private volatile int refCnt = 1;
+    // Not null if the reference count is biased towards the thread of this EventExecutor, see biasTo(EventExecutor).
+    private EventExecutor biasedExecutor;
+    // The thread of the biasedExecutor until it merged its biased count, only updated by that thread.
+    private Thread owner;
+    // The references of the owner, only accessed by the owner.
+    private int biasedRefCnt;
 
     protected AbstractReferenceCountedByteBuf(int maxCapacity) {
         super(maxCapacity);
@@ -47,16 +67,44 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
 
     @Override
     public int refCnt() {
-        return refCnt;
+        if (biasedExecutor == null) {
+            return refCnt;
+        }
+        int state = refCnt;
+        int sharedRefCnt = state >> SHARED_SHIFT;
+        // The biased count may be stale if read by another thread than the owner.
+        return (state & MERGED) != 0 ? sharedRefCnt : biasedRefCnt + sharedRefCnt;
     }
 
     /**
      * An unsafe operation intended for use by a subclass that sets the reference count of the buffer directly
      */
     protected final void setRefCnt(int refCnt) {
+        biasedExecutor = null;
+        owner = null;
         this.refCnt = refCnt;
     }
 
+    /**
+     * Biases the reference count towards the thread of the given {@link EventExecutor}, which must be the calling
+     * thread, so it retains and releases this buffer without atomic operations. All other threads update a shared
+     * count atomically. The owner merges its count into the shared count once it released all its references, or
+     * once the shared count dropped below {@code 0}, as other threads released references the owner handed over to
+     * them. The merge is done via a task of the {@link EventExecutor} then, so {@link #release()} returns
+     * {@code false} on other threads than the owner until the owner merged, even if the reference count dropped to
+     * {@code 0}, and the buffer is deallocated by the merge.
+     * <p>
+     * The buffer must have a reference count of {@code 1} and must not be used by any other thread yet.
+     */
+    final void biasTo(EventExecutor executor) {
+        assert executor.inEventLoop() && refCnt == 1 && biasedExecutor == null;
+        biasedExecutor = executor;
+        owner = Thread.currentThread();
+        biasedRefCnt = 1;
+        // Other threads see this via the happens-before edge which hands the buffer over to them.
+        refCntUpdater.lazySet(this, 0);
+    }
+
     @Override
     public ByteBuf retain() {
         return retain0(1);
@@ -68,6 +116,9 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
     }
 
     private ByteBuf retain0(int increment) {
+        if (biasedExecutor != null) {
+            return retainBiased(increment);
+        }
         for (;;) {
             int refCnt = this.refCnt;
             final int nextCnt = refCnt + increment;
@@ -83,6 +134,29 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
         return this;
     }
 
+    private ByteBuf retainBiased(int increment) {
+        if (owner == Thread.currentThread()) {
+            int biasedRefCnt = this.biasedRefCnt;
+            // The owner holds at least one reference until it merged, so there is nothing to resurrect.
+            if (increment > MAX_SHARED_REF_CNT - biasedRefCnt) {
+                throw new IllegalReferenceCountException(refCnt(), increment);
+            }
+            this.biasedRefCnt = biasedRefCnt + increment;
+            return this;
+        }
+        for (;;) {
+            int state = refCnt;
+            int sharedRefCnt = state >> SHARED_SHIFT;
+            if ((state & MERGED) != 0 && sharedRefCnt == 0 || increment > MAX_SHARED_REF_CNT - sharedRefCnt) {
+                throw new IllegalReferenceCountException(refCnt(), increment);
+            }
+            int nextState = (sharedRefCnt + increment) << SHARED_SHIFT | state & FLAGS;
+            if (refCntUpdater.compareAndSet(this, state, nextState)) {
+                return this;
+            }
+        }
+    }
+
     @Override
     public ByteBuf touch() {
         return this;
@@ -104,6 +178,9 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
     }
 
     private boolean release0(int decrement) {
+        if (biasedExecutor != null) {
+            return releaseBiased(decrement);
+        }
         for (;;) {
             int refCnt = this.refCnt;
             if (refCnt < decrement) {
@@ -119,6 +196,102 @@ public abstract class AbstractReferenceCountedByteBuf extends AbstractByteBuf {
             }
         }
     }
+
+    private boolean releaseBiased(int decrement) {
+        if (owner == Thread.currentThread()) {
+            int biasedRefCnt = this.biasedRefCnt;
+            if (decrement < biasedRefCnt) {
+                this.biasedRefCnt = biasedRefCnt - decrement;
+                return false;
+            }
+            // The owner released all its references, so the shared count is the reference count from now on.
+            return merge(decrement);
+        }
+        for (;;) {
+            int state = refCnt;
+            int sharedRefCnt = state >> SHARED_SHIFT;
+            if ((state & MERGED) != 0) {
+                if (decrement > sharedRefCnt) {
+                    throw new IllegalReferenceCountException(sharedRefCnt, -decrement);
+                }
+                int nextRefCnt = sharedRefCnt - decrement;
+                if (refCntUpdater.compareAndSet(this, state, nextRefCnt << SHARED_SHIFT | MERGED)) {
+                    if (nextRefCnt == 0) {
+                        deallocate();
+                        return true;
+                    }
+                    return false;
+                }
+            } else {
+                if (decrement > sharedRefCnt - MIN_SHARED_REF_CNT) {
+                    throw new IllegalReferenceCountException(refCnt(), -decrement);
+                }
+                int nextSharedRefCnt = sharedRefCnt - decrement;
+                // This released references the owner handed over, only the owner knows if none are left.
+                boolean queue = nextSharedRefCnt < 0 && (state & QUEUED) == 0;
+                int nextState = nextSharedRefCnt << SHARED_SHIFT | (queue ? QUEUED : state & QUEUED);
+                if (refCntUpdater.compareAndSet(this, state, nextState)) {
+                    if (queue) {
+                        queueMerge();
+                    }
+                    return false;
+                }
+            }
+        }
+    }
+
+    /**
+     * Merges the biased count, minus the given decrement, into the shared count and deallocates this buffer if the
+     * reference count dropped to {@code 0}. Must be called by the owner, or once the owner thread terminated.
+     */
+    private boolean merge(int decrement) {
+        final int biasedRefCnt = this.biasedRefCnt;
+        long nextRefCnt;
+        for (;;) {
+            int state = refCnt;
+            nextRefCnt = (long) biasedRefCnt + (state >> SHARED_SHIFT) - decrement;
+            if (nextRefCnt < 0 || nextRefCnt > MAX_SHARED_REF_CNT) {
+                throw new IllegalReferenceCountException(refCnt(), -decrement);
+            }
+            if (refCntUpdater.compareAndSet(this, state, (int) nextRefCnt << SHARED_SHIFT | MERGED)) {
+                break;
+            }
+        }
+        owner = null;
+        this.biasedRefCnt = 0;
+        if (nextRefCnt == 0) {
+            deallocate();
+            return true;
+        }
+        return false;
+    }
+
+    private void queueMerge() {
+        final EventExecutor executor = biasedExecutor;
+        try {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // The buffer may have been merged, deallocated or even reused by another owner since.
+                    if (owner == Thread.currentThread()) {
+                        merge(0);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // The owner does not run tasks anymore, so merge once it terminated and so will not update the biased
+            // count anymore.
+            executor.terminationFuture().addListener(new FutureListener<Object>() {
+                @Override
+                public void operationComplete(Future<Object> future) {
+                    if (owner != null) {
+                        merge(0);
+                    }
+                }
+            });
+        }
+    }
+
     /**
      * Called once {@link #refCnt()} is equals 0.
      */
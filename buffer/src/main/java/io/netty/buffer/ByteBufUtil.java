@@ -20,6 +20,8 @@ import io.netty.util.ByteProcessor;
 import io.netty.util.CharsetUtil;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorMetric;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
@@ -64,6 +66,9 @@ public final class ByteBufUtil {
     private static final int MAX_BYTES_PER_CHAR_UTF8 =
             (int) CharsetUtil.encoder(CharsetUtil.UTF_8).maxBytesPerChar();
 
+    // Shorter needles are found faster by looking for their first byte.
+    private static final int HORSPOOL_MIN_NEEDLE_LENGTH = 16;
+
     static final ByteBufAllocator DEFAULT_ALLOCATOR;
 
     static {
@@ -318,6 +323,62 @@ public final class ByteBufUtil {
         }
     }
 
+    /**
+     * Returns the index of the first occurrence of the readable bytes of {@code needle} in the readable bytes of
+     * {@code haystack}, or {@code -1} if there is none.
+     * <p>
+     * Short needles are found by looking for their first byte, which checks eight bytes at a time for most buffers,
+     * and comparing the rest. Longer needles use the Boyer-Moore-Horspool algorithm, which skips up to the length of
+     * the needle at a time.
+     */
+    public static int indexOf(ByteBuf needle, ByteBuf haystack) {
+        final int needleStart = needle.readerIndex();
+        final int needleLength = needle.readableBytes();
+        final int haystackStart = haystack.readerIndex();
+        final int haystackLast = haystack.writerIndex() - needleLength;
+        if (haystackLast < haystackStart) {
+            return -1;
+        }
+        if (needleLength == 0) {
+            return haystackStart;
+        }
+        if (needleLength < HORSPOOL_MIN_NEEDLE_LENGTH) {
+            final byte firstByte = needle.getByte(needleStart);
+            for (int i = haystackStart; i <= haystackLast; i++) {
+                i = haystack.indexOf(i, haystackLast + 1, firstByte);
+                if (i < 0) {
+                    return -1;
+                }
+                if (equals(haystack, i + 1, needle, needleStart + 1, needleLength - 1)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+        return indexOfHorspool(needle, needleStart, needleLength, haystack, haystackStart, haystackLast);
+    }
+
+    private static int indexOfHorspool(ByteBuf needle, int needleStart, int needleLength,
+                                       ByteBuf haystack, int haystackStart, int haystackLast) {
+        // How far the needle may be moved if its last byte is aligned to a given byte of the haystack.
+        final int[] shifts = new int[256];
+        Arrays.fill(shifts, needleLength);
+        final int needleLast = needleLength - 1;
+        for (int i = 0; i < needleLast; i++) {
+            shifts[needle.getByte(needleStart + i) & 0xFF] = needleLast - i;
+        }
+
+        final byte lastByte = needle.getByte(needleStart + needleLast);
+        for (int i = haystackStart; i <= haystackLast;) {
+            byte b = haystack.getByte(i + needleLast);
+            if (b == lastByte && equals(haystack, i, needle, needleStart, needleLast)) {
+                return i;
+            }
+            i += shifts[b & 0xFF];
+        }
+        return -1;
+    }
+
     /**
      * Toggles the endianness of the specified 16-bit short integer.
      */
@@ -373,7 +434,7 @@ public final class ByteBufUtil {
             return -1;
         }
 
-        return buffer.forEachByte(fromIndex, toIndex - fromIndex, new ByteProcessor.IndexOfProcessor(value));
+        return buffer.forEachByte(fromIndex, toIndex - fromIndex, new SwarByteSearch.IndexOfProcessor(value));
     }
 
     private static int lastIndexOf(ByteBuf buffer, int fromIndex, int toIndex, byte value) {
@@ -382,7 +443,7 @@ public final class ByteBufUtil {
             return -1;
         }
 
-        return buffer.forEachByteDesc(toIndex, fromIndex - toIndex, new ByteProcessor.IndexOfProcessor(value));
+        return buffer.forEachByteDesc(toIndex, fromIndex - toIndex, new SwarByteSearch.IndexOfProcessor(value));
     }
 
     /**
@@ -660,6 +721,14 @@ public final class ByteBufUtil {
         }
     }
 
+    /**
+     * Returns the {@link ResourceLeakDetectorMetric} of the {@link ResourceLeakDetector} which tracks the
+     * {@link ByteBuf}s, so the number of leaked buffers can be monitored.
+     */
+    public static ResourceLeakDetectorMetric leakDetectorMetric() {
+        return AbstractByteBuf.leakDetector;
+    }
+
     /**
      * Create a copy of the underlying storage from {@code buf} into a byte array.
      * The copy will start at {@link ByteBuf#readerIndex()} and copy {@link ByteBuf#readableBytes()} bytes.
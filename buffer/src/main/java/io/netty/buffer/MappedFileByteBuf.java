@@ -0,0 +1,103 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+
+/**
+ * A read-only {@link ByteBuf} which is backed by a region of a file that is mapped via
+ * {@link FileChannel#map(MapMode, long, long)}, so the content of the file can be sliced and written like any other
+ * {@link ByteBuf} without copying it.
+ * <p>
+ * The region is unmapped once the reference count drops to {@code 0}. Slices and duplicates share the reference
+ * count, so use {@link #retainedSlice()} and {@link #retainedDuplicate()} if they may outlive this buffer. Accessing
+ * a buffer or any {@link java.nio.ByteBuffer} obtained from it after it was released may crash the JVM.
+ *
+ * @see MappedFileByteBufCache
+ */
+public final class MappedFileByteBuf extends ReadOnlyByteBufferBuf {
+
+    private final MappedByteBuffer mapped;
+    private final File file;
+
+    /**
+     * Maps the whole file.
+     */
+    public static MappedFileByteBuf map(File file) throws IOException {
+        ObjectUtil.checkNotNull(file, "file");
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            long length = raf.length();
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException("file too large to map: " + file + " (" + length + " bytes)");
+            }
+            return new MappedFileByteBuf(file, raf.getChannel().map(MapMode.READ_ONLY, 0, length));
+        } finally {
+            // The mapping stays valid after the channel was closed.
+            raf.close();
+        }
+    }
+
+    /**
+     * Maps {@code length} bytes of the file of the given {@link FileChannel}, starting at {@code position}. The
+     * {@link FileChannel} may be closed afterwards.
+     */
+    public static MappedFileByteBuf map(FileChannel channel, long position, int length) throws IOException {
+        ObjectUtil.checkNotNull(channel, "channel");
+        if (position < 0) {
+            throw new IllegalArgumentException("position: " + position + " (expected: >= 0)");
+        }
+        if (length < 0) {
+            throw new IllegalArgumentException("length: " + length + " (expected: >= 0)");
+        }
+        return new MappedFileByteBuf(null, channel.map(MapMode.READ_ONLY, position, length));
+    }
+
+    private MappedFileByteBuf(File file, MappedByteBuffer mapped) {
+        super(UnpooledByteBufAllocator.DEFAULT, mapped);
+        this.mapped = mapped;
+        this.file = file;
+    }
+
+    /**
+     * Returns the mapped {@link File}, or {@code null} if it was mapped via a {@link FileChannel}.
+     */
+    public File file() {
+        return file;
+    }
+
+    /**
+     * Asks the operating system to load the content of the file into memory, see {@link MappedByteBuffer#load()}.
+     */
+    public MappedFileByteBuf load() {
+        ensureAccessible();
+        mapped.load();
+        return this;
+    }
+
+    @Override
+    protected void deallocate() {
+        PlatformDependent.freeDirectBuffer(mapped);
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.ObjectUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of {@link MappedFileByteBuf}s keyed by the path of the file, which evicts the least recently used
+ * mappings once there are more than the maximum number of files or mapped bytes.
+ * <p>
+ * {@link #get(File)} returns a retained duplicate of the cached mapping, which has to be released by the caller. The
+ * cache holds one reference of every mapping, so a mapping is unmapped once it was evicted and all duplicates were
+ * released. A file which was modified since it was mapped, by comparing its length and last modification time, is
+ * mapped again.
+ * <p>
+ * This class is thread-safe.
+ */
+public final class MappedFileByteBufCache {
+
+    private final int maxFiles;
+    private final long maxBytes;
+    // Access ordered, so the least recently used entry comes first.
+    private final Map<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+    private long mappedBytes;
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxFiles the maximum number of cached mappings.
+     * @param maxBytes the maximum number of bytes of all cached mappings. A file which is larger than this is mapped,
+     *                 but not cached.
+     */
+    public MappedFileByteBufCache(int maxFiles, long maxBytes) {
+        this.maxFiles = ObjectUtil.checkPositive(maxFiles, "maxFiles");
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes: " + maxBytes + " (expected: > 0)");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Returns the content of the given file as a read-only {@link ByteBuf}, which must be released once it is not
+     * used anymore.
+     */
+    public ByteBuf get(File file) throws IOException {
+        String path = file.getAbsolutePath();
+        long length = file.length();
+        long lastModified = file.lastModified();
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null) {
+                if (entry.length == length && entry.lastModified == lastModified) {
+                    return entry.buf.retainedDuplicate();
+                }
+                remove(path);
+            }
+        }
+
+        // Map outside of the lock, as this may take a while.
+        MappedFileByteBuf buf = MappedFileByteBuf.map(file);
+        if (buf.capacity() > maxBytes) {
+            return buf;
+        }
+        synchronized (this) {
+            Entry entry = entries.get(path);
+            if (entry != null && entry.length == length && entry.lastModified == lastModified) {
+                // Another thread was faster.
+                buf.release();
+                return entry.buf.retainedDuplicate();
+            }
+            if (entry != null) {
+                remove(path);
+            }
+            entries.put(path, new Entry(buf, length, lastModified));
+            mappedBytes += buf.capacity();
+            evict();
+            return buf.retainedDuplicate();
+        }
+    }
+
+    /**
+     * Removes the mapping of the given file from the cache. It is unmapped once all buffers returned by
+     * {@link #get(File)} for it were released.
+     *
+     * @return {@code true} if the file was cached.
+     */
+    public synchronized boolean invalidate(File file) {
+        return remove(file.getAbsolutePath());
+    }
+
+    /**
+     * Removes all mappings from the cache.
+     */
+    public synchronized void clear() {
+        for (Entry entry: entries.values()) {
+            entry.buf.release();
+        }
+        entries.clear();
+        mappedBytes = 0;
+    }
+
+    /**
+     * Returns the number of cached mappings.
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of bytes of all cached mappings.
+     */
+    public synchronized long mappedBytes() {
+        return mappedBytes;
+    }
+
+    private boolean remove(String path) {
+        Entry entry = entries.remove(path);
+        if (entry == null) {
+            return false;
+        }
+        mappedBytes -= entry.buf.capacity();
+        entry.buf.release();
+        return true;
+    }
+
+    private void evict() {
+        Iterator<Entry> i = entries.values().iterator();
+        while ((entries.size() > maxFiles || mappedBytes > maxBytes) && i.hasNext()) {
+            Entry entry = i.next();
+            i.remove();
+            mappedBytes -= entry.buf.capacity();
+            entry.buf.release();
+        }
+    }
+
+    private static final class Entry {
+        final MappedFileByteBuf buf;
+        final long length;
+        final long lastModified;
+
+        Entry(MappedFileByteBuf buf, long length, long lastModified) {
+            this.buf = buf;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * A {@link PoolChunkSource} which maps the chunks from files via {@link FileChannel#map(MapMode, long, long)}. If the
+ * files are created on a {@code hugetlbfs} mount, like {@code /dev/hugepages}, the chunks are backed by huge pages,
+ * which takes a lot of pressure from the TLB if many buffers are used. On a {@code tmpfs} mount, the kernel may use
+ * transparent huge pages depending on its {@code shmem_enabled} setting.
+ * <p>
+ * Every chunk is mapped from a file of its own, whose size is rounded up to a multiple of the alignment, which needs
+ * to be a multiple of the huge page size for {@code hugetlbfs}. The file is closed and deleted right after it was
+ * mapped, so the memory of a chunk is returned to the system once it is unmapped, which happens when the chunk is
+ * freed.
+ * <p>
+ * The chunks can be pre-faulted via {@link #prefault(int, int)}, which also makes sure that enough huge pages are
+ * reserved before the application starts to serve requests. Pre-faulted chunks which were not used are unmapped by
+ * {@link #close()}.
+ */
+public final class MappedFilePoolChunkSource implements PoolChunkSource, Closeable {
+
+    /**
+     * The default alignment of the chunks, which is the size of a huge page on x86-64.
+     */
+    public static final int DEFAULT_ALIGNMENT = 2 * 1024 * 1024;
+
+    // Pre-faulting touches every page, also if the file is not backed by huge pages.
+    private static final int PAGE_SIZE = 4096;
+
+    private final File directory;
+    private final int alignment;
+    private final Map<Integer, ArrayDeque<ByteBuffer>> prefaultedChunks =
+            new HashMap<Integer, ArrayDeque<ByteBuffer>>();
+    // The mappings of all chunks which are mapped at the moment, keyed by the chunk.
+    private final Map<ByteBuffer, MappedByteBuffer> chunks = new IdentityHashMap<ByteBuffer, MappedByteBuffer>();
+    private long mappedBytes;
+    private boolean closed;
+
+    /**
+     * Creates a new instance which maps the chunks from new files in the given directory, aligned to
+     * {@link #DEFAULT_ALIGNMENT}.
+     */
+    public MappedFilePoolChunkSource(File directory) throws IOException {
+        this(directory, DEFAULT_ALIGNMENT);
+    }
+
+    /**
+     * Creates a new instance which maps the chunks from new files in the given directory.
+     *
+     * @param alignment the alignment of the size of the chunks, which must be a power of two and a multiple of the
+     *                  huge page size if the directory is on a {@code hugetlbfs} mount.
+     */
+    public MappedFilePoolChunkSource(File directory, int alignment) throws IOException {
+        ObjectUtil.checkNotNull(directory, "directory");
+        if (alignment < PAGE_SIZE || (alignment & alignment - 1) != 0) {
+            throw new IllegalArgumentException("alignment: " + alignment + " (expected: power of two >= 4096)");
+        }
+        if (!directory.isDirectory()) {
+            throw new IOException("not a directory: " + directory);
+        }
+        this.directory = directory;
+        this.alignment = alignment;
+    }
+
+    /**
+     * Maps {@code numChunks} chunks of the given capacity and touches all their pages, so they are backed by memory
+     * right away. The chunks are used by the next allocations of that capacity.
+     */
+    public synchronized void prefault(int capacity, int numChunks) {
+        ObjectUtil.checkPositive(capacity, "capacity");
+        ensureOpen();
+        for (int i = 0; i < numChunks; i++) {
+            ByteBuffer chunk = map(capacity);
+            for (int offset = 0; offset < capacity; offset += PAGE_SIZE) {
+                chunk.put(offset, (byte) 0);
+            }
+            prefaultedChunks(capacity).add(chunk);
+        }
+    }
+
+    @Override
+    public synchronized ByteBuffer allocate(int capacity) {
+        ensureOpen();
+        ArrayDeque<ByteBuffer> prefaulted = prefaultedChunks.get(capacity);
+        if (prefaulted != null) {
+            ByteBuffer chunk = prefaulted.pollFirst();
+            if (chunk != null) {
+                return chunk;
+            }
+        }
+        return map(capacity);
+    }
+
+    @Override
+    public synchronized void free(ByteBuffer memory) {
+        MappedByteBuffer mapping = chunks.remove(memory);
+        if (mapping == null) {
+            throw new IllegalArgumentException("memory was not allocated by this source");
+        }
+        unmap(mapping);
+    }
+
+    /**
+     * Unmaps all pre-faulted chunks which were not used. The chunks which are in use stay valid until they are
+     * freed, but no new chunks are allocated anymore.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ArrayDeque<ByteBuffer> prefaulted: prefaultedChunks.values()) {
+            for (ByteBuffer chunk: prefaulted) {
+                unmap(chunks.remove(chunk));
+            }
+        }
+        prefaultedChunks.clear();
+    }
+
+    /**
+     * Returns the number of bytes which are mapped at the moment.
+     */
+    public synchronized long mappedBytes() {
+        return mappedBytes;
+    }
+
+    private void ensureOpen() {
+        if (closed) {
+            throw new IllegalStateException("closed");
+        }
+    }
+
+    private ArrayDeque<ByteBuffer> prefaultedChunks(int capacity) {
+        ArrayDeque<ByteBuffer> prefaulted = prefaultedChunks.get(capacity);
+        if (prefaulted == null) {
+            prefaulted = new ArrayDeque<ByteBuffer>();
+            prefaultedChunks.put(capacity, prefaulted);
+        }
+        return prefaulted;
+    }
+
+    private ByteBuffer map(int capacity) {
+        long size = (capacity + (long) alignment - 1) & -alignment;
+        MappedByteBuffer mapping;
+        try {
+            File file = File.createTempFile("netty-chunk-", ".mem", directory);
+            try {
+                RandomAccessFile raf = new RandomAccessFile(file, "rw");
+                try {
+                    // Maps the file, which is extended as needed. The mapping stays valid after the file was closed.
+                    mapping = raf.getChannel().map(MapMode.READ_WRITE, 0, size);
+                } finally {
+                    raf.close();
+                }
+            } finally {
+                // The memory is released once the mapping is gone.
+                if (!file.delete()) {
+                    file.deleteOnExit();
+                }
+            }
+        } catch (IOException e) {
+            OutOfMemoryError error = new OutOfMemoryError("failed to map " + size + " bytes");
+            error.initCause(e);
+            throw error;
+        }
+        mappedBytes += size;
+        mapping.limit(capacity);
+        ByteBuffer chunk = mapping.slice();
+        chunks.put(chunk, mapping);
+        return chunk;
+    }
+
+    private void unmap(MappedByteBuffer mapping) {
+        mappedBytes -= mapping.capacity();
+        // If the mapping can not be released explicitly, it is released once the GC collected it.
+        PlatformDependent.freeDirectBuffer(mapping);
+    }
+}
@@ -16,6 +16,8 @@
 
 package io.netty.buffer;
 
+import io.netty.util.Recycler;
+import io.netty.util.Recycler.Handle;
 import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
@@ -24,6 +26,7 @@ import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Queue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.lang.Math.max;
@@ -37,15 +40,20 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         Normal
     }
 
-    static final int numTinySubpagePools = 512 >>> 4;
+    static final int DEFAULT_NUM_TINY_SUBPAGE_POOLS = 512 >>> 4;
 
     final PooledByteBufAllocator parent;
+    // null if sizes are rounded up to the next power of two (>= 512) or the quantum (< 512).
+    final SizeClasses sizeClasses;
+    // true if the chunks allocate runs of any number of pages instead of using a buddy tree.
+    final boolean runBasedChunks;
 
     private final int maxOrder;
     final int pageSize;
     final int pageShifts;
     final int chunkSize;
     final int subpageOverflowMask;
+    final int numTinySubpagePools;
     final int numSmallSubpagePools;
     private final PoolSubpage<T>[] tinySubpagePools;
     private final PoolSubpage<T>[] smallSubpagePools;
@@ -59,40 +67,66 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     private final List<PoolChunkListMetric> chunkListMetrics;
 
-    // Metrics for allocations and deallocations
-    private long allocationsNormal;
-    // We need to use the LongCounter here as this is not guarded via synchronized block.
+    // Metrics for allocations and deallocations. These are all LongCounters, so they can be collected without
+    // taking the lock of the arena.
+    private final LongCounter allocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter allocationsTiny = PlatformDependent.newLongCounter();
     private final LongCounter allocationsSmall = PlatformDependent.newLongCounter();
     private final LongCounter allocationsHuge = PlatformDependent.newLongCounter();
     private final LongCounter activeBytesHuge = PlatformDependent.newLongCounter();
+    private final LongCounter activeBytesChunks = PlatformDependent.newLongCounter();
 
-    private long deallocationsTiny;
-    private long deallocationsSmall;
-    private long deallocationsNormal;
-
-    // We need to use the LongCounter here as this is not guarded via synchronized block.
+    private final LongCounter deallocationsTiny = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsSmall = PlatformDependent.newLongCounter();
+    private final LongCounter deallocationsNormal = PlatformDependent.newLongCounter();
     private final LongCounter deallocationsHuge = PlatformDependent.newLongCounter();
 
+    private final LongCounter crossThreadDeallocations = PlatformDependent.newLongCounter();
+    private final LongCounter remoteDeallocations = PlatformDependent.newLongCounter();
+
+    // Updated by the PoolThreadCaches, which may belong to several threads.
+    final LongCounter threadCacheHits = PlatformDependent.newLongCounter();
+    final LongCounter threadCacheMisses = PlatformDependent.newLongCounter();
+    final LongCounter threadCacheTrimmedBuffers = PlatformDependent.newLongCounter();
+
     // Number of thread caches backed by this arena.
     final AtomicInteger numThreadCaches = new AtomicInteger();
 
+    // The only thread which uses this arena, which it does without taking any locks, or null if the arena is shared
+    // by several threads. Other threads hand their deallocations to the owner via remoteDeallocationQueue.
+    private volatile Thread owner;
+    private Queue<RemoteDeallocation> remoteDeallocationQueue;
+
     // TODO: Test if adding padding helps under contention
     //private long pad0, pad1, pad2, pad3, pad4, pad5, pad6, pad7;
 
     protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
+        this(parent, pageSize, maxOrder, pageShifts, chunkSize, false, false);
+    }
+
+    protected PoolArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                        boolean useSizeClasses, boolean runBasedChunks) {
         this.parent = parent;
+        this.runBasedChunks = runBasedChunks;
         this.pageSize = pageSize;
         this.maxOrder = maxOrder;
         this.pageShifts = pageShifts;
         this.chunkSize = chunkSize;
         subpageOverflowMask = ~(pageSize - 1);
+        if (useSizeClasses) {
+            sizeClasses = new SizeClasses(pageSize, pageShifts, chunkSize, runBasedChunks);
+            numTinySubpagePools = sizeClasses.numTinyPools();
+            numSmallSubpagePools = sizeClasses.numSmallPools();
+        } else {
+            sizeClasses = null;
+            numTinySubpagePools = DEFAULT_NUM_TINY_SUBPAGE_POOLS;
+            numSmallSubpagePools = pageShifts - 9;
+        }
         tinySubpagePools = newSubpagePoolArray(numTinySubpagePools);
         for (int i = 0; i < tinySubpagePools.length; i ++) {
             tinySubpagePools[i] = newSubpagePoolHead(pageSize);
         }
 
-        numSmallSubpagePools = pageShifts - 9;
         smallSubpagePools = newSubpagePoolArray(numSmallSubpagePools);
         for (int i = 0; i < smallSubpagePools.length; i ++) {
             smallSubpagePools[i] = newSubpagePoolHead(pageSize);
@@ -136,17 +170,75 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     abstract boolean isDirect();
 
+    /**
+     * Makes the given {@link Thread} the owner of this arena, which must either not have been used yet or have been
+     * released by its previous owner, see {@link #releaseOwner(Thread)}. The owner allocates and deallocates without
+     * taking any locks, so no other {@link Thread} must allocate from this arena.
+     */
+    void owner(Thread owner) {
+        assert this.owner == null && numThreadCaches.get() == 0;
+        Queue<RemoteDeallocation> queue = remoteDeallocationQueue;
+        if (queue == null) {
+            remoteDeallocationQueue = PlatformDependent.newMpscQueue();
+            this.owner = owner;
+            return;
+        }
+        // The arena is reused, so other threads may still deallocate or drain the remote deallocations while holding
+        // the locks. Take both locks, in the same order as drainRemoteDeallocations(), so they notice the new owner
+        // before it starts to use the arena without any locks.
+        synchronized (queue) {
+            synchronized (this) {
+                this.owner = owner;
+            }
+        }
+    }
+
+    /**
+     * Releases the ownership of the given {@link Thread}, if it is the owner, so this arena is shared from now on.
+     * Must be called by the owner or once the owner is not alive anymore. Returns {@code true} if the ownership was
+     * released.
+     */
+    boolean releaseOwner(Thread owner) {
+        if (this.owner != owner || owner == null) {
+            return false;
+        }
+        this.owner = null;
+        drainRemoteDeallocations();
+        return true;
+    }
+
+    /**
+     * Returns {@code true} if this arena was created for an owner {@link Thread}, see {@link #owner(Thread)}, even if
+     * it is currently released.
+     */
+    boolean isOwnedArena() {
+        return remoteDeallocationQueue != null;
+    }
+
+    /**
+     * Returns {@code true} if the calling {@link Thread} owns this arena and so must not take any locks.
+     */
+    boolean isOwnerThread() {
+        return owner == Thread.currentThread();
+    }
+
     PooledByteBuf<T> allocate(PoolThreadCache cache, int reqCapacity, int maxCapacity) {
         PooledByteBuf<T> buf = newByteBuf(maxCapacity);
         allocate(cache, buf, reqCapacity);
         return buf;
     }
 
-    static int tinyIdx(int normCapacity) {
+    int tinyIdx(int normCapacity) {
+        if (sizeClasses != null) {
+            return sizeClasses.poolIdx(normCapacity);
+        }
         return normCapacity >>> 4;
     }
 
-    static int smallIdx(int normCapacity) {
+    int smallIdx(int normCapacity) {
+        if (sizeClasses != null) {
+            return sizeClasses.poolIdx(normCapacity);
+        }
         int tableIdx = 0;
         int i = normCapacity >>> 10;
         while (i != 0) {
@@ -156,17 +248,35 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         return tableIdx;
     }
 
-    // capacity < pageSize
+    // capacity < pageSize, or served by a PoolSubpage if size classes are used
     boolean isTinyOrSmall(int normCapacity) {
+        if (sizeClasses != null) {
+            return sizeClasses.isSubpage(normCapacity);
+        }
         return (normCapacity & subpageOverflowMask) == 0;
     }
 
+    /**
+     * Returns the number of pages of the run which is sliced by a {@link PoolSubpage} of the given element size.
+     */
+    int subpageRunPages(int normCapacity) {
+        if (sizeClasses != null) {
+            return sizeClasses.subpageRunPages(normCapacity);
+        }
+        return 1;
+    }
+
     // normCapacity < 512
     static boolean isTiny(int normCapacity) {
         return (normCapacity & 0xFFFFFE00) == 0;
     }
 
     private void allocate(PoolThreadCache cache, PooledByteBuf<T> buf, final int reqCapacity) {
+        final boolean ownerThread = isOwnerThread();
+        if (ownerThread) {
+            // Reuse what other threads released before allocating more memory.
+            drainRemoteDeallocations();
+        }
         final int normCapacity = normalizeCapacity(reqCapacity);
         if (isTinyOrSmall(normCapacity)) { // capacity < pageSize
             int tableIdx;
@@ -190,27 +300,22 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
             final PoolSubpage<T> head = table[tableIdx];
 
-            /**
-             * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
-             * {@link PoolChunk#free(long)} may modify the doubly linked list as well.
-             */
-            synchronized (head) {
-                final PoolSubpage<T> s = head.next;
-                if (s != head) {
-                    assert s.doNotDestroy && s.elemSize == normCapacity;
-                    long handle = s.allocate();
-                    assert handle >= 0;
-                    s.chunk.initBufWithSubpage(buf, handle, reqCapacity);
-
-                    if (tiny) {
-                        allocationsTiny.increment();
-                    } else {
-                        allocationsSmall.increment();
-                    }
+            if (ownerThread) {
+                if (allocateSubpage(head, buf, reqCapacity, normCapacity, tiny)) {
                     return;
                 }
+            } else {
+                /**
+                 * Synchronize on the head. This is needed as {@link PoolChunk#allocateSubpage(int)} and
+                 * {@link PoolChunk#free(long)} may modify the doubly linked list as well.
+                 */
+                synchronized (head) {
+                    if (allocateSubpage(head, buf, reqCapacity, normCapacity, tiny)) {
+                        return;
+                    }
+                }
             }
-            allocateNormal(buf, reqCapacity, normCapacity);
+            allocateNormal(buf, reqCapacity, normCapacity, ownerThread);
             return;
         }
         if (normCapacity <= chunkSize) {
@@ -218,25 +323,56 @@ abstract class PoolArena<T> implements PoolArenaMetric {
                 // was able to allocate out of the cache so move on
                 return;
             }
-            allocateNormal(buf, reqCapacity, normCapacity);
+            allocateNormal(buf, reqCapacity, normCapacity, ownerThread);
         } else {
             // Huge allocations are never served via the cache so just call allocateHuge
             allocateHuge(buf, reqCapacity);
         }
     }
 
-    private synchronized void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
+    private boolean allocateSubpage(PoolSubpage<T> head, PooledByteBuf<T> buf, int reqCapacity, int normCapacity,
+                                    boolean tiny) {
+        final PoolSubpage<T> s = head.next;
+        if (s == head) {
+            return false;
+        }
+        assert s.doNotDestroy && s.elemSize == normCapacity;
+        long handle = s.allocate();
+        assert handle >= 0;
+        s.chunk.initBufWithSubpage(buf, handle, reqCapacity);
+
+        if (tiny) {
+            allocationsTiny.increment();
+        } else {
+            allocationsSmall.increment();
+        }
+        return true;
+    }
+
+    private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity, boolean ownerThread) {
+        if (ownerThread) {
+            allocateNormal(buf, reqCapacity, normCapacity);
+        } else {
+            synchronized (this) {
+                allocateNormal(buf, reqCapacity, normCapacity);
+            }
+        }
+    }
+
+    // Must be called while holding the lock of this arena, unless called by the owner.
+    private void allocateNormal(PooledByteBuf<T> buf, int reqCapacity, int normCapacity) {
         if (q050.allocate(buf, reqCapacity, normCapacity) || q025.allocate(buf, reqCapacity, normCapacity) ||
             q000.allocate(buf, reqCapacity, normCapacity) || qInit.allocate(buf, reqCapacity, normCapacity) ||
             q075.allocate(buf, reqCapacity, normCapacity)) {
-            ++allocationsNormal;
+            allocationsNormal.increment();
             return;
         }
 
         // Add a new chunk.
         PoolChunk<T> c = newChunk(pageSize, maxOrder, pageShifts, chunkSize);
+        activeBytesChunks.add(c.chunkSize());
         long handle = c.allocate(normCapacity);
-        ++allocationsNormal;
+        allocationsNormal.increment();
         assert handle > 0;
         c.initBuf(buf, handle, reqCapacity);
         qInit.add(c);
@@ -250,6 +386,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     void free(PoolChunk<T> chunk, long handle, int normCapacity, PoolThreadCache cache) {
+        if (cache != null && cache.thread != Thread.currentThread()) {
+            crossThreadDeallocations.increment();
+        }
         if (chunk.unpooled) {
             int size = chunk.chunkSize();
             destroyChunk(chunk);
@@ -274,30 +413,151 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     void freeChunk(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
-        final boolean destroyChunk;
-        synchronized (this) {
-            switch (sizeClass) {
-            case Normal:
-                ++deallocationsNormal;
-                break;
-            case Small:
-                ++deallocationsSmall;
-                break;
-            case Tiny:
-                ++deallocationsTiny;
-                break;
-            default:
-                throw new Error();
+        Thread owner = this.owner;
+        boolean destroyChunk = false;
+        if (owner == null) {
+            synchronized (this) {
+                // A released arena may have been taken over by a new owner meanwhile, see owner(Thread).
+                owner = this.owner;
+                if (owner == null) {
+                    destroyChunk = freeChunk0(chunk, handle, sizeClass);
+                }
             }
-            destroyChunk = !chunk.parent.free(chunk, handle);
+        }
+        if (owner == Thread.currentThread()) {
+            destroyChunk = freeChunk0(chunk, handle, sizeClass);
+        } else if (owner != null) {
+            freeRemote(chunk, handle, sizeClass);
+            return;
         }
         if (destroyChunk) {
             // destroyChunk not need to be called while holding the synchronized lock.
+            activeBytesChunks.add(-chunk.chunkSize());
             destroyChunk(chunk);
         }
     }
 
+    // Must be called while holding the lock of this arena, unless called by the owner.
+    private boolean freeChunk0(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
+        switch (sizeClass) {
+        case Normal:
+            deallocationsNormal.increment();
+            break;
+        case Small:
+            deallocationsSmall.increment();
+            break;
+        case Tiny:
+            deallocationsTiny.increment();
+            break;
+        default:
+            throw new Error();
+        }
+        return !chunk.parent.free(chunk, handle);
+    }
+
+    /**
+     * Hands the deallocation to the owner of this arena, which does it the next time it allocates.
+     */
+    private void freeRemote(PoolChunk<T> chunk, long handle, SizeClass sizeClass) {
+        remoteDeallocationQueue.offer(RemoteDeallocation.newInstance(chunk, handle, sizeClass));
+        remoteDeallocations.increment();
+        if (owner == null) {
+            // The owner released this arena concurrently and may have missed the deallocation, so do it ourself.
+            drainRemoteDeallocations();
+        }
+    }
+
+    private void drainRemoteDeallocations() {
+        Queue<RemoteDeallocation> queue = remoteDeallocationQueue;
+        if (queue == null) {
+            return;
+        }
+        if (isOwnerThread()) {
+            drainRemoteDeallocations(queue);
+        } else {
+            // The arena was released by its owner, so there may be several consumers.
+            synchronized (queue) {
+                drainRemoteDeallocations(queue);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void drainRemoteDeallocations(Queue<RemoteDeallocation> queue) {
+        final boolean ownerThread = isOwnerThread();
+        for (;;) {
+            if (!ownerThread && owner != null) {
+                // A new owner took over the arena and drains the remaining deallocations itself.
+                return;
+            }
+            RemoteDeallocation deallocation = queue.poll();
+            if (deallocation == null) {
+                return;
+            }
+            freeChunk((PoolChunk<T>) deallocation.chunk, deallocation.handle, deallocation.sizeClass);
+            deallocation.recycle();
+        }
+    }
+
+    /**
+     * Destroys the chunks which were completely free and not used for at least {@code idleNanos}, so the memory of an
+     * arena shrinks again after a spike in load. Needs to be called periodically, see
+     * {@link PoolChunk#isIdle(long, long)}. Does nothing if the arena is owned by another {@link Thread}.
+     */
+    void releaseIdleChunks(long nowNanos, long idleNanos) {
+        Thread owner = this.owner;
+        List<PoolChunk<T>> idleChunks = null;
+        if (owner == null) {
+            synchronized (this) {
+                owner = this.owner;
+                if (owner == null) {
+                    idleChunks = removeIdleChunks(nowNanos, idleNanos);
+                }
+            }
+        }
+        if (owner == Thread.currentThread()) {
+            drainRemoteDeallocations();
+            idleChunks = removeIdleChunks(nowNanos, idleNanos);
+        } else if (owner != null) {
+            return;
+        }
+        destroyChunks(idleChunks);
+    }
+
+    // Must be called while holding the lock of this arena, unless called by the owner.
+    private List<PoolChunk<T>> removeIdleChunks(long nowNanos, long idleNanos) {
+        // Chunks of the other lists are destroyed as soon as they are completely free, but the ones in qInit are kept.
+        return qInit.removeIdleChunks(nowNanos, idleNanos);
+    }
+
+    /**
+     * Destroys the chunks which are completely free right now, so a released arena does not hold on to memory until
+     * it is reused, see {@link #releaseOwner(Thread)}. Does nothing if the arena is owned by a {@link Thread}.
+     */
+    void releaseFreeChunks() {
+        final List<PoolChunk<T>> freeChunks;
+        synchronized (this) {
+            if (owner != null) {
+                return;
+            }
+            freeChunks = qInit.removeFreeChunks();
+        }
+        destroyChunks(freeChunks);
+    }
+
+    private void destroyChunks(List<PoolChunk<T>> chunks) {
+        if (chunks != null) {
+            for (PoolChunk<T> chunk: chunks) {
+                activeBytesChunks.add(-chunk.chunkSize());
+                destroyChunk(chunk);
+            }
+        }
+    }
+
     PoolSubpage<T> findSubpagePoolHead(int elemSize) {
+        if (sizeClasses != null) {
+            return (isTiny(elemSize) ? tinySubpagePools : smallSubpagePools)[sizeClasses.poolIdx(elemSize)];
+        }
         int tableIdx;
         PoolSubpage<T>[] table;
         if (isTiny(elemSize)) { // < 512
@@ -324,6 +584,15 @@ abstract class PoolArena<T> implements PoolArenaMetric {
             return reqCapacity;
         }
 
+        if (sizeClasses != null) {
+            return sizeClasses.normalize(reqCapacity);
+        }
+
+        if (runBasedChunks && reqCapacity > pageSize) {
+            // Any number of pages can be allocated, so round up to the next multiple of the pageSize.
+            return (reqCapacity + pageSize - 1) & subpageOverflowMask;
+        }
+
         if (!isTiny(reqCapacity)) { // >= 512
             // Doubled
 
@@ -369,7 +638,16 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         int readerIndex = buf.readerIndex();
         int writerIndex = buf.writerIndex();
 
-        allocate(parent.threadCache(), buf, newCapacity);
+        PoolThreadCache cache = parent.threadCache();
+        if (isOwnedArena() && !isOwnerThread()) {
+            // Only the owner may allocate from this arena, so use the arena of the calling thread. This also holds if
+            // the arena is released right now, as it may be taken over by a new owner at any time.
+            @SuppressWarnings("unchecked")
+            PoolArena<T> arena = (PoolArena<T>) (isDirect() ? cache.directArena : cache.heapArena);
+            arena.allocate(cache, buf, newCapacity);
+        } else {
+            allocate(cache, buf, newCapacity);
+        }
         if (newCapacity > oldCapacity) {
             memoryCopy(
                     oldMemory, oldOffset,
@@ -450,11 +728,8 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numAllocations() {
-        final long allocsNormal;
-        synchronized (this) {
-            allocsNormal = allocationsNormal;
-        }
-        return allocationsTiny.value() + allocationsSmall.value() + allocsNormal + allocationsHuge.value();
+        return allocationsTiny.value() + allocationsSmall.value() + allocationsNormal.value() +
+                allocationsHuge.value();
     }
 
     @Override
@@ -468,32 +743,45 @@ abstract class PoolArena<T> implements PoolArenaMetric {
     }
 
     @Override
-    public synchronized long numNormalAllocations() {
-        return allocationsNormal;
+    public long numNormalAllocations() {
+        return allocationsNormal.value();
     }
 
     @Override
     public long numDeallocations() {
-        final long deallocs;
-        synchronized (this) {
-            deallocs = deallocationsTiny + deallocationsSmall + deallocationsNormal;
-        }
-        return deallocs + deallocationsHuge.value();
+        return deallocationsTiny.value() + deallocationsSmall.value() + deallocationsNormal.value() +
+                deallocationsHuge.value();
+    }
+
+    @Override
+    public long numTinyDeallocations() {
+        return deallocationsTiny.value();
     }
 
     @Override
-    public synchronized long numTinyDeallocations() {
-        return deallocationsTiny;
+    public long numSmallDeallocations() {
+        return deallocationsSmall.value();
     }
 
     @Override
-    public synchronized long numSmallDeallocations() {
-        return deallocationsSmall;
+    public long numNormalDeallocations() {
+        return deallocationsNormal.value();
     }
 
     @Override
-    public synchronized long numNormalDeallocations() {
-        return deallocationsNormal;
+    public long numCrossThreadDeallocations() {
+        return crossThreadDeallocations.value();
+    }
+
+    @Override
+    public long numRemoteDeallocations() {
+        return remoteDeallocations.value();
+    }
+
+    @Override
+    public long numPendingRemoteDeallocations() {
+        Queue<RemoteDeallocation> queue = remoteDeallocationQueue;
+        return queue == null ? 0 : queue.size();
     }
 
     @Override
@@ -508,12 +796,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public  long numActiveAllocations() {
-        long val = allocationsTiny.value() + allocationsSmall.value() + allocationsHuge.value()
-                - deallocationsHuge.value();
-        synchronized (this) {
-            val += allocationsNormal - (deallocationsTiny + deallocationsSmall + deallocationsNormal);
-        }
-        return max(val, 0);
+        return max(numAllocations() - numDeallocations(), 0);
     }
 
     @Override
@@ -528,11 +811,7 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numActiveNormalAllocations() {
-        final long val;
-        synchronized (this) {
-            val = allocationsNormal - deallocationsNormal;
-        }
-        return max(val, 0);
+        return max(numNormalAllocations() - numNormalDeallocations(), 0);
     }
 
     @Override
@@ -542,15 +821,22 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     @Override
     public long numActiveBytes() {
-        long val = activeBytesHuge.value();
-        synchronized (this) {
-            for (int i = 0; i < chunkListMetrics.size(); i++) {
-                for (PoolChunkMetric m: chunkListMetrics.get(i)) {
-                    val += m.chunkSize();
-                }
-            }
-        }
-        return max(0, val);
+        return max(0, activeBytesHuge.value() + activeBytesChunks.value());
+    }
+
+    @Override
+    public long numThreadCacheHits() {
+        return threadCacheHits.value();
+    }
+
+    @Override
+    public long numThreadCacheMisses() {
+        return threadCacheMisses.value();
+    }
+
+    @Override
+    public long numThreadCacheTrimmedBuffers() {
+        return threadCacheTrimmedBuffers.value();
     }
 
     protected abstract PoolChunk<T> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize);
@@ -640,12 +926,50 @@ abstract class PoolArena<T> implements PoolArenaMetric {
         }
     }
 
+    static final class RemoteDeallocation {
+        private final Handle<RemoteDeallocation> recyclerHandle;
+        PoolChunk<?> chunk;
+        long handle = -1;
+        SizeClass sizeClass;
+
+        RemoteDeallocation(Handle<RemoteDeallocation> recyclerHandle) {
+            this.recyclerHandle = recyclerHandle;
+        }
+
+        void recycle() {
+            chunk = null;
+            handle = -1;
+            sizeClass = null;
+            recyclerHandle.recycle(this);
+        }
+
+        static RemoteDeallocation newInstance(PoolChunk<?> chunk, long handle, SizeClass sizeClass) {
+            RemoteDeallocation deallocation = RECYCLER.get();
+            deallocation.chunk = chunk;
+            deallocation.handle = handle;
+            deallocation.sizeClass = sizeClass;
+            return deallocation;
+        }
+
+        private static final Recycler<RemoteDeallocation> RECYCLER = new Recycler<RemoteDeallocation>() {
+            @Override
+            protected RemoteDeallocation newObject(Handle<RemoteDeallocation> handle) {
+                return new RemoteDeallocation(handle);
+            }
+        };
+    }
+
     static final class HeapArena extends PoolArena<byte[]> {
 
         HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
             super(parent, pageSize, maxOrder, pageShifts, chunkSize);
         }
 
+        HeapArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                  boolean useSizeClasses, boolean runBasedChunks) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize, useSizeClasses, runBasedChunks);
+        }
+
         @Override
         boolean isDirect() {
             return false;
@@ -684,8 +1008,23 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
     static final class DirectArena extends PoolArena<ByteBuffer> {
 
+        // Provides the memory of the pooled chunks if not null, huge allocations always use allocateDirect.
+        private final PoolChunkSource chunkSource;
+
         DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize) {
             super(parent, pageSize, maxOrder, pageShifts, chunkSize);
+            chunkSource = null;
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                    boolean useSizeClasses, boolean runBasedChunks) {
+            this(parent, pageSize, maxOrder, pageShifts, chunkSize, useSizeClasses, runBasedChunks, null);
+        }
+
+        DirectArena(PooledByteBufAllocator parent, int pageSize, int maxOrder, int pageShifts, int chunkSize,
+                    boolean useSizeClasses, boolean runBasedChunks, PoolChunkSource chunkSource) {
+            super(parent, pageSize, maxOrder, pageShifts, chunkSize, useSizeClasses, runBasedChunks);
+            this.chunkSource = chunkSource;
         }
 
         @Override
@@ -695,8 +1034,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
         @Override
         protected PoolChunk<ByteBuffer> newChunk(int pageSize, int maxOrder, int pageShifts, int chunkSize) {
+            ByteBuffer memory = chunkSource == null ? allocateDirect(chunkSize) : chunkSource.allocate(chunkSize);
             return new PoolChunk<ByteBuffer>(
-                    this, allocateDirect(chunkSize),
+                    this, memory,
                     pageSize, maxOrder, pageShifts, chunkSize);
         }
 
@@ -712,7 +1052,9 @@ abstract class PoolArena<T> implements PoolArenaMetric {
 
         @Override
         protected void destroyChunk(PoolChunk<ByteBuffer> chunk) {
-            if (PlatformDependent.useDirectBufferNoCleaner()) {
+            if (chunkSource != null && !chunk.unpooled) {
+                chunkSource.free(chunk.memory);
+            } else if (PlatformDependent.useDirectBufferNoCleaner()) {
                 PlatformDependent.freeDirectNoCleaner(chunk.memory);
             } else {
                 PlatformDependent.freeDirectBuffer(chunk.memory);
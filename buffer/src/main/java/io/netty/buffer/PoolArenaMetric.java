@@ -20,6 +20,11 @@ import java.util.List;
 
 /**
  * Expose metrics for an arena.
+ * <p>
+ * The counters are maintained without taking the lock of the arena, so they are cheap to collect.
+ * <p>
+ * An arena which is owned by a thread is updated by that thread without taking any locks, so its metrics may be
+ * slightly out of date if they are read by another thread.
  */
 public interface PoolArenaMetric {
 
@@ -108,6 +113,24 @@ public interface PoolArenaMetric {
      */
     long numHugeDeallocations();
 
+    /**
+     * Return the number of deallocations which were done by another thread than the one which allocated the buffer.
+     * These may contend with the allocations of the thread which allocated the buffer.
+     */
+    long numCrossThreadDeallocations();
+
+    /**
+     * Return the number of deallocations which were handed to the thread that owns the arena, as they were done by
+     * another thread. This is always {@code 0} if the arena is not owned by a thread.
+     */
+    long numRemoteDeallocations();
+
+    /**
+     * Return the number of deallocations which were handed to the thread that owns the arena but were not processed
+     * by it yet.
+     */
+    long numPendingRemoteDeallocations();
+
     /**
      * Return the number of currently active allocations.
      */
@@ -137,4 +160,21 @@ public interface PoolArenaMetric {
      * Return the number of active bytes that are currently allocated by the arena.
      */
     long numActiveBytes();
+
+    /**
+     * Return the number of allocations which were served by the thread caches backed by this arena.
+     */
+    long numThreadCacheHits();
+
+    /**
+     * Return the number of allocations which could have been served by the thread caches backed by this arena, but
+     * had to be done via the arena as the cache was empty.
+     */
+    long numThreadCacheMisses();
+
+    /**
+     * Return the number of cached buffers which were freed from the thread caches backed by this arena, as they were
+     * not allocated frequently enough.
+     */
+    long numThreadCacheTrimmedBuffers();
 }
@@ -91,6 +91,17 @@ package io.netty.buffer;
  * 2) use this handle to construct the PoolSubpage object or if it already exists just call init(normCapacity)
  *    note that this PoolSubpage object is added to subpagesPool in the PoolArena when we init() it
  *
+ * If the PoolArena uses SizeClasses a PoolSubpage may slice a run of more than one page, in which case
+ * allocateNode(d) is used with the depth of that run instead. The PoolSubpage is stored at the index of the first
+ * page of its run.
+ *
+ * Run based chunks:
+ * -----------------
+ * If the PoolArena uses run based chunks the memoryMap is not used at all. Instead the free runs of pages are kept by
+ * PoolChunkFreeRuns, so a run may have any number of pages and allocations >= pageSize are only rounded up to a
+ * multiple of the pageSize. In this case the lower 32 bits of a handle are (firstPage << RUN_PAGES_BITS | pages)
+ * instead of the index in memoryMap.
+ *
  * Note:
  * -----
  * In the implementation for improving cache coherence,
@@ -103,6 +114,9 @@ package io.netty.buffer;
 final class PoolChunk<T> implements PoolChunkMetric {
 
     private static final int INTEGER_SIZE_MINUS_ONE = Integer.SIZE - 1;
+    // maxOrder is at most 14, so the number of pages of a run fits into 15 bits.
+    private static final int RUN_PAGES_BITS = 15;
+    private static final int RUN_PAGES_MASK = (1 << RUN_PAGES_BITS) - 1;
 
     final PoolArena<T> arena;
     final T memory;
@@ -110,9 +124,9 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     private final byte[] memoryMap;
     private final byte[] depthMap;
+    // null unless the arena uses run based chunks, in which case memoryMap and depthMap are null.
+    private final PoolChunkFreeRuns freeRuns;
     private final PoolSubpage<T>[] subpages;
-    /** Used to determine if the requested capacity is equal to or greater than pageSize. */
-    private final int subpageOverflowMask;
     private final int pageSize;
     private final int pageShifts;
     private final int maxOrder;
@@ -124,6 +138,10 @@ final class PoolChunk<T> implements PoolChunkMetric {
 
     private int freeBytes;
 
+    // Used to find the chunks which were not used for a while, see isIdle(long, long).
+    private boolean allocatedSinceIdleCheck = true;
+    private long idleSinceNanos;
+
     PoolChunkList<T> parent;
     PoolChunk<T> prev;
     PoolChunk<T> next;
@@ -141,23 +159,30 @@ final class PoolChunk<T> implements PoolChunkMetric {
         this.chunkSize = chunkSize;
         unusable = (byte) (maxOrder + 1);
         log2ChunkSize = log2(chunkSize);
-        subpageOverflowMask = ~(pageSize - 1);
         freeBytes = chunkSize;
 
         assert maxOrder < 30 : "maxOrder should be < 30, but is: " + maxOrder;
         maxSubpageAllocs = 1 << maxOrder;
 
-        // Generate the memory map.
-        memoryMap = new byte[maxSubpageAllocs << 1];
-        depthMap = new byte[memoryMap.length];
-        int memoryMapIndex = 1;
-        for (int d = 0; d <= maxOrder; ++ d) { // move down the tree one level at a time
-            int depth = 1 << d;
-            for (int p = 0; p < depth; ++ p) {
-                // in each level traverse left to right and set value to the depth of subtree
-                memoryMap[memoryMapIndex] = (byte) d;
-                depthMap[memoryMapIndex] = (byte) d;
-                memoryMapIndex ++;
+        if (arena.runBasedChunks) {
+            assert maxOrder < RUN_PAGES_BITS : "maxOrder should be < " + RUN_PAGES_BITS + ", but is: " + maxOrder;
+            memoryMap = null;
+            depthMap = null;
+            freeRuns = new PoolChunkFreeRuns(maxSubpageAllocs);
+        } else {
+            freeRuns = null;
+            // Generate the memory map.
+            memoryMap = new byte[maxSubpageAllocs << 1];
+            depthMap = new byte[memoryMap.length];
+            int memoryMapIndex = 1;
+            for (int d = 0; d <= maxOrder; ++ d) { // move down the tree one level at a time
+                int depth = 1 << d;
+                for (int p = 0; p < depth; ++ p) {
+                    // in each level traverse left to right and set value to the depth of subtree
+                    memoryMap[memoryMapIndex] = (byte) d;
+                    depthMap[memoryMapIndex] = (byte) d;
+                    memoryMapIndex ++;
+                }
             }
         }
 
@@ -171,8 +196,8 @@ final class PoolChunk<T> implements PoolChunkMetric {
         this.memory = memory;
         memoryMap = null;
         depthMap = null;
+        freeRuns = null;
         subpages = null;
-        subpageOverflowMask = 0;
         pageSize = 0;
         pageShifts = 0;
         maxOrder = 0;
@@ -202,11 +227,29 @@ final class PoolChunk<T> implements PoolChunkMetric {
     }
 
     long allocate(int normCapacity) {
-        if ((normCapacity & subpageOverflowMask) != 0) { // >= pageSize
-            return allocateRun(normCapacity);
-        } else {
+        allocatedSinceIdleCheck = true;
+        if (arena.isTinyOrSmall(normCapacity)) {
             return allocateSubpage(normCapacity);
+        } else {
+            return allocateRun(normCapacity);
+        }
+    }
+
+    /**
+     * Returns {@code true} if this chunk is completely free and nothing was allocated out of it since at least
+     * {@code idleNanos}. The idle time is measured from the first call which found this chunk free, so this needs to
+     * be called periodically.
+     */
+    boolean isIdle(long nowNanos, long idleNanos) {
+        if (freeBytes != chunkSize) {
+            return false;
+        }
+        if (allocatedSinceIdleCheck) {
+            allocatedSinceIdleCheck = false;
+            idleSinceNanos = nowNanos;
+            return false;
         }
+        return nowNanos - idleSinceNanos >= idleNanos;
     }
 
     /**
@@ -284,6 +327,23 @@ final class PoolChunk<T> implements PoolChunkMetric {
         return id;
     }
 
+    /**
+     * Allocate a run of the given number of pages, which must be a power of two unless run based chunks are used
+     *
+     * @param pages number of pages
+     * @return index in memoryMap, or the encoded run if run based chunks are used
+     */
+    private int allocatePages(int pages) {
+        if (freeRuns != null) {
+            int first = freeRuns.allocate(pages);
+            if (first < 0) {
+                return first;
+            }
+            return first << RUN_PAGES_BITS | pages;
+        }
+        return allocateNode(maxOrder - log2(pages));
+    }
+
     /**
      * Allocate a run of pages (>=1)
      *
@@ -291,8 +351,7 @@ final class PoolChunk<T> implements PoolChunkMetric {
      * @return index in memoryMap
      */
     private long allocateRun(int normCapacity) {
-        int d = maxOrder - (log2(normCapacity) - pageShifts);
-        int id = allocateNode(d);
+        int id = allocatePages(normCapacity >> pageShifts);
         if (id < 0) {
             return id;
         }
@@ -310,29 +369,37 @@ final class PoolChunk<T> implements PoolChunkMetric {
     private long allocateSubpage(int normCapacity) {
         // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
         // This is need as we may add it back and so alter the linked-list structure.
+        // The owner of the PoolArena is the only thread which uses it, so it does not need to synchronize.
         PoolSubpage<T> head = arena.findSubpagePoolHead(normCapacity);
+        if (arena.isOwnerThread()) {
+            return allocateSubpage(head, normCapacity);
+        }
         synchronized (head) {
-            int d = maxOrder; // subpages are only be allocated from pages i.e., leaves
-            int id = allocateNode(d);
-            if (id < 0) {
-                return id;
-            }
+            return allocateSubpage(head, normCapacity);
+        }
+    }
 
-            final PoolSubpage<T>[] subpages = this.subpages;
-            final int pageSize = this.pageSize;
+    private long allocateSubpage(PoolSubpage<T> head, int normCapacity) {
+        // subpages are allocated from pages i.e., leaves, or from small runs if size classes are used
+        int id = allocatePages(arena.subpageRunPages(normCapacity));
+        if (id < 0) {
+            return id;
+        }
 
-            freeBytes -= pageSize;
+        final PoolSubpage<T>[] subpages = this.subpages;
+        final int runSize = runLength(id);
 
-            int subpageIdx = subpageIdx(id);
-            PoolSubpage<T> subpage = subpages[subpageIdx];
-            if (subpage == null) {
-                subpage = new PoolSubpage<T>(head, this, id, runOffset(id), pageSize, normCapacity);
-                subpages[subpageIdx] = subpage;
-            } else {
-                subpage.init(head, normCapacity);
-            }
-            return subpage.allocate();
+        freeBytes -= runSize;
+
+        int subpageIdx = subpageIdx(id);
+        PoolSubpage<T> subpage = subpages[subpageIdx];
+        if (subpage == null || subpage.runSize != runSize) {
+            subpage = new PoolSubpage<T>(head, this, id, runOffset(id), runSize, normCapacity);
+            subpages[subpageIdx] = subpage;
+        } else {
+            subpage.init(head, normCapacity);
         }
+        return subpage.allocate();
     }
 
     /**
@@ -354,23 +421,33 @@ final class PoolChunk<T> implements PoolChunkMetric {
             // Obtain the head of the PoolSubPage pool that is owned by the PoolArena and synchronize on it.
             // This is need as we may add it back and so alter the linked-list structure.
             PoolSubpage<T> head = arena.findSubpagePoolHead(subpage.elemSize);
-            synchronized (head) {
+            if (arena.isOwnerThread()) {
                 if (subpage.free(head, bitmapIdx & 0x3FFFFFFF)) {
                     return;
                 }
+            } else {
+                synchronized (head) {
+                    if (subpage.free(head, bitmapIdx & 0x3FFFFFFF)) {
+                        return;
+                    }
+                }
             }
         }
         freeBytes += runLength(memoryMapIdx);
-        setValue(memoryMapIdx, depth(memoryMapIdx));
-        updateParentsFree(memoryMapIdx);
+        if (freeRuns != null) {
+            freeRuns.free(memoryMapIdx >>> RUN_PAGES_BITS, memoryMapIdx & RUN_PAGES_MASK);
+        } else {
+            setValue(memoryMapIdx, depth(memoryMapIdx));
+            updateParentsFree(memoryMapIdx);
+        }
     }
 
     void initBuf(PooledByteBuf<T> buf, long handle, int reqCapacity) {
         int memoryMapIdx = memoryMapIdx(handle);
         int bitmapIdx = bitmapIdx(handle);
         if (bitmapIdx == 0) {
-            byte val = value(memoryMapIdx);
-            assert val == unusable : String.valueOf(val);
+            assert freeRuns == null ? value(memoryMapIdx) == unusable :
+                    !freeRuns.isFree(memoryMapIdx >>> RUN_PAGES_BITS) : String.valueOf(memoryMapIdx);
             buf.init(this, handle, runOffset(memoryMapIdx), reqCapacity, runLength(memoryMapIdx),
                      arena.parent.threadCache());
         } else {
@@ -415,18 +492,29 @@ final class PoolChunk<T> implements PoolChunkMetric {
     }
 
     private int runLength(int id) {
+        if (freeRuns != null) {
+            return (id & RUN_PAGES_MASK) << pageShifts;
+        }
         // represents the size in #bytes supported by node 'id' in the tree
         return 1 << log2ChunkSize - depth(id);
     }
 
     private int runOffset(int id) {
+        if (freeRuns != null) {
+            return (id >>> RUN_PAGES_BITS) << pageShifts;
+        }
         // represents the 0-based offset in #bytes from start of the byte-array chunk
         int shift = id ^ 1 << depth(id);
         return shift * runLength(id);
     }
 
     private int subpageIdx(int memoryMapIdx) {
-        return memoryMapIdx ^ maxSubpageAllocs; // remove highest set bit, to get offset
+        if (freeRuns != null) {
+            return memoryMapIdx >>> RUN_PAGES_BITS;
+        }
+        // the index of the first page of the run, which is the id without the highest set bit for a leaf
+        int depth = depth(memoryMapIdx);
+        return (memoryMapIdx ^ 1 << depth) << maxOrder - depth;
     }
 
     private static int memoryMapIdx(long handle) {
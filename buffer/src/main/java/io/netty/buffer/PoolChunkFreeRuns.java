@@ -0,0 +1,229 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import java.util.Arrays;
+
+/**
+ * Keeps track of the free runs of pages of a {@link PoolChunk}, which is used instead of the buddy tree if the
+ * {@link PoolArena} uses run based chunks. A run may have any number of pages, so allocations which are not a power
+ * of two multiple of the page size do not waste the rest of the next power of two.
+ * <p>
+ * The free runs are kept in priority queues which are ordered by the number of pages and then by the first page.
+ * There is one queue per power of two group, which holds the runs of {@code [2^n, 2^(n+1))} pages. An allocation
+ * takes the smallest free run which is big enough, preferring lower addresses, and splits off the rest. Freed runs
+ * are coalesced with their free neighbours in constant time, as the free runs are also indexed by their first and
+ * last page.
+ */
+final class PoolChunkFreeRuns {
+
+    private static final int INTEGER_SIZE_MINUS_ONE = Integer.SIZE - 1;
+    private static final int INITIAL_QUEUE_CAPACITY = 8;
+
+    private final int numPages;
+    // Indexed by the first page of a free run, the number of pages of the run or 0 if no free run starts there.
+    private final int[] runPagesByFirst;
+    // Indexed by the last page of a free run, the first page of the run or -1 if no free run ends there.
+    private final int[] runFirstByLast;
+    // Indexed by the first page of a free run, the index of the run in its queue.
+    private final int[] queueIdx;
+    // The queues are binary min-heaps of (pages << 32 | first page).
+    private final long[][] queues;
+    private final int[] queueSizes;
+    // Bit n is set if the queue of the runs of [2^n, 2^(n+1)) pages is not empty.
+    private int nonEmptyQueues;
+
+    PoolChunkFreeRuns(int numPages) {
+        this.numPages = numPages;
+        runPagesByFirst = new int[numPages];
+        runFirstByLast = new int[numPages];
+        Arrays.fill(runFirstByLast, -1);
+        queueIdx = new int[numPages];
+        queues = new long[log2(numPages) + 1][];
+        queueSizes = new int[queues.length];
+        addRun(0, numPages);
+    }
+
+    /**
+     * Allocates a run of the given number of pages and returns its first page, or {@code -1} if there is no free run
+     * which is big enough.
+     */
+    int allocate(int pages) {
+        assert pages > 0 && pages <= numPages;
+        int queue = log2(pages);
+        int idx = bestFit(queue, pages);
+        if (idx < 0) {
+            // Every run of the next non empty queue is big enough, so take the smallest one.
+            int higherQueues = nonEmptyQueues & -(2 << queue);
+            if (higherQueues == 0) {
+                return -1;
+            }
+            queue = Integer.numberOfTrailingZeros(higherQueues);
+            idx = 0;
+        }
+        long run = queues[queue][idx];
+        int first = (int) run;
+        int runPages = (int) (run >>> 32);
+        removeRun(first, runPages);
+        if (runPages > pages) {
+            addRun(first + pages, runPages - pages);
+        }
+        return first;
+    }
+
+    /**
+     * Frees the run of the given number of pages which starts at the given page, and coalesces it with the free runs
+     * right before and after it.
+     */
+    void free(int first, int pages) {
+        assert first >= 0 && pages > 0 && first + pages <= numPages;
+        assert runPagesByFirst[first] == 0 : "run is free already: " + first;
+        if (first > 0) {
+            int prevFirst = runFirstByLast[first - 1];
+            if (prevFirst >= 0) {
+                int prevPages = runPagesByFirst[prevFirst];
+                removeRun(prevFirst, prevPages);
+                first = prevFirst;
+                pages += prevPages;
+            }
+        }
+        int next = first + pages;
+        if (next < numPages) {
+            int nextPages = runPagesByFirst[next];
+            if (nextPages != 0) {
+                removeRun(next, nextPages);
+                pages += nextPages;
+            }
+        }
+        addRun(first, pages);
+    }
+
+    /**
+     * Returns {@code true} if a free run starts at the given page.
+     */
+    boolean isFree(int first) {
+        return runPagesByFirst[first] != 0;
+    }
+
+    /**
+     * Returns the index of the smallest run of the given queue which has at least the given number of pages, or
+     * {@code -1} if there is none.
+     */
+    private int bestFit(int queue, int pages) {
+        int size = queueSizes[queue];
+        if (size == 0) {
+            return -1;
+        }
+        long[] heap = queues[queue];
+        if ((int) (heap[0] >>> 32) >= pages) {
+            return 0;
+        }
+        // Runs of this queue have less than twice the requested pages, so an exact fit may still be in there.
+        int bestIdx = -1;
+        long best = Long.MAX_VALUE;
+        for (int i = 1; i < size; i++) {
+            long run = heap[i];
+            if ((int) (run >>> 32) >= pages && run < best) {
+                best = run;
+                bestIdx = i;
+            }
+        }
+        return bestIdx;
+    }
+
+    private void addRun(int first, int pages) {
+        runPagesByFirst[first] = pages;
+        runFirstByLast[first + pages - 1] = first;
+
+        int queue = log2(pages);
+        long[] heap = queues[queue];
+        int size = queueSizes[queue];
+        if (heap == null) {
+            heap = queues[queue] = new long[INITIAL_QUEUE_CAPACITY];
+        } else if (size == heap.length) {
+            heap = queues[queue] = Arrays.copyOf(heap, size << 1);
+        }
+        queueSizes[queue] = size + 1;
+        nonEmptyQueues |= 1 << queue;
+        siftUp(heap, size, (long) pages << 32 | first);
+    }
+
+    private void removeRun(int first, int pages) {
+        assert runPagesByFirst[first] == pages;
+        runPagesByFirst[first] = 0;
+        runFirstByLast[first + pages - 1] = -1;
+
+        int queue = log2(pages);
+        long[] heap = queues[queue];
+        int size = --queueSizes[queue];
+        int idx = queueIdx[first];
+        if (size == 0) {
+            nonEmptyQueues &= ~(1 << queue);
+        }
+        if (idx == size) {
+            return;
+        }
+        // Move the last run into the hole and restore the heap order.
+        long last = heap[size];
+        if (idx > 0 && last < heap[idx - 1 >>> 1]) {
+            siftUp(heap, idx, last);
+        } else {
+            siftDown(heap, size, idx, last);
+        }
+    }
+
+    private void siftUp(long[] heap, int idx, long run) {
+        while (idx > 0) {
+            int parentIdx = idx - 1 >>> 1;
+            long parent = heap[parentIdx];
+            if (parent <= run) {
+                break;
+            }
+            set(heap, idx, parent);
+            idx = parentIdx;
+        }
+        set(heap, idx, run);
+    }
+
+    private void siftDown(long[] heap, int size, int idx, long run) {
+        for (;;) {
+            int childIdx = (idx << 1) + 1;
+            if (childIdx >= size) {
+                break;
+            }
+            long child = heap[childIdx];
+            if (childIdx + 1 < size && heap[childIdx + 1] < child) {
+                child = heap[++childIdx];
+            }
+            if (run <= child) {
+                break;
+            }
+            set(heap, idx, child);
+            idx = childIdx;
+        }
+        set(heap, idx, run);
+    }
+
+    private void set(long[] heap, int idx, long run) {
+        heap[idx] = run;
+        queueIdx[(int) run] = idx;
+    }
+
+    private static int log2(int val) {
+        return INTEGER_SIZE_MINUS_ONE - Integer.numberOfLeadingZeros(val);
+    }
+}
@@ -16,6 +16,8 @@
 
 package io.netty.buffer;
 
+import io.netty.util.internal.LongCounter;
+import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
 import java.util.ArrayList;
@@ -32,6 +34,8 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
     private final int maxUsage;
     private final int maxCapacity;
     private PoolChunk<T> head;
+    // Can be read without holding the lock of the arena.
+    private final LongCounter numChunks = PlatformDependent.newLongCounter();
 
     // This is only update once when create the linked like list of PoolChunkList in PoolArena constructor.
     private PoolChunkList<T> prevList;
@@ -107,6 +111,46 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         return true;
     }
 
+    /**
+     * Removes the {@link PoolChunk}s which are completely free and returns them so the caller can destroy them.
+     * Returns {@code null} if there are none.
+     */
+    List<PoolChunk<T>> removeFreeChunks() {
+        List<PoolChunk<T>> freeChunks = null;
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.freeBytes() == cur.chunkSize()) {
+                remove(cur);
+                if (freeChunks == null) {
+                    freeChunks = new ArrayList<PoolChunk<T>>();
+                }
+                freeChunks.add(cur);
+            }
+            cur = next;
+        }
+        return freeChunks;
+    }
+
+    /**
+     * Removes the {@link PoolChunk}s which are idle, see {@link PoolChunk#isIdle(long, long)}, and returns them so
+     * the caller can destroy them. Returns {@code null} if there are none.
+     */
+    List<PoolChunk<T>> removeIdleChunks(long nowNanos, long idleNanos) {
+        List<PoolChunk<T>> idleChunks = null;
+        for (PoolChunk<T> cur = head; cur != null;) {
+            PoolChunk<T> next = cur.next;
+            if (cur.isIdle(nowNanos, idleNanos)) {
+                remove(cur);
+                if (idleChunks == null) {
+                    idleChunks = new ArrayList<PoolChunk<T>>();
+                }
+                idleChunks.add(cur);
+            }
+            cur = next;
+        }
+        return idleChunks;
+    }
+
     private boolean move(PoolChunk<T> chunk) {
         assert chunk.usage() < maxUsage;
 
@@ -147,6 +191,7 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
      */
     void add0(PoolChunk<T> chunk) {
         chunk.parent = this;
+        numChunks.increment();
         if (head == null) {
             head = chunk;
             chunk.prev = null;
@@ -160,6 +205,7 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
     }
 
     private void remove(PoolChunk<T> cur) {
+        numChunks.decrement();
         if (cur == head) {
             head = cur.next;
             if (head != null) {
@@ -184,12 +230,19 @@ final class PoolChunkList<T> implements PoolChunkListMetric {
         return min(maxUsage, 100);
     }
 
+    @Override
+    public int numChunks() {
+        return (int) numChunks.value();
+    }
+
     private static int minUsage0(int value) {
         return max(1, value);
     }
 
     @Override
     public Iterator<PoolChunkMetric> iterator() {
+        // Read head only once, as the arena may be modified concurrently by the thread which owns it.
+        PoolChunk<T> head = this.head;
         if (head == null) {
             return EMPTY_METRICS;
         }
@@ -29,4 +29,10 @@ public interface PoolChunkListMetric extends Iterable<PoolChunkMetric> {
      * Return the minum usage of the chunk list after which chunks are promoted to the next list.
      */
     int maxUsage();
+
+    /**
+     * Return the number of chunks in the chunk list. Unlike iterating the chunks, this does not need to take the
+     * lock of the arena.
+     */
+    int numChunks();
 }
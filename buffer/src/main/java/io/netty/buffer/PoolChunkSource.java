@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Provides the memory of the chunks of the direct arenas of a {@link PooledByteBufAllocator}, which uses
+ * {@link ByteBuffer#allocateDirect(int)} if none is set. Implementations must be thread-safe, as the arenas are
+ * used by several threads.
+ *
+ * @see MappedFilePoolChunkSource
+ */
+public interface PoolChunkSource {
+
+    /**
+     * Returns a direct {@link ByteBuffer} with a position of {@code 0} and a limit and capacity of {@code capacity}.
+     */
+    ByteBuffer allocate(int capacity);
+
+    /**
+     * Releases the memory of a {@link ByteBuffer} which was returned by {@link #allocate(int)}. The
+     * {@link ByteBuffer} is not used anymore after this.
+     */
+    void free(ByteBuffer memory);
+}
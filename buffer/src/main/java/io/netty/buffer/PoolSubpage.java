@@ -21,7 +21,8 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
     final PoolChunk<T> chunk;
     private final int memoryMapIdx;
     private final int runOffset;
-    private final int pageSize;
+    // The size of the run which is sliced into elements, which is a single page unless size classes are used.
+    final int runSize;
     private final long[] bitmap;
 
     PoolSubpage<T> prev;
@@ -43,16 +44,16 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         memoryMapIdx = -1;
         runOffset = -1;
         elemSize = -1;
-        this.pageSize = pageSize;
+        runSize = pageSize;
         bitmap = null;
     }
 
-    PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int memoryMapIdx, int runOffset, int pageSize, int elemSize) {
+    PoolSubpage(PoolSubpage<T> head, PoolChunk<T> chunk, int memoryMapIdx, int runOffset, int runSize, int elemSize) {
         this.chunk = chunk;
         this.memoryMapIdx = memoryMapIdx;
         this.runOffset = runOffset;
-        this.pageSize = pageSize;
-        bitmap = new long[pageSize >>> 10]; // pageSize / 16 / 64
+        this.runSize = runSize;
+        bitmap = new long[runSize >>> 10]; // runSize / 16 / 64
         init(head, elemSize);
     }
 
@@ -60,7 +61,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         doNotDestroy = true;
         this.elemSize = elemSize;
         if (elemSize != 0) {
-            maxNumElems = numAvail = pageSize / elemSize;
+            maxNumElems = numAvail = runSize / elemSize;
             nextAvail = 0;
             bitmapLength = maxNumElems >>> 6;
             if ((maxNumElems & 63) != 0) {
@@ -205,7 +206,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
         }
 
         return String.valueOf('(') + memoryMapIdx + ": " + (maxNumElems - numAvail) + '/' + maxNumElems +
-               ", offset: " + runOffset + ", length: " + pageSize + ", elemSize: " + elemSize + ')';
+               ", offset: " + runOffset + ", length: " + runSize + ", elemSize: " + elemSize + ')';
     }
 
     @Override
@@ -225,7 +226,7 @@ final class PoolSubpage<T> implements PoolSubpageMetric {
 
     @Override
     public int pageSize() {
-        return pageSize;
+        return runSize;
     }
 
     void destroy() {
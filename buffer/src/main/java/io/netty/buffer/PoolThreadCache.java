@@ -21,6 +21,8 @@ import io.netty.buffer.PoolArena.SizeClass;
 import io.netty.util.Recycler;
 import io.netty.util.Recycler.Handle;
 import io.netty.util.ThreadDeathWatcher;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
 import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
@@ -57,7 +59,14 @@ final class PoolThreadCache {
 
     private int allocations;
 
-    private final Thread thread = Thread.currentThread();
+    // Trims this cache periodically if it belongs to the thread of an EventExecutor, see PooledByteBufAllocator.
+    Future<?> trimTask;
+    // The EventExecutor of the thread if the reference count of the buffers it allocates is biased towards it.
+    EventExecutor biasedRefCntExecutor;
+
+    final Thread thread = Thread.currentThread();
+    // Runs once this cache was freed, either by its thread or by the ThreadDeathWatcher, may be null.
+    private final Runnable freedTask;
     private final Runnable freeTask = new Runnable() {
         @Override
         public void run() {
@@ -71,6 +80,13 @@ final class PoolThreadCache {
     PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
                     int tinyCacheSize, int smallCacheSize, int normalCacheSize,
                     int maxCachedBufferCapacity, int freeSweepAllocationThreshold) {
+        this(heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize, maxCachedBufferCapacity,
+             freeSweepAllocationThreshold, null);
+    }
+
+    PoolThreadCache(PoolArena<byte[]> heapArena, PoolArena<ByteBuffer> directArena,
+                    int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                    int maxCachedBufferCapacity, int freeSweepAllocationThreshold, Runnable freedTask) {
         if (maxCachedBufferCapacity < 0) {
             throw new IllegalArgumentException("maxCachedBufferCapacity: "
                     + maxCachedBufferCapacity + " (expected: >= 0)");
@@ -80,13 +96,14 @@ final class PoolThreadCache {
                     + freeSweepAllocationThreshold + " (expected: > 0)");
         }
         this.freeSweepAllocationThreshold = freeSweepAllocationThreshold;
+        this.freedTask = freedTask;
         this.heapArena = heapArena;
         this.directArena = directArena;
         if (directArena != null) {
             tinySubPageDirectCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
-            smallSubPageDirectCaches = createSubPageCaches(
-                    smallCacheSize, directArena.numSmallSubpagePools, SizeClass.Small);
+                    tinyCacheSize, directArena.numTinySubpagePools, SizeClass.Tiny);
+            smallSubPageDirectCaches = createSmallSubPageCaches(
+                    smallCacheSize, normalCacheSize, maxCachedBufferCapacity, directArena);
 
             numShiftsNormalDirect = log2(directArena.pageSize);
             normalDirectCaches = createNormalCaches(
@@ -103,9 +120,9 @@ final class PoolThreadCache {
         if (heapArena != null) {
             // Create the caches for the heap allocations
             tinySubPageHeapCaches = createSubPageCaches(
-                    tinyCacheSize, PoolArena.numTinySubpagePools, SizeClass.Tiny);
-            smallSubPageHeapCaches = createSubPageCaches(
-                    smallCacheSize, heapArena.numSmallSubpagePools, SizeClass.Small);
+                    tinyCacheSize, heapArena.numTinySubpagePools, SizeClass.Tiny);
+            smallSubPageHeapCaches = createSmallSubPageCaches(
+                    smallCacheSize, normalCacheSize, maxCachedBufferCapacity, heapArena);
 
             numShiftsNormalHeap = log2(heapArena.pageSize);
             normalHeapCaches = createNormalCaches(
@@ -140,11 +157,34 @@ final class PoolThreadCache {
         }
     }
 
+    private static <T> MemoryRegionCache<T>[] createSmallSubPageCaches(
+            int smallCacheSize, int normalCacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
+        if (area.sizeClasses == null) {
+            return createSubPageCaches(smallCacheSize, area.numSmallSubpagePools, SizeClass.Small);
+        }
+        if (smallCacheSize <= 0 && normalCacheSize <= 0) {
+            return null;
+        }
+        // With size classes there are small sizes >= pageSize, treat these like normal sizes.
+        @SuppressWarnings("unchecked")
+        MemoryRegionCache<T>[] cache = new MemoryRegionCache[area.numSmallSubpagePools];
+        for (int i = 0; i < cache.length; i++) {
+            int size = area.sizeClasses.smallPoolSize(i);
+            int cacheSize = size < area.pageSize ? smallCacheSize :
+                    size <= maxCachedBufferCapacity ? normalCacheSize : 0;
+            if (cacheSize > 0) {
+                cache[i] = new SubPageMemoryRegionCache<T>(cacheSize, SizeClass.Small);
+            }
+        }
+        return cache;
+    }
+
     private static <T> MemoryRegionCache<T>[] createNormalCaches(
             int cacheSize, int maxCachedBufferCapacity, PoolArena<T> area) {
         if (cacheSize > 0) {
             int max = Math.min(area.chunkSize, maxCachedBufferCapacity);
-            int arraySize = Math.max(1, log2(max / area.pageSize) + 1);
+            // Run based chunks allocate any multiple of the pageSize, so use one cache per number of pages.
+            int arraySize = Math.max(1, area.runBasedChunks ? max / area.pageSize : log2(max / area.pageSize) + 1);
 
             @SuppressWarnings("unchecked")
             MemoryRegionCache<T>[] cache = new MemoryRegionCache[arraySize];
@@ -170,30 +210,35 @@ final class PoolThreadCache {
      * Try to allocate a tiny buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateTiny(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForTiny(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForTiny(area, normCapacity), buf, reqCapacity);
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateSmall(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForSmall(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForSmall(area, normCapacity), buf, reqCapacity);
     }
 
     /**
      * Try to allocate a small buffer out of the cache. Returns {@code true} if successful {@code false} otherwise
      */
     boolean allocateNormal(PoolArena<?> area, PooledByteBuf<?> buf, int reqCapacity, int normCapacity) {
-        return allocate(cacheForNormal(area, normCapacity), buf, reqCapacity);
+        return allocate(area, cacheForNormal(area, normCapacity), buf, reqCapacity);
     }
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
-    private boolean allocate(MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
+    private boolean allocate(PoolArena<?> area, MemoryRegionCache<?> cache, PooledByteBuf buf, int reqCapacity) {
         if (cache == null) {
             // no cache found so just return false here
             return false;
         }
         boolean allocated = cache.allocate(buf, reqCapacity);
+        if (allocated) {
+            area.threadCacheHits.increment();
+        } else {
+            area.threadCacheMisses.increment();
+        }
         if (++ allocations >= freeSweepAllocationThreshold) {
             allocations = 0;
             trim();
@@ -236,6 +281,14 @@ final class PoolThreadCache {
     }
 
     private void free0() {
+        // The arenas this thread owns are shared from now on, as the thread is about to exit or uses a new cache.
+        if (directArena != null) {
+            directArena.releaseOwner(thread);
+        }
+        if (heapArena != null) {
+            heapArena.releaseOwner(thread);
+        }
+
         int numFreed = free(tinySubPageDirectCaches) +
                 free(smallSubPageDirectCaches) +
                 free(normalDirectCaches) +
@@ -254,6 +307,10 @@ final class PoolThreadCache {
         if (heapArena != null) {
             heapArena.numThreadCaches.getAndDecrement();
         }
+
+        if (freedTask != null) {
+            freedTask.run();
+        }
     }
 
     private static int free(MemoryRegionCache<?>[] caches) {
@@ -276,32 +333,41 @@ final class PoolThreadCache {
     }
 
     void trim() {
-        trim(tinySubPageDirectCaches);
-        trim(smallSubPageDirectCaches);
-        trim(normalDirectCaches);
-        trim(tinySubPageHeapCaches);
-        trim(smallSubPageHeapCaches);
-        trim(normalHeapCaches);
+        int numTrimmedDirect = trim(tinySubPageDirectCaches) +
+                trim(smallSubPageDirectCaches) +
+                trim(normalDirectCaches);
+        int numTrimmedHeap = trim(tinySubPageHeapCaches) +
+                trim(smallSubPageHeapCaches) +
+                trim(normalHeapCaches);
+
+        if (numTrimmedDirect > 0) {
+            directArena.threadCacheTrimmedBuffers.add(numTrimmedDirect);
+        }
+        if (numTrimmedHeap > 0) {
+            heapArena.threadCacheTrimmedBuffers.add(numTrimmedHeap);
+        }
     }
 
-    private static void trim(MemoryRegionCache<?>[] caches) {
+    private static int trim(MemoryRegionCache<?>[] caches) {
         if (caches == null) {
-            return;
+            return 0;
         }
+        int numTrimmed = 0;
         for (MemoryRegionCache<?> c: caches) {
-            trim(c);
+            numTrimmed += trim(c);
         }
+        return numTrimmed;
     }
 
-    private static void trim(MemoryRegionCache<?> cache) {
+    private static int trim(MemoryRegionCache<?> cache) {
         if (cache == null) {
-            return;
+            return 0;
         }
-        cache.trim();
+        return cache.trim();
     }
 
     private MemoryRegionCache<?> cacheForTiny(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.tinyIdx(normCapacity);
+        int idx = area.tinyIdx(normCapacity);
         if (area.isDirect()) {
             return cache(tinySubPageDirectCaches, idx);
         }
@@ -309,7 +375,7 @@ final class PoolThreadCache {
     }
 
     private MemoryRegionCache<?> cacheForSmall(PoolArena<?> area, int normCapacity) {
-        int idx = PoolArena.smallIdx(normCapacity);
+        int idx = area.smallIdx(normCapacity);
         if (area.isDirect()) {
             return cache(smallSubPageDirectCaches, idx);
         }
@@ -318,13 +384,17 @@ final class PoolThreadCache {
 
     private MemoryRegionCache<?> cacheForNormal(PoolArena<?> area, int normCapacity) {
         if (area.isDirect()) {
-            int idx = log2(normCapacity >> numShiftsNormalDirect);
+            int idx = normalIdx(area, normCapacity >> numShiftsNormalDirect);
             return cache(normalDirectCaches, idx);
         }
-        int idx = log2(normCapacity >> numShiftsNormalHeap);
+        int idx = normalIdx(area, normCapacity >> numShiftsNormalHeap);
         return cache(normalHeapCaches, idx);
     }
 
+    private static int normalIdx(PoolArena<?> area, int pages) {
+        return area.runBasedChunks ? pages - 1 : log2(pages);
+    }
+
     private static <T> MemoryRegionCache<T> cache(MemoryRegionCache<T>[] cache, int idx) {
         if (cache == null || idx > cache.length - 1) {
             return null;
@@ -433,16 +503,17 @@ final class PoolThreadCache {
         }
 
         /**
-         * Free up cached {@link PoolChunk}s if not allocated frequently enough.
+         * Free up cached {@link PoolChunk}s if not allocated frequently enough. Returns the number of freed entries.
          */
-        public final void trim() {
+        public final int trim() {
             int free = size - allocations;
             allocations = 0;
 
             // We not even allocated all the number that are
             if (free > 0) {
-                free(free);
+                return free(free);
             }
+            return 0;
         }
 
         @SuppressWarnings({ "unchecked", "rawtypes" })
@@ -16,19 +16,28 @@
 
 package io.netty.buffer;
 
+import io.netty.util.ThreadDeathWatcher;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.concurrent.FastThreadLocalThread;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 
-public class PooledByteBufAllocator extends AbstractByteBufAllocator {
+public class PooledByteBufAllocator extends AbstractByteBufAllocator implements ByteBufAllocatorMetricProvider {
 
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(PooledByteBufAllocator.class);
     private static final int DEFAULT_NUM_HEAP_ARENA;
@@ -41,6 +50,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private static final int DEFAULT_NORMAL_CACHE_SIZE;
     private static final int DEFAULT_MAX_CACHED_BUFFER_CAPACITY;
     private static final int DEFAULT_CACHE_TRIM_INTERVAL;
+    private static final long DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
+    private static final long DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS;
+    private static final boolean DEFAULT_USE_BIASED_REF_CNT;
+    private static final boolean DEFAULT_USE_SIZE_CLASSES;
+    private static final boolean DEFAULT_USE_RUN_BASED_CHUNKS;
+    private static final boolean DEFAULT_USE_OWNER_THREAD_ARENAS;
+    private static final PoolChunkSource DEFAULT_DIRECT_CHUNK_SOURCE;
 
     private static final int MIN_PAGE_SIZE = 4096;
     private static final int MAX_CHUNK_SIZE = (int) (((long) Integer.MAX_VALUE + 1) / 2);
@@ -103,6 +119,48 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         DEFAULT_CACHE_TRIM_INTERVAL = SystemPropertyUtil.getInt(
                 "io.netty.allocator.cacheTrimInterval", 8192);
 
+        // the interval in which the thread local caches of the EventExecutors are trimmed, 0 disables it
+        DEFAULT_CACHE_TRIM_INTERVAL_MILLIS = SystemPropertyUtil.getLong(
+                "io.netty.allocator.cacheTrimIntervalMillis", 0);
+
+        // the time after which a chunk that is not used anymore is released when trimming, 0 disables it
+        DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS = SystemPropertyUtil.getLong(
+                "io.netty.allocator.chunkIdleTimeoutMillis", 0);
+
+        // bias the reference count of the pooled buffers of EventExecutors towards their thread
+        DEFAULT_USE_BIASED_REF_CNT = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.useBiasedRefCnt", false);
+
+        // use jemalloc4 like size classes instead of rounding up to the next power of two
+        DEFAULT_USE_SIZE_CLASSES = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.useSizeClasses", false);
+
+        // allocate runs of any number of pages out of a chunk instead of using a buddy tree
+        DEFAULT_USE_RUN_BASED_CHUNKS = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.useRunBasedChunks", false);
+
+        // give each FastThreadLocalThread (which includes the EventLoop threads) its own arenas
+        DEFAULT_USE_OWNER_THREAD_ARENAS = SystemPropertyUtil.getBoolean(
+                "io.netty.allocator.useOwnerThreadArenas", false);
+
+        // map the direct chunks from a file in this directory, which may be a hugetlbfs or tmpfs mount
+        String directChunkDirectory = SystemPropertyUtil.get("io.netty.allocator.directChunkDirectory");
+        int directChunkPrefault = SystemPropertyUtil.getInt("io.netty.allocator.directChunkPrefault", 0);
+        PoolChunkSource directChunkSource = null;
+        Throwable directChunkSourceFallbackCause = null;
+        if (directChunkDirectory != null) {
+            try {
+                MappedFilePoolChunkSource source = new MappedFilePoolChunkSource(new File(directChunkDirectory));
+                if (directChunkPrefault > 0) {
+                    source.prefault(DEFAULT_PAGE_SIZE << DEFAULT_MAX_ORDER, directChunkPrefault);
+                }
+                directChunkSource = source;
+            } catch (Throwable t) {
+                directChunkSourceFallbackCause = t;
+            }
+        }
+        DEFAULT_DIRECT_CHUNK_SOURCE = directChunkSource;
+
         if (logger.isDebugEnabled()) {
             logger.debug("-Dio.netty.allocator.numHeapArenas: {}", DEFAULT_NUM_HEAP_ARENA);
             logger.debug("-Dio.netty.allocator.numDirectArenas: {}", DEFAULT_NUM_DIRECT_ARENA);
@@ -122,6 +180,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             logger.debug("-Dio.netty.allocator.normalCacheSize: {}", DEFAULT_NORMAL_CACHE_SIZE);
             logger.debug("-Dio.netty.allocator.maxCachedBufferCapacity: {}", DEFAULT_MAX_CACHED_BUFFER_CAPACITY);
             logger.debug("-Dio.netty.allocator.cacheTrimInterval: {}", DEFAULT_CACHE_TRIM_INTERVAL);
+            logger.debug("-Dio.netty.allocator.cacheTrimIntervalMillis: {}", DEFAULT_CACHE_TRIM_INTERVAL_MILLIS);
+            logger.debug("-Dio.netty.allocator.chunkIdleTimeoutMillis: {}", DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS);
+            logger.debug("-Dio.netty.allocator.useBiasedRefCnt: {}", DEFAULT_USE_BIASED_REF_CNT);
+            logger.debug("-Dio.netty.allocator.useSizeClasses: {}", DEFAULT_USE_SIZE_CLASSES);
+            logger.debug("-Dio.netty.allocator.useRunBasedChunks: {}", DEFAULT_USE_RUN_BASED_CHUNKS);
+            logger.debug("-Dio.netty.allocator.useOwnerThreadArenas: {}", DEFAULT_USE_OWNER_THREAD_ARENAS);
+            if (directChunkSourceFallbackCause == null) {
+                logger.debug("-Dio.netty.allocator.directChunkDirectory: {}", directChunkDirectory);
+            } else {
+                logger.debug("-Dio.netty.allocator.directChunkDirectory: {}", directChunkDirectory,
+                        directChunkSourceFallbackCause);
+            }
+            logger.debug("-Dio.netty.allocator.directChunkPrefault: {}", directChunkPrefault);
         }
     }
 
@@ -133,9 +204,30 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     private final int tinyCacheSize;
     private final int smallCacheSize;
     private final int normalCacheSize;
+    private final boolean useSizeClasses;
+    private final boolean useRunBasedChunks;
+    private final boolean useOwnerThreadArenas;
+    private final PoolChunkSource directChunkSource;
+    private final long cacheTrimIntervalMillis;
+    private final long chunkIdleTimeoutMillis;
+    private final boolean useBiasedRefCnt;
+    private final int pageSize;
+    private final int maxOrder;
+    private final int pageShifts;
+    private final int chunkSize;
+    // Also contain the arenas which are currently owned by a thread, so these are copy on write.
     private final List<PoolArenaMetric> heapArenaMetrics;
     private final List<PoolArenaMetric> directArenaMetrics;
+    private final List<PoolArenaMetric> heapArenaMetricsView;
+    private final List<PoolArenaMetric> directArenaMetricsView;
     private final PoolThreadLocalCache threadCache;
+    private final PooledByteBufAllocatorMetric metric;
+    private final Runnable trimTask = new Runnable() {
+        @Override
+        public void run() {
+            trimCurrentThreadCache();
+        }
+    };
 
     public PooledByteBufAllocator() {
         this(false);
@@ -156,12 +248,70 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
     public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
                                   int tinyCacheSize, int smallCacheSize, int normalCacheSize) {
+        this(preferDirect, nHeapArena, nDirectArena, pageSize, maxOrder, tinyCacheSize, smallCacheSize,
+                normalCacheSize, DEFAULT_USE_SIZE_CLASSES, DEFAULT_USE_RUN_BASED_CHUNKS,
+                DEFAULT_USE_OWNER_THREAD_ARENAS, DEFAULT_DIRECT_CHUNK_SOURCE, DEFAULT_CACHE_TRIM_INTERVAL_MILLIS,
+                DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS, DEFAULT_USE_BIASED_REF_CNT);
+    }
+
+    /**
+     * Creates a new instance which uses the given settings instead of the defaults of the
+     * {@code io.netty.allocator.*} system properties, which all other constructors take for the settings they lack.
+     *
+     * @param useSizeClasses          {@code true} to round allocations up to the next of several size classes per
+     *                                power of two, like jemalloc 4 does, which wastes less memory than rounding up to
+     *                                the next power of two.
+     * @param useRunBasedChunks       {@code true} to allocate runs of any number of pages out of a chunk, so
+     *                                allocations of at least the page size are only rounded up to a multiple of the
+     *                                page size.
+     * @param useOwnerThreadArenas    {@code true} to give each {@link FastThreadLocalThread}, which includes the
+     *                                threads of the {@code EventLoop}s, its own heap and direct arena. The owner
+     *                                allocates from its arenas without taking any locks and buffers which are released
+     *                                by other threads are handed back to the owner via a queue. All other threads
+     *                                share the {@code nHeapArena} heap and {@code nDirectArena} direct arenas as usual.
+     *                                The arenas of a thread which exited are reused by the next one.
+     * @param directChunkSource       the {@link PoolChunkSource} which provides the memory of the chunks of the direct
+     *                                arenas, or {@code null} to use {@link ByteBuffer#allocateDirect(int)}.
+     * @param cacheTrimIntervalMillis the interval in which the thread local caches of the threads of
+     *                                {@link EventExecutor}s are trimmed, see {@link #trimCurrentThreadCache()}, or
+     *                                {@code 0} to not trim them periodically.
+     * @param chunkIdleTimeoutMillis  the time after which a chunk which is completely free is released when the cache
+     *                                of a thread which uses its arena is trimmed, or {@code 0} to keep such chunks.
+     * @param useBiasedRefCnt         {@code true} to bias the reference count of the pooled buffers which are
+     *                                allocated by the thread of an {@link EventExecutor} towards that thread, which
+     *                                retains and releases them without atomic operations then. Other threads
+     *                                update a shared count atomically. Buffers whose last reference is released by
+     *                                another thread are deallocated by a task of the {@link EventExecutor}, so
+     *                                {@link ByteBuf#release()} returns {@code false} on that thread.
+     */
+    public PooledByteBufAllocator(boolean preferDirect, int nHeapArena, int nDirectArena, int pageSize, int maxOrder,
+                                  int tinyCacheSize, int smallCacheSize, int normalCacheSize,
+                                  boolean useSizeClasses, boolean useRunBasedChunks, boolean useOwnerThreadArenas,
+                                  PoolChunkSource directChunkSource,
+                                  long cacheTrimIntervalMillis, long chunkIdleTimeoutMillis,
+                                  boolean useBiasedRefCnt) {
         super(preferDirect);
         threadCache = new PoolThreadLocalCache();
         this.tinyCacheSize = tinyCacheSize;
         this.smallCacheSize = smallCacheSize;
         this.normalCacheSize = normalCacheSize;
-        final int chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
+        this.useSizeClasses = useSizeClasses;
+        this.useRunBasedChunks = useRunBasedChunks;
+        this.useOwnerThreadArenas = useOwnerThreadArenas;
+        this.directChunkSource = directChunkSource;
+        chunkSize = validateAndCalculateChunkSize(pageSize, maxOrder);
+
+        if (cacheTrimIntervalMillis < 0) {
+            throw new IllegalArgumentException(
+                    "cacheTrimIntervalMillis: " + cacheTrimIntervalMillis + " (expected: >= 0)");
+        }
+        if (chunkIdleTimeoutMillis < 0) {
+            throw new IllegalArgumentException(
+                    "chunkIdleTimeoutMillis: " + chunkIdleTimeoutMillis + " (expected: >= 0)");
+        }
+        this.cacheTrimIntervalMillis = cacheTrimIntervalMillis;
+        this.chunkIdleTimeoutMillis = chunkIdleTimeoutMillis;
+        this.useBiasedRefCnt = useBiasedRefCnt;
 
         if (nHeapArena < 0) {
             throw new IllegalArgumentException("nHeapArena: " + nHeapArena + " (expected: >= 0)");
@@ -170,17 +320,19 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             throw new IllegalArgumentException("nDirectArea: " + nDirectArena + " (expected: >= 0)");
         }
 
-        int pageShifts = validateAndCalculatePageShifts(pageSize);
+        pageShifts = validateAndCalculatePageShifts(pageSize);
+        this.pageSize = pageSize;
+        this.maxOrder = maxOrder;
 
         if (nHeapArena > 0) {
             heapArenas = newArenaArray(nHeapArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(heapArenas.length);
             for (int i = 0; i < heapArenas.length; i ++) {
-                PoolArena.HeapArena arena = new PoolArena.HeapArena(this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena<byte[]> arena = newHeapArena();
                 heapArenas[i] = arena;
                 metrics.add(arena);
             }
-            heapArenaMetrics = Collections.unmodifiableList(metrics);
+            heapArenaMetrics = new CopyOnWriteArrayList<PoolArenaMetric>(metrics);
         } else {
             heapArenas = null;
             heapArenaMetrics = Collections.emptyList();
@@ -190,16 +342,28 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
             directArenas = newArenaArray(nDirectArena);
             List<PoolArenaMetric> metrics = new ArrayList<PoolArenaMetric>(directArenas.length);
             for (int i = 0; i < directArenas.length; i ++) {
-                PoolArena.DirectArena arena = new PoolArena.DirectArena(
-                        this, pageSize, maxOrder, pageShifts, chunkSize);
+                PoolArena<ByteBuffer> arena = newDirectArena();
                 directArenas[i] = arena;
                 metrics.add(arena);
             }
-            directArenaMetrics = Collections.unmodifiableList(metrics);
+            directArenaMetrics = new CopyOnWriteArrayList<PoolArenaMetric>(metrics);
         } else {
             directArenas = null;
             directArenaMetrics = Collections.emptyList();
         }
+        heapArenaMetricsView = Collections.unmodifiableList(heapArenaMetrics);
+        directArenaMetricsView = Collections.unmodifiableList(directArenaMetrics);
+        metric = new PooledByteBufAllocatorMetric(this);
+    }
+
+    private PoolArena<byte[]> newHeapArena() {
+        return new PoolArena.HeapArena(
+                this, pageSize, maxOrder, pageShifts, chunkSize, useSizeClasses, useRunBasedChunks);
+    }
+
+    private PoolArena<ByteBuffer> newDirectArena() {
+        return new PoolArena.DirectArena(
+                this, pageSize, maxOrder, pageShifts, chunkSize, useSizeClasses, useRunBasedChunks, directChunkSource);
     }
 
     @SuppressWarnings("unchecked")
@@ -244,7 +408,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
         ByteBuf buf;
         if (heapArena != null) {
-            buf = heapArena.allocate(cache, initialCapacity, maxCapacity);
+            buf = bias(cache, heapArena.allocate(cache, initialCapacity, maxCapacity));
         } else {
             buf = new UnpooledHeapByteBuf(this, initialCapacity, maxCapacity);
         }
@@ -259,7 +423,7 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
 
         ByteBuf buf;
         if (directArena != null) {
-            buf = directArena.allocate(cache, initialCapacity, maxCapacity);
+            buf = bias(cache, directArena.allocate(cache, initialCapacity, maxCapacity));
         } else {
             if (PlatformDependent.hasUnsafe()) {
                 buf = UnsafeByteBufUtil.newUnsafeDirectByteBuf(this, initialCapacity, maxCapacity);
@@ -271,6 +435,13 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return toLeakAwareBuffer(buf);
     }
 
+    private static ByteBuf bias(PoolThreadCache cache, PooledByteBuf<?> buf) {
+        if (cache.biasedRefCntExecutor != null) {
+            buf.biasTo(cache.biasedRefCntExecutor);
+        }
+        return buf;
+    }
+
     /**
      *  Default number of heap areanas - System Property: io.netty.allocator.numHeapArenas - default 2 * cores
      */
@@ -320,6 +491,58 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return DEFAULT_NORMAL_CACHE_SIZE;
     }
 
+    /**
+     *  Default use of size classes - System Property: io.netty.allocator.useSizeClasses - default false
+     */
+    public static boolean defaultUseSizeClasses() {
+        return DEFAULT_USE_SIZE_CLASSES;
+    }
+
+    /**
+     *  Default use of run based chunks - System Property: io.netty.allocator.useRunBasedChunks - default false
+     */
+    public static boolean defaultUseRunBasedChunks() {
+        return DEFAULT_USE_RUN_BASED_CHUNKS;
+    }
+
+    /**
+     *  Default use of owner thread arenas - System Property: io.netty.allocator.useOwnerThreadArenas - default false
+     */
+    public static boolean defaultUseOwnerThreadArenas() {
+        return DEFAULT_USE_OWNER_THREAD_ARENAS;
+    }
+
+    /**
+     *  Default source of the direct chunks - System Properties: io.netty.allocator.directChunkDirectory and
+     *  io.netty.allocator.directChunkPrefault - default {@code null}, which uses {@link ByteBuffer#allocateDirect(int)}
+     */
+    public static PoolChunkSource defaultDirectChunkSource() {
+        return DEFAULT_DIRECT_CHUNK_SOURCE;
+    }
+
+    /**
+     *  Default trim interval of the caches of EventExecutors - System Property:
+     *  io.netty.allocator.cacheTrimIntervalMillis - default 0 (disabled)
+     */
+    public static long defaultCacheTrimIntervalMillis() {
+        return DEFAULT_CACHE_TRIM_INTERVAL_MILLIS;
+    }
+
+    /**
+     *  Default idle time after which an unused chunk is released when trimming - System Property:
+     *  io.netty.allocator.chunkIdleTimeoutMillis - default 0 (disabled)
+     */
+    public static long defaultChunkIdleTimeoutMillis() {
+        return DEFAULT_CHUNK_IDLE_TIMEOUT_MILLIS;
+    }
+
+    /**
+     *  Default use of biased reference counts - System Property: io.netty.allocator.useBiasedRefCnt - default false
+     */
+    public static boolean defaultUseBiasedRefCnt() {
+        return DEFAULT_USE_BIASED_REF_CNT;
+    }
+
     @Override
     public boolean isDirectBufferPooled() {
         return directArenas != null;
@@ -343,22 +566,103 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
     }
 
     final class PoolThreadLocalCache extends FastThreadLocal<PoolThreadCache> {
+        // The arenas released by their owner thread, which are reused by the next owner thread so the number of arenas
+        // does not grow with every thread which is started.
+        private final Deque<PoolArena<byte[]>> releasedHeapArenas = new ArrayDeque<PoolArena<byte[]>>();
+        private final Deque<PoolArena<ByteBuffer>> releasedDirectArenas = new ArrayDeque<PoolArena<ByteBuffer>>();
 
         @Override
         protected synchronized PoolThreadCache initialValue() {
-            final PoolArena<byte[]> heapArena = leastUsedArena(heapArenas);
-            final PoolArena<ByteBuffer> directArena = leastUsedArena(directArenas);
+            final PoolArena<byte[]> heapArena;
+            final PoolArena<ByteBuffer> directArena;
+            Thread current = Thread.currentThread();
+            if (useOwnerThreadArenas && current instanceof FastThreadLocalThread) {
+                if (heapArenas == null) {
+                    heapArena = null;
+                } else {
+                    PoolArena<byte[]> arena = releasedHeapArenas.poll();
+                    heapArena = ownedArena(arena == null ? newHeapArena() : arena, heapArenaMetrics, current);
+                }
+                if (directArenas == null) {
+                    directArena = null;
+                } else {
+                    PoolArena<ByteBuffer> arena = releasedDirectArenas.poll();
+                    directArena = ownedArena(arena == null ? newDirectArena() : arena, directArenaMetrics, current);
+                }
+            } else {
+                heapArena = leastUsedArena(heapArenas);
+                directArena = leastUsedArena(directArenas);
+            }
 
-            return new PoolThreadCache(
+            PoolThreadCache cache = new PoolThreadCache(
                     heapArena, directArena, tinyCacheSize, smallCacheSize, normalCacheSize,
-                    DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL);
+                    DEFAULT_MAX_CACHED_BUFFER_CAPACITY, DEFAULT_CACHE_TRIM_INTERVAL,
+                    releaseOwnedArenasTask(heapArena, directArena));
+
+            EventExecutor executor = ThreadExecutorMap.currentExecutor();
+            if (executor != null) {
+                if (cacheTrimIntervalMillis > 0) {
+                    // Trim the cache of an EventExecutor even if it does not allocate anymore, which would never
+                    // happen via the freeSweepAllocationThreshold.
+                    cache.trimTask = executor.scheduleAtFixedRate(trimTask, cacheTrimIntervalMillis,
+                            cacheTrimIntervalMillis, TimeUnit.MILLISECONDS);
+                }
+                if (useBiasedRefCnt) {
+                    // A biased buffer needs the EventExecutor to merge the counts if released by other threads.
+                    cache.biasedRefCntExecutor = executor;
+                }
+            }
+            return cache;
         }
 
         @Override
         protected void onRemoval(PoolThreadCache threadCache) {
+            if (threadCache.trimTask != null) {
+                threadCache.trimTask.cancel(false);
+            }
             threadCache.free();
         }
 
+        /**
+         * Returns the task which makes the arenas the thread of a {@link PoolThreadCache} owns available to the next
+         * owner thread once the cache was freed, either via {@link #onRemoval(PoolThreadCache)} or by the
+         * {@link ThreadDeathWatcher} if the thread exited without removing its {@link FastThreadLocal}s.
+         */
+        private Runnable releaseOwnedArenasTask(
+                final PoolArena<byte[]> heapArena, final PoolArena<ByteBuffer> directArena) {
+            final boolean ownedHeapArena = heapArena != null && heapArena.isOwnedArena();
+            final boolean ownedDirectArena = directArena != null && directArena.isOwnedArena();
+            if (!ownedHeapArena && !ownedDirectArena) {
+                return null;
+            }
+            return new Runnable() {
+                @Override
+                public void run() {
+                    if (ownedHeapArena) {
+                        releasedArena(heapArena, heapArenaMetrics, releasedHeapArenas);
+                    }
+                    if (ownedDirectArena) {
+                        releasedArena(directArena, directArenaMetrics, releasedDirectArenas);
+                    }
+                }
+            };
+        }
+
+        private <T> PoolArena<T> ownedArena(PoolArena<T> arena, List<PoolArenaMetric> metrics, Thread owner) {
+            arena.owner(owner);
+            metrics.add(arena);
+            return arena;
+        }
+
+        private synchronized <T> void releasedArena(
+                PoolArena<T> arena, List<PoolArenaMetric> metrics, Deque<PoolArena<T>> releasedArenas) {
+            // The buffers which are still in use are released into the arena as usual, but the memory which is not
+            // used anymore is returned right away instead of when the arena is reused.
+            arena.releaseFreeChunks();
+            metrics.remove(arena);
+            releasedArenas.add(arena);
+        }
+
         private <T> PoolArena<T> leastUsedArena(PoolArena<T>[] arenas) {
             if (arenas == null || arenas.length == 0) {
                 return null;
@@ -394,33 +698,35 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
      * Return a {@link List} of all heap {@link PoolArenaMetric}s that are provided by this pool.
      */
     public List<PoolArenaMetric> heapArenas() {
-        return heapArenaMetrics;
+        return heapArenaMetricsView;
     }
 
     /**
      * Return a {@link List} of all direct {@link PoolArenaMetric}s that are provided by this pool.
      */
     public List<PoolArenaMetric> directArenas() {
-        return directArenaMetrics;
+        return directArenaMetricsView;
     }
 
     /**
      * Return the number of thread local caches used by this {@link PooledByteBufAllocator}.
      */
     public int numThreadLocalCaches() {
-        PoolArena<?>[] arenas = heapArenas != null ? heapArenas : directArenas;
-        if (arenas == null) {
-            return 0;
-        }
+        List<PoolArenaMetric> arenas = heapArenas != null ? heapArenaMetrics : directArenaMetrics;
 
         int total = 0;
-        for (int i = 0; i < arenas.length; i++) {
-            total += arenas[i].numThreadCaches.get();
+        for (PoolArenaMetric arena: arenas) {
+            total += arena.numThreadCaches();
         }
 
         return total;
     }
 
+    @Override
+    public PooledByteBufAllocatorMetric metric() {
+        return metric;
+    }
+
     /**
      * Return the size of the tiny cache.
      */
@@ -442,6 +748,94 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
         return normalCacheSize;
     }
 
+    /**
+     * Return {@code true} if allocations are rounded up to size classes instead of the next power of two.
+     */
+    public boolean useSizeClasses() {
+        return useSizeClasses;
+    }
+
+    /**
+     * Return {@code true} if runs of any number of pages are allocated out of a chunk instead of power of two runs.
+     */
+    public boolean useRunBasedChunks() {
+        return useRunBasedChunks;
+    }
+
+    /**
+     * Return {@code true} if each {@link FastThreadLocalThread} allocates from its own arenas without taking locks.
+     */
+    public boolean useOwnerThreadArenas() {
+        return useOwnerThreadArenas;
+    }
+
+    /**
+     * Return the {@link PoolChunkSource} of the direct arenas, or {@code null} if they use
+     * {@link ByteBuffer#allocateDirect(int)}.
+     */
+    public PoolChunkSource directChunkSource() {
+        return directChunkSource;
+    }
+
+    /**
+     * Return the interval in which the thread local caches of the threads of {@link EventExecutor}s are trimmed, or
+     * {@code 0} if they are not trimmed periodically.
+     */
+    public long cacheTrimIntervalMillis() {
+        return cacheTrimIntervalMillis;
+    }
+
+    /**
+     * Return the time after which a completely free chunk is released when trimming, or {@code 0} if such chunks are
+     * kept.
+     */
+    public long chunkIdleTimeoutMillis() {
+        return chunkIdleTimeoutMillis;
+    }
+
+    /**
+     * Return {@code true} if the reference count of the pooled buffers which are allocated by the thread of an
+     * {@link EventExecutor} is biased towards that thread.
+     */
+    public boolean useBiasedRefCnt() {
+        return useBiasedRefCnt;
+    }
+
+    /**
+     * Trims the thread local cache of the calling {@link Thread}, which frees the cached buffers that were not
+     * allocated again since the last trim, and releases the chunks of its arenas which were completely free for at
+     * least {@link #chunkIdleTimeoutMillis()}. Chunks which still contain a buffer in use are never released.
+     * <p>
+     * This is done every {@link #cacheTrimIntervalMillis()} for the threads of {@link EventExecutor}s only, as the
+     * trimming runs as a scheduled task of the {@link EventExecutor} of the thread. All other threads must call this
+     * method themselves, for example after a burst of allocations, or their caches and idle chunks are kept until the
+     * thread exits.
+     *
+     * @return {@code true} if the calling {@link Thread} has a cache which was trimmed.
+     */
+    public boolean trimCurrentThreadCache() {
+        if (!threadCache.isSet()) {
+            return false;
+        }
+        PoolThreadCache cache = threadCache.get();
+        cache.trim();
+        if (chunkIdleTimeoutMillis > 0) {
+            long nowNanos = System.nanoTime();
+            long idleNanos = TimeUnit.MILLISECONDS.toNanos(chunkIdleTimeoutMillis);
+            if (cache.heapArena != null) {
+                cache.heapArena.releaseIdleChunks(nowNanos, idleNanos);
+            }
+            if (cache.directArena != null) {
+                cache.directArena.releaseIdleChunks(nowNanos, idleNanos);
+            }
+        }
+        return true;
+    }
+
+    final int chunkSize() {
+        return chunkSize;
+    }
+
     final PoolThreadCache threadCache() {
         return threadCache.get();
     }
@@ -451,26 +845,21 @@ public class PooledByteBufAllocator extends AbstractByteBufAllocator {
      * and so should not called too frequently.
      */
     public String dumpStats() {
-        int heapArenasLen = heapArenas == null ? 0 : heapArenas.length;
+        List<PoolArenaMetric> heapMetrics = heapArenas();
         StringBuilder buf = new StringBuilder(512)
-                .append(heapArenasLen)
+                .append(heapMetrics.size())
                 .append(" heap arena(s):")
                 .append(StringUtil.NEWLINE);
-        if (heapArenasLen > 0) {
-            for (PoolArena<byte[]> a: heapArenas) {
-                buf.append(a);
-            }
+        for (PoolArenaMetric a: heapMetrics) {
+            buf.append(a);
         }
 
-        int directArenasLen = directArenas == null ? 0 : directArenas.length;
-
-        buf.append(directArenasLen)
+        List<PoolArenaMetric> directMetrics = directArenas();
+        buf.append(directMetrics.size())
            .append(" direct arena(s):")
            .append(StringUtil.NEWLINE);
-        if (directArenasLen > 0) {
-            for (PoolArena<ByteBuffer> a: directArenas) {
-                buf.append(a);
-            }
+        for (PoolArenaMetric a: directMetrics) {
+            buf.append(a);
         }
 
         return buf.toString();
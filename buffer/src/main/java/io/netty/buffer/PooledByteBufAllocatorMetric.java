@@ -0,0 +1,203 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import io.netty.util.internal.StringUtil;
+
+import java.util.List;
+
+/**
+ * Exposed metric for {@link PooledByteBufAllocator}. All the counters are maintained without taking any locks, so
+ * they can be collected frequently even if the allocator is under heavy load.
+ */
+public final class PooledByteBufAllocatorMetric implements ByteBufAllocatorMetric {
+
+    private final PooledByteBufAllocator allocator;
+
+    PooledByteBufAllocatorMetric(PooledByteBufAllocator allocator) {
+        this.allocator = allocator;
+    }
+
+    /**
+     * Return the number of heap arenas.
+     */
+    public int numHeapArenas() {
+        return allocator.numHeapArenas();
+    }
+
+    /**
+     * Return the number of direct arenas.
+     */
+    public int numDirectArenas() {
+        return allocator.numDirectArenas();
+    }
+
+    /**
+     * Return a {@link List} of all heap {@link PoolArenaMetric}s that are provided by this pool.
+     */
+    public List<PoolArenaMetric> heapArenas() {
+        return allocator.heapArenas();
+    }
+
+    /**
+     * Return a {@link List} of all direct {@link PoolArenaMetric}s that are provided by this pool.
+     */
+    public List<PoolArenaMetric> directArenas() {
+        return allocator.directArenas();
+    }
+
+    /**
+     * Return the number of thread local caches used by this {@link PooledByteBufAllocator}.
+     */
+    public int numThreadLocalCaches() {
+        return allocator.numThreadLocalCaches();
+    }
+
+    /**
+     * Return the size of the tiny cache.
+     */
+    public int tinyCacheSize() {
+        return allocator.tinyCacheSize();
+    }
+
+    /**
+     * Return the size of the small cache.
+     */
+    public int smallCacheSize() {
+        return allocator.smallCacheSize();
+    }
+
+    /**
+     * Return the size of the normal cache.
+     */
+    public int normalCacheSize() {
+        return allocator.normalCacheSize();
+    }
+
+    /**
+     * Return the chunk size for an arena.
+     */
+    public int chunkSize() {
+        return allocator.chunkSize();
+    }
+
+    @Override
+    public long usedHeapMemory() {
+        return usedMemory(heapArenas());
+    }
+
+    @Override
+    public long usedDirectMemory() {
+        return usedMemory(directArenas());
+    }
+
+    /**
+     * Return the number of allocations which were served by the thread local caches.
+     */
+    public long numThreadCacheHits() {
+        long hits = 0;
+        for (PoolArenaMetric arena: heapArenas()) {
+            hits += arena.numThreadCacheHits();
+        }
+        for (PoolArenaMetric arena: directArenas()) {
+            hits += arena.numThreadCacheHits();
+        }
+        return hits;
+    }
+
+    /**
+     * Return the number of cacheable allocations which could not be served by the thread local caches.
+     */
+    public long numThreadCacheMisses() {
+        long misses = 0;
+        for (PoolArenaMetric arena: heapArenas()) {
+            misses += arena.numThreadCacheMisses();
+        }
+        for (PoolArenaMetric arena: directArenas()) {
+            misses += arena.numThreadCacheMisses();
+        }
+        return misses;
+    }
+
+    /**
+     * Return the number of cached buffers which were freed from the thread local caches by trimming them.
+     */
+    public long numThreadCacheTrimmedBuffers() {
+        long trimmed = 0;
+        for (PoolArenaMetric arena: heapArenas()) {
+            trimmed += arena.numThreadCacheTrimmedBuffers();
+        }
+        for (PoolArenaMetric arena: directArenas()) {
+            trimmed += arena.numThreadCacheTrimmedBuffers();
+        }
+        return trimmed;
+    }
+
+    /**
+     * Return the number of chunks of all heap arenas per chunk list, in the order of
+     * {@link PoolArenaMetric#chunkLists()}, which is ascending by the usage of the chunks.
+     */
+    public int[] heapChunkUsageHistogram() {
+        return chunkUsageHistogram(heapArenas());
+    }
+
+    /**
+     * Return the number of chunks of all direct arenas per chunk list, in the order of
+     * {@link PoolArenaMetric#chunkLists()}, which is ascending by the usage of the chunks.
+     */
+    public int[] directChunkUsageHistogram() {
+        return chunkUsageHistogram(directArenas());
+    }
+
+    private static long usedMemory(List<PoolArenaMetric> arenas) {
+        long used = 0;
+        for (PoolArenaMetric arena: arenas) {
+            used += arena.numActiveBytes();
+        }
+        return used;
+    }
+
+    private static int[] chunkUsageHistogram(List<PoolArenaMetric> arenas) {
+        int[] histogram = null;
+        for (PoolArenaMetric arena: arenas) {
+            List<PoolChunkListMetric> lists = arena.chunkLists();
+            if (histogram == null) {
+                histogram = new int[lists.size()];
+            }
+            for (int i = 0; i < histogram.length; i++) {
+                histogram[i] += lists.get(i).numChunks();
+            }
+        }
+        return histogram == null ? new int[0] : histogram;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(256);
+        sb.append(StringUtil.simpleClassName(this))
+                .append("(usedHeapMemory: ").append(usedHeapMemory())
+                .append("; usedDirectMemory: ").append(usedDirectMemory())
+                .append("; numHeapArenas: ").append(numHeapArenas())
+                .append("; numDirectArenas: ").append(numDirectArenas())
+                .append("; numThreadLocalCaches: ").append(numThreadLocalCaches())
+                .append("; numThreadCacheHits: ").append(numThreadCacheHits())
+                .append("; numThreadCacheMisses: ").append(numThreadCacheMisses())
+                .append("; numThreadCacheTrimmedBuffers: ").append(numThreadCacheTrimmedBuffers())
+                .append("; chunkSize: ").append(chunkSize()).append(')');
+        return sb.toString();
+    }
+}
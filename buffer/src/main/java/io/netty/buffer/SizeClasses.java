@@ -0,0 +1,220 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+/**
+ * Size classes in the style of <a href="http://jemalloc.net/jemalloc.3.html#size_classes">jemalloc 4</a>, which are
+ * used by a {@link PoolArena} instead of rounding every allocation of at least 512 bytes up to the next power of two.
+ * <p>
+ * Sizes up to 64 bytes are spaced by 16 bytes. Every power of two group above is split into 4 classes, for example
+ * 80, 96, 112 and 128 or 10k, 12k, 14k and 16k. So the internal fragmentation is at most 20% instead of 50%.
+ * <p>
+ * Classes which are a power of two multiple of the page size, or any multiple of the page size if the
+ * {@link PoolChunk}s are run based, are allocated as a run of pages out of the {@link PoolChunk}. All other classes
+ * are served by a {@link PoolSubpage} which slices a run of up to {@value #MAX_SLAB_RUN_PAGES} pages into elements
+ * of the class size. A class which would waste more than 1/{@value #MAX_SLAB_WASTE_DIVISOR} of such a run is not
+ * used and its sizes are rounded up to the next class.
+ * <pre>
+ * Classes smaller than 512 bytes      - Tiny,  one {@link PoolSubpage} pool each
+ * Other classes served by subpages    - Small, one {@link PoolSubpage} pool each
+ * Runs of pages                       - Normal
+ * </pre>
+ */
+final class SizeClasses {
+
+    private static final int LOG2_QUANTUM = 4;
+    private static final int QUANTUM = 1 << LOG2_QUANTUM;
+    // Sizes up to this use the quantum spacing, above each power of two group has 1 << LOG2_GROUP classes.
+    private static final int LOG2_GROUP = 2;
+    private static final int LOG2_FIRST_GROUP_MAX = LOG2_QUANTUM + LOG2_GROUP;
+    private static final int FIRST_GROUP_MAX = 1 << LOG2_FIRST_GROUP_MAX;
+    private static final int TINY_MAX = 512;
+    static final int MAX_SLAB_RUN_PAGES = 16;
+    static final int MAX_SLAB_WASTE_DIVISOR = 8;
+
+    private final int pageSize;
+    private final int chunkSize;
+
+    // Indexed by the index of the class in the full table, see fullIdx(int).
+    private final int[] normSizes;
+    private final int[] poolIdx;
+    private final int[] runPages;
+    private final int numTinyPools;
+    private final int numSmallPools;
+
+    /**
+     * @param pageRuns {@code true} if the {@link PoolChunk}s can allocate runs of any number of pages, not only
+     *                 power of two numbers of pages.
+     */
+    SizeClasses(int pageSize, int pageShifts, int chunkSize, boolean pageRuns) {
+        if (pageSize < TINY_MAX || chunkSize < pageSize) {
+            throw new IllegalArgumentException("pageSize: " + pageSize + ", chunkSize: " + chunkSize +
+                    " (expected: 512 <= pageSize <= chunkSize)");
+        }
+        this.pageSize = pageSize;
+        this.chunkSize = chunkSize;
+
+        int numClasses = fullIdx(chunkSize) + 1;
+        normSizes = new int[numClasses];
+        poolIdx = new int[numClasses];
+        runPages = new int[numClasses];
+
+        int tinyPools = 0;
+        int smallPools = 0;
+        for (int i = 0; i < numClasses; i++) {
+            int size = fullSize(i);
+            if (size >= pageSize && (pageRuns ? (size & pageSize - 1) == 0 : (size & size - 1) == 0)) {
+                // A multiple of the page size which the chunk can allocate, so it is allocated as a run.
+                runPages[i] = 0;
+                poolIdx[i] = -1;
+            } else {
+                int pages = slabRunPages(size, pageSize, chunkSize);
+                if (pages < 0) {
+                    // Too much waste, round up to the next class.
+                    runPages[i] = -1;
+                    poolIdx[i] = -1;
+                } else {
+                    runPages[i] = pages;
+                    poolIdx[i] = size < TINY_MAX ? tinyPools++ : smallPools++;
+                }
+            }
+            normSizes[i] = size;
+        }
+        // The last class is chunkSize, which is always allocated as a run.
+        for (int i = numClasses - 2; i >= 0; i--) {
+            if (runPages[i] < 0) {
+                normSizes[i] = normSizes[i + 1];
+                poolIdx[i] = poolIdx[i + 1];
+                runPages[i] = runPages[i + 1];
+            }
+        }
+        numTinyPools = tinyPools;
+        numSmallPools = smallPools;
+        assert pageShifts == Integer.SIZE - 1 - Integer.numberOfLeadingZeros(pageSize);
+    }
+
+    /**
+     * Returns the number of pages of the run a {@link PoolSubpage} for elements of the given size should use, or
+     * {@code -1} if there is none that wastes little enough memory.
+     */
+    private static int slabRunPages(int size, int pageSize, int chunkSize) {
+        int bestPages = -1;
+        long bestWaste = Long.MAX_VALUE;
+        for (int pages = 1; pages <= MAX_SLAB_RUN_PAGES && (long) pages * pageSize <= chunkSize; pages <<= 1) {
+            int runSize = pages * pageSize;
+            if (runSize / size < 2 && size >= pageSize) {
+                // Would be a single element, which is better served as a run.
+                continue;
+            }
+            int waste = runSize % size;
+            // Compare the relative waste, prefer the smaller run if equal.
+            if (bestPages < 0 || (long) waste * bestPages < bestWaste * pages) {
+                bestPages = pages;
+                bestWaste = waste;
+            }
+            if (waste * 64 <= runSize) {
+                // Good enough, a smaller run keeps less memory from being used by other sizes.
+                break;
+            }
+        }
+        if (bestPages < 0 || bestWaste * MAX_SLAB_WASTE_DIVISOR > (long) bestPages * pageSize) {
+            return -1;
+        }
+        return bestPages;
+    }
+
+    /**
+     * Returns the index of the smallest class of the full table which is {@code >= size}.
+     */
+    private static int fullIdx(int size) {
+        if (size <= FIRST_GROUP_MAX) {
+            return size <= QUANTUM ? 0 : (size - 1 >>> LOG2_QUANTUM);
+        }
+        int log2 = Integer.SIZE - 1 - Integer.numberOfLeadingZeros(size - 1);
+        int groupShift = log2 - LOG2_GROUP;
+        return ((log2 - LOG2_FIRST_GROUP_MAX + 1) << LOG2_GROUP) + (size - 1 >>> groupShift) - (1 << LOG2_GROUP);
+    }
+
+    /**
+     * Returns the size of the class with the given index of the full table.
+     */
+    private static int fullSize(int idx) {
+        int groups = 1 << LOG2_GROUP;
+        if (idx < groups) {
+            return (idx + 1) << LOG2_QUANTUM;
+        }
+        int group = idx >>> LOG2_GROUP;
+        int log2 = LOG2_FIRST_GROUP_MAX + group - 1;
+        return (1 << log2) + ((idx & groups - 1) + 1 << log2 - LOG2_GROUP);
+    }
+
+    /**
+     * Returns the size of the class the given capacity is rounded up to. Must be called with a capacity that is
+     * smaller than {@code chunkSize}.
+     */
+    int normalize(int reqCapacity) {
+        assert reqCapacity < chunkSize;
+        return normSizes[fullIdx(reqCapacity)];
+    }
+
+    /**
+     * Returns {@code true} if the class of the given normalized capacity is served by a {@link PoolSubpage}.
+     */
+    boolean isSubpage(int normCapacity) {
+        return normCapacity < chunkSize && runPages[fullIdx(normCapacity)] > 0;
+    }
+
+    /**
+     * Returns the index of the {@link PoolSubpage} pool for the given normalized capacity, see {@link #isSubpage(int)}.
+     * Tiny and small classes are counted separately.
+     */
+    int poolIdx(int normCapacity) {
+        return poolIdx[fullIdx(normCapacity)];
+    }
+
+    /**
+     * Returns the number of pages of the run which is used by {@link PoolSubpage}s of the given normalized capacity.
+     */
+    int subpageRunPages(int normCapacity) {
+        return runPages[fullIdx(normCapacity)];
+    }
+
+    int numTinyPools() {
+        return numTinyPools;
+    }
+
+    int numSmallPools() {
+        return numSmallPools;
+    }
+
+    /**
+     * Returns the size of the small class with the given pool index.
+     */
+    int smallPoolSize(int poolIdx) {
+        for (int i = 0; i < normSizes.length; i++) {
+            int size = normSizes[i];
+            if (size >= TINY_MAX && this.poolIdx[i] == poolIdx && runPages[i] > 0) {
+                return size;
+            }
+        }
+        throw new IllegalArgumentException("poolIdx: " + poolIdx);
+    }
+
+    int pageSize() {
+        return pageSize;
+    }
+}
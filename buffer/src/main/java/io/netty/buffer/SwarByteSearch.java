@@ -0,0 +1,180 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.ByteProcessor;
+
+/**
+ * Searches for one of up to two bytes, or for the first byte which is none of them, eight bytes at a time
+ * (SIMD within a register). {@link AbstractByteBuf} uses it instead of calling the {@link ByteProcessor} for every
+ * byte if the processor is one of the constants of {@link ByteProcessor} or an {@link IndexOfProcessor}.
+ */
+final class SwarByteSearch {
+
+    // Shorter ranges are not worth it.
+    static final int MIN_LENGTH = 16;
+
+    private static final long LOW_BITS = 0x7F7F7F7F7F7F7F7FL;
+
+    private static final SwarByteSearch FIND_NUL = new SwarByteSearch((byte) 0, (byte) 0, false);
+    private static final SwarByteSearch FIND_NON_NUL = new SwarByteSearch((byte) 0, (byte) 0, true);
+    private static final SwarByteSearch FIND_CR = new SwarByteSearch((byte) '\r', (byte) '\r', false);
+    private static final SwarByteSearch FIND_NON_CR = new SwarByteSearch((byte) '\r', (byte) '\r', true);
+    private static final SwarByteSearch FIND_LF = new SwarByteSearch((byte) '\n', (byte) '\n', false);
+    private static final SwarByteSearch FIND_NON_LF = new SwarByteSearch((byte) '\n', (byte) '\n', true);
+    private static final SwarByteSearch FIND_SEMI_COLON = new SwarByteSearch((byte) ';', (byte) ';', false);
+    private static final SwarByteSearch FIND_CRLF = new SwarByteSearch((byte) '\r', (byte) '\n', false);
+    private static final SwarByteSearch FIND_NON_CRLF = new SwarByteSearch((byte) '\r', (byte) '\n', true);
+    private static final SwarByteSearch FIND_LINEAR_WHITESPACE = new SwarByteSearch((byte) ' ', (byte) '\t', false);
+    private static final SwarByteSearch FIND_NON_LINEAR_WHITESPACE =
+            new SwarByteSearch((byte) ' ', (byte) '\t', true);
+
+    /**
+     * A {@link ByteProcessor.IndexOfProcessor} which is recognized by {@link #of(ByteProcessor)}, so searches for a
+     * single byte via {@link ByteBufUtil#indexOf(ByteBuf, int, int, byte)} also look at eight bytes at a time.
+     */
+    static final class IndexOfProcessor extends ByteProcessor.IndexOfProcessor {
+        final SwarByteSearch search;
+
+        IndexOfProcessor(byte byteToFind) {
+            super(byteToFind);
+            search = new SwarByteSearch(byteToFind, byteToFind, false);
+        }
+    }
+
+    /**
+     * Returns the {@link SwarByteSearch} which stops at the same bytes as the given {@link ByteProcessor}, or
+     * {@code null} if the processor is not known.
+     */
+    static SwarByteSearch of(ByteProcessor processor) {
+        if (processor instanceof IndexOfProcessor) {
+            return ((IndexOfProcessor) processor).search;
+        }
+        if (processor == ByteProcessor.FIND_LF) {
+            return FIND_LF;
+        }
+        if (processor == ByteProcessor.FIND_CRLF) {
+            return FIND_CRLF;
+        }
+        if (processor == ByteProcessor.FIND_NON_LINEAR_WHITESPACE) {
+            return FIND_NON_LINEAR_WHITESPACE;
+        }
+        if (processor == ByteProcessor.FIND_LINEAR_WHITESPACE) {
+            return FIND_LINEAR_WHITESPACE;
+        }
+        if (processor == ByteProcessor.FIND_NUL) {
+            return FIND_NUL;
+        }
+        if (processor == ByteProcessor.FIND_NON_NUL) {
+            return FIND_NON_NUL;
+        }
+        if (processor == ByteProcessor.FIND_CR) {
+            return FIND_CR;
+        }
+        if (processor == ByteProcessor.FIND_NON_CR) {
+            return FIND_NON_CR;
+        }
+        if (processor == ByteProcessor.FIND_NON_LF) {
+            return FIND_NON_LF;
+        }
+        if (processor == ByteProcessor.FIND_NON_CRLF) {
+            return FIND_NON_CRLF;
+        }
+        if (processor == ByteProcessor.FIND_SEMI_COLON) {
+            return FIND_SEMI_COLON;
+        }
+        return null;
+    }
+
+    private final byte first;
+    private final byte second;
+    private final long firstPattern;
+    private final long secondPattern;
+    // true to stop at the first byte which is neither first nor second.
+    private final boolean not;
+
+    private SwarByteSearch(byte first, byte second, boolean not) {
+        this.first = first;
+        this.second = second;
+        firstPattern = pattern(first);
+        secondPattern = pattern(second);
+        this.not = not;
+    }
+
+    /**
+     * Returns the index of the first byte in {@code [start, end)} at which the search stops, or {@code -1}.
+     */
+    int firstIndexOf(AbstractByteBuf buffer, int start, int end) {
+        for (int last = end - 8; start <= last; start += 8) {
+            long mask = stopMask(buffer._getLong(start));
+            if (mask != 0) {
+                // _getLong(...) is big endian, so the byte at start is the most significant one.
+                return start + (Long.numberOfLeadingZeros(mask) >>> 3);
+            }
+        }
+        for (; start < end; ++start) {
+            if (stops(buffer._getByte(start))) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the index of the last byte in {@code [end, start]} at which the search stops, or {@code -1}.
+     */
+    int lastIndexOf(AbstractByteBuf buffer, int start, int end) {
+        for (int last = end + 7; start >= last; start -= 8) {
+            long mask = stopMask(buffer._getLong(start - 7));
+            if (mask != 0) {
+                return start - (Long.numberOfTrailingZeros(mask) >>> 3);
+            }
+        }
+        for (; start >= end; --start) {
+            if (stops(buffer._getByte(start))) {
+                return start;
+            }
+        }
+        return -1;
+    }
+
+    private boolean stops(byte value) {
+        return (value == first || value == second) != not;
+    }
+
+    /**
+     * Returns a word which has the highest bit of every byte of {@code word} set at which the search stops, and all
+     * other bits cleared.
+     */
+    private long stopMask(long word) {
+        long matches = zeroBytes(word ^ firstPattern) | zeroBytes(word ^ secondPattern);
+        return not ? ~matches & ~LOW_BITS : matches;
+    }
+
+    /**
+     * Returns a word which has the highest bit of every zero byte of {@code word} set, and all other bits cleared.
+     * Unlike the well known {@code (word - 0x01..01) & ~word & 0x80..80} this has no false positives, as no carry
+     * crosses the bytes, so it works for either byte order.
+     */
+    private static long zeroBytes(long word) {
+        long tmp = (word & LOW_BITS) + LOW_BITS;
+        return ~(tmp | word | LOW_BITS);
+    }
+
+    private static long pattern(byte value) {
+        return (value & 0xFFL) * 0x0101010101010101L;
+    }
+}
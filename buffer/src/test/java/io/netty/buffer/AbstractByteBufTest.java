@@ -2040,6 +2040,45 @@ public abstract class AbstractByteBufTest {
         assertThat(lastIndex.get(), is(CAPACITY / 4));
     }
 
+    @Test
+    public void testForEachByteKnownProcessors() {
+        // Only use bytes the processors look for, so they stop at many different positions.
+        byte[] alphabet = { 0, '\r', '\n', ' ', '\t', ';', 'a' };
+        buffer.clear();
+        for (int i = 0; i < CAPACITY; i ++) {
+            buffer.writeByte(alphabet[random.nextInt(alphabet.length)]);
+        }
+
+        ByteProcessor[] processors = {
+                ByteProcessor.FIND_NUL, ByteProcessor.FIND_NON_NUL, ByteProcessor.FIND_CR,
+                ByteProcessor.FIND_NON_CR, ByteProcessor.FIND_LF, ByteProcessor.FIND_NON_LF,
+                ByteProcessor.FIND_SEMI_COLON, ByteProcessor.FIND_CRLF, ByteProcessor.FIND_NON_CRLF,
+                ByteProcessor.FIND_LINEAR_WHITESPACE, ByteProcessor.FIND_NON_LINEAR_WHITESPACE
+        };
+        for (final ByteProcessor processor: processors) {
+            // Hides the processor, so every byte is passed to it.
+            ByteProcessor reference = new ByteProcessor() {
+                @Override
+                public boolean process(byte value) throws Exception {
+                    return processor.process(value);
+                }
+            };
+            for (int i = 0; i < 64; i ++) {
+                int index = random.nextInt(CAPACITY);
+                int length = random.nextInt(Math.min(CAPACITY - index, 256) + 1);
+                assertEquals(buffer.forEachByte(index, length, reference),
+                        buffer.forEachByte(index, length, processor));
+                assertEquals(buffer.forEachByteDesc(index, length, reference),
+                        buffer.forEachByteDesc(index, length, processor));
+            }
+        }
+
+        buffer.setByte(CAPACITY - 1, 'b');
+        assertEquals(CAPACITY - 1, buffer.indexOf(0, CAPACITY, (byte) 'b'));
+        assertEquals(CAPACITY - 1, buffer.indexOf(CAPACITY, 0, (byte) 'b'));
+        assertEquals(-1, buffer.indexOf(0, CAPACITY, (byte) 'c'));
+    }
+
     @Test
     public void testInternalNioBuffer() {
         testInternalNioBuffer(128);
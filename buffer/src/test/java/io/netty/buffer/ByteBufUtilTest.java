@@ -66,6 +66,56 @@ public class ByteBufUtilTest {
         assertFalse(ByteBufUtil.equals(Unpooled.wrappedBuffer(b1), iB1, Unpooled.wrappedBuffer(b2), iB2, length));
     }
 
+    @Test
+    public void testIndexOf() {
+        Random rand = new Random();
+        byte[] haystack = new byte[4096];
+        for (int i = 0; i < haystack.length; i ++) {
+            // A small alphabet, so there are many partial matches.
+            haystack[i] = (byte) ('a' + rand.nextInt(3));
+        }
+        ByteBuf heapHaystack = Unpooled.wrappedBuffer(haystack);
+        ByteBuf directHaystack = releaseLater(Unpooled.directBuffer(haystack.length).writeBytes(haystack));
+        ByteBuf compositeHaystack = Unpooled.wrappedBuffer(
+                Unpooled.wrappedBuffer(haystack, 0, 1000), Unpooled.wrappedBuffer(haystack, 1000, 3096));
+
+        for (int needleLength: new int[] { 1, 2, 3, 7, 15, 16, 17, 40 }) {
+            for (int i = 0; i < 32; i ++) {
+                int needleStart = rand.nextInt(haystack.length - needleLength);
+                byte[] needle = new byte[needleLength];
+                System.arraycopy(haystack, needleStart, needle, 0, needleLength);
+                if (i % 2 == 0) {
+                    // Most likely not in the haystack.
+                    needle[needleLength - 1] = 'd';
+                }
+                int haystackStart = rand.nextInt(haystack.length);
+                int expected = naiveIndexOf(needle, haystack, haystackStart);
+                ByteBuf needleBuf = Unpooled.wrappedBuffer(needle);
+                for (ByteBuf buf: new ByteBuf[] { heapHaystack, directHaystack, compositeHaystack }) {
+                    buf.readerIndex(haystackStart);
+                    assertEquals(expected, ByteBufUtil.indexOf(needleBuf, buf));
+                }
+            }
+        }
+
+        ByteBuf empty = Unpooled.EMPTY_BUFFER;
+        heapHaystack.readerIndex(10);
+        assertEquals(10, ByteBufUtil.indexOf(empty, heapHaystack));
+        assertEquals(-1, ByteBufUtil.indexOf(heapHaystack, empty));
+    }
+
+    private static int naiveIndexOf(byte[] needle, byte[] haystack, int haystackStart) {
+        outer: for (int i = haystackStart; i <= haystack.length - needle.length; i ++) {
+            for (int j = 0; j < needle.length; j ++) {
+                if (haystack[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
     @Test
     public void notEqualsBufferOverflow() {
         byte[] b1 = new byte[8];
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.CharsetUtil;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ReadOnlyBufferException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MappedFileByteBufTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("netty-mapped-", ".dir");
+        assertTrue(dir.delete());
+        assertTrue(dir.mkdir());
+    }
+
+    @After
+    public void tearDown() {
+        for (File file: dir.listFiles()) {
+            file.delete();
+        }
+        dir.delete();
+    }
+
+    private File newFile(String name, String content) throws IOException {
+        File file = new File(dir, name);
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(content.getBytes(CharsetUtil.US_ASCII));
+        } finally {
+            out.close();
+        }
+        return file;
+    }
+
+    @Test
+    public void testMapFile() throws IOException {
+        File file = newFile("a", "Hello, World!");
+        MappedFileByteBuf buf = MappedFileByteBuf.map(file);
+        assertEquals(file, buf.file());
+        assertTrue(buf.isReadOnly());
+        assertTrue(buf.isDirect());
+        assertEquals("Hello, World!", buf.toString(CharsetUtil.US_ASCII));
+
+        ByteBuf slice = buf.retainedSlice(7, 5);
+        assertEquals("World", slice.toString(CharsetUtil.US_ASCII));
+        assertFalse(buf.release());
+        assertTrue(slice.release());
+        assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testMapRegion() throws IOException {
+        File file = newFile("a", "Hello, World!");
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        MappedFileByteBuf buf;
+        try {
+            buf = MappedFileByteBuf.map(raf.getChannel(), 7, 5);
+        } finally {
+            raf.close();
+        }
+        assertEquals("World", buf.toString(CharsetUtil.US_ASCII));
+        assertTrue(buf.release());
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testReadOnly() throws IOException {
+        MappedFileByteBuf buf = MappedFileByteBuf.map(newFile("a", "Hello"));
+        try {
+            buf.setByte(0, 1);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testCacheReturnsSameMapping() throws IOException {
+        MappedFileByteBufCache cache = new MappedFileByteBufCache(2, 1024);
+        File file = newFile("a", "Hello");
+        ByteBuf first = cache.get(file);
+        ByteBuf second = cache.get(file);
+        assertNotSame(first, second);
+        assertSame(first.unwrap(), second.unwrap());
+        assertEquals(1, cache.size());
+        assertEquals(5, cache.mappedBytes());
+        // The cache holds one reference.
+        assertEquals(3, first.refCnt());
+
+        assertFalse(first.release());
+        assertFalse(second.release());
+        cache.clear();
+        assertEquals(0, first.refCnt());
+    }
+
+    @Test
+    public void testCacheEvictsLeastRecentlyUsed() throws IOException {
+        MappedFileByteBufCache cache = new MappedFileByteBufCache(2, 1024);
+        File a = newFile("a", "a");
+        File b = newFile("b", "b");
+        File c = newFile("c", "c");
+        ByteBuf bufA = cache.get(a);
+        cache.get(b).release();
+        // a was used more recently than b.
+        cache.get(a).release();
+        cache.get(c).release();
+
+        assertEquals(2, cache.size());
+        assertFalse(cache.invalidate(b));
+        // Evicted, but still usable until released.
+        assertEquals("a", bufA.toString(CharsetUtil.US_ASCII));
+        assertTrue(cache.invalidate(a));
+        assertTrue(bufA.release());
+    }
+
+    @Test
+    public void testCacheEvictsByBytes() throws IOException {
+        MappedFileByteBufCache cache = new MappedFileByteBufCache(10, 8);
+        cache.get(newFile("a", "aaaa")).release();
+        cache.get(newFile("b", "bbbb")).release();
+        assertEquals(8, cache.mappedBytes());
+        cache.get(newFile("c", "cc")).release();
+        assertEquals(2, cache.size());
+        assertEquals(6, cache.mappedBytes());
+
+        // Too large to be cached.
+        ByteBuf large = cache.get(newFile("d", "ddddddddd"));
+        assertEquals(1, large.refCnt());
+        assertEquals(2, cache.size());
+        assertTrue(large.release());
+        cache.clear();
+    }
+
+    @Test
+    public void testCacheRemapsModifiedFile() throws IOException {
+        MappedFileByteBufCache cache = new MappedFileByteBufCache(2, 1024);
+        File file = newFile("a", "Hello");
+        ByteBuf first = cache.get(file);
+        newFile("a", "Hello, World!");
+        ByteBuf second = cache.get(file);
+        assertEquals("Hello, World!", second.toString(CharsetUtil.US_ASCII));
+        assertEquals(1, cache.size());
+        assertTrue(first.release());
+        assertFalse(second.release());
+        cache.clear();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class MappedFilePoolChunkSourceTest {
+
+    private static final File TMP_DIR = new File(System.getProperty("java.io.tmpdir"));
+
+    @Test
+    public void testAllocateAndFree() throws IOException {
+        MappedFilePoolChunkSource source = new MappedFilePoolChunkSource(TMP_DIR, 4096);
+        ByteBuffer first = source.allocate(10000);
+        assertTrue(first.isDirect());
+        assertEquals(0, first.position());
+        assertEquals(10000, first.limit());
+        assertEquals(10000, first.capacity());
+        // The size of every chunk is a multiple of the alignment.
+        assertEquals(3 * 4096, source.mappedBytes());
+
+        ByteBuffer second = source.allocate(4096);
+        assertEquals(4 * 4096, source.mappedBytes());
+        first.put(9999, (byte) 1);
+        second.put(0, (byte) 2);
+        assertEquals(1, first.get(9999));
+        assertEquals(2, second.get(0));
+
+        // A freed chunk is unmapped.
+        source.free(first);
+        assertEquals(4096, source.mappedBytes());
+        source.free(second);
+        assertEquals(0, source.mappedBytes());
+        source.close();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFreeTwice() throws IOException {
+        MappedFilePoolChunkSource source = new MappedFilePoolChunkSource(TMP_DIR, 4096);
+        ByteBuffer chunk = source.allocate(4096);
+        source.free(chunk);
+        source.free(chunk);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFreeForeignBuffer() throws IOException {
+        new MappedFilePoolChunkSource(TMP_DIR).free(ByteBuffer.allocateDirect(4096));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAlignment() throws IOException {
+        new MappedFilePoolChunkSource(TMP_DIR, 4096 * 3);
+    }
+
+    @Test
+    public void testPrefault() throws IOException {
+        MappedFilePoolChunkSource source = new MappedFilePoolChunkSource(TMP_DIR, 65536);
+        source.prefault(65536, 2);
+        assertEquals(2 * 65536, source.mappedBytes());
+        source.allocate(65536);
+        source.allocate(65536);
+        assertEquals(2 * 65536, source.mappedBytes());
+        source.allocate(65536);
+        assertEquals(3 * 65536, source.mappedBytes());
+        source.close();
+    }
+
+    @Test
+    public void testClose() throws IOException {
+        MappedFilePoolChunkSource source = new MappedFilePoolChunkSource(TMP_DIR, 4096);
+        source.prefault(4096, 2);
+        ByteBuffer chunk = source.allocate(4096);
+        assertEquals(2 * 4096, source.mappedBytes());
+
+        // The pre-faulted chunk which was not used is unmapped, the one which is in use stays valid.
+        source.close();
+        assertEquals(4096, source.mappedBytes());
+        chunk.put(0, (byte) 1);
+        assertEquals(1, chunk.get(0));
+        try {
+            source.allocate(4096);
+            fail();
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+
+        source.free(chunk);
+        assertEquals(0, source.mappedBytes());
+        // Closing again has no effect.
+        source.close();
+    }
+
+    @Test
+    public void testPooledByteBufAllocator() throws IOException {
+        MappedFilePoolChunkSource source = new MappedFilePoolChunkSource(TMP_DIR, 4096);
+        int chunkSize = 8192 << 4;
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 4, 0, 0, 0, false, false, false, source, 0, 0, false);
+        assertSame(source, allocator.directChunkSource());
+
+        ByteBuf buffer = allocator.directBuffer(1024);
+        assertEquals(chunkSize, source.mappedBytes());
+        buffer.writeLong(42);
+        assertEquals(42, buffer.readLong());
+
+        // Huge allocations are not served by the source.
+        ByteBuf huge = allocator.directBuffer(chunkSize + 1);
+        huge.writeLong(42);
+        assertEquals(chunkSize, source.mappedBytes());
+
+        assertTrue(buffer.release());
+        assertTrue(huge.release());
+        source.close();
+    }
+
+    @Test
+    public void testIdleChunksAreUnmapped() throws Exception {
+        MappedFilePoolChunkSource source = new MappedFilePoolChunkSource(TMP_DIR, 4096);
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 4, 0, 0, 0, false, false, false, source, 0, 10, false);
+
+        assertTrue(allocator.directBuffer(8192).release());
+        assertEquals(8192 << 4, source.mappedBytes());
+        assertTrue(allocator.trimCurrentThreadCache());
+        Thread.sleep(20);
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(0, source.mappedBytes());
+        source.close();
+    }
+}
@@ -32,4 +32,33 @@ public class PoolArenaTest {
             Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
         }
     }
+
+    @Test
+    public void testNormalizeCapacityWithSizeClasses() throws Exception {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 11, 13, 8192 << 11, true, false);
+        int[] reqCapacities = {0, 15, 17, 65, 500, 7000, 8192, 8705, 16385, 49153, 65537, 8192 << 11};
+        int[] expectedResult = {16, 16, 32, 80, 512, 7168, 8192, 10240, 20480, 57344, 131072, 8192 << 11};
+        for (int i = 0; i < reqCapacities.length; i ++) {
+            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+        }
+        Assert.assertTrue(arena.isTinyOrSmall(10240));
+        Assert.assertFalse(arena.isTinyOrSmall(16384));
+        Assert.assertEquals(4, arena.subpageRunPages(10240));
+    }
+
+    @Test
+    public void testNormalizeCapacityWithRunBasedChunks() throws Exception {
+        PoolArena<ByteBuffer> arena = new PoolArena.DirectArena(null, 8192, 11, 13, 8192 << 11, false, true);
+        int[] reqCapacities = {15, 510, 1025, 8192, 8193, 8705, 24576, 40000};
+        int[] expectedResult = {16, 512, 2048, 8192, 16384, 16384, 24576, 40960};
+        for (int i = 0; i < reqCapacities.length; i ++) {
+            Assert.assertEquals(expectedResult[i], arena.normalizeCapacity(reqCapacities[i]));
+        }
+
+        // With size classes every multiple of the page size is allocated as a run.
+        arena = new PoolArena.DirectArena(null, 8192, 11, 13, 8192 << 11, true, true);
+        Assert.assertEquals(24576, arena.normalizeCapacity(24000));
+        Assert.assertFalse(arena.isTinyOrSmall(24576));
+        Assert.assertTrue(arena.isTinyOrSmall(10240));
+    }
 }
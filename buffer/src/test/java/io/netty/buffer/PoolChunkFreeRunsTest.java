@@ -0,0 +1,114 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PoolChunkFreeRunsTest {
+
+    @Test
+    public void testExactFit() {
+        PoolChunkFreeRuns runs = new PoolChunkFreeRuns(16);
+        assertEquals(0, runs.allocate(3));
+        assertEquals(3, runs.allocate(5));
+        assertEquals(8, runs.allocate(3));
+        assertEquals(11, runs.allocate(5));
+        assertEquals(-1, runs.allocate(1));
+
+        runs.free(0, 3);
+        runs.free(11, 5);
+        // The run of 3 pages fits exactly, so the run of 5 pages is not split.
+        assertEquals(0, runs.allocate(3));
+        assertEquals(11, runs.allocate(4));
+        assertEquals(15, runs.allocate(1));
+    }
+
+    @Test
+    public void testCoalescing() {
+        PoolChunkFreeRuns runs = new PoolChunkFreeRuns(8);
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, runs.allocate(1));
+        }
+        // Free in an order which needs merging with the previous, the next and both runs.
+        runs.free(1, 1);
+        runs.free(5, 1);
+        runs.free(2, 1);
+        runs.free(4, 1);
+        runs.free(3, 1);
+        assertTrue(runs.isFree(1));
+        assertFalse(runs.isFree(3));
+        assertEquals(1, runs.allocate(5));
+
+        runs.free(1, 5);
+        runs.free(0, 1);
+        runs.free(6, 2);
+        assertEquals(0, runs.allocate(8));
+    }
+
+    @Test
+    public void testRandomAllocations() {
+        final int numPages = 2048;
+        PoolChunkFreeRuns runs = new PoolChunkFreeRuns(numPages);
+        boolean[] used = new boolean[numPages];
+        List<int[]> allocated = new ArrayList<int[]>();
+        Random random = new Random(42);
+        for (int i = 0; i < 100000; i++) {
+            if (allocated.isEmpty() || random.nextInt(3) != 0) {
+                int pages = 1 + random.nextInt(random.nextBoolean() ? 8 : 128);
+                int first = runs.allocate(pages);
+                if (first < 0) {
+                    // Can only fail if there is no free run which is big enough.
+                    assertFalse(hasFreeRun(used, pages));
+                    continue;
+                }
+                for (int page = first; page < first + pages; page++) {
+                    assertFalse(used[page]);
+                    used[page] = true;
+                }
+                allocated.add(new int[] { first, pages });
+            } else {
+                int[] run = allocated.remove(random.nextInt(allocated.size()));
+                for (int page = run[0]; page < run[0] + run[1]; page++) {
+                    used[page] = false;
+                }
+                runs.free(run[0], run[1]);
+            }
+        }
+        for (int[] run: allocated) {
+            runs.free(run[0], run[1]);
+        }
+        assertEquals(0, runs.allocate(numPages));
+    }
+
+    private static boolean hasFreeRun(boolean[] used, int pages) {
+        int free = 0;
+        for (boolean u: used) {
+            free = u ? 0 : free + 1;
+            if (free == pages) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -16,8 +16,13 @@
 
 package io.netty.buffer;
 
+import io.netty.util.IllegalReferenceCountException;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.FastThreadLocal;
 import io.netty.util.concurrent.FastThreadLocalThread;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.SystemPropertyUtil;
 import org.junit.Test;
 
@@ -25,14 +30,21 @@ import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.LockSupport;
 
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 public class PooledByteBufAllocatorTest {
 
@@ -92,6 +104,11 @@ public class PooledByteBufAllocatorTest {
     private static void assertPoolChunkListMetric(PoolChunkListMetric m, int min, int max) {
         assertEquals(min, m.minUsage());
         assertEquals(max, m.maxUsage());
+        int numChunks = 0;
+        for (PoolChunkMetric ignored: m) {
+            numChunks++;
+        }
+        assertEquals(numChunks, m.numChunks());
     }
 
     @Test
@@ -120,6 +137,111 @@ public class PooledByteBufAllocatorTest {
         }
     }
 
+    @Test
+    public void testAllocatorMetric() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 1, 1, 8192, 11, 32, 32, 32);
+        PooledByteBufAllocatorMetric metric = allocator.metric();
+        int chunkSize = metric.chunkSize();
+        assertEquals(0, metric.usedDirectMemory());
+
+        // The first allocation misses the empty cache, the second is served by it.
+        assertTrue(allocator.directBuffer(8192).release());
+        assertEquals(1, metric.numThreadCacheMisses());
+        assertEquals(0, metric.numThreadCacheHits());
+        ByteBuf buffer = allocator.directBuffer(8192);
+        assertEquals(1, metric.numThreadCacheHits());
+        assertEquals(chunkSize, metric.usedDirectMemory());
+        assertEquals(0, metric.usedHeapMemory());
+        assertEquals(1, metric.directChunkUsageHistogram()[0]);
+        assertEquals(0, metric.heapChunkUsageHistogram()[0]);
+
+        ByteBuf huge = allocator.directBuffer(chunkSize + 1);
+        assertEquals(2L * chunkSize + 1, metric.usedDirectMemory());
+        assertTrue(huge.release());
+        assertEquals(chunkSize, metric.usedDirectMemory());
+
+        assertTrue(buffer.release());
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(1, metric.numThreadCacheTrimmedBuffers());
+        assertEquals(1, metric.directArenas().get(0).numThreadCacheTrimmedBuffers());
+        assertEquals(0, metric.directArenas().get(0).numActiveAllocations());
+    }
+
+    @Test
+    public void testSizeClasses() {
+        testRandomAllocations(new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, true, false, false, null, 0, 0, false));
+        testRandomAllocations(new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 64, 64, 64, true, false, false, null, 0, 0, false));
+    }
+
+    @Test
+    public void testRunBasedChunks() {
+        testRandomAllocations(new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, false, true, false, null, 0, 0, false));
+        testRandomAllocations(new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 64, 64, 64, false, true, false, null, 0, 0, false));
+        testRandomAllocations(new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, true, true, false, null, 0, 0, false));
+        testRandomAllocations(new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 64, 64, 64, true, true, false, null, 0, 0, false));
+    }
+
+    private static void testRandomAllocations(PooledByteBufAllocator allocator) {
+        Random random = new Random(42);
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        List<Byte> values = new ArrayList<Byte>();
+        for (int round = 0; round < 4; round++) {
+            for (int i = 0; i < 2000; i++) {
+                int size = random.nextInt(i % 2 == 0 ? 8192 : 160 * 1024) + 1;
+                ByteBuf buffer = i % 3 == 0 ? allocator.heapBuffer(size) : allocator.directBuffer(size);
+                int maxLength = ((PooledByteBuf<?>) unwrapIfNeeded(buffer)).maxLength;
+                assertTrue(maxLength >= size);
+                if (allocator.useSizeClasses()) {
+                    // Up to 40k no class is more than 25% larger than the previous one, above there are only
+                    // classes which fit well into the runs of the PoolChunk.
+                    assertTrue(size <= 64 || size > 40 * 1024 || maxLength < size * 1.25 + 1);
+                } else if (allocator.useRunBasedChunks()) {
+                    // Rounded up to the next multiple of the page size.
+                    assertTrue(size <= 8192 || maxLength < size + 8192);
+                }
+                // Fill the whole buffer so overlapping buffers are detected below.
+                byte value = (byte) random.nextInt();
+                for (int j = 0; j < size; j++) {
+                    buffer.writeByte(value);
+                }
+                buffers.add(buffer);
+                values.add(value);
+            }
+            for (int i = 0; i < buffers.size(); i++) {
+                ByteBuf buffer = buffers.get(i);
+                for (int j = 0; j < buffer.readableBytes(); j++) {
+                    assertEquals((byte) values.get(i), buffer.getByte(j));
+                }
+            }
+            // Release every second buffer so the next round reuses the memory.
+            for (int i = buffers.size() - 1; i >= 0; i -= 2) {
+                assertTrue(buffers.remove(i).release());
+                values.remove(i);
+            }
+        }
+        for (ByteBuf buffer: buffers) {
+            assertTrue(buffer.release());
+        }
+        if (allocator.normalCacheSize() == 0) {
+            for (PoolArenaMetric metric: allocator.directArenas()) {
+                assertEquals(0, metric.numActiveAllocations());
+            }
+            for (PoolArenaMetric metric: allocator.heapArenas()) {
+                assertEquals(0, metric.numActiveAllocations());
+            }
+        }
+    }
+
+    private static ByteBuf unwrapIfNeeded(ByteBuf buf) {
+        return buf instanceof WrappedByteBuf ? buf.unwrap() : buf;
+    }
+
     @Test
     public void testFreePoolChunk() {
         int chunkSize = 16 * 1024 * 1024;
@@ -149,6 +271,95 @@ public class PooledByteBufAllocatorTest {
         assertFalse(lists.get(5).iterator().hasNext());
     }
 
+    @Test
+    public void testReleaseIdleChunks() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0);
+        PoolArena<?> arena = (PoolArena<?>) allocator.directArenas().get(0);
+
+        // The chunk stays in qInit once the buffer is released.
+        assertTrue(allocator.directBuffer(8192).release());
+        assertEquals(1, numChunks(arena));
+
+        // The chunk needs to be found free twice, so it was free for the whole idle time.
+        arena.releaseIdleChunks(0, 100);
+        arena.releaseIdleChunks(99, 100);
+        assertEquals(1, numChunks(arena));
+
+        // Allocating out of the chunk restarts the idle time, even if it is free again.
+        assertTrue(allocator.directBuffer(8192).release());
+        arena.releaseIdleChunks(100, 100);
+        assertEquals(1, numChunks(arena));
+
+        ByteBuf buffer = allocator.directBuffer(8192);
+        arena.releaseIdleChunks(400, 100);
+        arena.releaseIdleChunks(500, 100);
+        assertEquals(1, numChunks(arena));
+        assertTrue(buffer.release());
+        arena.releaseIdleChunks(500, 100);
+        arena.releaseIdleChunks(600, 100);
+        assertEquals(0, numChunks(arena));
+
+        // A new chunk is allocated once needed again.
+        assertTrue(allocator.directBuffer(8192).release());
+        assertEquals(1, numChunks(arena));
+    }
+
+    @Test
+    public void testTrimCurrentThreadCache() {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(true, 0, 1, 8192, 11, 32, 32, 32);
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+        assertFalse(allocator.trimCurrentThreadCache());
+
+        // Cache a buffer and allocate it often enough from the cache, so it is kept by the trim.
+        for (int i = 0; i <= allocator.normalCacheSize(); i++) {
+            assertTrue(allocator.directBuffer(8192).release());
+        }
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(1, arena.numActiveAllocations());
+
+        // Not used since the last trim so it is freed.
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(0, arena.numActiveAllocations());
+    }
+
+    @Test
+    public void testTrimCurrentThreadCacheReleasesIdleChunks() throws Exception {
+        PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 0, 1, 8192, 11, 0, 0, 0, false, false, false, null, 0, 10, false);
+        assertEquals(0, allocator.cacheTrimIntervalMillis());
+        assertEquals(10, allocator.chunkIdleTimeoutMillis());
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+
+        assertTrue(allocator.directBuffer(8192).release());
+        ByteBuf buffer = allocator.directBuffer(8192);
+        assertTrue(allocator.trimCurrentThreadCache());
+        Thread.sleep(20);
+        assertTrue(allocator.trimCurrentThreadCache());
+        // The chunk is still in use.
+        assertEquals(1, numChunks(arena));
+
+        assertTrue(buffer.release());
+        assertTrue(allocator.trimCurrentThreadCache());
+        Thread.sleep(20);
+        assertTrue(allocator.trimCurrentThreadCache());
+        assertEquals(0, numChunks(arena));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNegativeChunkIdleTimeout() {
+        new PooledByteBufAllocator(true, 0, 1, 8192, 11, 0, 0, 0, false, false, false, null, 0, -1, false);
+    }
+
+    private static int numChunks(PoolArenaMetric arena) {
+        int numChunks = 0;
+        for (PoolChunkListMetric list: arena.chunkLists()) {
+            for (PoolChunkMetric ignored: list) {
+                numChunks++;
+            }
+        }
+        return numChunks;
+    }
+
     // The ThreadDeathWatcher sleeps 1s, give it double that time.
     @Test (timeout = 2000)
     public void testThreadCacheDestroyedByThreadDeathWatcher() {
@@ -245,6 +456,336 @@ public class PooledByteBufAllocatorTest {
         assertEquals(0, allocator.directArenas().get(1).numThreadCaches());
     }
 
+    @Test(timeout = 10000)
+    public void testOwnerThreadArenas() throws Throwable {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, false, false, true, null, 0, 0, false);
+        final BlockingQueue<ByteBuf> buffers = new LinkedBlockingQueue<ByteBuf>();
+        final ByteBuf end = Unpooled.EMPTY_BUFFER;
+        final List<PoolArenaMetric> ownedArenas = new ArrayList<PoolArenaMetric>();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        // Release the buffers in another thread than the one that allocated them.
+        Thread releaser = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    for (;;) {
+                        ByteBuf buffer = buffers.take();
+                        if (buffer == end) {
+                            return;
+                        }
+                        buffer.release();
+                    }
+                } catch (Throwable cause) {
+                    error.set(cause);
+                }
+            }
+        });
+        Thread owner = new FastThreadLocalThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Random random = new Random(42);
+                    for (int i = 0; i < 20000; i++) {
+                        int size = random.nextInt(i % 2 == 0 ? 1024 : 64 * 1024) + 1;
+                        ByteBuf buffer = i % 3 == 0 ? allocator.heapBuffer(size) : allocator.directBuffer(size);
+                        buffer.writeZero(size);
+                        buffers.add(buffer);
+                    }
+                    ownedArenas.add(allocator.heapArenas().get(1));
+                    ownedArenas.add(allocator.directArenas().get(1));
+                    buffers.add(end);
+                } catch (Throwable cause) {
+                    error.set(cause);
+                    buffers.add(end);
+                } finally {
+                    // Releases the ownership, which processes the deallocations the owner did not see yet.
+                    FastThreadLocal.removeAll();
+                }
+            }
+        });
+        owner.start();
+        releaser.start();
+        owner.join();
+        releaser.join();
+        if (error.get() != null) {
+            throw error.get();
+        }
+
+        // The released arenas are kept for reuse by the next owner thread, but are not part of the metrics anymore.
+        assertEquals(1, allocator.heapArenas().size());
+        assertEquals(1, allocator.directArenas().size());
+        // The shared arenas were never used, as the only thread which allocated owns its arenas.
+        assertEquals(0, allocator.heapArenas().get(0).numAllocations());
+        assertEquals(0, allocator.directArenas().get(0).numAllocations());
+        long remoteDeallocations = 0;
+        for (PoolArenaMetric metric: ownedArenas) {
+            assertEquals(0, metric.numActiveAllocations());
+            assertEquals(0, metric.numPendingRemoteDeallocations());
+            assertEquals(metric.numDeallocations(), metric.numCrossThreadDeallocations());
+            remoteDeallocations += metric.numRemoteDeallocations();
+        }
+        assertTrue(remoteDeallocations > 0);
+
+        // Once released the arenas are shared, so the deallocations are not handed to the owner anymore.
+        ByteBuf buffer = allocator.directBuffer(1024);
+        PoolArenaMetric sharedArena = allocator.directArenas().get(0);
+        assertEquals(1, sharedArena.numActiveAllocations());
+        assertTrue(buffer.release());
+        assertEquals(0, sharedArena.numActiveAllocations());
+        assertEquals(0, sharedArena.numRemoteDeallocations());
+    }
+
+    @Test(timeout = 30000)
+    public void testOwnerThreadArenasAreReused() throws Throwable {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, false, false, true, null, 0, 0, false);
+        final int chunkSize = 8192 << 11;
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final AtomicReference<PoolArenaMetric> owned = new AtomicReference<PoolArenaMetric>();
+        final ByteBuf[] leftOver = new ByteBuf[1];
+        PoolArenaMetric firstOwned = null;
+        for (int i = 0; i < 20; i++) {
+            final boolean keepBuffer = i == 0;
+            Thread thread = new FastThreadLocalThread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        for (int j = 0; j < 16; j++) {
+                            ByteBuf buffer = allocator.directBuffer(1024 * 1024);
+                            buffer.writeZero(buffer.capacity());
+                            buffer.release();
+                        }
+                        if (keepBuffer) {
+                            // Outlives the thread, so the chunk it lives in must be kept.
+                            leftOver[0] = allocator.directBuffer(1024);
+                        }
+                        owned.set(allocator.directArenas().get(1));
+                    } catch (Throwable cause) {
+                        error.set(cause);
+                    } finally {
+                        FastThreadLocal.removeAll();
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+            if (error.get() != null) {
+                throw error.get();
+            }
+            if (firstOwned == null) {
+                firstOwned = owned.get();
+            }
+
+            // The arena of the exited thread is reused and only keeps the chunk of the buffer which is still in use.
+            assertSame(firstOwned, owned.get());
+            assertEquals(chunkSize, firstOwned.numActiveBytes());
+            // The released arena waits for the next owner thread and is not part of the metrics meanwhile.
+            assertEquals(1, allocator.metric().numDirectArenas());
+            assertEquals(0, allocator.metric().usedDirectMemory());
+        }
+
+        assertTrue(leftOver[0].release());
+        assertEquals(20 * 16 + 1, firstOwned.numAllocations());
+        assertEquals(0, firstOwned.numActiveAllocations());
+    }
+
+    // The ThreadDeathWatcher sleeps 1s between its runs.
+    @Test(timeout = 10000)
+    public void testOwnerThreadArenasAreReusedAfterThreadDeath() throws Throwable {
+        final PooledByteBufAllocator allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, false, false, true, null, 0, 0, false);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final AtomicReference<PoolArenaMetric> owned = new AtomicReference<PoolArenaMetric>();
+        PoolArenaMetric firstOwned = null;
+        for (int i = 0; i < 3; i++) {
+            // Exits without FastThreadLocal.removeAll(), so only the ThreadDeathWatcher frees its cache.
+            Thread thread = new FastThreadLocalThread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        allocator.directBuffer(1024 * 1024).release();
+                        owned.set(allocator.directArenas().get(1));
+                    } catch (Throwable cause) {
+                        error.set(cause);
+                    }
+                }
+            });
+            thread.start();
+            thread.join();
+            if (error.get() != null) {
+                throw error.get();
+            }
+            if (firstOwned == null) {
+                firstOwned = owned.get();
+            }
+            assertSame(firstOwned, owned.get());
+
+            // The released arena waits for the next owner thread and is not part of the metrics meanwhile.
+            while (allocator.metric().numDirectArenas() != 1) {
+                Thread.sleep(50);
+            }
+            assertEquals(0, allocator.metric().usedDirectMemory());
+        }
+        assertEquals(3, firstOwned.numAllocations());
+    }
+
+    @Test(timeout = 10000)
+    public void testBiasedRefCnt() throws Exception {
+        final PooledByteBufAllocator allocator = newBiasedRefCntAllocator();
+        assertTrue(allocator.useBiasedRefCnt());
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            executor.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    ByteBuf buf = allocator.directBuffer(1024);
+                    buf.retain(2);
+                    assertEquals(3, buf.refCnt());
+                    assertFalse(buf.release(2));
+                    assertEquals(1, buf.refCnt());
+                    try {
+                        buf.release(2);
+                        fail();
+                    } catch (IllegalReferenceCountException expected) {
+                        // The owner can not release more references than the buffer has.
+                    }
+                    assertEquals(1, buf.refCnt());
+                    assertTrue(buf.release());
+                    assertEquals(0, buf.refCnt());
+                    try {
+                        buf.retain();
+                        fail();
+                    } catch (IllegalReferenceCountException expected) {
+                        // The buffer was deallocated.
+                    }
+                    return null;
+                }
+            }).sync();
+            assertEquals(0, arena.numActiveAllocations());
+
+            // Buffers which are not allocated by the thread of an EventExecutor are not biased.
+            ByteBuf buf = allocator.directBuffer(1024);
+            assertEquals(1, buf.refCnt());
+            assertTrue(buf.release());
+            assertEquals(0, arena.numActiveAllocations());
+        } finally {
+            executor.shutdownGracefully(0, 0, MILLISECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBiasedRefCntReleasedByOtherThread() throws Exception {
+        PooledByteBufAllocator allocator = newBiasedRefCntAllocator();
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            // The owner hands its only reference over, so the other thread releases it.
+            ByteBuf buf = executor.submit(newBiasedBufferTask(allocator)).sync().getNow();
+            assertEquals(1, buf.refCnt());
+            // Only the owner knows that no reference is left and deallocates the buffer.
+            assertFalse(buf.release());
+            executor.submit(NOOP).sync();
+            assertEquals(0, buf.refCnt());
+            assertEquals(0, arena.numActiveAllocations());
+
+            // Another thread retains the buffer before the owner releases its reference.
+            final ByteBuf buf2 = executor.submit(newBiasedBufferTask(allocator)).sync().getNow();
+            buf2.retain();
+            assertEquals(2, buf2.refCnt());
+            assertFalse(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return buf2.release();
+                }
+            }).sync().getNow());
+            assertEquals(1, buf2.refCnt());
+            assertTrue(buf2.release());
+            assertEquals(0, buf2.refCnt());
+            assertEquals(0, arena.numActiveAllocations());
+        } finally {
+            executor.shutdownGracefully(0, 0, MILLISECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBiasedRefCntReleasedAfterOwnerTerminated() throws Exception {
+        PooledByteBufAllocator allocator = newBiasedRefCntAllocator();
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+        EventExecutor executor = new DefaultEventExecutor();
+        ByteBuf buf = executor.submit(newBiasedBufferTask(allocator)).sync().getNow();
+        executor.shutdownGracefully(0, 0, MILLISECONDS).sync();
+
+        // The owner does not run tasks anymore, so the counts are merged by a listener of its termination.
+        assertFalse(buf.release());
+        GlobalEventExecutor.INSTANCE.submit(NOOP).sync();
+        assertEquals(0, buf.refCnt());
+        assertEquals(0, arena.numActiveAllocations());
+    }
+
+    @Test(timeout = 30000)
+    public void testBiasedRefCntConcurrentUsage() throws Exception {
+        final PooledByteBufAllocator allocator = newBiasedRefCntAllocator();
+        PoolArenaMetric arena = allocator.directArenas().get(0);
+        EventExecutor executor = new DefaultEventExecutor();
+        try {
+            for (int i = 0; i < 100; i++) {
+                // The owner keeps one reference and hands one over.
+                final ByteBuf buf = executor.submit(new Callable<ByteBuf>() {
+                    @Override
+                    public ByteBuf call() {
+                        return allocator.directBuffer(1024).retain();
+                    }
+                }).sync().getNow();
+                Future<Boolean> ownerReleased = executor.submit(new Callable<Boolean>() {
+                    @Override
+                    public Boolean call() {
+                        retainAndRelease(buf, 10000);
+                        return buf.release();
+                    }
+                });
+                retainAndRelease(buf, 10000);
+                // Neither thread knows if it released the last reference, so the buffer is deallocated via a merge.
+                assertFalse(buf.release());
+                assertFalse(ownerReleased.sync().getNow());
+                executor.submit(NOOP).sync();
+                assertEquals(0, buf.refCnt());
+                assertEquals(0, arena.numActiveAllocations());
+            }
+        } finally {
+            executor.shutdownGracefully(0, 0, MILLISECONDS).sync();
+        }
+    }
+
+    private static void retainAndRelease(ByteBuf buf, int times) {
+        for (int i = 0; i < times; i++) {
+            buf.retain();
+            assertFalse(buf.release());
+        }
+    }
+
+    private static PooledByteBufAllocator newBiasedRefCntAllocator() {
+        return new PooledByteBufAllocator(true, 1, 1, 8192, 11, 0, 0, 0, false, false, false, null, 0, 0, true);
+    }
+
+    private static Callable<ByteBuf> newBiasedBufferTask(final PooledByteBufAllocator allocator) {
+        return new Callable<ByteBuf>() {
+            @Override
+            public ByteBuf call() {
+                return allocator.directBuffer(1024);
+            }
+        };
+    }
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // Runs after all tasks which were submitted before.
+        }
+    };
+
     private static void destroyThreadCache(CountDownLatch tcache) {
         tcache.countDown();
         LockSupport.parkNanos(MILLISECONDS.toNanos(100));
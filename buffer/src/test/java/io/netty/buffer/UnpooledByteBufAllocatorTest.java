@@ -0,0 +1,60 @@
+/*
+ * Copyright 2015 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+
+package io.netty.buffer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class UnpooledByteBufAllocatorTest {
+
+    @Test
+    public void testUsedHeapMemory() {
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(false);
+        ByteBufAllocatorMetric metric = allocator.metric();
+        assertEquals(0, metric.usedHeapMemory());
+        ByteBuf buffer = allocator.heapBuffer(1024, 4096);
+        assertEquals(1024, metric.usedHeapMemory());
+
+        buffer.capacity(4096);
+        assertEquals(4096, metric.usedHeapMemory());
+        buffer.capacity(512);
+        assertEquals(512, metric.usedHeapMemory());
+
+        buffer.release();
+        assertEquals(0, metric.usedHeapMemory());
+        assertEquals(0, metric.usedDirectMemory());
+    }
+
+    @Test
+    public void testUsedDirectMemory() {
+        UnpooledByteBufAllocator allocator = new UnpooledByteBufAllocator(true);
+        ByteBufAllocatorMetric metric = allocator.metric();
+        assertEquals(0, metric.usedDirectMemory());
+        ByteBuf buffer = allocator.directBuffer(1024, 4096);
+        assertEquals(1024, metric.usedDirectMemory());
+
+        buffer.capacity(4096);
+        assertEquals(4096, metric.usedDirectMemory());
+        buffer.capacity(512);
+        assertEquals(512, metric.usedDirectMemory());
+
+        buffer.release();
+        assertEquals(0, metric.usedDirectMemory());
+        assertEquals(0, metric.usedHeapMemory());
+    }
+}
@@ -107,6 +107,12 @@ abstract class AbstractHttp2StreamChannel extends AbstractChannel {
         return true;
     }
 
+    @Override
+    protected boolean isMigrationSupported() {
+        // A stream always uses the event loop of its parent channel.
+        return false;
+    }
+
     @Override
     protected SocketAddress localAddress0() {
         return parent().localAddress();
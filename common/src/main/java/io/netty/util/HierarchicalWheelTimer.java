@@ -0,0 +1,775 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * A {@link Timer} optimized for approximated I/O timeout scheduling, which keeps its {@link Timeout}s in a hierarchy
+ * of wheels.
+ *
+ * <h3>Hierarchical Wheels</h3>
+ *
+ * {@link HashedWheelTimer} keeps all {@link Timeout}s in a single wheel and counts the remaining rounds of every
+ * {@link Timeout}, so every tick has to look at all {@link Timeout}s of its bucket, including the ones which expire
+ * many rounds later. This timer keeps a {@link Timeout} which does not expire within the current round of the first
+ * wheel in one of the overflow wheels instead, where each bucket spans a whole round of the wheel below. Whenever a
+ * wheel completes a round, the next bucket of the wheel above is cascaded into the wheels below. So a tick only looks
+ * at the {@link Timeout}s which expire within this tick, and every {@link Timeout} is moved at most once per wheel.
+ * Adding and cancelling a {@link Timeout} takes constant time. The overflow wheels are created when they are needed
+ * for the first time.
+ *
+ * <h3>Tick Duration and Ticks per Wheel</h3>
+ *
+ * Like {@link HashedWheelTimer}, this timer does not execute the scheduled {@link TimerTask} on time, but checks for
+ * expired {@link TimerTask}s on every tick. The default tick duration is 100 milliseconds. As {@link Timeout}s which
+ * do not fit into the first wheel are kept in the overflow wheels, the wheels can be much smaller than the wheel of
+ * {@link HashedWheelTimer}. The default number of ticks per wheel is 64.
+ *
+ * <h3>Task Execution</h3>
+ *
+ * By default, the expired {@link TimerTask}s are run by the thread of the timer. If an {@link Executor} is given, all
+ * {@link TimerTask}s which expired at the same tick are passed to it as a single batch instead, so slow
+ * {@link TimerTask}s do not delay the ticks of the timer.
+ *
+ * <h3>Do not create many instances.</h3>
+ *
+ * {@link HierarchicalWheelTimer} creates a new thread whenever it is instantiated and started.  Therefore, you should
+ * make sure to create only one instance and share it across your application.
+ *
+ * <h3>Implementation Details</h3>
+ *
+ * {@link HierarchicalWheelTimer} is based on scheme 7 of
+ * <a href="http://cseweb.ucsd.edu/users/varghese/">George Varghese</a> and Tony Lauck's paper,
+ * <a href="http://cseweb.ucsd.edu/users/varghese/PAPERS/twheel.ps.Z">'Hashed and Hierarchical Timing Wheels: data
+ * structures to efficiently implement a timer facility'</a>.
+ */
+public class HierarchicalWheelTimer implements Timer {
+
+    static final InternalLogger logger =
+            InternalLoggerFactory.getInstance(HierarchicalWheelTimer.class);
+
+    private static final ResourceLeakDetector<HierarchicalWheelTimer> leakDetector =
+            ResourceLeakDetectorFactory.instance().newResourceLeakDetector(
+                    HierarchicalWheelTimer.class, 1, Runtime.getRuntime().availableProcessors() * 4L);
+
+    private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimer> WORKER_STATE_UPDATER;
+    static {
+        AtomicIntegerFieldUpdater<HierarchicalWheelTimer> workerStateUpdater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(HierarchicalWheelTimer.class, "workerState");
+        if (workerStateUpdater == null) {
+            workerStateUpdater = AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimer.class, "workerState");
+        }
+        WORKER_STATE_UPDATER = workerStateUpdater;
+    }
+
+    private static final int WORKER_STATE_INIT = 0;
+    private static final int WORKER_STATE_STARTED = 1;
+    private static final int WORKER_STATE_SHUTDOWN = 2;
+
+    // Transfer at most this many timeouts per tick, so a thread which adds timeouts in a loop cannot stall the worker.
+    private static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+    private final ResourceLeak leak;
+    private final Worker worker = new Worker();
+    private final Thread workerThread;
+    private final Executor taskExecutor;
+
+    @SuppressWarnings({ "unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+    private volatile int workerState = WORKER_STATE_INIT; // 0 - init, 1 - started, 2 - shut down
+
+    private final long tickDuration;
+    // The number of bits of a tick which are used as index into a wheel.
+    private final int bits;
+    private final int mask;
+    // The wheels, from the finest to the coarsest. Only accessed by the worker thread.
+    private final Bucket[][] wheels;
+    private final CountDownLatch startTimeInitialized = new CountDownLatch(1);
+    private final Queue<HierarchicalWheelTimeout> timeouts = PlatformDependent.newMpscQueue();
+    private final Queue<HierarchicalWheelTimeout> cancelledTimeouts = PlatformDependent.newMpscQueue();
+
+    private volatile long startTime;
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}), default tick
+     * duration, and default number of ticks per wheel.
+     */
+    public HierarchicalWheelTimer() {
+        this(Executors.defaultThreadFactory());
+    }
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}) and default
+     * number of ticks per wheel.
+     *
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @throws NullPointerException     if {@code unit} is {@code null}
+     * @throws IllegalArgumentException if {@code tickDuration} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(long tickDuration, TimeUnit unit) {
+        this(Executors.defaultThreadFactory(), tickDuration, unit);
+    }
+
+    /**
+     * Creates a new timer with the default thread factory ({@link Executors#defaultThreadFactory()}).
+     *
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the size of each wheel
+     * @throws NullPointerException     if {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration} and {@code ticksPerWheel} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(Executors.defaultThreadFactory(), tickDuration, unit, ticksPerWheel);
+    }
+
+    /**
+     * Creates a new timer with the default tick duration and default number of ticks per wheel.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                       the ticks of the timer.
+     * @throws NullPointerException if {@code threadFactory} is {@code null}
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory) {
+        this(threadFactory, 100, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a new timer with the default number of ticks per wheel.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                       the ticks of the timer.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if {@code tickDuration} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit) {
+        this(threadFactory, tickDuration, unit, 64);
+    }
+
+    /**
+     * Creates a new timer which runs the expired {@link TimerTask}s by its own thread.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                       the ticks of the timer.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the size of each wheel
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration} and {@code ticksPerWheel} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel) {
+        this(threadFactory, tickDuration, unit, ticksPerWheel, true, null);
+    }
+
+    /**
+     * Creates a new timer.
+     *
+     * @param threadFactory  a {@link ThreadFactory} that creates a background {@link Thread} which is dedicated to
+     *                       the ticks of the timer.
+     * @param tickDuration   the duration between tick
+     * @param unit           the time unit of the {@code tickDuration}
+     * @param ticksPerWheel  the size of each wheel
+     * @param leakDetection  {@code true} if leak detection should be enabled always, if false it will only be enabled
+     *                       if the worker thread is not a daemon thread.
+     * @param taskExecutor   the {@link Executor} which runs the expired {@link TimerTask}s, or {@code null} if they
+     *                       should be run by the thread of the timer.
+     * @throws NullPointerException     if either of {@code threadFactory} and {@code unit} is {@code null}
+     * @throws IllegalArgumentException if either of {@code tickDuration} and {@code ticksPerWheel} is &lt;= 0
+     */
+    public HierarchicalWheelTimer(
+            ThreadFactory threadFactory, long tickDuration, TimeUnit unit, int ticksPerWheel,
+            boolean leakDetection, Executor taskExecutor) {
+
+        if (threadFactory == null) {
+            throw new NullPointerException("threadFactory");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        if (tickDuration <= 0) {
+            throw new IllegalArgumentException("tickDuration must be greater than 0: " + tickDuration);
+        }
+        if (ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("ticksPerWheel must be greater than 0: " + ticksPerWheel);
+        }
+        if (ticksPerWheel > 1073741824) {
+            throw new IllegalArgumentException("ticksPerWheel may not be greater than 2^30: " + ticksPerWheel);
+        }
+
+        // Normalize ticksPerWheel to a power of two of at least 2.
+        bits = Math.max(1, 32 - Integer.numberOfLeadingZeros(ticksPerWheel - 1));
+        mask = (1 << bits) - 1;
+        // Enough wheels to cover all positive ticks.
+        wheels = new Bucket[(63 + bits - 1) / bits][];
+
+        this.tickDuration = unit.toNanos(tickDuration);
+        this.taskExecutor = taskExecutor;
+        workerThread = threadFactory.newThread(worker);
+
+        leak = leakDetection || !workerThread.isDaemon() ? leakDetector.open(this) : null;
+    }
+
+    /**
+     * Starts the background thread explicitly.  The background thread will start automatically on demand even if you
+     * did not call this method.
+     *
+     * @throws IllegalStateException if this timer has been {@linkplain #stop() stopped} already
+     */
+    public void start() {
+        switch (WORKER_STATE_UPDATER.get(this)) {
+            case WORKER_STATE_INIT:
+                if (WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_INIT, WORKER_STATE_STARTED)) {
+                    workerThread.start();
+                }
+                break;
+            case WORKER_STATE_STARTED:
+                break;
+            case WORKER_STATE_SHUTDOWN:
+                throw new IllegalStateException("cannot be started once stopped");
+            default:
+                throw new Error("Invalid WorkerState");
+        }
+
+        // Wait until the startTime is initialized by the worker.
+        while (startTime == 0) {
+            try {
+                startTimeInitialized.await();
+            } catch (InterruptedException ignore) {
+                // Ignore - it will be ready very soon.
+            }
+        }
+    }
+
+    @Override
+    public Set<Timeout> stop() {
+        if (Thread.currentThread() == workerThread) {
+            throw new IllegalStateException(
+                    HierarchicalWheelTimer.class.getSimpleName() +
+                            ".stop() cannot be called from " +
+                            TimerTask.class.getSimpleName());
+        }
+
+        if (!WORKER_STATE_UPDATER.compareAndSet(this, WORKER_STATE_STARTED, WORKER_STATE_SHUTDOWN)) {
+            // workerState can be 0 or 2 at this moment - let it always be 2.
+            WORKER_STATE_UPDATER.set(this, WORKER_STATE_SHUTDOWN);
+
+            if (leak != null) {
+                leak.close();
+            }
+
+            return Collections.emptySet();
+        }
+
+        boolean interrupted = false;
+        while (workerThread.isAlive()) {
+            workerThread.interrupt();
+            try {
+                workerThread.join(100);
+            } catch (InterruptedException ignored) {
+                interrupted = true;
+            }
+        }
+
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (leak != null) {
+            leak.close();
+        }
+        return worker.unprocessedTimeouts();
+    }
+
+    @Override
+    public Timeout newTimeout(TimerTask task, long delay, TimeUnit unit) {
+        if (task == null) {
+            throw new NullPointerException("task");
+        }
+        if (unit == null) {
+            throw new NullPointerException("unit");
+        }
+        start();
+
+        // Add the timeout to the timeout queue which will be processed on the next tick.
+        long deadline = System.nanoTime() + unit.toNanos(delay) - startTime;
+        if (delay > 0 && deadline < 0) {
+            // Guard against overflow.
+            deadline = Long.MAX_VALUE;
+        }
+        HierarchicalWheelTimeout timeout = new HierarchicalWheelTimeout(this, task, deadline);
+        timeouts.add(timeout);
+        return timeout;
+    }
+
+    private final class Worker implements Runnable {
+        private final Set<Timeout> unprocessedTimeouts = new HashSet<Timeout>();
+
+        private long tick;
+
+        @Override
+        public void run() {
+            // Initialize the startTime.
+            startTime = System.nanoTime();
+            if (startTime == 0) {
+                // We use 0 as an indicator for the uninitialized value here, so make sure it's not 0 when initialized.
+                startTime = 1;
+            }
+
+            // Notify the other threads waiting for the initialization at start().
+            startTimeInitialized.countDown();
+
+            do {
+                final long deadline = waitForNextTick();
+                if (deadline > 0) {
+                    processCancelledTasks();
+                    cascade();
+                    transferTimeoutsToBuckets();
+                    expireTimeouts();
+                    tick++;
+                }
+            } while (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_STARTED);
+
+            // Fill the unprocessedTimeouts so we can return them from stop() method.
+            for (Bucket[] wheel: wheels) {
+                if (wheel != null) {
+                    for (Bucket bucket: wheel) {
+                        bucket.clearTimeouts(unprocessedTimeouts);
+                    }
+                }
+            }
+            for (;;) {
+                HierarchicalWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    break;
+                }
+                if (!timeout.isCancelled()) {
+                    unprocessedTimeouts.add(timeout);
+                }
+            }
+            processCancelledTasks();
+        }
+
+        /**
+         * Moves the {@link Timeout}s of the overflow wheels which expire within the next round of the wheel below into
+         * the wheels below, starting with the coarsest wheel which completed a round with this tick.
+         */
+        private void cascade() {
+            int level = 0;
+            long ticks = tick;
+            while (level + 1 < wheels.length && (ticks & mask) == 0) {
+                ticks >>>= bits;
+                level++;
+            }
+            for (; level > 0; level--) {
+                Bucket[] wheel = wheels[level];
+                if (wheel == null) {
+                    continue;
+                }
+                HierarchicalWheelTimeout timeout = wheel[(int) ((tick >>> bits * level) & mask)].pollAll();
+                while (timeout != null) {
+                    HierarchicalWheelTimeout next = timeout.next;
+                    timeout.next = null;
+                    if (!timeout.isCancelled()) {
+                        schedule(timeout);
+                    }
+                    timeout = next;
+                }
+            }
+        }
+
+        private void transferTimeoutsToBuckets() {
+            for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+                HierarchicalWheelTimeout timeout = timeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                if (timeout.state() == HierarchicalWheelTimeout.ST_CANCELLED) {
+                    // Was cancelled in the meantime.
+                    continue;
+                }
+                schedule(timeout);
+            }
+        }
+
+        private void schedule(HierarchicalWheelTimeout timeout) {
+            // Ensure we don't schedule for past.
+            long expirationTick = Math.max(timeout.deadline / tickDuration, tick);
+
+            // Use the finest wheel in which the expiration tick and the current tick are in the same round.
+            int level = 0;
+            long diff = expirationTick ^ tick;
+            while ((diff >>>= bits) != 0) {
+                level++;
+            }
+
+            Bucket[] wheel = wheels[level];
+            if (wheel == null) {
+                wheel = new Bucket[mask + 1];
+                for (int i = 0; i < wheel.length; i ++) {
+                    wheel[i] = new Bucket();
+                }
+                wheels[level] = wheel;
+            }
+            wheel[(int) ((expirationTick >>> bits * level) & mask)].addTimeout(timeout);
+        }
+
+        private void expireTimeouts() {
+            Bucket[] wheel = wheels[0];
+            if (wheel == null) {
+                return;
+            }
+            // Every timeout in this bucket expires at this tick, so collect all of them as a single batch.
+            HierarchicalWheelTimeout head = wheel[(int) (tick & mask)].pollAll();
+            HierarchicalWheelTimeout tail = null;
+            HierarchicalWheelTimeout timeout = head;
+            while (timeout != null) {
+                HierarchicalWheelTimeout next = timeout.next;
+                if (timeout.compareAndSetState(HierarchicalWheelTimeout.ST_INIT, HierarchicalWheelTimeout.ST_EXPIRED)) {
+                    tail = timeout;
+                } else {
+                    // Cancelled, unlink it from the batch.
+                    timeout.next = null;
+                    if (tail == null) {
+                        head = next;
+                    } else {
+                        tail.next = next;
+                    }
+                }
+                timeout = next;
+            }
+            if (head == null) {
+                return;
+            }
+
+            if (taskExecutor != null) {
+                try {
+                    taskExecutor.execute(new ExpiredTimeouts(head));
+                    return;
+                } catch (RejectedExecutionException e) {
+                    logger.warn("Failed to submit the expired timeouts to the executor, running them by the timer.", e);
+                }
+            }
+            runExpired(head);
+        }
+
+        private void processCancelledTasks() {
+            for (;;) {
+                HierarchicalWheelTimeout timeout = cancelledTimeouts.poll();
+                if (timeout == null) {
+                    // all processed
+                    break;
+                }
+                try {
+                    timeout.remove();
+                } catch (Throwable t) {
+                    if (logger.isWarnEnabled()) {
+                        logger.warn("An exception was thrown while process a cancellation task", t);
+                    }
+                }
+            }
+        }
+
+        /**
+         * calculate goal nanoTime from startTime and current tick number,
+         * then wait until that goal has been reached.
+         * @return Long.MIN_VALUE if received a shutdown request,
+         * current time otherwise (with Long.MIN_VALUE changed by +1)
+         */
+        private long waitForNextTick() {
+            long deadline = tickDuration * (tick + 1);
+
+            for (;;) {
+                final long currentTime = System.nanoTime() - startTime;
+                long sleepTimeMs = (deadline - currentTime + 999999) / 1000000;
+
+                if (sleepTimeMs <= 0) {
+                    if (currentTime == Long.MIN_VALUE) {
+                        return -Long.MAX_VALUE;
+                    } else {
+                        return currentTime;
+                    }
+                }
+
+                // Check if we run on windows, as if thats the case we will need
+                // to round the sleepTime as workaround for a bug that only affect
+                // the JVM if it runs on windows.
+                //
+                // See https://github.com/netty/netty/issues/356
+                if (PlatformDependent.isWindows()) {
+                    sleepTimeMs = sleepTimeMs / 10 * 10;
+                }
+
+                try {
+                    Thread.sleep(sleepTimeMs);
+                } catch (InterruptedException ignored) {
+                    if (WORKER_STATE_UPDATER.get(HierarchicalWheelTimer.this) == WORKER_STATE_SHUTDOWN) {
+                        return Long.MIN_VALUE;
+                    }
+                }
+            }
+        }
+
+        public Set<Timeout> unprocessedTimeouts() {
+            return Collections.unmodifiableSet(unprocessedTimeouts);
+        }
+    }
+
+    /**
+     * Runs the {@link TimerTask}s of a batch of expired timeouts, which are linked via
+     * {@link HierarchicalWheelTimeout#next}.
+     */
+    static void runExpired(HierarchicalWheelTimeout timeout) {
+        while (timeout != null) {
+            HierarchicalWheelTimeout next = timeout.next;
+            timeout.next = null;
+            timeout.run();
+            timeout = next;
+        }
+    }
+
+    private static final class ExpiredTimeouts implements Runnable {
+        private final HierarchicalWheelTimeout head;
+
+        ExpiredTimeouts(HierarchicalWheelTimeout head) {
+            this.head = head;
+        }
+
+        @Override
+        public void run() {
+            runExpired(head);
+        }
+    }
+
+    private static final class HierarchicalWheelTimeout implements Timeout {
+
+        private static final int ST_INIT = 0;
+        private static final int ST_CANCELLED = 1;
+        private static final int ST_EXPIRED = 2;
+        private static final AtomicIntegerFieldUpdater<HierarchicalWheelTimeout> STATE_UPDATER;
+
+        static {
+            AtomicIntegerFieldUpdater<HierarchicalWheelTimeout> updater =
+                    PlatformDependent.newAtomicIntegerFieldUpdater(HierarchicalWheelTimeout.class, "state");
+            if (updater == null) {
+                updater = AtomicIntegerFieldUpdater.newUpdater(HierarchicalWheelTimeout.class, "state");
+            }
+            STATE_UPDATER = updater;
+        }
+
+        private final HierarchicalWheelTimer timer;
+        private final TimerTask task;
+        private final long deadline;
+
+        @SuppressWarnings({"unused", "FieldMayBeFinal", "RedundantFieldInitialization" })
+        private volatile int state = ST_INIT;
+
+        // This will be used to chain timeouts in a Bucket via a double-linked-list, and expired timeouts as a batch.
+        // As only the workerThread will act on it there is no need for synchronization / volatile, the batch is
+        // handed over to the task executor via Executor.execute(...).
+        HierarchicalWheelTimeout next;
+        HierarchicalWheelTimeout prev;
+
+        // The bucket to which the timeout was added
+        Bucket bucket;
+
+        HierarchicalWheelTimeout(HierarchicalWheelTimer timer, TimerTask task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public Timer timer() {
+            return timer;
+        }
+
+        @Override
+        public TimerTask task() {
+            return task;
+        }
+
+        @Override
+        public boolean cancel() {
+            // only update the state it will be removed from its Bucket on next tick.
+            if (!compareAndSetState(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        void remove() {
+            Bucket bucket = this.bucket;
+            if (bucket != null) {
+                bucket.remove(this);
+            }
+        }
+
+        boolean compareAndSetState(int expected, int state) {
+            return STATE_UPDATER.compareAndSet(this, expected, state);
+        }
+
+        int state() {
+            return state;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return state() == ST_CANCELLED;
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state() == ST_EXPIRED;
+        }
+
+        void run() {
+            try {
+                task.run(this);
+            } catch (Throwable t) {
+                if (logger.isWarnEnabled()) {
+                    logger.warn("An exception was thrown by " + TimerTask.class.getSimpleName() + '.', t);
+                }
+            }
+        }
+
+        @Override
+        public String toString() {
+            final long currentTime = System.nanoTime();
+            long remaining = deadline - currentTime + timer.startTime;
+
+            StringBuilder buf = new StringBuilder(192)
+               .append(StringUtil.simpleClassName(this))
+               .append('(')
+               .append("deadline: ");
+            if (remaining > 0) {
+                buf.append(remaining)
+                   .append(" ns later");
+            } else if (remaining < 0) {
+                buf.append(-remaining)
+                   .append(" ns ago");
+            } else {
+                buf.append("now");
+            }
+
+            if (isCancelled()) {
+                buf.append(", cancelled");
+            }
+
+            return buf.append(", task: ")
+                      .append(task())
+                      .append(')')
+                      .toString();
+        }
+    }
+
+    /**
+     * Bucket that stores HierarchicalWheelTimeouts in a double-linked-list, so they can be removed in the middle and
+     * the whole bucket can be taken at once.
+     */
+    private static final class Bucket {
+        // Used for the linked-list datastructure
+        private HierarchicalWheelTimeout head;
+        private HierarchicalWheelTimeout tail;
+
+        void addTimeout(HierarchicalWheelTimeout timeout) {
+            assert timeout.bucket == null;
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void remove(HierarchicalWheelTimeout timeout) {
+            HierarchicalWheelTimeout next = timeout.next;
+            if (timeout.prev != null) {
+                timeout.prev.next = next;
+            }
+            if (next != null) {
+                next.prev = timeout.prev;
+            }
+
+            if (timeout == head) {
+                // if timeout is also the tail we need to adjust the entry too
+                if (timeout == tail) {
+                    tail = null;
+                    head = null;
+                } else {
+                    head = next;
+                }
+            } else if (timeout == tail) {
+                // if the timeout is the tail modify the tail to be the prev node.
+                tail = timeout.prev;
+            }
+            // null out prev, next and bucket to allow for GC.
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+
+        /**
+         * Empties this bucket and returns its first timeout. The returned timeouts stay linked via
+         * {@link HierarchicalWheelTimeout#next}, but do not belong to a bucket anymore.
+         */
+        HierarchicalWheelTimeout pollAll() {
+            HierarchicalWheelTimeout head = this.head;
+            for (HierarchicalWheelTimeout timeout = head; timeout != null; timeout = timeout.next) {
+                timeout.prev = null;
+                timeout.bucket = null;
+            }
+            this.head = tail = null;
+            return head;
+        }
+
+        /**
+         * Clear this bucket and add all not expired / cancelled {@link Timeout}s to the given {@link Set}.
+         */
+        void clearTimeouts(Set<Timeout> set) {
+            HierarchicalWheelTimeout timeout = pollAll();
+            while (timeout != null) {
+                HierarchicalWheelTimeout next = timeout.next;
+                timeout.next = null;
+                if (!timeout.isExpired() && !timeout.isCancelled()) {
+                    set.add(timeout);
+                }
+                timeout = next;
+            }
+        }
+    }
+}
@@ -16,9 +16,11 @@
 
 package io.netty.util;
 
+import io.netty.util.internal.LongCounter;
 import io.netty.util.internal.MathUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadLocalRandom;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -27,6 +29,8 @@ import java.lang.ref.ReferenceQueue;
 import java.util.ArrayDeque;
 import java.util.Deque;
 import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
@@ -34,7 +38,7 @@ import static io.netty.util.internal.StringUtil.EMPTY_STRING;
 import static io.netty.util.internal.StringUtil.NEWLINE;
 import static io.netty.util.internal.StringUtil.simpleClassName;
 
-public class ResourceLeakDetector<T> {
+public class ResourceLeakDetector<T> implements ResourceLeakDetectorMetric {
 
     private static final String PROP_LEVEL_OLD = "io.netty.leakDetectionLevel";
     private static final String PROP_LEVEL = "io.netty.leakDetection.level";
@@ -44,6 +48,13 @@ public class ResourceLeakDetector<T> {
     private static final int DEFAULT_MAX_RECORDS = 4;
     private static final int MAX_RECORDS;
 
+    private static final String PROP_MAX_SITES = "io.netty.leakDetection.maxSites";
+    private static final int DEFAULT_MAX_SITES = 256;
+    private static final int MAX_SITES;
+
+    // The highest exponent of the back-off of the access records at SAMPLED.
+    private static final int MAX_RECORD_BACK_OFF = 30;
+
     /**
      * Represents the level of resource leak detection.
      */
@@ -66,7 +77,14 @@ public class ResourceLeakDetector<T> {
          * Enables paranoid resource leak detection which reports where the leaked object was accessed recently,
          * at the cost of the highest possible overhead (for testing purposes only).
          */
-        PARANOID
+        PARANOID,
+        /**
+         * Enables sampling resource leak detection which reports where the leaked object was created and accessed,
+         * at a small overhead which is suitable for production. Once the maximum number of access records is reached,
+         * the chance that another access is recorded halves with every record. Only the first leak of every
+         * allocation site is reported, the others are only counted, see {@link ResourceLeakDetectorMetric}.
+         */
+        SAMPLED
     }
 
     private static Level level;
@@ -100,11 +118,13 @@ public class ResourceLeakDetector<T> {
         }
 
         MAX_RECORDS = SystemPropertyUtil.getInt(PROP_MAX_RECORDS, DEFAULT_MAX_RECORDS);
+        MAX_SITES = SystemPropertyUtil.getInt(PROP_MAX_SITES, DEFAULT_MAX_SITES);
 
         ResourceLeakDetector.level = level;
         if (logger.isDebugEnabled()) {
             logger.debug("-D{}: {}", PROP_LEVEL, level.name().toLowerCase());
             logger.debug("-D{}: {}", PROP_MAX_RECORDS, MAX_RECORDS);
+            logger.debug("-D{}: {}", PROP_MAX_SITES, MAX_SITES);
         }
     }
 
@@ -149,6 +169,8 @@ public class ResourceLeakDetector<T> {
 
     private final ReferenceQueue<Object> refQueue = new ReferenceQueue<Object>();
     private final ConcurrentMap<String, Boolean> reportedLeaks = PlatformDependent.newConcurrentHashMap();
+    private final ConcurrentMap<String, LongCounter> leakCountsBySite = PlatformDependent.newConcurrentHashMap();
+    private final LongCounter leakCount = PlatformDependent.newLongCounter();
 
     private final String resourceType;
     private final int samplingInterval;
@@ -220,7 +242,7 @@ public class ResourceLeakDetector<T> {
             return null;
         }
 
-        if (level.ordinal() < Level.PARANOID.ordinal()) {
+        if (level != Level.PARANOID) {
             if ((++ leakCheckCnt & mask) == 0) {
                 reportLeak(level);
                 return new DefaultResourceLeak(obj);
@@ -241,7 +263,9 @@ public class ResourceLeakDetector<T> {
                 if (ref == null) {
                     break;
                 }
-                ref.close();
+                if (ref.close()) {
+                    countLeak(ref);
+                }
             }
             return;
         }
@@ -266,6 +290,11 @@ public class ResourceLeakDetector<T> {
                 continue;
             }
 
+            if (!countLeak(ref)) {
+                // A leak of the same allocation site was reported already.
+                continue;
+            }
+
             String records = ref.toString();
             if (reportedLeaks.putIfAbsent(records, Boolean.TRUE) == null) {
                 if (records.isEmpty()) {
@@ -277,6 +306,48 @@ public class ResourceLeakDetector<T> {
         }
     }
 
+    /**
+     * Counts a leak and returns {@code true} if it was created at {@link Level#SAMPLED} and is the first one of its
+     * allocation site, or was created at any other level.
+     */
+    private boolean countLeak(DefaultResourceLeak ref) {
+        leakCount.increment();
+        if (!ref.sampled) {
+            return true;
+        }
+
+        String site = ref.creationRecord;
+        LongCounter count = leakCountsBySite.get(site);
+        if (count == null) {
+            if (leakCountsBySite.size() >= MAX_SITES) {
+                // Only counted in total, but still reported.
+                return true;
+            }
+            LongCounter newCount = PlatformDependent.newLongCounter();
+            count = leakCountsBySite.putIfAbsent(site, newCount);
+            if (count == null) {
+                newCount.increment();
+                return true;
+            }
+        }
+        count.increment();
+        return false;
+    }
+
+    @Override
+    public long leakCount() {
+        return leakCount.value();
+    }
+
+    @Override
+    public Map<String, Long> leakCountsBySite() {
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (Map.Entry<String, LongCounter> e: leakCountsBySite.entrySet()) {
+            counts.put(e.getKey(), e.getValue().value());
+        }
+        return counts;
+    }
+
     /**
      * This method is called when a traced leak is detected. It can be overridden for tracking how many times leaks
      * have been detected.
@@ -313,11 +384,15 @@ public class ResourceLeakDetector<T> {
 
     private final class DefaultResourceLeak extends PhantomReference<Object> implements ResourceLeak {
         private final String creationRecord;
+        // true if created at SAMPLED, so the records back off and the leak is aggregated by its creationRecord.
+        private final boolean sampled;
         private final Deque<String> lastRecords = new ArrayDeque<String>();
         private final AtomicBoolean freed;
         private DefaultResourceLeak prev;
         private DefaultResourceLeak next;
         private int removedRecords;
+        // The number of records which were taken so far, only used at SAMPLED.
+        private volatile int numRecords;
 
         DefaultResourceLeak(Object referent) {
             super(referent, referent != null? refQueue : null);
@@ -329,6 +404,7 @@ public class ResourceLeakDetector<T> {
                 } else {
                     creationRecord = null;
                 }
+                sampled = level == Level.SAMPLED;
 
                 // TODO: Use CAS to update the list.
                 synchronized (head) {
@@ -341,6 +417,7 @@ public class ResourceLeakDetector<T> {
                 freed = new AtomicBoolean();
             } else {
                 creationRecord = null;
+                sampled = false;
                 freed = new AtomicBoolean(true);
             }
         }
@@ -357,6 +434,9 @@ public class ResourceLeakDetector<T> {
 
         private void record0(Object hint, int recordsToSkip) {
             if (creationRecord != null) {
+                if (sampled && !shouldRecord()) {
+                    return;
+                }
                 String value = newRecord(hint, recordsToSkip);
 
                 synchronized (lastRecords) {
@@ -372,6 +452,23 @@ public class ResourceLeakDetector<T> {
             }
         }
 
+        /**
+         * Returns {@code true} if the next access should be recorded, which is always the case until
+         * {@link #MAX_RECORDS} records were taken. After that the chance halves with every record, so the cost of
+         * taking the stack traces vanishes for objects which are accessed often.
+         */
+        private boolean shouldRecord() {
+            int backOff = numRecords - MAX_RECORDS;
+            if (backOff >= 0) {
+                if (ThreadLocalRandom.current().nextInt(1 << Math.min(backOff, MAX_RECORD_BACK_OFF)) != 0) {
+                    return false;
+                }
+            }
+            // Racy, but a lost update only records a bit more often.
+            ++numRecords;
+            return true;
+        }
+
         @Override
         public boolean close() {
             if (freed.compareAndSet(false, true)) {
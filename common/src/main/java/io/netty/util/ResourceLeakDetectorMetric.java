@@ -0,0 +1,36 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import java.util.Map;
+
+/**
+ * Expose metrics for a {@link ResourceLeakDetector}.
+ */
+public interface ResourceLeakDetectorMetric {
+
+    /**
+     * Returns the number of leaks which were detected so far, including the ones which were not logged because a
+     * leak with the same access records or allocation site was logged before.
+     */
+    long leakCount();
+
+    /**
+     * Returns a snapshot of the number of leaks which were detected so far per allocation site, which is the stack
+     * trace of the allocation. Only leaks detected at {@link ResourceLeakDetector.Level#SAMPLED} are included.
+     */
+    Map<String, Long> leakCountsBySite();
+}
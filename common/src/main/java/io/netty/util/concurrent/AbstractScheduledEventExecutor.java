@@ -28,13 +28,28 @@ import java.util.concurrent.TimeUnit;
  */
 public abstract class AbstractScheduledEventExecutor extends AbstractEventExecutor {
 
+    private final boolean useTimingWheel;
     Queue<ScheduledFutureTask<?>> scheduledTaskQueue;
 
     protected AbstractScheduledEventExecutor() {
+        useTimingWheel = false;
     }
 
     protected AbstractScheduledEventExecutor(EventExecutorGroup parent) {
+        this(parent, false);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param parent            the {@link EventExecutorGroup} which is the parent of this instance and belongs to it
+     * @param useTimingWheel    {@code true} if the scheduled tasks should be kept in a timing wheel, which schedules
+     *                          and cancels tasks in constant time, instead of a binary heap. Only the tasks which are
+     *                          due soon are kept in a binary heap then.
+     */
+    protected AbstractScheduledEventExecutor(EventExecutorGroup parent, boolean useTimingWheel) {
         super(parent);
+        this.useTimingWheel = useTimingWheel;
     }
 
     protected static long nanoTime() {
@@ -43,7 +58,8 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
 
     Queue<ScheduledFutureTask<?>> scheduledTaskQueue() {
         if (scheduledTaskQueue == null) {
-            scheduledTaskQueue = new PriorityQueue<ScheduledFutureTask<?>>();
+            scheduledTaskQueue = useTimingWheel ? new TimingWheelScheduledTaskQueue()
+                    : new PriorityQueue<ScheduledFutureTask<?>>();
         }
         return scheduledTaskQueue;
     }
@@ -113,6 +129,15 @@ public abstract class AbstractScheduledEventExecutor extends AbstractEventExecut
         return Math.max(0, scheduledTask.deadlineNanos() - nanoTime());
     }
 
+    /**
+     * Return the deadline (in the same time base as {@link #nanoTime()}) of the next scheduled task or {@code -1} if
+     * no task is scheduled.
+     */
+    protected final long nextScheduledTaskDeadlineNanos() {
+        ScheduledFutureTask<?> scheduledTask = peekScheduledTask();
+        return scheduledTask == null ? -1 : scheduledTask.deadlineNanos();
+    }
+
     final ScheduledFutureTask<?> peekScheduledTask() {
         Queue<ScheduledFutureTask<?>> scheduledTaskQueue = this.scheduledTaskQueue;
         if (scheduledTaskQueue == null) {
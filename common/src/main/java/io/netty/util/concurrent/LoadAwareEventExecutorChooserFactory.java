@@ -0,0 +1,142 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.ThreadLocalRandom;
+import io.netty.util.internal.UnstableApi;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link EventExecutorChooserFactory} which chooses the next {@link EventExecutor} by its load, as returned by a
+ * {@link LoadMetric}, instead of round-robin.
+ * <p>
+ * The load is only a snapshot, so {@link EventExecutor}s with the same load are chosen round-robin, and a burst of
+ * {@link EventExecutorGroup#next()} calls may choose the same {@link EventExecutor} before its load changes.
+ */
+@UnstableApi
+public final class LoadAwareEventExecutorChooserFactory implements EventExecutorChooserFactory {
+
+    /**
+     * Returns the load of an {@link EventExecutor}. This method may be called by any thread.
+     */
+    public interface LoadMetric {
+        /**
+         * Returns the load of the given {@link EventExecutor}, where a lower value means less load and a value of
+         * {@code 0} or less means that the {@link EventExecutor} is idle or that its load is unknown.
+         */
+        long load(EventExecutor executor);
+    }
+
+    /**
+     * Uses the number of {@link SingleThreadEventExecutor#pendingTasks()} as load, or {@code 0} for any other
+     * {@link EventExecutor}.
+     */
+    public static final LoadMetric PENDING_TASKS = new LoadMetric() {
+        @Override
+        public long load(EventExecutor executor) {
+            if (executor instanceof SingleThreadEventExecutor) {
+                return ((SingleThreadEventExecutor) executor).pendingTasks();
+            }
+            return 0;
+        }
+    };
+
+    private final LoadMetric metric;
+    private final boolean powerOfTwoChoices;
+
+    private LoadAwareEventExecutorChooserFactory(LoadMetric metric, boolean powerOfTwoChoices) {
+        this.metric = ObjectUtil.checkNotNull(metric, "metric");
+        this.powerOfTwoChoices = powerOfTwoChoices;
+    }
+
+    /**
+     * Returns a factory whose choosers compare the load of all {@link EventExecutor}s and choose the least loaded one.
+     */
+    public static LoadAwareEventExecutorChooserFactory leastLoaded(LoadMetric metric) {
+        return new LoadAwareEventExecutorChooserFactory(metric, false);
+    }
+
+    /**
+     * Returns a factory whose choosers pick two random {@link EventExecutor}s and choose the less loaded one, which
+     * only calls the {@link LoadMetric} twice and keeps concurrent {@link EventExecutorGroup#next()} calls from all
+     * choosing the same {@link EventExecutor}.
+     */
+    public static LoadAwareEventExecutorChooserFactory powerOfTwoChoices(LoadMetric metric) {
+        return new LoadAwareEventExecutorChooserFactory(metric, true);
+    }
+
+    @Override
+    public EventExecutorChooser newChooser(EventExecutor[] executors) {
+        if (executors.length == 1) {
+            return DefaultEventExecutorChooserFactory.INSTANCE.newChooser(executors);
+        }
+        if (powerOfTwoChoices) {
+            return new PowerOfTwoChoicesEventExecutorChooser(executors, metric);
+        }
+        return new LeastLoadedEventExecutorChooser(executors, metric);
+    }
+
+    private static final class LeastLoadedEventExecutorChooser implements EventExecutorChooser {
+        private final AtomicInteger idx = new AtomicInteger();
+        private final EventExecutor[] executors;
+        private final LoadMetric metric;
+
+        LeastLoadedEventExecutorChooser(EventExecutor[] executors, LoadMetric metric) {
+            this.executors = executors;
+            this.metric = metric;
+        }
+
+        @Override
+        public EventExecutor next() {
+            // Start at the next executor of the round-robin order, so ties are broken round-robin.
+            int start = Math.abs(idx.getAndIncrement() % executors.length);
+            EventExecutor chosen = executors[start];
+            long minLoad = metric.load(chosen);
+            for (int i = 1; i < executors.length && minLoad > 0; i ++) {
+                EventExecutor executor = executors[(start + i) % executors.length];
+                long load = metric.load(executor);
+                if (load < minLoad) {
+                    chosen = executor;
+                    minLoad = load;
+                }
+            }
+            return chosen;
+        }
+    }
+
+    private static final class PowerOfTwoChoicesEventExecutorChooser implements EventExecutorChooser {
+        private final EventExecutor[] executors;
+        private final LoadMetric metric;
+
+        PowerOfTwoChoicesEventExecutorChooser(EventExecutor[] executors, LoadMetric metric) {
+            this.executors = executors;
+            this.metric = metric;
+        }
+
+        @Override
+        public EventExecutor next() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(executors.length);
+            // Never pick the same executor twice.
+            int second = (first + 1 + random.nextInt(executors.length - 1)) % executors.length;
+            EventExecutor a = executors[first];
+            EventExecutor b = executors[second];
+            return metric.load(b) < metric.load(a) ? b : a;
+        }
+    }
+}
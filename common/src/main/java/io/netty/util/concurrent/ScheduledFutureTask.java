@@ -40,6 +40,11 @@ final class ScheduledFutureTask<V> extends PromiseTask<V> implements ScheduledFu
     /* 0 - no repeat, >0 - repeat at fixed rate, <0 - repeat with fixed delay */
     private final long periodNanos;
 
+    // Used by TimingWheelScheduledTaskQueue to link the tasks of a bucket.
+    TimingWheelScheduledTaskQueue.Bucket bucket;
+    ScheduledFutureTask<?> prev;
+    ScheduledFutureTask<?> next;
+
     ScheduledFutureTask(
             AbstractScheduledEventExecutor executor,
             Runnable runnable, V result, long nanoTime) {
@@ -15,9 +15,11 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.MpscChunkedQueue;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.ThreadExecutorMap;
 import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
@@ -51,6 +53,9 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     static final int DEFAULT_MAX_PENDING_EXECUTOR_TASKS = Math.max(16,
             SystemPropertyUtil.getInt("io.netty.eventexecutor.maxPendingTasks", Integer.MAX_VALUE));
 
+    static final boolean DEFAULT_USE_TIMING_WHEEL =
+            SystemPropertyUtil.getBoolean("io.netty.eventexecutor.useTimingWheel", false);
+
     private static final InternalLogger logger =
             InternalLoggerFactory.getInstance(SingleThreadEventExecutor.class);
 
@@ -109,6 +114,18 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
 
     private long lastExecutionTime;
 
+    // The number of tasks which were run by the taskRunner, skipping the WAKEUP_TASKs.
+    private int drainedTasks;
+    private final MpscChunkedQueue.Consumer<Runnable> taskRunner = new MpscChunkedQueue.Consumer<Runnable>() {
+        @Override
+        public void accept(Runnable task) {
+            if (task != WAKEUP_TASK) {
+                drainedTasks++;
+                safeExecute(task);
+            }
+        }
+    };
+
     @SuppressWarnings({ "FieldMayBeFinal", "unused" })
     private volatile int state = ST_NOT_STARTED;
 
@@ -172,7 +189,25 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
     protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor,
                                         boolean addTaskWakesUp, int maxPendingTasks,
                                         RejectedExecutionHandler rejectedHandler) {
-        super(parent);
+        this(parent, executor, addTaskWakesUp, maxPendingTasks, rejectedHandler, DEFAULT_USE_TIMING_WHEEL);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param parent            the {@link EventExecutorGroup} which is the parent of this instance and belongs to it
+     * @param executor          the {@link Executor} which will be used for executing
+     * @param addTaskWakesUp    {@code true} if and only if invocation of {@link #addTask(Runnable)} will wake up the
+     *                          executor thread
+     * @param maxPendingTasks   the maximum number of pending tasks before new tasks will be rejected.
+     * @param rejectedHandler   the {@link RejectedExecutionHandler} to use.
+     * @param useTimingWheel    {@code true} if the scheduled tasks should be kept in a timing wheel, which schedules
+     *                          and cancels tasks in constant time, instead of a binary heap.
+     */
+    protected SingleThreadEventExecutor(EventExecutorGroup parent, Executor executor,
+                                        boolean addTaskWakesUp, int maxPendingTasks,
+                                        RejectedExecutionHandler rejectedHandler, boolean useTimingWheel) {
+        super(parent, useTimingWheel);
         this.addTaskWakesUp = addTaskWakesUp;
         this.maxPendingTasks = Math.max(16, maxPendingTasks);
         this.executor = ObjectUtil.checkNotNull(executor, "executor");
@@ -386,6 +421,12 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
      * @return {@code true} if atleast one task was executed.
      */
     protected final boolean runAllTasksFrom(Queue<Runnable> taskQueue) {
+        if (taskQueue instanceof MpscChunkedQueue) {
+            // Drain all tasks in one batch instead of polling them one by one.
+            drainedTasks = 0;
+            ((MpscChunkedQueue<Runnable>) taskQueue).drain(taskRunner, Integer.MAX_VALUE);
+            return drainedTasks > 0;
+        }
         Runnable task = pollTaskFrom(taskQueue);
         if (task == null) {
             return false;
@@ -866,6 +907,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                 if (interrupted) {
                     thread.interrupt();
                 }
+                ThreadExecutorMap.setCurrentEventExecutor(SingleThreadEventExecutor.this);
 
                 boolean success = false;
                 updateLastExecutionTime();
@@ -901,6 +943,7 @@ public abstract class SingleThreadEventExecutor extends AbstractScheduledEventEx
                         try {
                             cleanup();
                         } finally {
+                            ThreadExecutorMap.setCurrentEventExecutor(null);
                             STATE_UPDATER.set(SingleThreadEventExecutor.this, ST_TERMINATED);
                             threadLock.release();
                             if (!taskQueue.isEmpty()) {
@@ -0,0 +1,266 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import java.util.AbstractQueue;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * A {@link java.util.Queue} of {@link ScheduledFutureTask}s which keeps the tasks that are due within the current
+ * tick of about 17 milliseconds in a {@link PriorityQueue}, and all later tasks in a hierarchy of coarse timing
+ * wheels. Adding a task which is not due within the current tick and removing a task from a wheel takes constant
+ * time, so cancelling timeouts which never fire does not cause any sift operations.
+ * <p>
+ * The current tick only moves on once the {@link PriorityQueue} is empty, by taking the next non-empty bucket of the
+ * wheels, so the head of the {@link PriorityQueue} is always the task with the earliest deadline.
+ * <p>
+ * This class is not thread-safe and must only be used by the thread of its {@link AbstractScheduledEventExecutor}.
+ */
+final class TimingWheelScheduledTaskQueue extends AbstractQueue<ScheduledFutureTask<?>> {
+
+    // A tick of 2^24 nanoseconds, about 17 milliseconds.
+    private static final int TICK_SHIFT = 24;
+    // 64 buckets per wheel, so the first wheel spans about a second and the second about 70 seconds.
+    private static final int BITS = 6;
+    private static final int MASK = (1 << BITS) - 1;
+    // Enough wheels to cover all positive deadlines.
+    private static final int LEVELS = (63 - TICK_SHIFT + BITS - 1) / BITS;
+
+    private final PriorityQueue<ScheduledFutureTask<?>> heap = new PriorityQueue<ScheduledFutureTask<?>>();
+    // The wheels, from the finest to the coarsest, created when they are needed for the first time.
+    private final Bucket[][] wheels = new Bucket[LEVELS][];
+    // The number of tasks per wheel.
+    private final int[] counts = new int[LEVELS];
+    private int wheelSize;
+    // All tasks which are due at this tick or earlier are in the heap.
+    private long tick = ScheduledFutureTask.nanoTime() >> TICK_SHIFT;
+
+    @Override
+    public boolean offer(ScheduledFutureTask<?> task) {
+        long expirationTick = task.deadlineNanos() >> TICK_SHIFT;
+        if (expirationTick <= tick) {
+            heap.add(task);
+        } else {
+            addToWheel(task, expirationTick);
+        }
+        return true;
+    }
+
+    @Override
+    public ScheduledFutureTask<?> peek() {
+        if (heap.isEmpty() && wheelSize != 0) {
+            advance();
+        }
+        return heap.peek();
+    }
+
+    @Override
+    public ScheduledFutureTask<?> poll() {
+        if (heap.isEmpty() && wheelSize != 0) {
+            advance();
+        }
+        return heap.poll();
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof ScheduledFutureTask)) {
+            return false;
+        }
+        ScheduledFutureTask<?> task = (ScheduledFutureTask<?>) o;
+        Bucket bucket = task.bucket;
+        if (bucket != null) {
+            bucket.remove(task);
+            counts[bucket.level]--;
+            wheelSize--;
+            return true;
+        }
+        return heap.remove(task);
+    }
+
+    @Override
+    public int size() {
+        return heap.size() + wheelSize;
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+        for (Bucket[] wheel: wheels) {
+            if (wheel != null) {
+                for (Bucket bucket: wheel) {
+                    ScheduledFutureTask<?> task = bucket.pollAll();
+                    while (task != null) {
+                        ScheduledFutureTask<?> next = task.next;
+                        task.next = null;
+                        task = next;
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = 0;
+        }
+        wheelSize = 0;
+    }
+
+    /**
+     * Returns a read-only snapshot of all tasks in no particular order.
+     */
+    @Override
+    public Iterator<ScheduledFutureTask<?>> iterator() {
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>(size());
+        tasks.addAll(heap);
+        for (Bucket[] wheel: wheels) {
+            if (wheel != null) {
+                for (Bucket bucket: wheel) {
+                    for (ScheduledFutureTask<?> task = bucket.head; task != null; task = task.next) {
+                        tasks.add(task);
+                    }
+                }
+            }
+        }
+        return Collections.unmodifiableList(tasks).iterator();
+    }
+
+    private void addToWheel(ScheduledFutureTask<?> task, long expirationTick) {
+        // Use the finest wheel in which the expiration tick and the current tick are in the same round.
+        int level = 0;
+        long diff = expirationTick ^ tick;
+        while ((diff >>>= BITS) != 0) {
+            level++;
+        }
+
+        Bucket[] wheel = wheels[level];
+        if (wheel == null) {
+            wheel = new Bucket[MASK + 1];
+            for (int i = 0; i < wheel.length; i ++) {
+                wheel[i] = new Bucket(level);
+            }
+            wheels[level] = wheel;
+        }
+        wheel[(int) ((expirationTick >>> BITS * level) & MASK)].add(task);
+        counts[level]++;
+        wheelSize++;
+    }
+
+    /**
+     * Moves the current tick on to the next tick at which a task is due and moves all tasks which are due at this
+     * tick into the heap. Wheels and buckets without tasks are skipped.
+     */
+    private void advance() {
+        do {
+            int level = 0;
+            while (counts[level] == 0) {
+                level++;
+            }
+            if (level == 0) {
+                // The tasks of the first wheel are all due within the current round, after the current tick.
+                Bucket[] wheel = wheels[0];
+                int index = (int) (tick & MASK) + 1;
+                while (wheel[index].head == null) {
+                    index++;
+                }
+                tick = tick & ~MASK | index;
+                ScheduledFutureTask<?> task = wheel[index].pollAll();
+                while (task != null) {
+                    ScheduledFutureTask<?> next = task.next;
+                    task.next = null;
+                    heap.add(task);
+                    counts[0]--;
+                    wheelSize--;
+                    task = next;
+                }
+            } else {
+                // All finer wheels are empty, so skip to the next round of the finer wheels and cascade the next
+                // bucket of this wheel into them.
+                int shift = BITS * level;
+                tick = ((tick >>> shift) + 1) << shift;
+                ScheduledFutureTask<?> task = wheels[level][(int) ((tick >>> shift) & MASK)].pollAll();
+                while (task != null) {
+                    ScheduledFutureTask<?> next = task.next;
+                    task.next = null;
+                    counts[level]--;
+                    wheelSize--;
+                    offer(task);
+                    task = next;
+                }
+            }
+        } while (heap.isEmpty());
+    }
+
+    /**
+     * A bucket of a wheel, which links its tasks via {@link ScheduledFutureTask#prev} and
+     * {@link ScheduledFutureTask#next}.
+     */
+    static final class Bucket {
+        final int level;
+        ScheduledFutureTask<?> head;
+        ScheduledFutureTask<?> tail;
+
+        Bucket(int level) {
+            this.level = level;
+        }
+
+        void add(ScheduledFutureTask<?> task) {
+            assert task.bucket == null;
+            task.bucket = this;
+            if (head == null) {
+                head = tail = task;
+            } else {
+                tail.next = task;
+                task.prev = tail;
+                tail = task;
+            }
+        }
+
+        void remove(ScheduledFutureTask<?> task) {
+            ScheduledFutureTask<?> next = task.next;
+            ScheduledFutureTask<?> prev = task.prev;
+            if (prev == null) {
+                head = next;
+            } else {
+                prev.next = next;
+            }
+            if (next == null) {
+                tail = prev;
+            } else {
+                next.prev = prev;
+            }
+            task.prev = null;
+            task.next = null;
+            task.bucket = null;
+        }
+
+        /**
+         * Empties this bucket and returns its first task. The returned tasks stay linked via
+         * {@link ScheduledFutureTask#next}, but do not belong to a bucket anymore.
+         */
+        ScheduledFutureTask<?> pollAll() {
+            ScheduledFutureTask<?> head = this.head;
+            for (ScheduledFutureTask<?> task = head; task != null; task = task.next) {
+                task.prev = null;
+                task.bucket = null;
+            }
+            this.head = tail = null;
+            return head;
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A {@link java.util.Queue} which is safe to use for multiple producers (different threads) and a single consumer
+ * (one thread!), and which stores its elements in linked chunks of {@value #CHUNK_SIZE} slots, so adding an element
+ * does not allocate a node.
+ * <p>
+ * A producer claims the index of its slot by incrementing the producer index and then stores the element into the
+ * chunk of this index, linking new chunks on demand. The consumer takes the elements in the order of their indices
+ * and drops a chunk once it consumed all of its slots. If the queue is bounded, the producers only read the consumer
+ * index once they reach the last known limit.
+ * <p>
+ * {@link #poll()} and {@link #peek()} may spin for a short time if a producer claimed the next slot, but did not yet
+ * store its element. {@link #iterator()} is not supported.
+ */
+public final class MpscChunkedQueue<E> extends AbstractQueue<E> {
+
+    /**
+     * Consumes the elements which are drained via {@link #drain(Consumer, int)}.
+     */
+    public interface Consumer<E> {
+        /**
+         * Called for every element which was removed from the queue.
+         */
+        void accept(E e);
+    }
+
+    static final int CHUNK_SIZE = 1024;
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscChunkedQueue> PRODUCER_INDEX_UPDATER;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicLongFieldUpdater<MpscChunkedQueue> CONSUMER_INDEX_UPDATER;
+    @SuppressWarnings("rawtypes")
+    private static final AtomicReferenceFieldUpdater<Chunk, Chunk> NEXT_UPDATER;
+
+    static {
+        @SuppressWarnings("rawtypes")
+        AtomicLongFieldUpdater<MpscChunkedQueue> producerIndexUpdater =
+                PlatformDependent.newAtomicLongFieldUpdater(MpscChunkedQueue.class, "producerIndex");
+        if (producerIndexUpdater == null) {
+            producerIndexUpdater = AtomicLongFieldUpdater.newUpdater(MpscChunkedQueue.class, "producerIndex");
+        }
+        PRODUCER_INDEX_UPDATER = producerIndexUpdater;
+
+        @SuppressWarnings("rawtypes")
+        AtomicLongFieldUpdater<MpscChunkedQueue> consumerIndexUpdater =
+                PlatformDependent.newAtomicLongFieldUpdater(MpscChunkedQueue.class, "consumerIndex");
+        if (consumerIndexUpdater == null) {
+            consumerIndexUpdater = AtomicLongFieldUpdater.newUpdater(MpscChunkedQueue.class, "consumerIndex");
+        }
+        CONSUMER_INDEX_UPDATER = consumerIndexUpdater;
+
+        @SuppressWarnings("rawtypes")
+        AtomicReferenceFieldUpdater<Chunk, Chunk> nextUpdater =
+                PlatformDependent.newAtomicReferenceFieldUpdater(Chunk.class, "next");
+        if (nextUpdater == null) {
+            nextUpdater = AtomicReferenceFieldUpdater.newUpdater(Chunk.class, Chunk.class, "next");
+        }
+        NEXT_UPDATER = nextUpdater;
+    }
+
+    private final long maxCapacity;
+
+    // Producer fields.
+    private volatile long producerIndex;
+    // The producers may claim all indices below this one without reading the consumer index.
+    private volatile long producerLimit;
+    // The chunk of an index which was claimed before, from which the producers start to look for their chunk.
+    private volatile Chunk<E> producerChunk;
+
+    // Cache line padding (must be public), so the consumer fields do not share a cache line with the producer
+    // fields.
+    public long rp1, rp2, rp3, rp4, rp5, rp6, rp7, rp8;
+
+    // Consumer fields.
+    private volatile long consumerIndex;
+    private Chunk<E> consumerChunk;
+
+    /**
+     * Creates a new unbounded instance.
+     */
+    public MpscChunkedQueue() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new instance which holds at most {@code maxCapacity} elements, or an unbounded instance if
+     * {@code maxCapacity} is {@link Integer#MAX_VALUE}.
+     */
+    public MpscChunkedQueue(int maxCapacity) {
+        this.maxCapacity = maxCapacity == Integer.MAX_VALUE ? Long.MAX_VALUE
+                : ObjectUtil.checkPositive(maxCapacity, "maxCapacity");
+        producerLimit = this.maxCapacity;
+        consumerChunk = producerChunk = new Chunk<E>(0);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException("e");
+        }
+        // Read the hint before claiming the index, so its chunk is never after the chunk of the claimed index.
+        Chunk<E> chunk = producerChunk;
+        long index;
+        if (maxCapacity == Long.MAX_VALUE) {
+            index = PRODUCER_INDEX_UPDATER.getAndIncrement(this);
+        } else {
+            for (;;) {
+                index = producerIndex;
+                if (index >= producerLimit) {
+                    long limit = consumerIndex + maxCapacity;
+                    if (index >= limit) {
+                        return false;
+                    }
+                    producerLimit = limit;
+                }
+                if (PRODUCER_INDEX_UPDATER.compareAndSet(this, index, index + 1)) {
+                    break;
+                }
+            }
+        }
+
+        long chunkIndex = index >>> CHUNK_SHIFT;
+        while (chunk.index < chunkIndex) {
+            Chunk<E> next = chunk.next;
+            if (next == null) {
+                next = new Chunk<E>(chunk.index + 1);
+                if (!NEXT_UPDATER.compareAndSet(chunk, null, next)) {
+                    next = chunk.next;
+                }
+            }
+            chunk = next;
+        }
+        if (chunk.index > producerChunk.index) {
+            producerChunk = chunk;
+        }
+        chunk.slots.lazySet((int) (index & CHUNK_MASK), e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        long index = consumerIndex;
+        E e = element(index);
+        if (e != null) {
+            consumerChunk.slots.lazySet((int) (index & CHUNK_MASK), null);
+            CONSUMER_INDEX_UPDATER.lazySet(this, index + 1);
+        }
+        return e;
+    }
+
+    @Override
+    public E peek() {
+        return element(consumerIndex);
+    }
+
+    /**
+     * Removes at most {@code limit} elements and passes them to the given {@link Consumer}, including the elements
+     * which are added while draining.
+     *
+     * This method MUST only be called by the consumer thread.
+     *
+     * @return the number of removed elements.
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        if (consumer == null) {
+            throw new NullPointerException("consumer");
+        }
+        long index = consumerIndex;
+        int drained = 0;
+        for (; drained < limit; drained ++) {
+            E e = element(index);
+            if (e == null) {
+                break;
+            }
+            consumerChunk.slots.lazySet((int) (index & CHUNK_MASK), null);
+            CONSUMER_INDEX_UPDATER.lazySet(this, ++index);
+            consumer.accept(e);
+        }
+        return drained;
+    }
+
+    /**
+     * Returns the element at the given index, which must be the consumer index, or {@code null} if the queue is
+     * empty. Moves on to the next chunk if the index is the first one of the next chunk.
+     */
+    private E element(long index) {
+        Chunk<E> chunk = consumerChunk;
+        if (index >>> CHUNK_SHIFT != chunk.index) {
+            Chunk<E> next = chunk.next;
+            if (next == null) {
+                if (producerIndex == index) {
+                    return null;
+                }
+                // A producer claimed an index of the next chunk, but did not link it yet.
+                do {
+                    next = chunk.next;
+                } while (next == null);
+            }
+            consumerChunk = chunk = next;
+        }
+        int offset = (int) (index & CHUNK_MASK);
+        E e = chunk.slots.get(offset);
+        if (e == null && producerIndex != index) {
+            // A producer claimed this index, but did not store its element yet.
+            do {
+                e = chunk.slots.get(offset);
+            } while (e == null);
+        }
+        return e;
+    }
+
+    /**
+     * Returns the number of elements in this queue, which may be called by any thread.
+     */
+    @Override
+    public int size() {
+        for (;;) {
+            long consumerIndex = this.consumerIndex;
+            long producerIndex = this.producerIndex;
+            if (consumerIndex == this.consumerIndex) {
+                return (int) Math.min(producerIndex - consumerIndex, Integer.MAX_VALUE);
+            }
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return consumerIndex == producerIndex;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException();
+    }
+
+    private static final class Chunk<E> {
+        final long index;
+        final AtomicReferenceArray<E> slots = new AtomicReferenceArray<E>(CHUNK_SIZE);
+        volatile Chunk<E> next;
+
+        Chunk(long index) {
+            this.index = index;
+        }
+    }
+}
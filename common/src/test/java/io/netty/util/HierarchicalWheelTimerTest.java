@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.Test;
+
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class HierarchicalWheelTimerTest {
+
+    @Test
+    public void testScheduleTimeoutShouldNotRunBeforeDelay() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        final CountDownLatch barrier = new CountDownLatch(1);
+        final Timeout timeout = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                fail("This should not have run");
+                barrier.countDown();
+            }
+        }, 10, TimeUnit.SECONDS);
+        assertFalse(barrier.await(3, TimeUnit.SECONDS));
+        assertFalse("timer should not expire", timeout.isExpired());
+        timer.stop();
+    }
+
+    @Test
+    public void testScheduleTimeoutShouldRunAfterDelay() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        final CountDownLatch barrier = new CountDownLatch(1);
+        final Timeout timeout = timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                barrier.countDown();
+            }
+        }, 2, TimeUnit.SECONDS);
+        assertTrue(barrier.await(3, TimeUnit.SECONDS));
+        assertTrue("timer should expire", timeout.isExpired());
+        timer.stop();
+    }
+
+    @Test
+    public void testStopTimer() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer(10, TimeUnit.MILLISECONDS, 4);
+        for (int i = 0; i < 3; i ++) {
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                }
+            }, 1, TimeUnit.MILLISECONDS);
+        }
+        Timeout cancelled = null;
+        for (int i = 0; i < 5; i ++) {
+            // Spread over several wheels.
+            cancelled = timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                }
+            }, 10 << (2 * i), TimeUnit.SECONDS);
+        }
+        Thread.sleep(1000L);
+        assertTrue(cancelled.cancel());
+        Set<Timeout> unprocessed = timer.stop();
+        assertEquals(4, unprocessed.size());
+        assertFalse(unprocessed.contains(cancelled));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testTimerShouldThrowExceptionAfterShutdownForNewTimeouts() throws InterruptedException {
+        final Timer timer = new HierarchicalWheelTimer();
+        timer.stop();
+
+        timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                fail("This should not run");
+            }
+        }, 1, TimeUnit.SECONDS);
+    }
+
+    @Test(timeout = 30000)
+    public void testCascadingTimeoutsRunInOrder() throws InterruptedException {
+        // Four ticks per wheel, so the timeouts are spread over four wheels.
+        int tickDuration = 5;
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), tickDuration, TimeUnit.MILLISECONDS, 4);
+        final BlockingQueue<long[]> queue = new LinkedBlockingQueue<long[]>();
+
+        int scheduledTasks = 64;
+        for (int i = 0; i < scheduledTasks; i++) {
+            final long delay = (i % 32 + 1) * 2 * tickDuration;
+            final long start = System.nanoTime();
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    queue.add(new long[] { delay, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) });
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        long lastDelay = 0;
+        for (int i = 0; i < scheduledTasks; i++) {
+            long[] result = queue.take();
+            assertTrue("delay " + result[1] + " must be >= " + result[0], result[1] >= result[0]);
+            assertTrue("expired " + result[0] + " after " + lastDelay, result[0] >= lastDelay);
+            lastDelay = result[0];
+        }
+        assertTrue(timer.stop().isEmpty());
+    }
+
+    @Test(timeout = 30000)
+    public void testCancelledTimeoutShouldNotRun() throws InterruptedException {
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), 5, TimeUnit.MILLISECONDS, 4);
+        final AtomicInteger counter = new AtomicInteger();
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                counter.incrementAndGet();
+            }
+        };
+        Timeout shortTimeout = timer.newTimeout(task, 10, TimeUnit.MILLISECONDS);
+        Timeout longTimeout = timer.newTimeout(task, 200, TimeUnit.MILLISECONDS);
+        assertTrue(shortTimeout.cancel());
+        assertFalse(shortTimeout.cancel());
+
+        // Cancel the long timeout after it was placed into an overflow wheel.
+        Thread.sleep(50);
+        assertTrue(longTimeout.cancel());
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        timer.newTimeout(new TimerTask() {
+            @Override
+            public void run(Timeout timeout) throws Exception {
+                latch.countDown();
+            }
+        }, 300, TimeUnit.MILLISECONDS);
+        latch.await();
+        assertEquals(0, counter.get());
+        assertTrue(shortTimeout.isCancelled());
+        assertTrue(longTimeout.isCancelled());
+        timer.stop();
+    }
+
+    @Test(timeout = 30000)
+    public void testTaskExecutor() throws InterruptedException {
+        final AtomicInteger batches = new AtomicInteger();
+        final Executor executor = new Executor() {
+            @Override
+            public void execute(final Runnable command) {
+                batches.incrementAndGet();
+                new Thread(command, "timer-task").start();
+            }
+        };
+        final HierarchicalWheelTimer timer = new HierarchicalWheelTimer(
+                Executors.defaultThreadFactory(), 100, TimeUnit.MILLISECONDS, 64, true, executor);
+
+        final CountDownLatch latch = new CountDownLatch(10);
+        final AtomicReference<String> threadName = new AtomicReference<String>();
+        for (int i = 0; i < 10; i++) {
+            // All timeouts expire at the same tick.
+            timer.newTimeout(new TimerTask() {
+                @Override
+                public void run(Timeout timeout) throws Exception {
+                    assertTrue(timeout.isExpired());
+                    threadName.set(Thread.currentThread().getName());
+                    latch.countDown();
+                }
+            }, 0, TimeUnit.MILLISECONDS);
+        }
+        latch.await();
+        assertEquals("timer-task", threadName.get());
+        assertEquals(1, batches.get());
+        timer.stop();
+    }
+}
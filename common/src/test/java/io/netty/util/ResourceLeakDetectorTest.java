@@ -0,0 +1,93 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class ResourceLeakDetectorTest {
+
+    private static final Pattern RECORDS = Pattern.compile("Recent access records: (\\d+)");
+
+    private ResourceLeakDetector.Level oldLevel;
+
+    @Before
+    public void setUp() {
+        oldLevel = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.SAMPLED);
+    }
+
+    @After
+    public void tearDown() {
+        ResourceLeakDetector.setLevel(oldLevel);
+    }
+
+    @Test
+    public void testSampledRecordsAreBounded() {
+        ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>(Object.class, 1, Long.MAX_VALUE);
+        Object resource = new Object();
+        ResourceLeak leak = detector.open(resource);
+        assertNotNull(leak);
+        for (int i = 0; i < 1000; i++) {
+            leak.record(i);
+        }
+
+        Matcher matcher = RECORDS.matcher(leak.toString());
+        assertTrue(matcher.find());
+        int records = Integer.parseInt(matcher.group(1));
+        assertTrue("records: " + records, records > 0 && records <= 5);
+        assertTrue(leak.close());
+    }
+
+    @Test(timeout = 60000)
+    public void testSampledLeaksAreAggregatedBySite() throws Exception {
+        final AtomicInteger reported = new AtomicInteger();
+        ResourceLeakDetector<Object> detector = new ResourceLeakDetector<Object>(Object.class, 1, Long.MAX_VALUE) {
+            @Override
+            protected void reportTracedLeak(String resourceType, String records) {
+                reported.incrementAndGet();
+            }
+        };
+
+        while (detector.leakCount() < 10) {
+            for (int i = 0; i < 10; i++) {
+                // All leaks are created at the same site.
+                detector.open(new Object());
+            }
+            System.gc();
+            Thread.sleep(10);
+            // Detects the leaks.
+            detector.open(this).close();
+        }
+
+        assertEquals(1, reported.get());
+        Map<String, Long> counts = detector.leakCountsBySite();
+        assertEquals(1, counts.size());
+        long count = counts.values().iterator().next();
+        assertEquals(detector.leakCount(), count);
+        assertTrue(counts.keySet().iterator().next().contains("testSampledLeaksAreAggregatedBySite"));
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import io.netty.util.concurrent.EventExecutorChooserFactory.EventExecutorChooser;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory.LoadMetric;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class LoadAwareEventExecutorChooserFactoryTest {
+
+    private final EventExecutor[] executors = new EventExecutor[4];
+    private final Map<EventExecutor, Long> loads = new HashMap<EventExecutor, Long>();
+    private final LoadMetric metric = new LoadMetric() {
+        @Override
+        public long load(EventExecutor executor) {
+            return loads.get(executor);
+        }
+    };
+
+    public LoadAwareEventExecutorChooserFactoryTest() {
+        for (int i = 0; i < executors.length; i++) {
+            executors[i] = new DefaultEventExecutor();
+            loads.put(executors[i], 10L);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (EventExecutor executor: executors) {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testLeastLoadedChoosesLeastLoaded() {
+        EventExecutorChooser chooser =
+                LoadAwareEventExecutorChooserFactory.leastLoaded(metric).newChooser(executors);
+        loads.put(executors[2], 3L);
+        for (int i = 0; i < 10; i++) {
+            assertSame(executors[2], chooser.next());
+        }
+        loads.put(executors[2], 11L);
+        assertNotSame(executors[2], chooser.next());
+    }
+
+    @Test
+    public void testLeastLoadedChoosesRoundRobinOnTies() {
+        EventExecutorChooser chooser =
+                LoadAwareEventExecutorChooserFactory.leastLoaded(metric).newChooser(executors);
+        Set<EventExecutor> chosen = new HashSet<EventExecutor>();
+        for (int i = 0; i < executors.length; i++) {
+            chosen.add(chooser.next());
+        }
+        assertEquals(executors.length, chosen.size());
+    }
+
+    @Test
+    public void testPowerOfTwoChoicesNeverChoosesMostLoaded() {
+        EventExecutorChooser chooser =
+                LoadAwareEventExecutorChooserFactory.powerOfTwoChoices(metric).newChooser(executors);
+        loads.put(executors[1], 100L);
+        for (int i = 0; i < 1000; i++) {
+            assertNotSame(executors[1], chooser.next());
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testPendingTasks() throws Exception {
+        final EventExecutor executor = executors[0];
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch blocker = new CountDownLatch(1);
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    blocker.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        started.await();
+        for (int i = 0; i < 5; i++) {
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            });
+        }
+        assertEquals(5, LoadAwareEventExecutorChooserFactory.PENDING_TASKS.load(executor));
+        blocker.countDown();
+    }
+}
@@ -15,6 +15,7 @@
  */
 package io.netty.util.concurrent;
 
+import io.netty.util.internal.ThreadExecutorMap;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -56,6 +57,22 @@ public class SingleThreadEventExecutorTest {
         executor.shutdownGracefully();
     }
 
+    @Test(timeout = 3000)
+    public void testCurrentExecutor() throws Exception {
+        final DefaultEventExecutor executor = new DefaultEventExecutor();
+        try {
+            Assert.assertNull(ThreadExecutorMap.currentExecutor());
+            Assert.assertSame(executor, executor.submit(new Callable<EventExecutor>() {
+                @Override
+                public EventExecutor call() {
+                    return ThreadExecutorMap.currentExecutor();
+                }
+            }).get());
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+        }
+    }
+
     @Test(expected = RejectedExecutionException.class, timeout = 3000)
     public void testInvokeAnyInEventLoop() {
         testInvokeInEventLoop(true, false);
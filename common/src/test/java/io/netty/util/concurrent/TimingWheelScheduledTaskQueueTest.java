@@ -0,0 +1,159 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.concurrent;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TimingWheelScheduledTaskQueueTest {
+
+    private static final Runnable NOOP = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    private final DefaultEventExecutor executor = new DefaultEventExecutor();
+
+    @After
+    public void tearDown() {
+        executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+    }
+
+    private ScheduledFutureTask<Void> newTask(long deadlineNanos) {
+        return new ScheduledFutureTask<Void>(executor, NOOP, null, deadlineNanos);
+    }
+
+    @Test
+    public void testPollsInDeadlineOrder() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue();
+        PriorityQueue<ScheduledFutureTask<?>> expected = new PriorityQueue<ScheduledFutureTask<?>>();
+        Random random = new Random(42);
+        long now = ScheduledFutureTask.nanoTime();
+        for (int i = 0; i < 10000; i++) {
+            // From the past up to about two hours, so all wheels are used.
+            long delay = random.nextInt(4) == 0 ? random.nextInt(100000000) : (long) random.nextInt(8000) << 30;
+            ScheduledFutureTask<Void> task = newTask(now - 1000000 + delay);
+            assertTrue(queue.offer(task));
+            expected.add(task);
+        }
+        // Remove some tasks from the wheels and the heap.
+        for (int i = 0; i < 1000; i++) {
+            ScheduledFutureTask<?> task = queue.peek();
+            assertSame(expected.peek(), task);
+            if (i % 2 == 0) {
+                assertTrue(queue.remove(task));
+                assertTrue(expected.remove(task));
+            }
+            ScheduledFutureTask<?> other = expected.toArray(new ScheduledFutureTask<?>[0])[random.nextInt(100)];
+            assertTrue(queue.remove(other));
+            assertTrue(expected.remove(other));
+            assertFalse(queue.remove(other));
+
+            // Schedule some new tasks while the current tick moves on.
+            ScheduledFutureTask<Void> newTask = newTask(task.deadlineNanos() + random.nextInt(Integer.MAX_VALUE));
+            queue.add(newTask);
+            expected.add(newTask);
+        }
+        assertEquals(expected.size(), queue.size());
+
+        while (!expected.isEmpty()) {
+            assertSame(expected.poll(), queue.poll());
+        }
+        assertNull(queue.peek());
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    public void testToArrayAndClear() {
+        TimingWheelScheduledTaskQueue queue = new TimingWheelScheduledTaskQueue();
+        long now = ScheduledFutureTask.nanoTime();
+        List<ScheduledFutureTask<?>> tasks = new ArrayList<ScheduledFutureTask<?>>();
+        for (int i = 0; i < 100; i++) {
+            ScheduledFutureTask<Void> task = newTask(now + TimeUnit.SECONDS.toNanos(i));
+            tasks.add(task);
+            queue.add(task);
+        }
+        ScheduledFutureTask<?>[] array = queue.toArray(new ScheduledFutureTask<?>[queue.size()]);
+        assertEquals(tasks.size(), array.length);
+        for (ScheduledFutureTask<?> task: array) {
+            assertTrue(tasks.contains(task));
+        }
+
+        queue.clear();
+        assertEquals(0, queue.size());
+        assertNull(queue.poll());
+        queue.add(tasks.get(10));
+        assertSame(tasks.get(10), queue.poll());
+    }
+
+    @Test(timeout = 10000)
+    public void testScheduleAndCancelOnEventExecutor() throws Exception {
+        final BlockingQueue<Integer> ran = new LinkedBlockingQueue<Integer>();
+        SingleThreadEventExecutor executor = new SingleThreadEventExecutor(
+                null, Executors.newCachedThreadPool(), false, 16, RejectedExecutionHandlers.reject(), true) {
+            @Override
+            protected void run() {
+                while (!confirmShutdown()) {
+                    Runnable task = takeTask();
+                    if (task != null) {
+                        task.run();
+                    }
+                }
+            }
+        };
+        try {
+            ScheduledFuture<?> cancelled = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ran.add(-1);
+                }
+            }, 100, TimeUnit.MILLISECONDS);
+            for (int i = 5; i > 0; i--) {
+                final int value = i;
+                executor.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        ran.add(value);
+                    }
+                }, i * 50, TimeUnit.MILLISECONDS);
+            }
+            assertTrue(cancelled.cancel(false));
+            for (int i = 1; i <= 5; i++) {
+                assertEquals(i, (int) ran.take());
+            }
+            assertNull(ran.poll(100, TimeUnit.MILLISECONDS));
+        } finally {
+            executor.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+        }
+    }
+}
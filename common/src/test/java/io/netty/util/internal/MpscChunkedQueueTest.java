@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MpscChunkedQueueTest {
+
+    @Test
+    public void testOfferAndPollAcrossChunks() {
+        MpscChunkedQueue<Integer> queue = new MpscChunkedQueue<Integer>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.peek());
+        assertNull(queue.poll());
+
+        int elements = MpscChunkedQueue.CHUNK_SIZE * 3 + 7;
+        for (int i = 0; i < elements; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertEquals(elements, queue.size());
+        for (int i = 0; i < elements; i++) {
+            assertEquals(i, (int) queue.peek());
+            assertEquals(i, (int) queue.poll());
+        }
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void testBoundedQueueRejectsWhenFull() {
+        MpscChunkedQueue<Integer> queue = new MpscChunkedQueue<Integer>(MpscChunkedQueue.CHUNK_SIZE + 1);
+        for (int i = 0; i < MpscChunkedQueue.CHUNK_SIZE + 1; i++) {
+            assertTrue(queue.offer(i));
+        }
+        assertFalse(queue.offer(-1));
+        assertEquals(0, (int) queue.poll());
+        assertTrue(queue.offer(-1));
+        assertFalse(queue.offer(-2));
+        assertEquals(MpscChunkedQueue.CHUNK_SIZE + 1, queue.size());
+    }
+
+    @Test
+    public void testDrainWithLimit() {
+        MpscChunkedQueue<Integer> queue = new MpscChunkedQueue<Integer>();
+        for (int i = 0; i < 10; i++) {
+            queue.offer(i);
+        }
+        final List<Integer> drained = new ArrayList<Integer>();
+        MpscChunkedQueue.Consumer<Integer> consumer = new MpscChunkedQueue.Consumer<Integer>() {
+            @Override
+            public void accept(Integer e) {
+                drained.add(e);
+            }
+        };
+        assertEquals(4, queue.drain(consumer, 4));
+        assertEquals(6, queue.size());
+        assertEquals(6, queue.drain(consumer, Integer.MAX_VALUE));
+        assertEquals(0, queue.drain(consumer, Integer.MAX_VALUE));
+        assertEquals(10, drained.size());
+        for (int i = 0; i < 10; i++) {
+            assertEquals(i, (int) drained.get(i));
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testMultipleProducersKeepTheirOrder() throws InterruptedException {
+        final int producers = 4;
+        final int elementsPerProducer = 200000;
+        // Bounded, so the producers have to wait for the consumer and the limit is read concurrently.
+        final MpscChunkedQueue<long[]> queue = new MpscChunkedQueue<long[]>(MpscChunkedQueue.CHUNK_SIZE * 2);
+        final CountDownLatch start = new CountDownLatch(1);
+        for (int i = 0; i < producers; i++) {
+            final int producer = i;
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int j = 0; j < elementsPerProducer; j++) {
+                        long[] element = { producer, j };
+                        while (!queue.offer(element)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            }).start();
+        }
+        start.countDown();
+
+        final int[] next = new int[producers];
+        MpscChunkedQueue.Consumer<long[]> consumer = new MpscChunkedQueue.Consumer<long[]>() {
+            @Override
+            public void accept(long[] element) {
+                assertEquals(next[(int) element[0]]++, element[1]);
+            }
+        };
+        int consumed = 0;
+        while (consumed < producers * elementsPerProducer) {
+            if (consumed % 2 == 0) {
+                consumed += queue.drain(consumer, 100);
+            } else {
+                long[] element = queue.poll();
+                if (element != null) {
+                    consumer.accept(element);
+                    consumed++;
+                }
+            }
+        }
+        assertTrue(queue.isEmpty());
+        for (int i = 0; i < producers; i++) {
+            assertEquals(elementsPerProducer, next[i]);
+        }
+    }
+}
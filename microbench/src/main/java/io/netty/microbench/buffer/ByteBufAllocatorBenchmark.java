@@ -20,12 +20,19 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.PooledByteBufAllocator;
 import io.netty.buffer.UnpooledByteBufAllocator;
 import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.DefaultEventExecutor;
+import io.netty.util.concurrent.EventExecutor;
 import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
 import org.openjdk.jmh.annotations.Param;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
 
 import java.util.Random;
+import java.util.concurrent.Callable;
 
 /**
  * This class benchmarks different allocators with different allocation sizes.
@@ -36,6 +43,8 @@ public class ByteBufAllocatorBenchmark extends AbstractMicrobenchmark {
     private static final ByteBufAllocator unpooledAllocator = new UnpooledByteBufAllocator(true);
     private static final ByteBufAllocator pooledAllocator =
             new PooledByteBufAllocator(true, 4, 4, 8192, 11, 0, 0, 0); // Disable thread-local cache
+    private static final ByteBufAllocator biasedPooledAllocator = new PooledByteBufAllocator(
+            true, 4, 4, 8192, 11, 0, 0, 0, false, false, false, null, 0, 0, true); // Bias the reference counts
 
     private static final int MAX_LIVE_BUFFERS = 8192;
     private static final Random rand = new Random();
@@ -46,9 +55,65 @@ public class ByteBufAllocatorBenchmark extends AbstractMicrobenchmark {
     private static final ByteBuf[] defaultPooledHeapBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
     private static final ByteBuf[] defaultPooledDirectBuffers = new ByteBuf[MAX_LIVE_BUFFERS];
 
+    private static final int REF_CNT_OPERATIONS = 1024;
+
     @Param({ "00000", "00256", "01024", "04096", "16384", "65536" })
     public int size;
 
+    // The reference counts are updated by tasks of the owner, the EventExecutor which allocated the buffers, or of
+    // another EventExecutor, so all retain and release benchmarks pay the same for running the task.
+    private EventExecutor owner;
+    private EventExecutor other;
+    private ByteBuf pooledBuffer;
+    private ByteBuf biasedBuffer;
+    private Runnable pooledRetainAndReleaseTask;
+    private Runnable biasedRetainAndReleaseTask;
+
+    @Setup(Level.Trial)
+    public void setupRetainAndRelease() {
+        owner = new DefaultEventExecutor();
+        other = new DefaultEventExecutor();
+        pooledBuffer = owner.submit(new Callable<ByteBuf>() {
+            @Override
+            public ByteBuf call() {
+                return pooledAllocator.directBuffer(size);
+            }
+        }).syncUninterruptibly().getNow();
+        biasedBuffer = owner.submit(new Callable<ByteBuf>() {
+            @Override
+            public ByteBuf call() {
+                return biasedPooledAllocator.directBuffer(size);
+            }
+        }).syncUninterruptibly().getNow();
+        pooledRetainAndReleaseTask = newRetainAndReleaseTask(pooledBuffer);
+        biasedRetainAndReleaseTask = newRetainAndReleaseTask(biasedBuffer);
+    }
+
+    private static Runnable newRetainAndReleaseTask(final ByteBuf buf) {
+        return new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < REF_CNT_OPERATIONS; i++) {
+                    buf.retain();
+                    buf.release();
+                }
+            }
+        };
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownRetainAndRelease() {
+        owner.submit(new Runnable() {
+            @Override
+            public void run() {
+                pooledBuffer.release();
+                biasedBuffer.release();
+            }
+        }).syncUninterruptibly();
+        owner.shutdownGracefully().syncUninterruptibly();
+        other.shutdownGracefully().syncUninterruptibly();
+    }
+
     @Benchmark
     public void unpooledHeapAllocAndFree() {
         int idx = rand.nextInt(unpooledHeapBuffers.length);
@@ -108,4 +173,22 @@ public class ByteBufAllocatorBenchmark extends AbstractMicrobenchmark {
         }
         defaultPooledDirectBuffers[idx] = PooledByteBufAllocator.DEFAULT.directBuffer(size);
     }
+
+    @Benchmark
+    @OperationsPerInvocation(REF_CNT_OPERATIONS)
+    public void pooledDirectRetainAndRelease() {
+        owner.submit(pooledRetainAndReleaseTask).syncUninterruptibly();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REF_CNT_OPERATIONS)
+    public void biasedPooledDirectOwnerRetainAndRelease() {
+        owner.submit(biasedRetainAndReleaseTask).syncUninterruptibly();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REF_CNT_OPERATIONS)
+    public void biasedPooledDirectSharedRetainAndRelease() {
+        other.submit(biasedRetainAndReleaseTask).syncUninterruptibly();
+    }
 }
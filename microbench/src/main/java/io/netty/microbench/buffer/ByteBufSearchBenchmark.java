@@ -0,0 +1,139 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ByteProcessor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+
+/**
+ * Compares {@link ByteBuf#forEachByte(ByteProcessor)} with the constants of {@link ByteProcessor}, which look at
+ * eight bytes at a time, to a processor which is called for every byte, and
+ * {@link ByteBufUtil#indexOf(ByteBuf, ByteBuf)} to a naive search.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class ByteBufSearchBenchmark extends AbstractMicrobenchmark {
+
+    private static final ByteProcessor FIND_LF_PER_BYTE = new ByteProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value != '\n';
+        }
+    };
+
+    public enum BufferType {
+        HEAP,
+        DIRECT,
+        COMPOSITE
+    }
+
+    @Param
+    public BufferType bufferType;
+
+    // The number of bytes in front of the LF and the needle.
+    @Param({ "16", "256", "4096" })
+    public int size;
+
+    @Param({ "4", "32" })
+    public int needleSize;
+
+    private ByteBuf buffer;
+    private ByteBuf needle;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        byte[] needleBytes = new byte[needleSize];
+        for (int i = 0; i < needleSize; i++) {
+            needleBytes[i] = (byte) ('A' + random.nextInt(26));
+        }
+        byte[] bytes = new byte[size + needleSize + 1];
+        for (int i = 0; i < size; i++) {
+            // Many partial matches of the needle.
+            bytes[i] = needleBytes[random.nextInt(needleSize)];
+        }
+        System.arraycopy(needleBytes, 0, bytes, size, needleSize);
+        bytes[bytes.length - 1] = '\n';
+
+        needle = Unpooled.wrappedBuffer(needleBytes);
+        switch (bufferType) {
+        case HEAP:
+            buffer = Unpooled.wrappedBuffer(bytes);
+            break;
+        case DIRECT:
+            buffer = Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+            break;
+        case COMPOSITE:
+            int half = bytes.length / 2;
+            buffer = Unpooled.wrappedBuffer(
+                    Unpooled.directBuffer(half).writeBytes(bytes, 0, half),
+                    Unpooled.directBuffer(bytes.length - half).writeBytes(bytes, half, bytes.length - half));
+            break;
+        default:
+            throw new Error();
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        buffer.release();
+        needle.release();
+    }
+
+    @Benchmark
+    public int forEachByteFindLf() {
+        return buffer.forEachByte(ByteProcessor.FIND_LF);
+    }
+
+    @Benchmark
+    public int forEachByteFindLfPerByte() {
+        return buffer.forEachByte(FIND_LF_PER_BYTE);
+    }
+
+    @Benchmark
+    public int indexOfNeedle() {
+        return ByteBufUtil.indexOf(needle, buffer);
+    }
+
+    @Benchmark
+    public int indexOfNeedleNaive() {
+        ByteBuf haystack = buffer;
+        int last = haystack.writerIndex() - needle.readableBytes();
+        outer: for (int i = haystack.readerIndex(); i <= last; i++) {
+            for (int j = 0; j < needle.readableBytes(); j++) {
+                if (haystack.getByte(i + j) != needle.getByte(j)) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.buffer;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PoolArenaMetric;
+import io.netty.buffer.PoolChunkListMetric;
+import io.netty.buffer.PoolChunkMetric;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares the allocation throughput and the direct memory footprint of {@link PooledByteBufAllocator} with and
+ * without size classes and run based chunks. The memory footprint is reported via {@link Footprint}.
+ */
+@State(Scope.Benchmark)
+public class PooledByteBufAllocatorSizeClassesBenchmark extends AbstractMicrobenchmark {
+
+    private static final int MAX_LIVE_BUFFERS = 8192;
+
+    @Param({ "false", "true" })
+    public boolean useSizeClasses;
+
+    @Param({ "false", "true" })
+    public boolean useRunBasedChunks;
+
+    // The maximal allocation size, sizes are uniformly distributed between 1 and this.
+    @Param({ "01024", "16384", "65536" })
+    public int maxSize;
+
+    private PooledByteBufAllocator allocator;
+    private ByteBuf[] buffers;
+    private Random rand;
+    private long liveBytes;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        // Disable the thread-local cache so every allocation hits the arena.
+        allocator = new PooledByteBufAllocator(
+                true, 1, 1, 8192, 11, 0, 0, 0, useSizeClasses, useRunBasedChunks, false, null, 0, 0, false);
+        buffers = new ByteBuf[MAX_LIVE_BUFFERS];
+        rand = new Random(42);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        for (ByteBuf buffer: buffers) {
+            if (buffer != null) {
+                buffer.release();
+            }
+        }
+    }
+
+    /**
+     * The direct memory footprint at the end of an iteration.
+     */
+    @AuxCounters
+    @State(Scope.Thread)
+    public static class Footprint {
+        PooledByteBufAllocatorSizeClassesBenchmark benchmark;
+
+        /**
+         * The sum of the sizes of the live buffers.
+         */
+        public long requestedBytes() {
+            return benchmark == null ? 0 : benchmark.liveBytes;
+        }
+
+        /**
+         * The bytes of the chunks which are used by the live buffers.
+         */
+        public long usedBytes() {
+            long usedBytes = 0;
+            for (PoolChunkMetric chunk: chunks()) {
+                usedBytes += chunk.chunkSize() - chunk.freeBytes();
+            }
+            return usedBytes;
+        }
+
+        /**
+         * The bytes of all chunks.
+         */
+        public long chunkBytes() {
+            long chunkBytes = 0;
+            for (PoolChunkMetric chunk: chunks()) {
+                chunkBytes += chunk.chunkSize();
+            }
+            return chunkBytes;
+        }
+
+        private List<PoolChunkMetric> chunks() {
+            List<PoolChunkMetric> chunks = new ArrayList<PoolChunkMetric>();
+            if (benchmark != null) {
+                for (PoolArenaMetric arena: benchmark.allocator.directArenas()) {
+                    for (PoolChunkListMetric list: arena.chunkLists()) {
+                        for (PoolChunkMetric chunk: list) {
+                            chunks.add(chunk);
+                        }
+                    }
+                }
+            }
+            return chunks;
+        }
+    }
+
+    @Benchmark
+    public void allocAndFree(Footprint footprint) {
+        footprint.benchmark = this;
+        int idx = rand.nextInt(buffers.length);
+        ByteBuf oldBuf = buffers[idx];
+        if (oldBuf != null) {
+            liveBytes -= oldBuf.capacity();
+            oldBuf.release();
+        }
+        int size = 1 + rand.nextInt(maxSize);
+        liveBytes += size;
+        buffers[idx] = allocator.directBuffer(size);
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.uring.IOUringEventLoopGroup;
+import io.netty.channel.uring.IOUringServerSocketChannel;
+import io.netty.channel.uring.IOUringSocketChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the echo throughput of the NIO, epoll and io_uring transports over the loopback interface. Each
+ * invocation writes a batch of messages and waits until all of them were echoed back by the server.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class SocketEchoBenchmark extends AbstractMicrobenchmark {
+
+    public enum Transport {
+        NIO {
+            @Override
+            EventLoopGroup newGroup(int threads) {
+                return new NioEventLoopGroup(threads);
+            }
+
+            @Override
+            Class<? extends ServerChannel> serverChannelClass() {
+                return NioServerSocketChannel.class;
+            }
+
+            @Override
+            Class<? extends Channel> channelClass() {
+                return NioSocketChannel.class;
+            }
+        },
+        EPOLL {
+            @Override
+            EventLoopGroup newGroup(int threads) {
+                return new EpollEventLoopGroup(threads);
+            }
+
+            @Override
+            Class<? extends ServerChannel> serverChannelClass() {
+                return EpollServerSocketChannel.class;
+            }
+
+            @Override
+            Class<? extends Channel> channelClass() {
+                return EpollSocketChannel.class;
+            }
+        },
+        IO_URING {
+            @Override
+            EventLoopGroup newGroup(int threads) {
+                return new IOUringEventLoopGroup(threads);
+            }
+
+            @Override
+            Class<? extends ServerChannel> serverChannelClass() {
+                return IOUringServerSocketChannel.class;
+            }
+
+            @Override
+            Class<? extends Channel> channelClass() {
+                return IOUringSocketChannel.class;
+            }
+        };
+
+        abstract EventLoopGroup newGroup(int threads);
+
+        abstract Class<? extends ServerChannel> serverChannelClass();
+
+        abstract Class<? extends Channel> channelClass();
+    }
+
+    @Param
+    public Transport transport;
+
+    @Param({ "64", "1024", "16384" })
+    public int messageSize;
+
+    @Param({ "1", "16" })
+    public int messagesPerFlush;
+
+    private EventLoopGroup serverGroup;
+    private EventLoopGroup clientGroup;
+    private Channel serverChannel;
+    private Channel clientChannel;
+    private EchoClientHandler clientHandler;
+    private ByteBuf message;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        serverGroup = transport.newGroup(1);
+        clientGroup = transport.newGroup(1);
+        message = PooledByteBufAllocator.DEFAULT.directBuffer(messageSize).writeZero(messageSize);
+
+        serverChannel = new ServerBootstrap().group(serverGroup)
+                .channel(transport.serverChannelClass())
+                .childOption(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .childHandler(new EchoServerHandler())
+                .bind(new InetSocketAddress("127.0.0.1", 0)).sync().channel();
+
+        clientHandler = new EchoClientHandler();
+        clientChannel = new Bootstrap().group(clientGroup)
+                .channel(transport.channelClass())
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.TCP_NODELAY, true)
+                .handler(clientHandler)
+                .connect(serverChannel.localAddress()).sync().channel();
+    }
+
+    @TearDown(Level.Trial)
+    public void teardown() throws Exception {
+        try {
+            if (clientChannel != null) {
+                clientChannel.close().sync();
+            }
+            if (serverChannel != null) {
+                serverChannel.close().sync();
+            }
+        } finally {
+            message.release();
+            Future<?> serverShutdown = serverGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+            Future<?> clientShutdown = clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+            serverShutdown.sync();
+            clientShutdown.sync();
+        }
+    }
+
+    @Benchmark
+    public Object echo() throws Exception {
+        Promise<Void> promise = clientHandler.expect(clientChannel, (long) messageSize * messagesPerFlush);
+        for (int i = 0; i < messagesPerFlush; i++) {
+            clientChannel.write(message.retainedDuplicate(), clientChannel.voidPromise());
+        }
+        clientChannel.flush();
+        return promise.sync();
+    }
+
+    @ChannelHandler.Sharable
+    private static final class EchoServerHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.write(msg, ctx.voidPromise());
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    private static final class EchoClientHandler extends ChannelInboundHandlerAdapter {
+        private Promise<Void> promise;
+        private long remaining;
+
+        Promise<Void> expect(Channel channel, final long bytes) {
+            final Promise<Void> promise = channel.eventLoop().newPromise();
+            channel.eventLoop().execute(new Runnable() {
+                @Override
+                public void run() {
+                    EchoClientHandler.this.promise = promise;
+                    remaining = bytes;
+                }
+            });
+            return promise;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            remaining -= buf.readableBytes();
+            buf.release();
+            if (remaining == 0 && promise != null) {
+                Promise<Void> promise = this.promise;
+                this.promise = null;
+                promise.setSuccess(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.internal;
+
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.internal.MpscChunkedQueue;
+import org.jctools.queues.MpscChunkedArrayQueue;
+import org.jctools.queues.atomic.MpscLinkedAtomicQueue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Compares the task queues which can be used by an event loop, with three producers and one consumer, like business
+ * threads which write to the channels of an event loop.
+ */
+@Threads(4)
+@State(Scope.Group)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class MpscQueueBenchmark extends AbstractMicrobenchmark {
+
+    private static final Runnable TASK = new Runnable() {
+        @Override
+        public void run() {
+            // NOOP
+        }
+    };
+
+    private static final MpscChunkedQueue.Consumer<Runnable> CONSUMER = new MpscChunkedQueue.Consumer<Runnable>() {
+        @Override
+        public void accept(Runnable task) {
+            task.run();
+        }
+    };
+
+    public enum QueueType {
+        CHUNKED,
+        JCTOOLS_CHUNKED,
+        JCTOOLS_LINKED,
+        LINKED_BLOCKING
+    }
+
+    @Param
+    public QueueType queueType;
+
+    // Bounds the queues, so the producers can not outrun the consumer until the heap is exhausted.
+    @Param({ "65536" })
+    public int capacity;
+
+    private Queue<Runnable> queue;
+
+    @Setup
+    public void setup() {
+        switch (queueType) {
+            case CHUNKED:
+                queue = new MpscChunkedQueue<Runnable>(capacity);
+                break;
+            case JCTOOLS_CHUNKED:
+                queue = new MpscChunkedArrayQueue<Runnable>(1024, capacity, true);
+                break;
+            case JCTOOLS_LINKED:
+                queue = new BoundedQueue(new MpscLinkedAtomicQueue<Runnable>(), capacity);
+                break;
+            case LINKED_BLOCKING:
+                queue = new LinkedBlockingQueue<Runnable>(capacity);
+                break;
+            default:
+                throw new Error();
+        }
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(3)
+    public boolean offer() {
+        return queue.offer(TASK);
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(1)
+    public Runnable poll() {
+        Runnable task = queue.poll();
+        if (task != null) {
+            task.run();
+        }
+        return task;
+    }
+
+    @Benchmark
+    @Group("offerDrain")
+    @GroupThreads(3)
+    public boolean offerForDrain() {
+        return queue.offer(TASK);
+    }
+
+    @Benchmark
+    @Group("offerDrain")
+    @GroupThreads(1)
+    public int drain() {
+        if (queue instanceof MpscChunkedQueue) {
+            return ((MpscChunkedQueue<Runnable>) queue).drain(CONSUMER, 1024);
+        }
+        int drained = 0;
+        for (; drained < 1024; drained++) {
+            Runnable task = queue.poll();
+            if (task == null) {
+                break;
+            }
+            task.run();
+        }
+        return drained;
+    }
+
+    /**
+     * Rejects new elements once the wrapped unbounded queue holds {@code capacity} elements. The size of a linked
+     * queue is only known by walking its nodes, so it is counted separately, which adds some contention of its own.
+     */
+    private static final class BoundedQueue extends AbstractQueue<Runnable> {
+        private final Queue<Runnable> queue;
+        private final int capacity;
+        private final AtomicInteger size = new AtomicInteger();
+
+        BoundedQueue(Queue<Runnable> queue, int capacity) {
+            this.queue = queue;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(Runnable task) {
+            if (size.incrementAndGet() > capacity) {
+                size.decrementAndGet();
+                return false;
+            }
+            return queue.offer(task);
+        }
+
+        @Override
+        public Runnable poll() {
+            Runnable task = queue.poll();
+            if (task != null) {
+                size.decrementAndGet();
+            }
+            return task;
+        }
+
+        @Override
+        public Runnable peek() {
+            return queue.peek();
+        }
+
+        @Override
+        public int size() {
+            return size.get();
+        }
+
+        @Override
+        public Iterator<Runnable> iterator() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
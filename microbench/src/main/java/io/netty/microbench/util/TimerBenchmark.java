@@ -0,0 +1,111 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.util;
+
+import io.netty.util.HashedWheelTimer;
+import io.netty.util.HierarchicalWheelTimer;
+import io.netty.util.Timeout;
+import io.netty.util.Timer;
+import io.netty.util.TimerTask;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link HashedWheelTimer} with {@link HierarchicalWheelTimer} while many long timeouts are pending, which
+ * {@link HashedWheelTimer} has to look at on every round of its wheel.
+ */
+@State(Scope.Benchmark)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+public class TimerBenchmark extends AbstractMicrobenchmark {
+
+    private static final TimerTask NOOP = new TimerTask() {
+        @Override
+        public void run(Timeout timeout) {
+            // NOOP
+        }
+    };
+
+    public enum TimerType {
+        HASHED,
+        HIERARCHICAL
+    }
+
+    @Param
+    public TimerType timerType;
+
+    // The number of timeouts which expire after the benchmark.
+    @Param({ "0", "100000", "1000000" })
+    public int pendingTimeouts;
+
+    // The number of short timeouts which are expected to expire per invocation of expire().
+    @Param({ "1000" })
+    public int batchSize;
+
+    private Timer timer;
+
+    @Setup
+    public void setup() {
+        switch (timerType) {
+            case HASHED:
+                timer = new HashedWheelTimer(Executors.defaultThreadFactory(), 1, TimeUnit.MILLISECONDS, 512);
+                break;
+            case HIERARCHICAL:
+                timer = new HierarchicalWheelTimer(Executors.defaultThreadFactory(), 1, TimeUnit.MILLISECONDS, 64);
+                break;
+            default:
+                throw new Error();
+        }
+        for (int i = 0; i < pendingTimeouts; i++) {
+            timer.newTimeout(NOOP, 10 + i % 50, TimeUnit.MINUTES);
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        timer.stop();
+    }
+
+    @Benchmark
+    public boolean newTimeoutAndCancel() {
+        return timer.newTimeout(NOOP, 30, TimeUnit.SECONDS).cancel();
+    }
+
+    @Benchmark
+    public void expire() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(batchSize);
+        TimerTask task = new TimerTask() {
+            @Override
+            public void run(Timeout timeout) {
+                latch.countDown();
+            }
+        };
+        for (int i = 0; i < batchSize; i++) {
+            timer.newTimeout(task, 1 + i % 10, TimeUnit.MILLISECONDS);
+        }
+        latch.await();
+    }
+}
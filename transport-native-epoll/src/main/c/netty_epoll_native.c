@@ -21,6 +21,7 @@
 #include <errno.h>
 #include <sys/epoll.h>
 #include <sys/eventfd.h>
+#include <sys/timerfd.h>
 #include <sys/sendfile.h>
 #include <sys/un.h>
 #include <linux/tcp.h> // TCP_NOTSENT_LOWAT is a linux specific define
@@ -36,7 +37,11 @@
 #include <inttypes.h>
 #include <link.h>
 #include <time.h>
+#include <sched.h>
+#include <linux/filter.h>
+#include <linux/errqueue.h>
 #include "netty_unix_filedescriptor.h"
+#include "netty_unix_limits.h"
 #include "netty_unix_socket.h"
 #include "netty_unix_errors.h"
 #include "netty_unix_util.h"
@@ -47,17 +52,6 @@
 #define SO_REUSEPORT 15
 #endif /* SO_REUSEPORT */
 
-// Define IOV_MAX if not found to limit the iov size on writev calls
-// See https://github.com/netty/netty/issues/2647
-#ifndef IOV_MAX
-#define IOV_MAX 1024
-#endif /* IOV_MAX */
-
-// Define UIO_MAXIOV if not found
-#ifndef UIO_MAXIOV
-#define UIO_MAXIOV 1024
-#endif /* UIO_MAXIOV */
-
 // TCP_NOTSENT_LOWAT is defined in linux 3.12. We define this here so older kernels can compile.
 #ifndef TCP_NOTSENT_LOWAT
 #define TCP_NOTSENT_LOWAT 25
@@ -78,11 +72,57 @@
  */
 #define MAX_EPOLL_TIMEOUT_MSEC (35*60*1000)
 
+// UDP_SEGMENT (GSO) and UDP_GRO are only defined by recent headers, the values are part of the linux ABI.
+#ifndef SOL_UDP
+#define SOL_UDP 17
+#endif
+#ifndef UDP_SEGMENT
+#define UDP_SEGMENT 103
+#endif
+#ifndef UDP_GRO
+#define UDP_GRO 104
+#endif
+
+// SO_ZEROCOPY and MSG_ZEROCOPY are defined in linux 4.14. We define them here so older kernels can compile.
+#ifndef SO_ZEROCOPY
+#define SO_ZEROCOPY 60
+#endif
+#ifndef MSG_ZEROCOPY
+#define MSG_ZEROCOPY 0x4000000
+#endif
+#ifndef SO_EE_ORIGIN_ZEROCOPY
+#define SO_EE_ORIGIN_ZEROCOPY 5
+#endif
+#ifndef SO_EE_CODE_ZEROCOPY_COPIED
+#define SO_EE_CODE_ZEROCOPY_COPIED 1
+#endif
+
+// MSG_FASTOPEN is defined in linux 3.6. We define this here so older kernels can compile.
+#ifndef MSG_FASTOPEN
+#define MSG_FASTOPEN 0x20000000
+#endif
+
+// SO_INCOMING_CPU is defined in linux 3.19. We define this here so older kernels can compile.
+#ifndef SO_INCOMING_CPU
+#define SO_INCOMING_CPU 49
+#endif
+
+// SO_ATTACH_REUSEPORT_CBPF is defined in linux 4.5. We define this here so older kernels can compile.
+#ifndef SO_ATTACH_REUSEPORT_CBPF
+#define SO_ATTACH_REUSEPORT_CBPF 51
+#endif
+
+// SO_BUSY_POLL is defined in linux 3.11. We define this here so older kernels can compile.
+#ifndef SO_BUSY_POLL
+#define SO_BUSY_POLL 46
+#endif
+
 // optional
 extern int epoll_create1(int flags) __attribute__((weak));
 
 #ifdef IO_NETTY_SENDMMSG_NOT_FOUND
 extern int sendmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, unsigned int flags) __attribute__((weak));
+extern int recvmmsg(int sockfd, struct mmsghdr* msgvec, unsigned int vlen, int flags, struct timespec* timeout) __attribute__((weak));
 
 #ifndef __USE_GNU
 struct mmsghdr {
@@ -103,6 +143,12 @@ jfieldID packetScopeIdFieldId = NULL;
 jfieldID packetPortFieldId = NULL;
 jfieldID packetMemoryAddressFieldId = NULL;
 jfieldID packetCountFieldId = NULL;
+jfieldID packetSenderAddrFieldId = NULL;
+jfieldID packetSenderAddrLenFieldId = NULL;
+jfieldID packetSenderScopeIdFieldId = NULL;
+jfieldID packetSenderPortFieldId = NULL;
+jfieldID packetReceivedFieldId = NULL;
+jfieldID packetSegmentSizeFieldId = NULL;
 
 clockid_t epollWaitClock = 0; // initialized in initializeEpollWaitClock
 
@@ -199,6 +245,16 @@ static void netty_epoll_native_eventFdRead(JNIEnv* env, jclass clazz, jint fd) {
     }
 }
 
+static jint netty_epoll_native_timerFd(JNIEnv* env, jclass clazz) {
+    jint timerFD = timerfd_create(CLOCK_MONOTONIC, TFD_CLOEXEC | TFD_NONBLOCK);
+
+    if (timerFD < 0) {
+        int err = errno;
+        netty_unix_errors_throwChannelExceptionErrorNo(env, "timerfd_create() failed: ", err);
+    }
+    return timerFD;
+}
+
 static jint netty_epoll_native_epollCreate(JNIEnv* env, jclass clazz) {
     jint efd;
     if (epoll_create1) {
@@ -265,6 +321,33 @@ static jint netty_epoll_native_epollWait0(JNIEnv* env, jclass clazz, jint efd, j
     }
 }
 
+static jint netty_epoll_native_epollWaitTimer0(JNIEnv* env, jclass clazz, jint efd, jlong address, jint len,
+                                               jint timerFd, jint tvSec, jint tvNsec) {
+    struct epoll_event *ev = (struct epoll_event*) (intptr_t) address;
+    struct itimerspec ts;
+    int result, err;
+
+    // -1 is used by EpollEventLoop to signal that the timer is already armed correctly.
+    if (tvSec != -1 || tvNsec != -1) {
+        // A zero it_value disarms the timer.
+        memset(&ts, 0, sizeof(struct itimerspec));
+        ts.it_value.tv_sec = tvSec;
+        ts.it_value.tv_nsec = tvNsec;
+        if (timerfd_settime(timerFd, 0, &ts, NULL) < 0) {
+            return -errno;
+        }
+    }
+
+    // The timerfd wakes us up once the next scheduled task is due, so we can block without a timeout.
+    do {
+        result = epoll_wait(efd, ev, len, -1);
+        if (result >= 0) {
+            return result;
+        }
+    } while ((err = errno) == EINTR);
+    return -err;
+}
+
 static jint netty_epoll_native_epollCtlAdd0(JNIEnv* env, jclass clazz, jint efd, jint fd, jint flags) {
     int res = epollCtl(env, efd, EPOLL_CTL_ADD, fd, flags);
     if (res < 0) {
@@ -293,9 +376,11 @@ static jint netty_epoll_native_epollCtlDel0(JNIEnv* env, jclass clazz, jint efd,
 static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
     struct mmsghdr msg[len];
     struct sockaddr_storage addr[len];
+    char control[len][CMSG_SPACE(sizeof(uint16_t))];
     int i;
 
     memset(msg, 0, sizeof(msg));
+    memset(control, 0, sizeof(control));
 
     for (i = 0; i < len; i++) {
 
@@ -313,6 +398,18 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, job
 
         msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
         msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);;
+
+        jint segmentSize = (*env)->GetIntField(env, packet, packetSegmentSizeFieldId);
+        if (segmentSize > 0) {
+            // Let the kernel split the data into datagrams of segmentSize bytes (GSO).
+            msg[i].msg_hdr.msg_control = control[i];
+            msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+            struct cmsghdr* cm = CMSG_FIRSTHDR(&msg[i].msg_hdr);
+            cm->cmsg_level = SOL_UDP;
+            cm->cmsg_type = UDP_SEGMENT;
+            cm->cmsg_len = CMSG_LEN(sizeof(uint16_t));
+            *((uint16_t*) CMSG_DATA(cm)) = (uint16_t) segmentSize;
+        }
     }
 
     ssize_t res;
@@ -327,6 +424,84 @@ static jint netty_epoll_native_sendmmsg0(JNIEnv* env, jclass clazz, jint fd, job
     }
     return (jint) res;
 }
+static jint netty_epoll_native_recvmmsg0(JNIEnv* env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct mmsghdr msg[len];
+    struct sockaddr_storage addr[len];
+    // Used to receive the segment size if UDP_GRO is enabled.
+    char control[len][CMSG_SPACE(sizeof(int))];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = sizeof(addr[i]);
+
+        msg[i].msg_hdr.msg_iov = (struct iovec*) (intptr_t) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        msg[i].msg_hdr.msg_iovlen = (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        msg[i].msg_hdr.msg_control = control[i];
+        msg[i].msg_hdr.msg_controllen = sizeof(control[i]);
+    }
+
+    int res;
+    int err;
+    do {
+       res = recvmmsg(fd, msg, len, 0, NULL);
+       // keep on reading if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+
+    // Pass the number of bytes received and the address of the sender back to java.
+    for (i = 0; i < res; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jbyteArray senderAddr = (jbyteArray) (*env)->GetObjectField(env, packet, packetSenderAddrFieldId);
+        jint senderAddrLen;
+        jint senderScopeId = 0;
+        jint senderPort;
+
+        if (addr[i].ss_family == AF_INET) {
+            struct sockaddr_in* s = (struct sockaddr_in*) &addr[i];
+            senderAddrLen = 4;
+            senderPort = ntohs(s->sin_port);
+            (*env)->SetByteArrayRegion(env, senderAddr, 0, 4, (jbyte*) &s->sin_addr.s_addr);
+        } else {
+            struct sockaddr_in6* s = (struct sockaddr_in6*) &addr[i];
+            senderPort = ntohs(s->sin6_port);
+            if (IN6_IS_ADDR_V4MAPPED(&s->sin6_addr)) {
+                // Only pass the last 4 bytes which represent the IPv4 address.
+                senderAddrLen = 4;
+                (*env)->SetByteArrayRegion(env, senderAddr, 0, 4, (jbyte*) &s->sin6_addr.s6_addr[12]);
+            } else {
+                senderAddrLen = 16;
+                senderScopeId = s->sin6_scope_id;
+                (*env)->SetByteArrayRegion(env, senderAddr, 0, 16, (jbyte*) &s->sin6_addr.s6_addr);
+            }
+        }
+        (*env)->SetIntField(env, packet, packetSenderAddrLenFieldId, senderAddrLen);
+        (*env)->SetIntField(env, packet, packetSenderScopeIdFieldId, senderScopeId);
+        (*env)->SetIntField(env, packet, packetSenderPortFieldId, senderPort);
+        (*env)->SetIntField(env, packet, packetReceivedFieldId, (jint) msg[i].msg_len);
+
+        jint segmentSize = 0;
+        struct cmsghdr* cm;
+        for (cm = CMSG_FIRSTHDR(&msg[i].msg_hdr); cm != NULL; cm = CMSG_NXTHDR(&msg[i].msg_hdr, cm)) {
+            if (cm->cmsg_level == SOL_UDP && cm->cmsg_type == UDP_GRO) {
+                // Multiple datagrams were coalesced, tell java how big each of them is.
+                segmentSize = *((int*) CMSG_DATA(cm));
+                break;
+            }
+        }
+        (*env)->SetIntField(env, packet, packetSegmentSizeFieldId, segmentSize);
+    }
+    return (jint) res;
+}
+
 static jint netty_epoll_native_recvFd0(JNIEnv* env, jclass clazz, jint fd) {
     int socketFd;
     struct msghdr descriptorMessage = { 0 };
@@ -501,6 +676,168 @@ static jint netty_epoll_native_isReuseAddress(JNIEnv* env, jclass clazz, jint fd
     return optval;
 }
 
+static void netty_epoll_native_setUdpGro(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_UDP, UDP_GRO, &optval, sizeof(optval));
+}
+
+static void netty_epoll_native_setBusyPoll(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_BUSY_POLL, &optval, sizeof(optval));
+}
+
+static jint netty_epoll_native_getBusyPoll(JNIEnv* env, jclass clazz, jint fd) {
+    int optval;
+    if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_BUSY_POLL, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+static jint netty_epoll_native_sendToFastOpen0(JNIEnv* env, jclass clazz, jint fd, jlong memoryAddress, jint pos, jint limit, jbyteArray address, jint scopeId, jint port) {
+    struct sockaddr_storage addr;
+    if (netty_unix_socket_initSockaddr(env, address, scopeId, port, &addr) == -1) {
+        return -1;
+    }
+
+    void* buffer = (void *) (intptr_t) memoryAddress;
+    ssize_t res;
+    int err;
+    do {
+       // This starts the connect and puts the data into the SYN if the kernel has a TCP Fast Open cookie for the peer.
+       res = sendto(fd, buffer + pos, (size_t) (limit - pos), MSG_FASTOPEN, (struct sockaddr*) &addr, sizeof(struct sockaddr_storage));
+       // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
+static jint netty_epoll_native_getIncomingCpu(JNIEnv* env, jclass clazz, jint fd) {
+    int optval;
+    if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_INCOMING_CPU, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+static void netty_epoll_native_attachReusePortCbpf0(JNIEnv* env, jclass clazz, jint fd, jintArray program) {
+    // The program is passed as (code, jt, jf, k) tuples.
+    jsize len = (*env)->GetArrayLength(env, program) / 4;
+    struct sock_filter* filter = (struct sock_filter*) malloc(len * sizeof(struct sock_filter));
+    if (filter == NULL) {
+        netty_unix_errors_throwOutOfMemoryError(env);
+        return;
+    }
+    jint* instructions = (*env)->GetIntArrayElements(env, program, NULL);
+    if (instructions == NULL) {
+        free(filter);
+        return;
+    }
+    int i;
+    for (i = 0; i < len; i++) {
+        filter[i].code = (__u16) instructions[i * 4];
+        filter[i].jt = (__u8) instructions[i * 4 + 1];
+        filter[i].jf = (__u8) instructions[i * 4 + 2];
+        filter[i].k = (__u32) instructions[i * 4 + 3];
+    }
+    (*env)->ReleaseIntArrayElements(env, program, instructions, JNI_ABORT);
+
+    struct sock_fprog fprog = {
+        .len = (unsigned short) len,
+        .filter = filter
+    };
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ATTACH_REUSEPORT_CBPF, &fprog, sizeof(fprog));
+    free(filter);
+}
+
+static jint netty_epoll_native_setThreadAffinity0(JNIEnv* env, jclass clazz, jint cpu) {
+    cpu_set_t set;
+    CPU_ZERO(&set);
+    CPU_SET(cpu, &set);
+    // A pid of 0 means the calling thread.
+    if (sched_setaffinity(0, sizeof(set), &set) < 0) {
+        return -errno;
+    }
+    return 0;
+}
+
+static jint netty_epoll_native_threadAffinity0(JNIEnv* env, jclass clazz) {
+    cpu_set_t set;
+    int cpu;
+    if (sched_getaffinity(0, sizeof(set), &set) < 0) {
+        return -errno;
+    }
+    if (CPU_COUNT(&set) != 1) {
+        // Not pinned to a single CPU.
+        return -1;
+    }
+    for (cpu = 0; cpu < CPU_SETSIZE; cpu++) {
+        if (CPU_ISSET(cpu, &set)) {
+            return cpu;
+        }
+    }
+    return -1;
+}
+
+static void netty_epoll_native_setZeroCopy(JNIEnv* env, jclass clazz, jint fd, jint optval) {
+    netty_unix_socket_setOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
+}
+
+static jint netty_epoll_native_sendZeroCopy0(JNIEnv* env, jclass clazz, jint fd, jlong address, jint pos, jint limit) {
+    ssize_t res;
+    int err;
+    char* buffer = (char*) (intptr_t) address;
+    do {
+        res = send(fd, buffer + pos, (size_t) (limit - pos), MSG_ZEROCOPY);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        return -err;
+    }
+    return (jint) res;
+}
+
+static jint netty_epoll_native_recvZeroCopyCompletion0(JNIEnv* env, jclass clazz, jint fd, jintArray range) {
+    char control[CMSG_SPACE(sizeof(struct sock_extended_err) + sizeof(struct sockaddr_in6))];
+    struct msghdr msg;
+    ssize_t res;
+    int err;
+
+    for (;;) {
+        memset(&msg, 0, sizeof(msg));
+        msg.msg_control = control;
+        msg.msg_controllen = sizeof(control);
+
+        do {
+            res = recvmsg(fd, &msg, MSG_ERRQUEUE);
+            // keep on reading if it was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+
+        if (res < 0) {
+            return -err;
+        }
+
+        struct cmsghdr* cmsg = CMSG_FIRSTHDR(&msg);
+        for (; cmsg != NULL; cmsg = CMSG_NXTHDR(&msg, cmsg)) {
+            if ((cmsg->cmsg_level == SOL_IP && cmsg->cmsg_type == IP_RECVERR) ||
+                    (cmsg->cmsg_level == SOL_IPV6 && cmsg->cmsg_type == IPV6_RECVERR)) {
+                struct sock_extended_err* serr = (struct sock_extended_err*) CMSG_DATA(cmsg);
+                if (serr->ee_errno == 0 && serr->ee_origin == SO_EE_ORIGIN_ZEROCOPY) {
+                    jint cRange[3];
+                    cRange[0] = (jint) serr->ee_info;
+                    cRange[1] = (jint) serr->ee_data;
+                    cRange[2] = (serr->ee_code & SO_EE_CODE_ZEROCOPY_COPIED) != 0 ? 1 : 0;
+                    (*env)->SetIntArrayRegion(env, range, 0, 3, cRange);
+                    return 1;
+                }
+            }
+        }
+        // Not a MSG_ZEROCOPY notification, just drop it and try the next one.
+    }
+}
+
 static jint netty_epoll_native_isReusePort(JNIEnv* env, jclass clazz, jint fd) {
     int optval;
     if (netty_unix_socket_getOption(env, fd, SOL_SOCKET, SO_REUSEPORT, &optval, sizeof(optval)) == -1) {
@@ -627,14 +964,6 @@ static jstring netty_epoll_native_kernelVersion(JNIEnv* env, jclass clazz) {
     return NULL;
 }
 
-static jint netty_epoll_native_iovMax(JNIEnv* env, jclass clazz) {
-    return IOV_MAX;
-}
-
-static jint netty_epoll_native_uioMaxIov(JNIEnv* env, jclass clazz) {
-    return UIO_MAXIOV;
-}
-
 static jboolean netty_epoll_native_isSupportingSendmmsg(JNIEnv* env, jclass clazz) {
     if (sendmmsg) {
         return JNI_TRUE;
@@ -642,6 +971,43 @@ static jboolean netty_epoll_native_isSupportingSendmmsg(JNIEnv* env, jclass claz
     return JNI_FALSE;
 }
 
+static jboolean netty_epoll_native_isSupportingRecvmmsg(JNIEnv* env, jclass clazz) {
+    if (recvmmsg) {
+        return JNI_TRUE;
+    }
+    return JNI_FALSE;
+}
+
+static jboolean netty_epoll_native_isSupportingUdpSegment(JNIEnv* env, jclass clazz) {
+    // Check if the kernel knows about UDP_SEGMENT by querying it on a new socket.
+    int fd = socket(AF_INET, SOCK_DGRAM, 0);
+    if (fd == -1) {
+        return JNI_FALSE;
+    }
+    int optval;
+    socklen_t optlen = sizeof(optval);
+    int res = getsockopt(fd, SOL_UDP, UDP_SEGMENT, &optval, &optlen);
+    close(fd);
+    return res == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
+static jboolean netty_epoll_native_isSupportingMsgZeroCopy(JNIEnv* env, jclass clazz) {
+    // Check if the kernel knows about SO_ZEROCOPY by querying it on a new socket.
+    int fd = socket(AF_INET, SOCK_STREAM, 0);
+    if (fd == -1) {
+        return JNI_FALSE;
+    }
+    int optval;
+    socklen_t optlen = sizeof(optval);
+    int res = getsockopt(fd, SOL_SOCKET, SO_ZEROCOPY, &optval, &optlen);
+    close(fd);
+    return res == 0 ? JNI_TRUE : JNI_FALSE;
+}
+
+static jint netty_epoll_native_errnoENOBUFS(JNIEnv* env, jclass clazz) {
+    return ENOBUFS;
+}
+
 static jboolean netty_epoll_native_isSupportingTcpFastopen(JNIEnv* env, jclass clazz) {
     int fastopen = 0;
     getSysctlValue("/proc/sys/net/ipv4/tcp_fastopen", &fastopen);
@@ -699,10 +1065,6 @@ static jint netty_epoll_native_splice0(JNIEnv* env, jclass clazz, jint fd, jlong
     return (jint) res;
 }
 
-static jlong netty_epoll_native_ssizeMax(JNIEnv* env, jclass clazz) {
-    return SSIZE_MAX;
-}
-
 static jint netty_epoll_native_tcpMd5SigMaxKeyLen(JNIEnv* env, jclass clazz) {
     struct tcp_md5sig md5sig;
 
@@ -759,27 +1121,33 @@ static const JNINativeMethod statically_referenced_fixed_method_table[] = {
   { "epollout", "()I", (void *) netty_epoll_native_epollout },
   { "epollrdhup", "()I", (void *) netty_epoll_native_epollrdhup },
   { "epollerr", "()I", (void *) netty_epoll_native_epollerr },
-  { "ssizeMax", "()J", (void *) netty_epoll_native_ssizeMax },
   { "tcpMd5SigMaxKeyLen", "()I", (void *) netty_epoll_native_tcpMd5SigMaxKeyLen },
-  { "iovMax", "()I", (void *) netty_epoll_native_iovMax },
-  { "uioMaxIov", "()I", (void *) netty_epoll_native_uioMaxIov },
   { "isSupportingSendmmsg", "()Z", (void *) netty_epoll_native_isSupportingSendmmsg },
+  { "isSupportingRecvmmsg", "()Z", (void *) netty_epoll_native_isSupportingRecvmmsg },
   { "isSupportingTcpFastopen", "()Z", (void *) netty_epoll_native_isSupportingTcpFastopen },
+  { "isSupportingUdpSegment", "()Z", (void *) netty_epoll_native_isSupportingUdpSegment },
+  { "isSupportingMsgZeroCopy", "()Z", (void *) netty_epoll_native_isSupportingMsgZeroCopy },
+  { "errnoENOBUFS", "()I", (void *) netty_epoll_native_errnoENOBUFS },
   { "kernelVersion", "()Ljava/lang/String;", (void *) netty_epoll_native_kernelVersion }
 };
 static const jint statically_referenced_fixed_method_table_size = sizeof(statically_referenced_fixed_method_table) / sizeof(statically_referenced_fixed_method_table[0]);
 static const JNINativeMethod fixed_method_table[] = {
   { "eventFd", "()I", (void *) netty_epoll_native_eventFd },
+  { "timerFd", "()I", (void *) netty_epoll_native_timerFd },
   { "eventFdWrite", "(IJ)V", (void *) netty_epoll_native_eventFdWrite },
   { "eventFdRead", "(I)V", (void *) netty_epoll_native_eventFdRead },
   { "epollCreate", "()I", (void *) netty_epoll_native_epollCreate },
   { "epollWait0", "(IJII)I", (void *) netty_epoll_native_epollWait0 },
+  { "epollWait0", "(IJIIII)I", (void *) netty_epoll_native_epollWaitTimer0 },
   { "epollCtlAdd0", "(III)I", (void *) netty_epoll_native_epollCtlAdd0 },
   { "epollCtlMod0", "(III)I", (void *) netty_epoll_native_epollCtlMod0 },
   { "epollCtlDel0", "(II)I", (void *) netty_epoll_native_epollCtlDel0 },
   // "sendmmsg0" has a dynamic signature
+  // "recvmmsg0" has a dynamic signature
   { "recvFd0", "(I)I", (void *) netty_epoll_native_recvFd0 },
   { "sendFd0", "(II)I", (void *) netty_epoll_native_sendFd0 },
+  { "sendZeroCopy0", "(IJII)I", (void *) netty_epoll_native_sendZeroCopy0 },
+  { "recvZeroCopyCompletion0", "(I[I)I", (void *) netty_epoll_native_recvZeroCopyCompletion0 },
   // "sendFile0" has a dynamic signature
   { "setReuseAddress", "(II)V", (void *) netty_epoll_native_setReuseAddress },
   { "setReusePort", "(II)V", (void *) netty_epoll_native_setReusePort },
@@ -792,8 +1160,17 @@ static const JNINativeMethod fixed_method_table[] = {
   { "setTcpKeepCnt", "(II)V", (void *) netty_epoll_native_setTcpKeepCnt },
   { "setTcpUserTimeout", "(II)V", (void *) netty_epoll_native_setTcpUserTimeout },
   { "setIpFreeBind", "(II)V", (void *) netty_epoll_native_setIpFreeBind },
+  { "setUdpGro", "(II)V", (void *) netty_epoll_native_setUdpGro },
+  { "setZeroCopy", "(II)V", (void *) netty_epoll_native_setZeroCopy },
+  { "setBusyPoll", "(II)V", (void *) netty_epoll_native_setBusyPoll },
   { "isReuseAddress", "(I)I", (void *) netty_epoll_native_isReuseAddress },
   { "isReusePort", "(I)I", (void *) netty_epoll_native_isReusePort },
+  { "getBusyPoll", "(I)I", (void *) netty_epoll_native_getBusyPoll },
+  { "getIncomingCpu", "(I)I", (void *) netty_epoll_native_getIncomingCpu },
+  { "sendToFastOpen0", "(IJII[BII)I", (void *) netty_epoll_native_sendToFastOpen0 },
+  { "attachReusePortCbpf0", "(I[I)V", (void *) netty_epoll_native_attachReusePortCbpf0 },
+  { "setThreadAffinity0", "(I)I", (void *) netty_epoll_native_setThreadAffinity0 },
+  { "threadAffinity0", "()I", (void *) netty_epoll_native_threadAffinity0 },
   { "getTcpNotSentLowAt", "(I)I", (void *) netty_epoll_native_getTcpNotSentLowAt },
   { "getTrafficClass", "(I)I", (void *) netty_epoll_native_getTrafficClass },
   { "isBroadcast", "(I)I", (void *) netty_epoll_native_isBroadcast },
@@ -811,7 +1188,7 @@ static const JNINativeMethod fixed_method_table[] = {
 static const jint fixed_method_table_size = sizeof(fixed_method_table) / sizeof(fixed_method_table[0]);
 
 static jint dynamicMethodsTableSize() {
-    return fixed_method_table_size + 2;
+    return fixed_method_table_size + 3;
 }
 
 static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
@@ -822,6 +1199,10 @@ static JNINativeMethod* createDynamicMethodsTable(const char* packagePrefix) {
     dynamicMethod->name = "sendmmsg0";
     dynamicMethod->signature = netty_unix_util_prepend("(I[L", dynamicTypeName);
     dynamicMethod->fnPtr = (void *) netty_epoll_native_sendmmsg0;
+    ++dynamicMethod;
+    dynamicMethod->name = "recvmmsg0";
+    dynamicMethod->signature = netty_unix_util_prepend("(I[L", dynamicTypeName);
+    dynamicMethod->fnPtr = (void *) netty_epoll_native_recvmmsg0;
     free(dynamicTypeName);
     ++dynamicMethod;
     dynamicTypeName = netty_unix_util_prepend(packagePrefix, "io/netty/channel/DefaultFileRegion;JJJ)J");
@@ -870,6 +1251,9 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
     if (netty_unix_filedescriptor_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
         return JNI_ERR;
     }
+    if (netty_unix_limits_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
+        return JNI_ERR;
+    }
     if (netty_unix_socket_JNI_OnLoad(env, packagePrefix) == JNI_ERR) {
         return JNI_ERR;
     }
@@ -950,6 +1334,37 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
         return JNI_ERR;
     }
 
+    packetSenderAddrFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderAddr", "[B");
+    if (packetSenderAddrFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderAddr");
+        return JNI_ERR;
+    }
+    packetSenderAddrLenFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderAddrLen", "I");
+    if (packetSenderAddrLenFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderAddrLen");
+        return JNI_ERR;
+    }
+    packetSenderScopeIdFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderScopeId", "I");
+    if (packetSenderScopeIdFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderScopeId");
+        return JNI_ERR;
+    }
+    packetSenderPortFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "senderPort", "I");
+    if (packetSenderPortFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.senderPort");
+        return JNI_ERR;
+    }
+    packetReceivedFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "received", "I");
+    if (packetReceivedFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.received");
+        return JNI_ERR;
+    }
+    packetSegmentSizeFieldId = (*env)->GetFieldID(env, nativeDatagramPacketCls, "segmentSize", "I");
+    if (packetSegmentSizeFieldId == NULL) {
+        netty_unix_errors_throwRuntimeException(env, "failed to get field ID: NativeDatagramPacket.segmentSize");
+        return JNI_ERR;
+    }
+
     if (!initializeEpollWaitClock()) {
       return JNI_ERR;
     }
@@ -960,6 +1375,7 @@ static jint netty_epoll_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix
 static void netty_epoll_native_JNI_OnUnLoad(JNIEnv* env) {
     netty_unix_errors_JNI_OnUnLoad(env);
     netty_unix_filedescriptor_JNI_OnUnLoad(env);
+    netty_unix_limits_JNI_OnUnLoad(env);
     netty_unix_socket_JNI_OnUnLoad(env);
 }
 
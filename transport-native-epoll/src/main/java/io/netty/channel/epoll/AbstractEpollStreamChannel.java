@@ -35,7 +35,9 @@ import io.netty.channel.FileRegion;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.socket.DuplexChannel;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
 import io.netty.channel.unix.Socket;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.ThrowableUtil;
@@ -48,6 +50,7 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ConnectionPendingException;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayDeque;
 import java.util.Queue;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ScheduledFuture;
@@ -73,6 +76,9 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     private static final ClosedChannelException FAIL_SPLICE_IF_CLOSED_CLOSED_CHANNEL_EXCEPTION =
             ThrowableUtil.unknownStackTrace(new ClosedChannelException(),
             AbstractEpollStreamChannel.class, "failSpliceIfClosed(...)");
+    private static final ClosedChannelException CLEAR_ZEROCOPY_QUEUE_CLOSED_CHANNEL_EXCEPTION =
+            ThrowableUtil.unknownStackTrace(new ClosedChannelException(),
+            AbstractEpollStreamChannel.class, "clearZeroCopyQueue()");
 
     /**
      * The future of the current connection attempt.  If not null, subsequent
@@ -89,6 +95,18 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
     private WritableByteChannel byteChannel;
 
+    // Set while the channel is relayed via an EpollSpliceRelay, which handles all reads and writes then.
+    EpollSpliceRelay spliceRelay;
+
+    // Buffers which were written with MSG_ZEROCOPY and wait for their completion, in the order they were written.
+    // The last one may still be partially written, see zeroCopyCurrent.
+    private ArrayDeque<ZeroCopyWrite> zeroCopyQueue;
+    private int[] zeroCopyRange;
+    // The id the kernel assigns to the next successful send with MSG_ZEROCOPY.
+    private int zeroCopyNextId;
+    // The write of the current buffer if it was partially written with MSG_ZEROCOPY, null otherwise.
+    private ZeroCopyWrite zeroCopyCurrent;
+
     /**
      * @deprecated Use {@link #AbstractEpollStreamChannel(Channel, Socket)}.
      */
@@ -143,6 +161,11 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         return METADATA;
     }
 
+    @Override
+    protected boolean isConnectPending() {
+        return connectPromise != null;
+    }
+
     /**
      * Splice from this {@link AbstractEpollStreamChannel} to another {@link AbstractEpollStreamChannel}.
      * The {@code len} is the number of bytes to splice. If using {@link Integer#MAX_VALUE} it will
@@ -277,6 +300,11 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return true;
         }
 
+        if (zeroCopyCurrent != null || isZeroCopyCandidate(buf, zeroCopyThreshold())) {
+            // Once started, the buffer must be written with MSG_ZEROCOPY until the end, even if less than the
+            // threshold is left, as it must not be released before its sends were completed.
+            return writeBytesZeroCopy(in, buf, writeSpinCount);
+        }
         if (buf.hasMemoryAddress() || buf.nioBufferCount() == 1) {
             int writtenBytes = doWriteBytes(buf, writeSpinCount);
             in.removeBytes(writtenBytes);
@@ -287,6 +315,141 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    /**
+     * Write bytes from the given {@link ByteBuf} with {@code MSG_ZEROCOPY}. Once completely written the buffer is
+     * removed from the {@link ChannelOutboundBuffer}, but only released and its promise notified once the kernel
+     * signaled the completion of all its sends via the error queue of the socket. The write is tracked from its first
+     * send on, as the kernel may complete sends before the buffer was written completely.
+     */
+    private boolean writeBytesZeroCopy(ChannelOutboundBuffer in, ByteBuf buf, int writeSpinCount) throws Exception {
+        final long address = buf.memoryAddress();
+        final int writerIndex = buf.writerIndex();
+        int readerIndex = buf.readerIndex();
+        long writtenBytes = 0;
+        boolean done = false;
+
+        for (int i = writeSpinCount - 1; i >= 0; i--) {
+            int localWrittenBytes = Native.sendZeroCopy(fd().intValue(), address, readerIndex, writerIndex);
+            if (localWrittenBytes < 0) {
+                // The kernel was not able to pin the memory, so fallback to copy the bytes for this send.
+                localWrittenBytes = fd().writeAddress(address, readerIndex, writerIndex);
+            } else if (localWrittenBytes > 0) {
+                ZeroCopyWrite write = zeroCopyCurrent;
+                if (write == null) {
+                    write = zeroCopyCurrent = new ZeroCopyWrite(buf, zeroCopyNextId);
+                    if (zeroCopyQueue == null) {
+                        zeroCopyQueue = new ArrayDeque<ZeroCopyWrite>();
+                    }
+                    zeroCopyQueue.add(write);
+                }
+                write.sends++;
+                write.pendingSends++;
+                zeroCopyNextId++;
+            }
+            if (localWrittenBytes == 0) {
+                break;
+            }
+            readerIndex += localWrittenBytes;
+            writtenBytes += localWrittenBytes;
+            if (readerIndex == writerIndex) {
+                done = true;
+                break;
+            }
+        }
+
+        if (writtenBytes > 0) {
+            buf.readerIndex(readerIndex);
+            in.progress(writtenBytes);
+        }
+        if (done) {
+            ZeroCopyWrite write = zeroCopyCurrent;
+            if (write == null) {
+                // Everything was copied, nothing to wait for.
+                in.remove();
+            } else {
+                zeroCopyCurrent = null;
+                write.written = true;
+                // The write stays queued even if this is null, so the completions of its sends are still consumed.
+                write.promise = in.removeDeferred();
+                // Some sends may be completed already.
+                releaseCompletedZeroCopyWrites();
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Returns the minimum number of readable bytes a buffer must have to be written with {@code MSG_ZEROCOPY}, or
+     * {@code -1} if {@code MSG_ZEROCOPY} is not used by this channel.
+     */
+    int zeroCopyThreshold() {
+        return -1;
+    }
+
+    private static boolean isZeroCopyCandidate(ByteBuf buf, int zeroCopyThreshold) {
+        return zeroCopyThreshold >= 0 && buf.hasMemoryAddress() && buf.readableBytes() >= zeroCopyThreshold;
+    }
+
+    /**
+     * Read all pending {@code MSG_ZEROCOPY} completions from the error queue of the socket and release the buffers
+     * (and notify the promises) of all writes which are complete now, in the order they were written.
+     */
+    private void processZeroCopyCompletions() throws IOException {
+        int[] range = zeroCopyRange;
+        if (range == null) {
+            range = zeroCopyRange = new int[3];
+        }
+        final int fd = fd().intValue();
+        while (Native.recvZeroCopyCompletion(fd, range)) {
+            // The kernel may coalesce the notifications of multiple sends into one range.
+            for (ZeroCopyWrite write: zeroCopyQueue) {
+                write.complete(range[0], range[1]);
+            }
+        }
+        releaseCompletedZeroCopyWrites();
+    }
+
+    private void releaseCompletedZeroCopyWrites() {
+        for (;;) {
+            ZeroCopyWrite write = zeroCopyQueue.peek();
+            if (write == null || !write.written || write.pendingSends != 0) {
+                break;
+            }
+            zeroCopyQueue.remove();
+            if (write.promise != null) {
+                ReferenceCountUtil.safeRelease(write.buf);
+                write.promise.trySuccess();
+            }
+        }
+    }
+
+    /**
+     * Returns {@code true} if sends with {@code MSG_ZEROCOPY} wait for their completion.
+     */
+    private boolean hasPendingZeroCopySends() {
+        return zeroCopyQueue != null && !zeroCopyQueue.isEmpty();
+    }
+
+    private void clearZeroCopyQueue() {
+        zeroCopyCurrent = null;
+        if (zeroCopyQueue == null) {
+            return;
+        }
+        for (;;) {
+            ZeroCopyWrite write = zeroCopyQueue.poll();
+            if (write == null) {
+                break;
+            }
+            // We will not receive any completion anymore once the socket is closed. The connection was reset by
+            // doClose(), so the kernel does not send from the buffer anymore. A partially written buffer is still
+            // owned by the ChannelOutboundBuffer, which releases it.
+            if (write.promise != null) {
+                ReferenceCountUtil.safeRelease(write.buf);
+                write.promise.tryFailure(CLEAR_ZEROCOPY_QUEUE_CLOSED_CHANNEL_EXCEPTION);
+            }
+        }
+    }
+
     private boolean writeBytesMultiple(
             ChannelOutboundBuffer in, IovArray array, int writeSpinCount) throws IOException {
 
@@ -454,6 +617,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
     @Override
     protected void doWrite(ChannelOutboundBuffer in) throws Exception {
         int writeSpinCount = config().getWriteSpinCount();
+        final int zeroCopyThreshold = zeroCopyThreshold();
         for (;;) {
             final int msgCount = in.size();
 
@@ -464,9 +628,12 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 return;
             }
 
-            // Do gathering write if the outbounf buffer entries start with more than one ByteBuf.
-            if (msgCount > 1 && in.current() instanceof ByteBuf) {
-                if (!doWriteMultiple(in, writeSpinCount)) {
+            // Do gathering write if the outbounf buffer entries start with more than one ByteBuf, unless the first one
+            // should be written with MSG_ZEROCOPY or its writing with MSG_ZEROCOPY was started already.
+            Object msg = in.current();
+            if (msgCount > 1 && msg instanceof ByteBuf && zeroCopyCurrent == null &&
+                    !isZeroCopyCandidate((ByteBuf) msg, zeroCopyThreshold)) {
+                if (!doWriteMultiple(in, writeSpinCount, zeroCopyThreshold)) {
                     // Break the loop and so set EPOLLOUT flag.
                     break;
                 }
@@ -474,7 +641,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 // We do not break the loop here even if the outbound buffer was flushed completely,
                 // because a user might have triggered another write and flush when we notify his or her
                 // listeners.
-            } else { // msgCount == 1
+            } else { // msgCount == 1 or the first buffer should be written with MSG_ZEROCOPY
                 if (!doWriteSingle(in, writeSpinCount)) {
                     // Break the loop and so set EPOLLOUT flag.
                     break;
@@ -520,11 +687,17 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         return true;
     }
 
-    private boolean doWriteMultiple(ChannelOutboundBuffer in, int writeSpinCount) throws Exception {
+    private boolean doWriteMultiple(
+            ChannelOutboundBuffer in, int writeSpinCount, int zeroCopyThreshold) throws Exception {
         if (PlatformDependent.hasUnsafe()) {
             // this means we can cast to IovArray and write the IovArray directly.
             IovArray array = ((EpollEventLoop) eventLoop()).cleanArray();
-            in.forEachFlushedMessage(array);
+            if (zeroCopyThreshold < 0) {
+                in.forEachFlushedMessage(array);
+            } else {
+                // Stop gathering at the first buffer that should be written with MSG_ZEROCOPY.
+                in.forEachFlushedMessage(new ZeroCopyAwareMessageProcessor(array, zeroCopyThreshold));
+            }
 
             int cnt = array.count();
             if (cnt >= 1) {
@@ -737,12 +910,32 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
                 future.cancel(false);
                 connectTimeoutFuture = null;
             }
+            if (hasPendingZeroCopySends()) {
+                // Complete what the kernel is done with already, as we will not receive completions anymore
+                // once the socket is closed.
+                try {
+                    processZeroCopyCompletions();
+                } catch (IOException ignore) {
+                    // The remaining writes are failed below.
+                }
+            }
+            if (hasPendingZeroCopySends()) {
+                // The kernel still references the memory of buffers which were sent with MSG_ZEROCOPY and would
+                // keep sending from it after a normal close, while the buffers are released and reused below.
+                // Reset the connection instead, so the kernel drops the queued data and its references to it.
+                try {
+                    fd().setSoLinger(0);
+                } catch (IOException ignore) {
+                    // The socket is closed below anyway.
+                }
+            }
             // Calling super.doClose() first so splceTo(...) will fail on next call.
             super.doClose();
         } finally {
             safeClosePipe(pipeIn);
             safeClosePipe(pipeOut);
             clearSpliceQueue();
+            clearZeroCopyQueue();
         }
     }
 
@@ -769,7 +962,7 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
         boolean success = false;
         try {
-            boolean connected = fd().connect(remoteAddress);
+            boolean connected = doConnect0(remoteAddress);
             if (!connected) {
                 setFlag(Native.EPOLLOUT);
             }
@@ -782,6 +975,14 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         }
     }
 
+    /**
+     * Start to connect the already bound socket to the remote peer. Returns {@code true} if the connection was
+     * established immediately.
+     */
+    boolean doConnect0(SocketAddress remoteAddress) throws Exception {
+        return fd().connect(remoteAddress);
+    }
+
     private static void safeClosePipe(FileDescriptor fd) {
         if (fd != null) {
             try {
@@ -897,6 +1098,13 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
             if (!promiseSet) {
                 close(voidPromise());
+                return;
+            }
+
+            // Write the data that was flushed for TCP Fast Open but did not fit into the SYN.
+            ChannelOutboundBuffer outboundBuffer = outboundBuffer();
+            if (outboundBuffer != null && !outboundBuffer.isEmpty()) {
+                flush0();
             }
         }
 
@@ -941,9 +1149,23 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
 
         @Override
         void epollOutReady() {
+            if (hasPendingZeroCopySends()) {
+                // The completions of MSG_ZEROCOPY sends are signaled via EPOLLERR, which is handled here as well.
+                // They must be read whenever any send is pending, also for a partially written buffer, as EPOLLERR
+                // is signaled until the error queue is empty.
+                try {
+                    processZeroCopyCompletions();
+                } catch (IOException e) {
+                    pipeline().fireExceptionCaught(e);
+                    close(voidPromise());
+                    return;
+                }
+            }
             if (connectPromise != null) {
                 // pending connect which is now complete so handle it.
                 finishConnect();
+            } else if (spliceRelay != null) {
+                spliceRelay.epollOutReady(AbstractEpollStreamChannel.this);
             } else {
                 super.epollOutReady();
             }
@@ -967,8 +1189,22 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
             return new EpollRecvByteAllocatorStreamingHandle(handle, config());
         }
 
+        @Override
+        void shutdownInput() {
+            if (spliceRelay != null) {
+                // The relay shuts down the output of the other channel once all data was relayed.
+                spliceRelay.inputShutdown(AbstractEpollStreamChannel.this);
+                return;
+            }
+            super.shutdownInput();
+        }
+
         @Override
         void epollInReady() {
+            if (spliceRelay != null) {
+                spliceRelay.epollInReady(AbstractEpollStreamChannel.this);
+                return;
+            }
             if (fd().isInputShutdown()) {
                 clearEpollIn0();
                 return;
@@ -1069,6 +1305,54 @@ public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel im
         spliceQueue.add(task);
     }
 
+    private static final class ZeroCopyWrite {
+        final ByteBuf buf;
+        // The id of the first send of this buffer, all of its sends have consecutive ids.
+        final int firstId;
+        int sends;
+        int pendingSends;
+        // true once the buffer was written completely.
+        boolean written;
+        // Set once the buffer was written completely and removed from the ChannelOutboundBuffer, which hands the
+        // ownership of the buffer over. null while partially written or if the write was cancelled.
+        ChannelPromise promise;
+
+        ZeroCopyWrite(ByteBuf buf, int firstId) {
+            this.buf = buf;
+            this.firstId = firstId;
+        }
+
+        /**
+         * Mark the sends of this buffer within the inclusive range {@code [lo, hi]} as completed. The ids are
+         * unsigned 32 bit numbers that wrap around, so compare them relative to {@link #firstId}.
+         */
+        void complete(int lo, int hi) {
+            int start = Math.max(lo - firstId, 0);
+            int end = Math.min(hi - firstId, sends - 1);
+            if (start <= end) {
+                pendingSends -= end - start + 1;
+            }
+        }
+    }
+
+    private static final class ZeroCopyAwareMessageProcessor implements ChannelOutboundBuffer.MessageProcessor {
+        private final IovArray array;
+        private final int zeroCopyThreshold;
+
+        ZeroCopyAwareMessageProcessor(IovArray array, int zeroCopyThreshold) {
+            this.array = array;
+            this.zeroCopyThreshold = zeroCopyThreshold;
+        }
+
+        @Override
+        public boolean processMessage(Object msg) throws Exception {
+            if (msg instanceof ByteBuf && isZeroCopyCandidate((ByteBuf) msg, zeroCopyThreshold)) {
+                return false;
+            }
+            return array.processMessage(msg);
+        }
+    }
+
     protected abstract class SpliceInTask {
         final ChannelPromise promise;
         int len;
@@ -0,0 +1,67 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.SelectStrategy;
+import io.netty.channel.SelectStrategyFactory;
+import io.netty.util.IntSupplier;
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SelectStrategyFactory} which lets the event loops of an {@link EpollEventLoopGroup} busy poll
+ * {@code epoll_wait(...)} without a timeout for the given duration before they fall back to a blocking
+ * {@code epoll_wait(...)}. This trades CPU for lower wakeup latency. Use {@link EpollEventLoopGroup#busyPollSpins()},
+ * {@link EpollEventLoopGroup#busyPollHits()} and {@link EpollEventLoopGroup#busyPollParks()} to see how often busy
+ * polling pays off. Sockets may also use {@link EpollChannelOption#SO_BUSY_POLL} to let the kernel busy poll the
+ * device queue.
+ */
+public final class BusyPollSelectStrategyFactory implements SelectStrategyFactory {
+    private final SelectStrategy strategy;
+
+    /**
+     * Create a new instance.
+     *
+     * @param spinDuration  the duration for which an event loop busy polls before it blocks.
+     * @param unit          the {@link TimeUnit} of {@code spinDuration}.
+     */
+    public BusyPollSelectStrategyFactory(long spinDuration, TimeUnit unit) {
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (spinDuration <= 0) {
+            throw new IllegalArgumentException("spinDuration: " + spinDuration + " (expected: > 0)");
+        }
+        strategy = new BusyPollSelectStrategy(unit.toNanos(spinDuration));
+    }
+
+    @Override
+    public SelectStrategy newSelectStrategy() {
+        return strategy;
+    }
+
+    static final class BusyPollSelectStrategy implements SelectStrategy {
+        final long spinNanos;
+
+        BusyPollSelectStrategy(long spinNanos) {
+            this.spinNanos = spinNanos;
+        }
+
+        @Override
+        public int calculateStrategy(IntSupplier selectSupplier, boolean hasTasks) throws Exception {
+            return hasTasks ? selectSupplier.get() : SelectStrategy.BUSY_WAIT;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@link DefaultThreadFactory} which pins each {@link Thread} it creates to one of the given CPUs, in a round-robin
+ * fashion. When used for an {@link EpollEventLoopGroup} every {@link EpollEventLoop} stays on its own core, which
+ * allows {@link EpollIncomingCpuSteering} to route new connections to the {@link EpollEventLoop} of the CPU the
+ * connection came in on.
+ */
+public class CpuAffinityThreadFactory extends DefaultThreadFactory {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(CpuAffinityThreadFactory.class);
+
+    private final AtomicInteger nextCpu = new AtomicInteger();
+    private final int[] cpus;
+
+    public CpuAffinityThreadFactory(Class<?> poolType, int... cpus) {
+        this(toPoolName(poolType), cpus);
+    }
+
+    public CpuAffinityThreadFactory(String poolName, int... cpus) {
+        super(poolName);
+        this.cpus = checkCpus(cpus);
+    }
+
+    public CpuAffinityThreadFactory(String poolName, boolean daemon, int priority, int... cpus) {
+        super(poolName, daemon, priority);
+        this.cpus = checkCpus(cpus);
+    }
+
+    private static int[] checkCpus(int[] cpus) {
+        if (cpus == null) {
+            throw new NullPointerException("cpus");
+        }
+        if (cpus.length == 0) {
+            throw new IllegalArgumentException("cpus must not be empty");
+        }
+        for (int cpu: cpus) {
+            if (cpu < 0) {
+                throw new IllegalArgumentException("cpu: " + cpu + " (expected: >= 0)");
+            }
+        }
+        return cpus.clone();
+    }
+
+    @Override
+    protected Thread newThread(Runnable r, String name) {
+        int cpu = cpus[Math.abs(nextCpu.getAndIncrement() % cpus.length)];
+        return super.newThread(new AffinityRunnable(r, cpu), name);
+    }
+
+    private static final class AffinityRunnable implements Runnable {
+        private final Runnable r;
+        private final int cpu;
+
+        AffinityRunnable(Runnable r, int cpu) {
+            this.r = r;
+            this.cpu = cpu;
+        }
+
+        @Override
+        public void run() {
+            try {
+                Native.setThreadAffinity(cpu);
+            } catch (IOException e) {
+                // Still run the thread, just not pinned.
+                logger.warn("Failed to pin thread {} to CPU {}", Thread.currentThread().getName(), cpu, e);
+            }
+            r.run();
+        }
+    }
+}
@@ -44,6 +44,20 @@ public final class EpollChannelOption<T> extends ChannelOption<T> {
 
     public static final ChannelOption<Map<InetAddress, byte[]>> TCP_MD5SIG = valueOf("TCP_MD5SIG");
 
+    public static final ChannelOption<Integer> MAX_DATAGRAM_PAYLOAD_SIZE =
+            valueOf(EpollChannelOption.class, "MAX_DATAGRAM_PAYLOAD_SIZE");
+    public static final ChannelOption<Boolean> UDP_GRO = valueOf(EpollChannelOption.class, "UDP_GRO");
+    public static final ChannelOption<Boolean> SO_ZEROCOPY = valueOf(EpollChannelOption.class, "SO_ZEROCOPY");
+    public static final ChannelOption<Integer> ZEROCOPY_THRESHOLD =
+            valueOf(EpollChannelOption.class, "ZEROCOPY_THRESHOLD");
+    public static final ChannelOption<Integer> SO_BUSY_POLL = valueOf(EpollChannelOption.class, "SO_BUSY_POLL");
+    public static final ChannelOption<Boolean> TCP_FASTOPEN_CONNECT =
+            valueOf(EpollChannelOption.class, "TCP_FASTOPEN_CONNECT");
+    /**
+     * The CPU on which the packets of the connection were processed last. This option is read-only.
+     */
+    public static final ChannelOption<Integer> SO_INCOMING_CPU = valueOf(EpollChannelOption.class, "SO_INCOMING_CPU");
+
     @SuppressWarnings({ "unused", "deprecation" })
     private EpollChannelOption() {
         super(null);
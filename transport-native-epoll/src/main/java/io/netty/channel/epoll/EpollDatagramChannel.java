@@ -27,10 +27,10 @@ import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.DefaultAddressedEnvelope;
 import io.netty.channel.socket.DatagramChannel;
-import io.netty.channel.socket.DatagramChannelConfig;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.channel.unix.DatagramSocketAddress;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
 import io.netty.channel.unix.Socket;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
@@ -54,6 +54,8 @@ import static io.netty.channel.unix.Socket.newSocketDgram;
  */
 public final class EpollDatagramChannel extends AbstractEpollChannel implements DatagramChannel {
     private static final ChannelMetadata METADATA = new ChannelMetadata(true);
+    // The kernel coalesces datagrams via UDP_GRO up to the maximum size of an IP packet.
+    private static final int MAX_COALESCED_DATAGRAM_SIZE = 65535;
     private static final String EXPECTED_TYPES =
             " (expected: " + StringUtil.simpleClassName(DatagramPacket.class) + ", " +
             StringUtil.simpleClassName(AddressedEnvelope.class) + '<' +
@@ -299,8 +301,10 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             }
 
             try {
-                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+
-                if (Native.IS_SUPPORTING_SENDMMSG && in.size() > 1) {
+                // Check if sendmmsg(...) is supported which is only the case for GLIBC 2.14+. A
+                // SegmentedDatagramPacket always needs to be written via sendmmsg(...) as it needs to pass the
+                // segment size to the kernel.
+                if (Native.IS_SUPPORTING_SENDMMSG && (in.size() > 1 || msg instanceof SegmentedDatagramPacket)) {
                     NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance(in);
                     int cnt = array.count();
 
@@ -399,6 +403,21 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     @Override
     protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof SegmentedDatagramPacket) {
+            if (!SegmentedDatagramPacket.isSupported()) {
+                throw new UnsupportedOperationException(
+                        "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+            }
+            SegmentedDatagramPacket packet = (SegmentedDatagramPacket) msg;
+            ByteBuf content = packet.content();
+            if (content.hasMemoryAddress()) {
+                return msg;
+            }
+            // The kernel needs the whole content in one continuous direct buffer, so copy.
+            return new SegmentedDatagramPacket(newDirectBuffer(packet, content), packet.segmentSize(),
+                    packet.recipient());
+        }
+
         if (msg instanceof DatagramPacket) {
             DatagramPacket packet = (DatagramPacket) msg;
             ByteBuf content = packet.content();
@@ -527,7 +546,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 clearEpollIn0();
                 return;
             }
-            DatagramChannelConfig config = config();
+            EpollDatagramChannelConfig config = config();
             final EpollRecvByteAllocatorHandle allocHandle = recvBufAllocHandle();
             allocHandle.edgeTriggered(isFlagSet(Native.EPOLLET));
 
@@ -540,9 +559,37 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             try {
                 ByteBuf data = null;
                 try {
+                    int datagramSize = config.getMaxDatagramPayloadSize();
+                    boolean udpGro = config.isUdpGro();
+                    if (udpGro) {
+                        // A coalesced datagram which does not fit is truncated, so every datagram needs room for the
+                        // largest one.
+                        datagramSize = MAX_COALESCED_DATAGRAM_SIZE;
+                    }
                     do {
                         data = allocHandle.allocate(allocator);
+                        if (udpGro && data.writableBytes() < MAX_COALESCED_DATAGRAM_SIZE) {
+                            data.release();
+                            data = null;
+                            data = allocator.directBuffer(MAX_COALESCED_DATAGRAM_SIZE);
+                        }
                         allocHandle.attemptedBytesRead(data.writableBytes());
+                        int numDatagram = datagramSize == 0 ? 1 : data.writableBytes() / datagramSize;
+                        if ((numDatagram > 1 || udpGro) && Native.IS_SUPPORTING_RECVMMSG && data.hasMemoryAddress()) {
+                            // The buffer is big enough for multiple datagrams, use recvmmsg(...) to read all of them
+                            // with one syscall. When UDP_GRO is used we also need recvmmsg(...) to learn the segment
+                            // size of coalesced datagrams.
+                            ByteBuf buffer = data;
+                            data = null;
+                            boolean read = numDatagram > 1 ?
+                                    scatteringRead(allocHandle, buffer, datagramSize, numDatagram) :
+                                    scatteringRead(allocHandle, buffer, buffer.writableBytes(), 1);
+                            if (!read) {
+                                break;
+                            }
+                            continue;
+                        }
+
                         final DatagramSocketAddress remoteAddress;
                         if (data.hasMemoryAddress()) {
                             // has a memory address so use optimized call
@@ -590,5 +637,60 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 epollInFinally(config);
             }
         }
+
+        /**
+         * Read up to {@code numDatagram} datagrams with one {@code recvmmsg(...)} call into slices of the given
+         * {@link ByteBuf}, which are {@code datagramSize} bytes long each, and add them to {@link #readBuf}. Datagrams
+         * which were coalesced by {@code UDP_GRO} are split again. The {@link ByteBuf} is always released by this
+         * method. Returns {@code false} if there was nothing to read.
+         */
+        private boolean scatteringRead(EpollRecvByteAllocatorHandle allocHandle, ByteBuf data,
+                                       int datagramSize, int numDatagram) throws IOException {
+            try {
+                int writerIndex = data.writerIndex();
+                NativeDatagramPacketArray array = NativeDatagramPacketArray.getInstance();
+                for (int i = 0; i < numDatagram; i++) {
+                    if (!array.addWritable(data, writerIndex + i * datagramSize, datagramSize)) {
+                        break;
+                    }
+                }
+                NativeDatagramPacketArray.NativeDatagramPacket[] packets = array.packets();
+                int received = Native.recvmmsg(fd().intValue(), packets, 0, array.count());
+                if (received == 0) {
+                    allocHandle.lastBytesRead(-1);
+                    return false;
+                }
+
+                InetSocketAddress local = (InetSocketAddress) localAddress();
+                int bytesReceived = 0;
+                int messages = 0;
+                for (int i = 0; i < received; i++) {
+                    NativeDatagramPacketArray.NativeDatagramPacket packet = packets[i];
+                    int index = writerIndex + i * datagramSize;
+                    int len = packet.received();
+                    int segmentSize = packet.segmentSize();
+                    InetSocketAddress sender = packet.sender();
+                    bytesReceived += len;
+                    if (segmentSize <= 0) {
+                        segmentSize = len;
+                    }
+                    // Split datagrams which were coalesced via UDP_GRO again. Each DatagramPacket holds its own
+                    // reference to the buffer, the one we got from the allocator is released in the finally block
+                    // below.
+                    do {
+                        int segmentLen = Math.min(segmentSize, len);
+                        readBuf.add(new DatagramPacket(data.retainedSlice(index, segmentLen), local, sender));
+                        index += segmentLen;
+                        len -= segmentLen;
+                        messages++;
+                    } while (len > 0);
+                }
+                allocHandle.incMessagesRead(messages);
+                allocHandle.lastBytesRead(bytesReceived);
+                return true;
+            } finally {
+                data.release();
+            }
+        }
     }
 }
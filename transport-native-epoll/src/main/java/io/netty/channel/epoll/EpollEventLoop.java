@@ -21,10 +21,12 @@ import io.netty.channel.SelectStrategy;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.channel.epoll.AbstractEpollChannel.AbstractEpollUnsafe;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.IovArray;
 import io.netty.util.IntSupplier;
 import io.netty.util.collection.IntObjectHashMap;
 import io.netty.util.collection.IntObjectMap;
 import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.internal.MpscChunkedQueue;
 import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.logging.InternalLogger;
@@ -34,8 +36,8 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Queue;
-import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
@@ -44,8 +46,13 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 final class EpollEventLoop extends SingleThreadEventLoop {
     private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollEventLoop.class);
     private static final AtomicIntegerFieldUpdater<EpollEventLoop> WAKEN_UP_UPDATER;
+    // Used if a custom SelectStrategy returns SelectStrategy.BUSY_WAIT.
+    private static final long DEFAULT_BUSY_POLL_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
 
     static {
+        // Ensure JNI is initialized by the time this class is loaded by this time!
+        // We use unix-common methods in this class which are backed by JNI methods.
+        Epoll.ensureAvailability();
         AtomicIntegerFieldUpdater<EpollEventLoop> updater =
                 PlatformDependent.newAtomicIntegerFieldUpdater(EpollEventLoop.class, "wakenUp");
         if (updater == null) {
@@ -56,30 +63,38 @@ final class EpollEventLoop extends SingleThreadEventLoop {
 
     private final FileDescriptor epollFd;
     private final FileDescriptor eventFd;
+    private final FileDescriptor timerFd;
     private final IntObjectMap<AbstractEpollChannel> channels = new IntObjectHashMap<AbstractEpollChannel>(4096);
     private final boolean allowGrowing;
     private final EpollEventArray events;
     private final IovArray iovArray = new IovArray();
     private final SelectStrategy selectStrategy;
+    private final long busyPollNanos;
     private final IntSupplier selectNowSupplier = new IntSupplier() {
         @Override
         public int get() throws Exception {
             return Native.epollWait(epollFd.intValue(), events, 0);
         }
     };
-    private final Callable<Integer> pendingTasksCallable = new Callable<Integer>() {
-        @Override
-        public Integer call() throws Exception {
-            return EpollEventLoop.super.pendingTasks();
-        }
-    };
     private volatile int wakenUp;
     private volatile int ioRatio = 50;
+    // The deadline the timerFd is armed for or -1 if it is disarmed. Only accessed by the event loop itself.
+    private long timerFdDeadlineNanos = -1;
+
+    // Only written by the event loop itself.
+    private volatile long busyPollSpins;
+    private volatile long busyPollHits;
+    private volatile long busyPollParks;
+    private volatile long busyTimeNanos;
+    // The CPU the thread of this event loop is pinned to or -1 if it was not pinned or has not started yet.
+    private volatile int cpu = -1;
 
     EpollEventLoop(EventLoopGroup parent, Executor executor, int maxEvents,
                    SelectStrategy strategy, RejectedExecutionHandler rejectedExecutionHandler) {
         super(parent, executor, false, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler);
         selectStrategy = ObjectUtil.checkNotNull(strategy, "strategy");
+        busyPollNanos = strategy instanceof BusyPollSelectStrategyFactory.BusyPollSelectStrategy ?
+                ((BusyPollSelectStrategyFactory.BusyPollSelectStrategy) strategy).spinNanos : DEFAULT_BUSY_POLL_NANOS;
         if (maxEvents == 0) {
             allowGrowing = true;
             events = new EpollEventArray(4096);
@@ -90,6 +105,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         boolean success = false;
         FileDescriptor epollFd = null;
         FileDescriptor eventFd = null;
+        FileDescriptor timerFd = null;
         try {
             this.epollFd = epollFd = Native.newEpollCreate();
             this.eventFd = eventFd = Native.newEventFd();
@@ -98,6 +114,13 @@ final class EpollEventLoop extends SingleThreadEventLoop {
             } catch (IOException e) {
                 throw new IllegalStateException("Unable to add eventFd filedescriptor to epoll", e);
             }
+            this.timerFd = timerFd = Native.newTimerFd();
+            try {
+                // Use edge-triggered mode so we never need to read the expirations from the timerFd.
+                Native.epollCtlAdd(epollFd.intValue(), timerFd.intValue(), Native.EPOLLIN | Native.EPOLLET);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to add timerFd filedescriptor to epoll", e);
+            }
             success = true;
         } finally {
             if (!success) {
@@ -115,6 +138,13 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                         // ignore
                     }
                 }
+                if (timerFd != null) {
+                    try {
+                        timerFd.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
             }
         }
     }
@@ -171,21 +201,21 @@ final class EpollEventLoop extends SingleThreadEventLoop {
 
     @Override
     protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
-        // This event loop never calls takeTask()
-        return PlatformDependent.newMpscQueue(maxPendingTasks);
+        // This event loop never calls takeTask(), so it can use a non-blocking queue which does not allocate a node
+        // per task and which is drained in batches by runAllTasksFrom(...).
+        return new MpscChunkedQueue<Runnable>(maxPendingTasks);
     }
 
     @Override
-    public int pendingTasks() {
-        // As we use a MpscQueue we need to ensure pendingTasks() is only executed from within the EventLoop as
-        // otherwise we may see unexpected behavior (as size() is only allowed to be called by a single consumer).
-        // See https://github.com/netty/netty/issues/5297
-        if (inEventLoop()) {
-            return super.pendingTasks();
-        } else {
-            return submit(pendingTasksCallable).syncUninterruptibly().getNow();
-        }
+    public int registeredChannels() {
+        return channels.size();
     }
+
+    @Override
+    public long busyTimeNanos() {
+        return busyTimeNanos;
+    }
+
     /**
      * Returns the percentage of the desired amount of time spent for I/O in the event loop.
      */
@@ -204,55 +234,124 @@ final class EpollEventLoop extends SingleThreadEventLoop {
         this.ioRatio = ioRatio;
     }
 
-    private int epollWait(boolean oldWakenUp) throws IOException {
-        int selectCnt = 0;
-        long currentTimeNanos = System.nanoTime();
-        long selectDeadLineNanos = currentTimeNanos + delayNanos(currentTimeNanos);
-        for (;;) {
-            long timeoutMillis = (selectDeadLineNanos - currentTimeNanos + 500000L) / 1000000L;
-            if (timeoutMillis <= 0) {
-                if (selectCnt == 0) {
-                    int ready = Native.epollWait(epollFd.intValue(), events, 0);
-                    if (ready > 0) {
-                        return ready;
-                    }
+    /**
+     * Returns the number of non-blocking {@code epoll_wait(...)} calls done while busy polling.
+     */
+    long busyPollSpins() {
+        return busyPollSpins;
+    }
+
+    /**
+     * Returns how often busy polling found something to do before the spin duration elapsed.
+     */
+    long busyPollHits() {
+        return busyPollHits;
+    }
+
+    /**
+     * Returns how often busy polling found nothing to do, so the event loop blocked in {@code epoll_wait(...)}.
+     */
+    long busyPollParks() {
+        return busyPollParks;
+    }
+
+    /**
+     * Returns the CPU the thread of this event loop is pinned to or {@code -1} if it was not pinned to a single CPU
+     * (for example via {@link CpuAffinityThreadFactory}) or has not been started yet.
+     */
+    int cpu() {
+        return cpu;
+    }
+
+    /**
+     * Polls for ready events without blocking until something is ready or {@link #busyPollNanos} elapsed. Returns
+     * the number of ready events, or {@link SelectStrategy#SELECT} if a blocking {@code epoll_wait(...)} should
+     * follow as nothing became ready in time.
+     */
+    private int epollBusyWait() throws IOException {
+        // Other threads do not need to wake us up via the eventfd while we spin, as we check for new tasks anyway.
+        wakenUp = 1;
+
+        final long startNanos = System.nanoTime();
+        // Do not spin past the deadline of the next scheduled task.
+        final long spinNanos = Math.min(busyPollNanos, delayNanos(startNanos));
+        long spins = 0;
+        try {
+            for (;;) {
+                int ready = Native.epollWait(epollFd.intValue(), events, 0);
+                spins++;
+                if (ready != 0 || hasTasks() || isShuttingDown()) {
+                    busyPollHits++;
+                    return ready;
+                }
+                if (System.nanoTime() - startNanos >= spinNanos) {
+                    break;
                 }
-                break;
             }
+        } finally {
+            busyPollSpins += spins;
+        }
 
-            // If a task was submitted when wakenUp value was 1, the task didn't get a chance to produce wakeup event.
-            // So we need to check task queue again before calling epoll_wait. If we don't, the task might be pended
-            // until epoll_wait was timed out. It might be pended until idle timeout if IdleStateHandler existed
-            // in pipeline.
-            if (hasTasks() && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
-                return Native.epollWait(epollFd.intValue(), events, 0);
-            }
+        busyPollParks++;
+        // Allow other threads to wake us up again. A task submitted or a shutdown requested after the last check
+        // is picked up by epollWait(...) or the check below.
+        wakenUp = 0;
+        return isShuttingDown() ? 0 : SelectStrategy.SELECT;
+    }
 
-            int selectedKeys = Native.epollWait(epollFd.intValue(), events, (int) timeoutMillis);
-            selectCnt ++;
+    private int epollWait() throws IOException {
+        // If a task was submitted when wakenUp value was 1, the task didn't get a chance to produce wakeup event.
+        // So we need to check task queue again before calling epoll_wait. If we don't, the task might be pended
+        // until the next scheduled task is due or until another event is ready.
+        if (hasTasks() && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1) || isShuttingDown()) {
+            // While shutting down confirmShutdown() paces the loop, so do not block.
+            return Native.epollWait(epollFd.intValue(), events, 0);
+        }
 
-            if (selectedKeys != 0 || oldWakenUp || wakenUp == 1 || hasTasks() || hasScheduledTasks()) {
-                // - Selected something,
-                // - waken up by user, or
-                // - the task queue has a pending task.
-                // - a scheduled task is ready for processing
-                return selectedKeys;
+        final long deadlineNanos = nextScheduledTaskDeadlineNanos();
+        final int timeoutSec;
+        final int timeoutNs;
+        if (deadlineNanos == timerFdDeadlineNanos) {
+            // The timerFd is already armed for the next scheduled task, or disarmed if there is none.
+            timeoutSec = -1;
+            timeoutNs = -1;
+        } else if (deadlineNanos == -1) {
+            // Disarm the timerFd as no task is scheduled anymore.
+            timeoutSec = 0;
+            timeoutNs = 0;
+            timerFdDeadlineNanos = -1;
+        } else {
+            final long delayNanos = deadlineNanos - nanoTime();
+            if (delayNanos <= 0) {
+                // The next scheduled task is due already.
+                return Native.epollWait(epollFd.intValue(), events, 0);
             }
-            currentTimeNanos = System.nanoTime();
+            timeoutSec = (int) Math.min(delayNanos / 1000000000L, Integer.MAX_VALUE);
+            timeoutNs = (int) (delayNanos % 1000000000L);
+            timerFdDeadlineNanos = deadlineNanos;
         }
-        return 0;
+        return Native.epollWait(epollFd.intValue(), events, timerFd.intValue(), timeoutSec, timeoutNs);
     }
 
     @Override
     protected void run() {
+        cpu = Native.threadAffinity();
         for (;;) {
             try {
                 int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
                 switch (strategy) {
                     case SelectStrategy.CONTINUE:
                         continue;
+                    case SelectStrategy.BUSY_WAIT:
+                        strategy = epollBusyWait();
+                        if (strategy != SelectStrategy.SELECT) {
+                            break;
+                        }
+                        // Nothing became ready while spinning so block in epoll_wait(...).
+                        // fallthrough
                     case SelectStrategy.SELECT:
-                        strategy = epollWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+                        wakenUp = 0;
+                        strategy = epollWait();
 
                         // 'wakenUp.compareAndSet(false, true)' is always evaluated
                         // before calling 'selector.wakeup()' to reduce the wake-up
@@ -290,6 +389,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 }
 
                 final int ioRatio = this.ioRatio;
+                final long ioStartTime = System.nanoTime();
                 if (ioRatio == 100) {
                     try {
                         if (strategy > 0) {
@@ -300,8 +400,6 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                         runAllTasks();
                     }
                 } else {
-                    final long ioStartTime = System.nanoTime();
-
                     try {
                         if (strategy > 0) {
                             processReady(events, strategy);
@@ -312,6 +410,7 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                         runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
                     }
                 }
+                busyTimeNanos += System.nanoTime() - ioStartTime;
                 if (allowGrowing && strategy == events.length()) {
                     //increase the size of the array as we needed the whole space for the events
                     events.increase();
@@ -368,6 +467,9 @@ final class EpollEventLoop extends SingleThreadEventLoop {
             if (fd == eventFd.intValue()) {
                 // consume wakeup event
                 Native.eventFdRead(eventFd.intValue());
+            } else if (fd == timerFd.intValue()) {
+                // The timerFd expired and so is disarmed now. There is nothing to read as it uses edge-triggered mode.
+                timerFdDeadlineNanos = -1;
             } else {
                 final long ev = events.events(i);
 
@@ -436,6 +538,11 @@ final class EpollEventLoop extends SingleThreadEventLoop {
             } catch (IOException e) {
                 logger.warn("Failed to close the event fd.", e);
             }
+            try {
+                timerFd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the timer fd.", e);
+            }
         } finally {
             // release native memory
             iovArray.release();
@@ -125,6 +125,47 @@ public final class EpollEventLoopGroup extends MultithreadEventLoopGroup {
         }
     }
 
+    /**
+     * Returns the number of non-blocking {@code epoll_wait(...)} calls the child event loops did while busy polling.
+     *
+     * @see BusyPollSelectStrategyFactory
+     */
+    public long busyPollSpins() {
+        long spins = 0;
+        for (EventExecutor e: this) {
+            spins += ((EpollEventLoop) e).busyPollSpins();
+        }
+        return spins;
+    }
+
+    /**
+     * Returns how often busy polling found something to do for the child event loops before the spin duration
+     * elapsed.
+     *
+     * @see BusyPollSelectStrategyFactory
+     */
+    public long busyPollHits() {
+        long hits = 0;
+        for (EventExecutor e: this) {
+            hits += ((EpollEventLoop) e).busyPollHits();
+        }
+        return hits;
+    }
+
+    /**
+     * Returns how often the child event loops blocked in {@code epoll_wait(...)} as busy polling found nothing to do
+     * before the spin duration elapsed.
+     *
+     * @see BusyPollSelectStrategyFactory
+     */
+    public long busyPollParks() {
+        long parks = 0;
+        for (EventExecutor e: this) {
+            parks += ((EpollEventLoop) e).busyPollParks();
+        }
+        return parks;
+    }
+
     @Override
     protected EventLoop newChild(Executor executor, Object... args) throws Exception {
         return new EpollEventLoop(this, executor, (Integer) args[0],
@@ -0,0 +1,101 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.Channel;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Routes new connections between {@link EpollServerSocketChannel}s which are bound to the same address via
+ * {@link EpollChannelOption#SO_REUSEPORT}, so that a connection is accepted by the {@link EpollServerSocketChannel}
+ * whose {@link EpollEventLoop} runs on the CPU that processed the incoming packets of the connection. This avoids
+ * cache misses between the softirq processing and the {@link EpollEventLoop}.
+ * <p>
+ * The {@link EpollEventLoop}s must be pinned to a single CPU each, for example via {@link CpuAffinityThreadFactory}.
+ * Connections that come in on a CPU without a matching {@link EpollEventLoop} are distributed by {@code cpu % n}.
+ */
+public final class EpollIncomingCpuSteering {
+
+    // See linux/filter.h
+    private static final int BPF_LD_W_ABS = 0x20;
+    private static final int BPF_JMP_JEQ_K = 0x15;
+    private static final int BPF_ALU_MOD_K = 0x94;
+    private static final int BPF_RET_K = 0x06;
+    private static final int BPF_RET_A = 0x16;
+    private static final int SKF_AD_OFF = -0x1000;
+    private static final int SKF_AD_CPU = 36;
+
+    private EpollIncomingCpuSteering() { }
+
+    /**
+     * Attach a {@code SO_ATTACH_REUSEPORT_CBPF} program to the {@code SO_REUSEPORT} group of the given
+     * {@link EpollServerSocketChannel}s, like returned by
+     * {@link io.netty.bootstrap.ServerBootstrap#bindPerChildLoop(java.net.SocketAddress)}. The {@link List} must
+     * contain all {@link EpollServerSocketChannel}s of the group in the order they were bound, as the kernel selects
+     * the socket by this index. If one of them is closed the program must be attached again to the remaining ones.
+     */
+    public static void attach(List<? extends Channel> serverChannels) throws IOException {
+        if (serverChannels.isEmpty()) {
+            throw new IllegalArgumentException("serverChannels must not be empty");
+        }
+        int[] cpus = new int[serverChannels.size()];
+        for (int i = 0; i < cpus.length; i++) {
+            Channel channel = serverChannels.get(i);
+            if (!(channel instanceof EpollServerSocketChannel) || !channel.isActive()) {
+                throw new IllegalArgumentException("not an active EpollServerSocketChannel: " + channel);
+            }
+            cpus[i] = ((EpollEventLoop) channel.eventLoop()).cpu();
+        }
+        Native.attachReusePortCbpf(((EpollServerSocketChannel) serverChannels.get(0)).fd().intValue(),
+                program(cpus));
+    }
+
+    /**
+     * Returns a classic BPF program which returns the index of the first entry of {@code cpus} that equals the CPU
+     * the packet is processed on, and {@code cpu % cpus.length} if there is none.
+     */
+    static int[] program(int[] cpus) {
+        int mapped = 0;
+        for (int cpu: cpus) {
+            if (cpu >= 0) {
+                mapped++;
+            }
+        }
+        int[] program = new int[(3 + mapped * 2) * 4];
+        int i = 0;
+        i = instruction(program, i, BPF_LD_W_ABS, 0, 0, SKF_AD_OFF + SKF_AD_CPU);
+        for (int index = 0; index < cpus.length; index++) {
+            if (cpus[index] >= 0) {
+                // If the CPU matches fall through to the return, otherwise skip it.
+                i = instruction(program, i, BPF_JMP_JEQ_K, 0, 1, cpus[index]);
+                i = instruction(program, i, BPF_RET_K, 0, 0, index);
+            }
+        }
+        i = instruction(program, i, BPF_ALU_MOD_K, 0, 0, cpus.length);
+        instruction(program, i, BPF_RET_A, 0, 0, 0);
+        return program;
+    }
+
+    private static int instruction(int[] program, int i, int code, int jt, int jf, int k) {
+        program[i] = code;
+        program[i + 1] = jt;
+        program[i + 2] = jf;
+        program[i + 3] = k;
+        return i + 4;
+    }
+}
@@ -195,6 +195,8 @@ public final class EpollServerSocketChannelConfig extends EpollServerChannelConf
     /**
      * Set the SO_REUSEPORT option on the underlying Channel. This will allow to bind multiple
      * {@link EpollSocketChannel}s to the same port and so accept connections with multiple threads.
+     * {@link io.netty.bootstrap.ServerBootstrap#bindPerChildLoop(java.net.SocketAddress)} uses this to bind one
+     * {@link EpollServerSocketChannel} per {@link EpollEventLoop}.
      *
      * Be aware this method needs be called before {@link EpollSocketChannel#bind(java.net.SocketAddress)} to have
      * any affect.
@@ -15,6 +15,7 @@
  */
 package io.netty.channel.epoll;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.Channel;
 import io.netty.channel.ChannelException;
 import io.netty.channel.socket.ServerSocketChannel;
@@ -151,6 +152,12 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         return (ServerSocketChannel) super.parent();
     }
 
+    @Override
+    int zeroCopyThreshold() {
+        EpollSocketChannelConfig config = config();
+        return config.isZeroCopy() ? config.getZeroCopyThreshold() : -1;
+    }
+
     @Override
     protected AbstractEpollUnsafe newUnsafe() {
         return new EpollSocketChannelUnsafe();
@@ -204,7 +211,39 @@ public final class EpollSocketChannel extends AbstractEpollStreamChannel impleme
         return connected;
     }
 
+    @Override
+    boolean doConnect0(SocketAddress remoteAddress) throws Exception {
+        if (config.isTcpFastOpenConnect()) {
+            // Only what was flushed before the connect may be sent with the SYN.
+            Object msg = unsafe().outboundBuffer().current();
+            if (msg instanceof ByteBuf && ((ByteBuf) msg).hasMemoryAddress()) {
+                ByteBuf data = (ByteBuf) msg;
+                InetSocketAddress remoteAddr = (InetSocketAddress) remoteAddress;
+                int written = Native.sendToFastOpen(fd().intValue(), data.memoryAddress(), data.readerIndex(),
+                        data.writerIndex(), remoteAddr.getAddress(), remoteAddr.getPort());
+                if (written >= 0) {
+                    if (written > 0) {
+                        outbound.removeBytes(written);
+                    }
+                    // The connect is in progress now, whatever is left is written once it is established.
+                    return false;
+                }
+                // TCP Fast Open is not usable so fall back to a normal connect.
+            }
+        }
+        return super.doConnect0(remoteAddress);
+    }
+
     private final class EpollSocketChannelUnsafe extends EpollStreamUnsafe {
+        @Override
+        protected void flush0() {
+            if (!isActive() && isOpen() && config.isTcpFastOpenConnect()) {
+                // Keep what is flushed before the connect, so it can be sent with the SYN.
+                return;
+            }
+            super.flush0();
+        }
+
         @Override
         protected Executor prepareToClose() {
             try {
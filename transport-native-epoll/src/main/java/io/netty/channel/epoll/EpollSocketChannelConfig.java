@@ -22,6 +22,7 @@ import io.netty.channel.MessageSizeEstimator;
 import io.netty.channel.RecvByteBufAllocator;
 import io.netty.channel.WriteBufferWaterMark;
 import io.netty.channel.socket.SocketChannelConfig;
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 
 import java.io.IOException;
@@ -32,8 +33,14 @@ import static io.netty.channel.ChannelOption.*;
 
 public final class EpollSocketChannelConfig extends EpollChannelConfig implements SocketChannelConfig {
     private static final long MAX_UINT32_T = 0xFFFFFFFFL;
+    // MSG_ZEROCOPY has a setup cost (page pinning and the completion notification) which only pays off for
+    // bigger writes, see https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html
+    private static final int DEFAULT_ZEROCOPY_THRESHOLD = 10 * 1024;
     private final EpollSocketChannel channel;
     private volatile boolean allowHalfClosure;
+    private volatile boolean zeroCopy;
+    private volatile int zeroCopyThreshold = DEFAULT_ZEROCOPY_THRESHOLD;
+    private volatile boolean tcpFastOpenConnect;
 
     /**
      * Creates a new instance.
@@ -54,7 +61,9 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
                 SO_RCVBUF, SO_SNDBUF, TCP_NODELAY, SO_KEEPALIVE, SO_REUSEADDR, SO_LINGER, IP_TOS,
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_NOTSENT_LOWAT,
                 EpollChannelOption.TCP_KEEPCNT, EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
-                EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK);
+                EpollChannelOption.TCP_MD5SIG, EpollChannelOption.TCP_QUICKACK, EpollChannelOption.SO_ZEROCOPY,
+                EpollChannelOption.ZEROCOPY_THRESHOLD, EpollChannelOption.SO_BUSY_POLL,
+                EpollChannelOption.TCP_FASTOPEN_CONNECT, EpollChannelOption.SO_INCOMING_CPU);
     }
 
     @SuppressWarnings("unchecked")
@@ -105,6 +114,21 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         if (option == EpollChannelOption.TCP_QUICKACK) {
             return (T) Boolean.valueOf(isTcpQuickAck());
         }
+        if (option == EpollChannelOption.SO_ZEROCOPY) {
+            return (T) Boolean.valueOf(isZeroCopy());
+        }
+        if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            return (T) Integer.valueOf(getZeroCopyThreshold());
+        }
+        if (option == EpollChannelOption.SO_BUSY_POLL) {
+            return (T) Integer.valueOf(getBusyPoll());
+        }
+        if (option == EpollChannelOption.SO_INCOMING_CPU) {
+            return (T) Integer.valueOf(getIncomingCpu());
+        }
+        if (option == EpollChannelOption.TCP_FASTOPEN_CONNECT) {
+            return (T) Boolean.valueOf(isTcpFastOpenConnect());
+        }
         return super.getOption(option);
     }
 
@@ -146,6 +170,14 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
             setTcpMd5Sig(m);
         } else if (option == EpollChannelOption.TCP_QUICKACK) {
             setTcpQuickAck((Boolean) value);
+        } else if (option == EpollChannelOption.SO_ZEROCOPY) {
+            setZeroCopy((Boolean) value);
+        } else if (option == EpollChannelOption.ZEROCOPY_THRESHOLD) {
+            setZeroCopyThreshold((Integer) value);
+        } else if (option == EpollChannelOption.SO_BUSY_POLL) {
+            setBusyPoll((Integer) value);
+        } else if (option == EpollChannelOption.TCP_FASTOPEN_CONNECT) {
+            setTcpFastOpenConnect((Boolean) value);
         } else {
             return super.setOption(option, value);
         }
@@ -474,6 +506,102 @@ public final class EpollSocketChannelConfig extends EpollChannelConfig implement
         }
     }
 
+    /**
+     * Enable / disable {@code SO_ZEROCOPY}. If enabled direct buffers with at least
+     * {@link #getZeroCopyThreshold()} readable bytes are written with {@code MSG_ZEROCOPY}, so the kernel sends
+     * the memory of the buffer directly instead of copying it. Such a buffer is only released, and its write
+     * {@link io.netty.channel.ChannelPromise} only notified, once the kernel signaled that it is done with it. Until
+     * then it still counts to the pending bytes of the channel and so to its writability. See
+     * <a href="https://www.kernel.org/doc/html/latest/networking/msg_zerocopy.html">MSG_ZEROCOPY</a> for more details.
+     */
+    public EpollSocketChannelConfig setZeroCopy(boolean zeroCopy) {
+        try {
+            Native.setZeroCopy(channel.fd().intValue(), zeroCopy ? 1 : 0);
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+        this.zeroCopy = zeroCopy;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if {@code SO_ZEROCOPY} is enabled, {@code false} otherwise.
+     */
+    public boolean isZeroCopy() {
+        return zeroCopy;
+    }
+
+    /**
+     * Set the minimum number of readable bytes a buffer must have to be written with {@code MSG_ZEROCOPY} if
+     * {@link #setZeroCopy(boolean)} is enabled. Smaller buffers are copied as usual.
+     */
+    public EpollSocketChannelConfig setZeroCopyThreshold(int zeroCopyThreshold) {
+        this.zeroCopyThreshold = ObjectUtil.checkPositive(zeroCopyThreshold, "zeroCopyThreshold");
+        return this;
+    }
+
+    /**
+     * Returns the minimum number of readable bytes a buffer must have to be written with {@code MSG_ZEROCOPY}.
+     */
+    public int getZeroCopyThreshold() {
+        return zeroCopyThreshold;
+    }
+
+    /**
+     * Enable / disable client side <a href="https://tools.ietf.org/html/rfc7413">TCP Fast Open</a>. If enabled the
+     * data which was flushed before the channel is connected is kept instead of failed, and sent with the SYN if the
+     * kernel has a TCP Fast Open cookie for the peer. If it has none yet, or the peer or the kernel does not support
+     * TCP Fast Open, the data is written once the connection is established. Data which was written, but not flushed,
+     * is not sent before it is flushed.
+     */
+    public EpollSocketChannelConfig setTcpFastOpenConnect(boolean tcpFastOpenConnect) {
+        this.tcpFastOpenConnect = tcpFastOpenConnect;
+        return this;
+    }
+
+    /**
+     * Returns {@code true} if client side TCP Fast Open is enabled, {@code false} otherwise.
+     */
+    public boolean isTcpFastOpenConnect() {
+        return tcpFastOpenConnect;
+    }
+
+    /**
+     * Set the {@code SO_BUSY_POLL} option on the socket, which lets the kernel busy poll the device queue for up to the
+     * given number of microseconds when there is no data to read. See {@code man 7 socket} for more details.
+     */
+    public EpollSocketChannelConfig setBusyPoll(int microseconds) {
+        try {
+            Native.setBusyPoll(channel.fd().intValue(), microseconds);
+            return this;
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Get the {@code SO_BUSY_POLL} option on the socket. See {@code man 7 socket} for more details.
+     */
+    public int getBusyPoll() {
+        try {
+            return Native.getBusyPoll(channel.fd().intValue());
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    /**
+     * Get the {@code SO_INCOMING_CPU} option on the socket, which is the CPU on which the packets of the connection
+     * were processed last or {@code -1} if not known. See {@code man 7 socket} for more details.
+     */
+    public int getIncomingCpu() {
+        try {
+            return Native.getIncomingCpu(channel.fd().intValue());
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
     @Override
     public boolean isAllowHalfClosure() {
         return allowHalfClosure;
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.EventLoop;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
+
+import java.io.IOException;
+
+import static io.netty.channel.unix.FileDescriptor.pipe;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Relays all data between two {@link AbstractEpollStreamChannel}s in both directions via {@code splice(2)}, so the
+ * data never needs to be copied into user space. This is what a TCP proxy usually does once the connection to the
+ * backend is established.
+ * <p>
+ * Each direction uses its own pipe. Reading from a {@link AbstractEpollStreamChannel} is paused while the other
+ * {@link AbstractEpollStreamChannel} can not accept more data, so at most a pipe worth of data is buffered per
+ * direction. Both {@link EpollMode}s are supported, as the relay always reads until the socket is drained.
+ * <p>
+ * Once the relay is started it owns the reading of both {@link AbstractEpollStreamChannel}s, so no
+ * {@link io.netty.channel.ChannelHandler} will see inbound data anymore and nothing must be written to them. If the
+ * remote peer of one {@link AbstractEpollStreamChannel} shuts down its output, the output of the other one is shut
+ * down once all data was relayed. When both directions are done, or one of the {@link AbstractEpollStreamChannel}s
+ * is closed or fails, both are closed and the {@link Future} returned by {@link #start()} is notified.
+ */
+public final class EpollSpliceRelay {
+
+    // The default capacity of a pipe.
+    private static final int MAX_SPLICE_LEN = 65536;
+
+    private final AbstractEpollStreamChannel first;
+    private final AbstractEpollStreamChannel second;
+    private final Direction firstToSecond;
+    private final Direction secondToFirst;
+    private final Promise<Void> terminationFuture;
+    private boolean started;
+    private boolean closed;
+
+    /**
+     * Create a new instance which relays between the given {@link AbstractEpollStreamChannel}s, which must be
+     * registered to the same {@link EventLoop}.
+     */
+    public EpollSpliceRelay(AbstractEpollStreamChannel first, AbstractEpollStreamChannel second) {
+        this.first = checkNotNull(first, "first");
+        this.second = checkNotNull(second, "second");
+        if (first == second) {
+            throw new IllegalArgumentException("first and second must not be the same channel");
+        }
+        if (!first.isRegistered() || first.eventLoop() != second.eventLoop()) {
+            throw new IllegalArgumentException("first and second must be registered to the same EventLoop");
+        }
+        firstToSecond = new Direction(first, second);
+        secondToFirst = new Direction(second, first);
+        terminationFuture = first.eventLoop().newPromise();
+    }
+
+    /**
+     * Start relaying. The returned {@link Future} is notified once the relay is done and both
+     * {@link AbstractEpollStreamChannel}s are closed. It fails if an error happened while relaying.
+     */
+    public Future<Void> start() {
+        EventLoop loop = first.eventLoop();
+        if (loop.inEventLoop()) {
+            start0();
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    start0();
+                }
+            });
+        }
+        return terminationFuture;
+    }
+
+    /**
+     * Returns the {@link Future} which is notified once the relay is done.
+     */
+    public Future<Void> terminationFuture() {
+        return terminationFuture;
+    }
+
+    /**
+     * Returns the number of bytes which were relayed from the first to the second
+     * {@link AbstractEpollStreamChannel}.
+     */
+    public long firstToSecondBytes() {
+        return firstToSecond.relayedBytes;
+    }
+
+    /**
+     * Returns the number of bytes which were relayed from the second to the first
+     * {@link AbstractEpollStreamChannel}.
+     */
+    public long secondToFirstBytes() {
+        return secondToFirst.relayedBytes;
+    }
+
+    private void start0() {
+        if (started) {
+            throw new IllegalStateException("relay was started already");
+        }
+        started = true;
+        // Leave the channels alone in these cases, as they are not ours.
+        if (first.spliceRelay != null || second.spliceRelay != null) {
+            terminationFuture.tryFailure(new IllegalStateException("channel is relayed already"));
+            return;
+        }
+        if (!first.isActive() || !second.isActive()) {
+            terminationFuture.tryFailure(new IllegalStateException("channels must be active"));
+            return;
+        }
+        ChannelFutureListener closeListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                // One of the channels was closed, which also ends the relay.
+                close();
+            }
+        };
+        first.closeFuture().addListener(closeListener);
+        second.closeFuture().addListener(closeListener);
+        try {
+            firstToSecond.open();
+            secondToFirst.open();
+        } catch (Throwable cause) {
+            fail(cause);
+            return;
+        }
+        first.spliceRelay = this;
+        second.spliceRelay = this;
+
+        // There may be data which arrived before the relay was started, which would not trigger another edge.
+        firstToSecond.spliceIn();
+        secondToFirst.spliceIn();
+    }
+
+    /**
+     * Called once {@code ch} is readable.
+     */
+    void epollInReady(AbstractEpollStreamChannel ch) {
+        direction(ch, true).spliceIn();
+    }
+
+    /**
+     * Called once {@code ch} is writable.
+     */
+    void epollOutReady(AbstractEpollStreamChannel ch) {
+        direction(ch, false).spliceOut();
+    }
+
+    /**
+     * Called once the remote peer of {@code ch} shut down its output.
+     */
+    void inputShutdown(AbstractEpollStreamChannel ch) {
+        Direction direction = direction(ch, true);
+        direction.inputShutdown = true;
+        direction.spliceIn();
+    }
+
+    private Direction direction(AbstractEpollStreamChannel ch, boolean source) {
+        return (ch == first) == source ? firstToSecond : secondToFirst;
+    }
+
+    private void directionDone() {
+        if (firstToSecond.done && secondToFirst.done) {
+            close();
+        }
+    }
+
+    private void fail(Throwable cause) {
+        terminationFuture.tryFailure(cause);
+        close();
+    }
+
+    private void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        firstToSecond.close();
+        secondToFirst.close();
+        if (first.spliceRelay == this) {
+            first.spliceRelay = null;
+        }
+        if (second.spliceRelay == this) {
+            second.spliceRelay = null;
+        }
+        first.unsafe().close(first.unsafe().voidPromise());
+        second.unsafe().close(second.unsafe().voidPromise());
+        terminationFuture.trySuccess(null);
+    }
+
+    private final class Direction {
+        private final AbstractEpollStreamChannel src;
+        private final AbstractEpollStreamChannel dst;
+        private FileDescriptor pipeIn;
+        private FileDescriptor pipeOut;
+        // The number of bytes which are in the pipe and were not spliced to dst yet.
+        private int pending;
+        // Set while dst can not accept more data, in which case we stop reading from src.
+        private boolean paused;
+        boolean inputShutdown;
+        boolean done;
+        volatile long relayedBytes;
+
+        Direction(AbstractEpollStreamChannel src, AbstractEpollStreamChannel dst) {
+            this.src = src;
+            this.dst = dst;
+        }
+
+        void open() throws IOException {
+            FileDescriptor[] pipe = pipe();
+            pipeIn = pipe[0];
+            pipeOut = pipe[1];
+            src.setFlag(Native.EPOLLIN);
+        }
+
+        void spliceIn() {
+            if (done || pipeIn == null) {
+                return;
+            }
+            try {
+                if (paused) {
+                    // We may be woken up because of EPOLLERR, which would be reported again and again.
+                    checkSoError(src);
+                    return;
+                }
+                for (;;) {
+                    int splicedIn = Native.splice(src.fd().intValue(), -1, pipeOut.intValue(), -1, MAX_SPLICE_LEN);
+                    pending += splicedIn;
+                    int splicedOut = spliceOut0();
+                    if (splicedIn == 0 && splicedOut == 0) {
+                        break;
+                    }
+                }
+                if (pending > 0) {
+                    // dst is full, so stop reading until it is writable again.
+                    paused = true;
+                    src.clearFlag(Native.EPOLLIN);
+                    dst.setFlag(Native.EPOLLOUT);
+                } else if (inputShutdown) {
+                    // src is drained and the remote peer shut down its output, so we are done.
+                    done = true;
+                    src.clearFlag(Native.EPOLLIN);
+                    dst.fd().shutdown(false, true);
+                    directionDone();
+                }
+            } catch (Throwable cause) {
+                fail(cause);
+            }
+        }
+
+        void spliceOut() {
+            if (done || pipeIn == null) {
+                return;
+            }
+            try {
+                if (!paused) {
+                    checkSoError(dst);
+                    return;
+                }
+                while (pending > 0 && spliceOut0() > 0) {
+                    continue;
+                }
+                if (pending == 0) {
+                    paused = false;
+                    dst.clearFlag(Native.EPOLLOUT);
+                    src.setFlag(Native.EPOLLIN);
+                    // Edge-triggered mode will not notify us about data that arrived while paused.
+                    spliceIn();
+                }
+            } catch (Throwable cause) {
+                fail(cause);
+            }
+        }
+
+        private int spliceOut0() throws IOException {
+            if (pending == 0) {
+                return 0;
+            }
+            int splicedOut = Native.splice(pipeIn.intValue(), -1, dst.fd().intValue(), -1, pending);
+            pending -= splicedOut;
+            relayedBytes += splicedOut;
+            return splicedOut;
+        }
+
+        void close() {
+            done = true;
+            closePipe(pipeIn);
+            closePipe(pipeOut);
+        }
+    }
+
+    private static void checkSoError(AbstractEpollStreamChannel ch) throws IOException {
+        int error = ch.fd().getSoError();
+        if (error != 0) {
+            throw new IOException("relay failed with error " + error + ": " + ch);
+        }
+    }
+
+    private static void closePipe(FileDescriptor fd) {
+        if (fd != null) {
+            try {
+                fd.close();
+            } catch (IOException ignore) {
+                // Nothing we can do about it.
+            }
+        }
+    }
+}
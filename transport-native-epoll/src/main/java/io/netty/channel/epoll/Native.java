@@ -21,6 +21,7 @@ import io.netty.util.internal.NativeLibraryLoader;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.channel.unix.FileDescriptor;
+import io.netty.channel.unix.Limits;
 import io.netty.channel.unix.NativeInetAddress;
 import io.netty.util.internal.ThrowableUtil;
 
@@ -34,14 +35,18 @@ import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epolle
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollin;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollout;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.epollrdhup;
-import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.iovMax;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.errnoENOBUFS;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingMsgZeroCopy;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingRecvmmsg;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingSendmmsg;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingTcpFastopen;
+import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.isSupportingUdpSegment;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.kernelVersion;
-import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.ssizeMax;
 import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.tcpMd5SigMaxKeyLen;
-import static io.netty.channel.epoll.NativeStaticallyReferencedJniMethods.uioMaxIov;
 import static io.netty.channel.unix.Errors.ERRNO_EAGAIN_NEGATIVE;
+import static io.netty.channel.unix.Errors.ERRNO_EBADF_NEGATIVE;
+import static io.netty.channel.unix.Errors.ERRNO_ECONNRESET_NEGATIVE;
+import static io.netty.channel.unix.Errors.ERRNO_EINPROGRESS_NEGATIVE;
 import static io.netty.channel.unix.Errors.ERRNO_EPIPE_NEGATIVE;
 import static io.netty.channel.unix.Errors.ERRNO_EWOULDBLOCK_NEGATIVE;
 import static io.netty.channel.unix.Errors.ioResult;
@@ -72,31 +77,47 @@ public final class Native {
     public static final int EPOLLET = epollet();
     public static final int EPOLLERR = epollerr();
 
-    public static final int IOV_MAX = iovMax();
-    public static final int UIO_MAX_IOV = uioMaxIov();
+    public static final int IOV_MAX = Limits.IOV_MAX;
+    public static final int UIO_MAX_IOV = Limits.UIO_MAX_IOV;
     public static final boolean IS_SUPPORTING_SENDMMSG = isSupportingSendmmsg();
+    public static final boolean IS_SUPPORTING_RECVMMSG = isSupportingRecvmmsg();
+    public static final boolean IS_SUPPORTING_UDP_SEGMENT = isSupportingUdpSegment();
     public static final boolean IS_SUPPORTING_TCP_FASTOPEN = isSupportingTcpFastopen();
-    public static final long SSIZE_MAX = ssizeMax();
+    public static final boolean IS_SUPPORTING_MSG_ZEROCOPY = isSupportingMsgZeroCopy();
+    public static final long SSIZE_MAX = Limits.SSIZE_MAX;
     public static final int TCP_MD5SIG_MAXKEYLEN = tcpMd5SigMaxKeyLen();
     public static final String KERNEL_VERSION = kernelVersion();
 
     private static final NativeIoException SENDFILE_CONNECTION_RESET_EXCEPTION;
     private static final NativeIoException SENDMMSG_CONNECTION_RESET_EXCEPTION;
+    private static final NativeIoException RECVMMSG_CONNECTION_RESET_EXCEPTION;
     private static final NativeIoException SPLICE_CONNECTION_RESET_EXCEPTION;
+    private static final NativeIoException SEND_ZEROCOPY_CONNECTION_RESET_EXCEPTION;
     private static final ClosedChannelException SENDFILE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
             new ClosedChannelException(), Native.class, "sendfile(...)");
     private static final ClosedChannelException SENDMMSG_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
             new ClosedChannelException(), Native.class, "sendmmsg(...)");
+    private static final ClosedChannelException RECVMMSG_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new ClosedChannelException(), Native.class, "recvmmsg(...)");
     private static final ClosedChannelException SPLICE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
             new ClosedChannelException(), Native.class, "splice(...)");
+    private static final ClosedChannelException SEND_ZEROCOPY_CLOSED_CHANNEL_EXCEPTION =
+            ThrowableUtil.unknownStackTrace(new ClosedChannelException(), Native.class, "sendZeroCopy(...)");
+    private static final ClosedChannelException RECV_ZEROCOPY_COMPLETION_CLOSED_CHANNEL_EXCEPTION =
+            ThrowableUtil.unknownStackTrace(new ClosedChannelException(), Native.class, "recvZeroCopyCompletion(...)");
+    private static final int ERRNO_ENOBUFS_NEGATIVE = -errnoENOBUFS();
 
     static {
         SENDFILE_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:sendfile(...)",
                 ERRNO_EPIPE_NEGATIVE);
         SENDMMSG_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:sendmmsg(...)",
                 ERRNO_EPIPE_NEGATIVE);
+        RECVMMSG_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:recvmmsg(...)",
+                ERRNO_ECONNRESET_NEGATIVE);
         SPLICE_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:splice(...)",
                 ERRNO_EPIPE_NEGATIVE);
+        SEND_ZEROCOPY_CONNECTION_RESET_EXCEPTION = newConnectionResetException("syscall:send(...)",
+                ERRNO_EPIPE_NEGATIVE);
     }
 
     public static FileDescriptor newEventFd() {
@@ -107,6 +128,12 @@ public final class Native {
     public static native void eventFdWrite(int fd, long value);
     public static native void eventFdRead(int fd);
 
+    public static FileDescriptor newTimerFd() {
+        return new FileDescriptor(timerFd());
+    }
+
+    private static native int timerFd();
+
     public static FileDescriptor newEpollCreate() {
         return new FileDescriptor(epollCreate());
     }
@@ -122,6 +149,21 @@ public final class Native {
     }
     private static native int epollWait0(int efd, long address, int len, int timeout);
 
+    /**
+     * Arm the {@code timerFd} to expire after {@code timeoutSec} seconds plus {@code timeoutNs} nanoseconds and
+     * block in {@code epoll_wait(...)} until something is ready. If both are {@code 0} the timer is disarmed, if both
+     * are {@code -1} it is left untouched.
+     */
+    public static int epollWait(int efd, EpollEventArray events, int timerFd, int timeoutSec, int timeoutNs)
+            throws IOException {
+        int ready = epollWait0(efd, events.memoryAddress(), events.length(), timerFd, timeoutSec, timeoutNs);
+        if (ready < 0) {
+            throw newIOException("epoll_wait", ready);
+        }
+        return ready;
+    }
+    private static native int epollWait0(int efd, long address, int len, int timerFd, int timeoutSec, int timeoutNs);
+
     public static void epollCtlAdd(int efd, final int fd, final int flags) throws IOException {
         int res = epollCtlAdd0(efd, fd, flags);
         if (res < 0) {
@@ -185,6 +227,84 @@ public final class Native {
     private static native int sendmmsg0(
             int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
 
+    /**
+     * Receive up to {@code len} datagrams into the given {@link NativeDatagramPacketArray.NativeDatagramPacket}s
+     * and return the number of datagrams received, or {@code 0} if there was nothing to read.
+     */
+    public static int recvmmsg(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len) throws IOException {
+        int res = recvmmsg0(fd, msgs, offset, len);
+        if (res >= 0) {
+            return res;
+        }
+        return ioResult("recvmmsg", res, RECVMMSG_CONNECTION_RESET_EXCEPTION, RECVMMSG_CLOSED_CHANNEL_EXCEPTION);
+    }
+
+    private static native int recvmmsg0(
+            int fd, NativeDatagramPacketArray.NativeDatagramPacket[] msgs, int offset, int len);
+
+    /**
+     * Send the bytes between {@code pos} and {@code limit} of the given memory address with {@code MSG_ZEROCOPY}.
+     * Returns the number of bytes written, {@code 0} if the socket is not writable or {@code -1} if the kernel could
+     * not pin the memory ({@code ENOBUFS}) and the bytes should be written without {@code MSG_ZEROCOPY}.
+     */
+    public static int sendZeroCopy(int fd, long address, int pos, int limit) throws IOException {
+        int res = sendZeroCopy0(fd, address, pos, limit);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == ERRNO_ENOBUFS_NEGATIVE) {
+            return -1;
+        }
+        return ioResult("send", res, SEND_ZEROCOPY_CONNECTION_RESET_EXCEPTION,
+                SEND_ZEROCOPY_CLOSED_CHANNEL_EXCEPTION);
+    }
+
+    private static native int sendZeroCopy0(int fd, long address, int pos, int limit);
+
+    /**
+     * Connect the socket via {@code sendto(...)} with {@code MSG_FASTOPEN}, which puts the data between {@code pos}
+     * and {@code limit} into the SYN if the kernel has a TCP Fast Open cookie for the peer. Returns the number of bytes
+     * sent with the SYN, {@code 0} if the connect was started without data, or {@code -1} if the connect was not
+     * started at all (for example because TCP Fast Open is disabled) and {@code connect(...)} must be used instead.
+     */
+    public static int sendToFastOpen(int fd, long memoryAddress, int pos, int limit, InetAddress addr, int port) {
+        NativeInetAddress address = NativeInetAddress.newInstance(addr);
+        int res = sendToFastOpen0(fd, memoryAddress, pos, limit, address.address(), address.scopeId(), port);
+        if (res >= 0) {
+            return res;
+        }
+        if (res == ERRNO_EINPROGRESS_NEGATIVE) {
+            // The connect was started, but without data as there is no cookie for the peer yet.
+            return 0;
+        }
+        return -1;
+    }
+
+    private static native int sendToFastOpen0(
+            int fd, long memoryAddress, int pos, int limit, byte[] address, int scopeId, int port);
+
+    /**
+     * Read the next {@code MSG_ZEROCOPY} completion from the error queue of the socket. The inclusive range of the
+     * completed sends is stored in {@code range[0]} and {@code range[1]}, {@code range[2]} is set to {@code 1} if the
+     * kernel did copy the data after all. Returns {@code false} if there is no completion left to read.
+     */
+    public static boolean recvZeroCopyCompletion(int fd, int[] range) throws IOException {
+        int res = recvZeroCopyCompletion0(fd, range);
+        if (res > 0) {
+            return true;
+        }
+        if (res == ERRNO_EAGAIN_NEGATIVE || res == ERRNO_EWOULDBLOCK_NEGATIVE) {
+            return false;
+        }
+        if (res == ERRNO_EBADF_NEGATIVE) {
+            throw RECV_ZEROCOPY_COMPLETION_CLOSED_CHANNEL_EXCEPTION;
+        }
+        throw newIOException("recvmsg", res);
+    }
+
+    private static native int recvZeroCopyCompletion0(int fd, int[] range);
+
     public static int recvFd(int fd) throws IOException {
         int res = recvFd0(fd);
         if (res > 0) {
@@ -220,6 +340,8 @@ public final class Native {
     // Socket option operations
     public static native int isReuseAddress(int fd) throws IOException;
     public static native int isReusePort(int fd) throws IOException;
+    public static native int getBusyPoll(int fd) throws IOException;
+    public static native int getIncomingCpu(int fd) throws IOException;
     public static native int getTcpNotSentLowAt(int fd) throws IOException;
     public static native int getTrafficClass(int fd) throws IOException;
     public static native int isBroadcast(int fd) throws IOException;
@@ -240,12 +362,52 @@ public final class Native {
     public static native void setTcpKeepCnt(int fd, int probes) throws IOException;
     public static native void setTcpUserTimeout(int fd, int milliseconds)throws IOException;
     public static native void setIpFreeBind(int fd, int freeBind) throws IOException;
+    public static native void setUdpGro(int fd, int gro) throws IOException;
+    public static native void setZeroCopy(int fd, int zeroCopy) throws IOException;
+    public static native void setBusyPoll(int fd, int microseconds) throws IOException;
     public static void tcpInfo(int fd, EpollTcpInfo info) throws IOException {
         tcpInfo0(fd, info.info);
     }
 
     private static native void tcpInfo0(int fd, int[] array) throws IOException;
 
+    /**
+     * Attach the classic BPF {@code program}, given as {@code (code, jt, jf, k)} tuples, as
+     * {@code SO_ATTACH_REUSEPORT_CBPF} to the {@code SO_REUSEPORT} group of the socket.
+     */
+    public static void attachReusePortCbpf(int fd, int[] program) throws IOException {
+        if (program.length == 0 || program.length % 4 != 0) {
+            throw new IllegalArgumentException("program.length: " + program.length + " (expected: > 0 and % 4 == 0)");
+        }
+        attachReusePortCbpf0(fd, program);
+    }
+
+    private static native void attachReusePortCbpf0(int fd, int[] program) throws IOException;
+
+    /**
+     * Pin the calling thread to the given {@code cpu}.
+     */
+    public static void setThreadAffinity(int cpu) throws IOException {
+        if (cpu < 0) {
+            throw new IllegalArgumentException("cpu: " + cpu + " (expected: >= 0)");
+        }
+        int res = setThreadAffinity0(cpu);
+        if (res < 0) {
+            throw newIOException("sched_setaffinity", res);
+        }
+    }
+
+    private static native int setThreadAffinity0(int cpu);
+
+    /**
+     * Returns the CPU the calling thread is pinned to or {@code -1} if it may run on more than one CPU.
+     */
+    public static int threadAffinity() {
+        return Math.max(-1, threadAffinity0());
+    }
+
+    private static native int threadAffinity0();
+
     public static void setTcpMd5Sig(int fd, InetAddress address, byte[] key) throws IOException {
         final NativeInetAddress a = NativeInetAddress.newInstance(address);
         setTcpMd5Sig0(fd, a.address(), a.scopeId(), key);
@@ -19,14 +19,18 @@ import static io.netty.channel.unix.NativeInetAddress.ipv4MappedIpv6Address;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.socket.DatagramPacket;
+import io.netty.channel.unix.IovArray;
 import io.netty.util.concurrent.FastThreadLocal;
 
 import java.net.Inet6Address;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
 
 /**
- * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+
+ * Support <a href="http://linux.die.net/man/2/sendmmsg">sendmmsg(...)</a> on linux with GLIBC 2.14+ and
+ * <a href="http://linux.die.net/man/2/recvmmsg">recvmmsg(...)</a> on linux with GLIBC 2.12+
  */
 final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessageProcessor {
 
@@ -72,7 +76,9 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         }
         NativeDatagramPacket p = packets[count];
         InetSocketAddress recipient = packet.recipient();
-        if (!p.init(content, recipient)) {
+        int segmentSize = packet instanceof SegmentedDatagramPacket ?
+                ((SegmentedDatagramPacket) packet).segmentSize() : 0;
+        if (!p.init(content, recipient, segmentSize)) {
             return false;
         }
 
@@ -80,6 +86,22 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         return true;
     }
 
+    /**
+     * Try to add a {@link NativeDatagramPacket} which will receive a datagram into the region of the given
+     * {@link ByteBuf} which starts at {@code index} and is {@code len} bytes long. Returns {@code true} on success,
+     * {@code false} otherwise.
+     */
+    boolean addWritable(ByteBuf buf, int index, int len) {
+        if (count == packets.length) {
+            return false;
+        }
+        if (!packets[count].init(buf, index, len)) {
+            return false;
+        }
+        count++;
+        return true;
+    }
+
     @Override
     public boolean processMessage(Object msg) throws Exception {
         return msg instanceof DatagramPacket && add((DatagramPacket) msg);
@@ -104,9 +126,18 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
      * {@link ChannelOutboundBuffer}.
      */
     static NativeDatagramPacketArray getInstance(ChannelOutboundBuffer buffer) throws Exception {
+        NativeDatagramPacketArray array = getInstance();
+        buffer.forEachFlushedMessage(array);
+        return array;
+    }
+
+    /**
+     * Returns an empty {@link NativeDatagramPacketArray} which can be filled via
+     * {@link #addWritable(ByteBuf, int, int)}.
+     */
+    static NativeDatagramPacketArray getInstance() {
         NativeDatagramPacketArray array = ARRAY.get();
         array.count = 0;
-        buffer.forEachFlushedMessage(array);
         return array;
     }
 
@@ -128,6 +159,17 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         private int scopeId;
         private int port;
 
+        // The size of the segments if UDP_SEGMENT (GSO) should be used when sending, or the size of the segments
+        // which were coalesced via UDP_GRO when receiving. 0 if the datagram is not segmented.
+        private int segmentSize;
+
+        // Filled by recvmmsg(...) with the address of the sender and the number of bytes received.
+        private final byte[] senderAddr = new byte[16];
+        private int senderAddrLen;
+        private int senderScopeId;
+        private int senderPort;
+        private int received;
+
         private void release() {
             array.release();
         }
@@ -135,7 +177,7 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
         /**
          * Init this instance and return {@code true} if the init was successful.
          */
-        private boolean init(ByteBuf buf, InetSocketAddress recipient) {
+        private boolean init(ByteBuf buf, InetSocketAddress recipient, int segmentSize) {
             array.clear();
             if (!array.add(buf)) {
                 return false;
@@ -153,7 +195,52 @@ final class NativeDatagramPacketArray implements ChannelOutboundBuffer.MessagePr
                 scopeId = 0;
             }
             port = recipient.getPort();
+            this.segmentSize = segmentSize;
             return true;
         }
+
+        /**
+         * Init this instance for receiving into the given region of the {@link ByteBuf} and return {@code true} if
+         * the init was successful.
+         */
+        private boolean init(ByteBuf buf, int index, int len) {
+            array.clear();
+            if (!array.add(buf, index, len)) {
+                return false;
+            }
+            memoryAddress = array.memoryAddress(0);
+            count = array.count();
+            segmentSize = 0;
+            return true;
+        }
+
+        /**
+         * Returns the number of bytes which were received by the last {@code recvmmsg(...)} call.
+         */
+        int received() {
+            return received;
+        }
+
+        /**
+         * Returns the size of the segments which were coalesced into the datagram received by the last
+         * {@code recvmmsg(...)} call, or {@code 0} if it was not coalesced.
+         */
+        int segmentSize() {
+            return segmentSize;
+        }
+
+        /**
+         * Returns the address of the sender of the datagram which was received by the last {@code recvmmsg(...)}
+         * call.
+         */
+        InetSocketAddress sender() throws UnknownHostException {
+            final InetAddress address;
+            if (senderAddrLen == 4) {
+                address = InetAddress.getByAddress(Arrays.copyOf(senderAddr, 4));
+            } else {
+                address = Inet6Address.getByAddress(null, senderAddr.clone(), senderScopeId);
+            }
+            return new InetSocketAddress(address, senderPort);
+        }
     }
 }
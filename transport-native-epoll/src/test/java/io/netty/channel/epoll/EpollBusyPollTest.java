@@ -0,0 +1,165 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.EventLoop;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollBusyPollTest {
+
+    @BeforeClass
+    public static void beforeClass() {
+        Epoll.ensureAvailability();
+    }
+
+    @Test(timeout = 10000)
+    public void testParks() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(1,
+                new BusyPollSelectStrategyFactory(1, TimeUnit.MILLISECONDS));
+        try {
+            EventLoop loop = group.next();
+            Callable<Integer> task = new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return 1;
+                }
+            };
+            // Start the event loop and let it run out of work so it busy polls and parks.
+            assertEquals(Integer.valueOf(1), loop.submit(task).sync().getNow());
+            Thread.sleep(50);
+            assertEquals(Integer.valueOf(1), loop.submit(task).sync().getNow());
+
+            assertTrue(group.busyPollSpins() > 0);
+            assertTrue(group.busyPollParks() > 0);
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testHits() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(1,
+                new BusyPollSelectStrategyFactory(1, TimeUnit.HOURS));
+        try {
+            EventLoop loop = group.next();
+            // Ensure the event loop was started and so spins now.
+            loop.submit(new Runnable() {
+                @Override
+                public void run() {
+                    // NOOP
+                }
+            }).sync();
+            Thread.sleep(10);
+
+            // Scheduled tasks must still be executed in time, no matter how long the event loop would spin.
+            final CountDownLatch latch = new CountDownLatch(1);
+            loop.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    latch.countDown();
+                }
+            }, 20, TimeUnit.MILLISECONDS);
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertTrue(group.busyPollHits() > 0);
+        } finally {
+            // The shutdown must not get lost while the event loop spins.
+            Future<?> future = group.shutdownGracefully(0, 0, TimeUnit.SECONDS);
+            assertTrue(future.await(5, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testEcho() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(2,
+                new BusyPollSelectStrategyFactory(100, TimeUnit.MICROSECONDS));
+        Channel server = null;
+        Channel client = null;
+        try {
+            server = new ServerBootstrap().group(group)
+                    .channel(EpollServerSocketChannel.class)
+                    .childHandler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ctx.writeAndFlush(msg);
+                        }
+                    })
+                    .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+
+            final CountDownLatch latch = new CountDownLatch(100);
+            client = new Bootstrap().group(group)
+                    .channel(EpollSocketChannel.class)
+                    .handler(new ChannelInboundHandlerAdapter() {
+                        @Override
+                        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                            ByteBuf buf = (ByteBuf) msg;
+                            for (int i = 0; i < buf.readableBytes(); i++) {
+                                latch.countDown();
+                            }
+                            buf.release();
+                        }
+                    })
+                    .connect(server.localAddress()).sync().channel();
+            for (int i = 0; i < 100; i++) {
+                client.writeAndFlush(Unpooled.wrappedBuffer(new byte[] { (byte) i })).sync();
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } finally {
+            if (client != null) {
+                client.close().sync();
+            }
+            if (server != null) {
+                server.close().sync();
+            }
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test
+    public void testSoBusyPoll() throws Exception {
+        EpollSocketChannel ch = new EpollSocketChannel();
+        try {
+            try {
+                ch.config().setOption(EpollChannelOption.SO_BUSY_POLL, 50);
+            } catch (ChannelException e) {
+                // Increasing SO_BUSY_POLL requires CAP_NET_ADMIN.
+                Assume.assumeNoException(e);
+            }
+            assertEquals(50, (int) ch.config().getOption(EpollChannelOption.SO_BUSY_POLL));
+        } finally {
+            ch.fd().close();
+        }
+    }
+}
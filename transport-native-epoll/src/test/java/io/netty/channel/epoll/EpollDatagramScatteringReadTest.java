@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.testsuite.transport.TestsuitePermutation;
+import io.netty.testsuite.transport.socket.AbstractDatagramTest;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+public class EpollDatagramScatteringReadTest extends AbstractDatagramTest {
+
+    private static final int PACKET_SIZE = 64;
+    private static final int PACKETS = 32;
+
+    private volatile Channel cbChannel;
+
+    @Override
+    protected List<TestsuitePermutation.BootstrapComboFactory<Bootstrap, Bootstrap>> newFactories() {
+        return EpollSocketTestPermutation.INSTANCE.epollOnlyDatagram();
+    }
+
+    @Test
+    public void testScatteringRead() throws Throwable {
+        run();
+    }
+
+    public void testScatteringRead(Bootstrap sb, Bootstrap cb) throws Throwable {
+        final CountDownLatch latch = new CountDownLatch(PACKETS);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final boolean[] seen = new boolean[PACKETS];
+
+        sb.option(EpollChannelOption.MAX_DATAGRAM_PAYLOAD_SIZE, PACKET_SIZE);
+        sb.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(PACKET_SIZE * 8));
+        sb.handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                try {
+                    ByteBuf content = msg.content();
+                    if (Native.IS_SUPPORTING_RECVMMSG) {
+                        // The datagrams are slices of the buffer which was used for recvmmsg(...).
+                        assertNotNull(content.unwrap());
+                    }
+                    assertEquals(PACKET_SIZE - 1, content.readableBytes());
+                    int index = content.getByte(0);
+                    for (int i = 1; i < PACKET_SIZE - 1; i++) {
+                        assertEquals((byte) index, content.getByte(i));
+                    }
+                    assertTrue(msg.sender().getAddress().isLoopbackAddress());
+                    assertEquals(((InetSocketAddress) cbChannel.localAddress()).getPort(), msg.sender().getPort());
+                    seen[index] = true;
+                } catch (Throwable cause) {
+                    error.compareAndSet(null, cause);
+                }
+                latch.countDown();
+            }
+        });
+
+        Channel sc = sb.bind().sync().channel();
+        Channel cc = cb.handler(new SimpleChannelInboundHandler<Object>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+                // NOOP
+            }
+        }).bind().sync().channel();
+        cbChannel = cc;
+        try {
+            for (int i = 0; i < PACKETS; i++) {
+                // Send datagrams which are smaller than PACKET_SIZE to ensure the slices are not just full buffers.
+                ByteBuf buf = Unpooled.directBuffer(PACKET_SIZE - 1);
+                for (int j = 0; j < PACKET_SIZE - 1; j++) {
+                    buf.writeByte(i);
+                }
+                cc.write(new DatagramPacket(buf, addr));
+            }
+            cc.flush();
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            Throwable cause = error.get();
+            if (cause != null) {
+                throw cause;
+            }
+            for (int i = 0; i < PACKETS; i++) {
+                assertTrue("datagram " + i + " not received", seen[i]);
+            }
+        } finally {
+            cc.close().sync();
+            sc.close().sync();
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.EventLoop;
+import io.netty.util.concurrent.ScheduledFuture;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EpollEventLoopTest {
+    private static EpollEventLoopGroup group;
+
+    @BeforeClass
+    public static void beforeClass() {
+        group = new EpollEventLoopGroup(1);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 5000)
+    public void testScheduleSubMillisecond() throws Exception {
+        final EventLoop loop = group.next();
+        final int count = 100;
+        final long delayNanos = TimeUnit.MICROSECONDS.toNanos(200);
+        final CountDownLatch latch = new CountDownLatch(count);
+        final AtomicLong early = new AtomicLong();
+        loop.execute(new Runnable() {
+            @Override
+            public void run() {
+                scheduleChained(loop, delayNanos, latch, early);
+            }
+        });
+        assertTrue(latch.await(4, TimeUnit.SECONDS));
+        assertEquals(0, early.get());
+    }
+
+    // Chain the tasks so the event loop has to block in between.
+    private static void scheduleChained(final EventLoop loop, final long delayNanos,
+                                        final CountDownLatch latch, final AtomicLong early) {
+        final long scheduled = System.nanoTime();
+        loop.schedule(new Runnable() {
+            @Override
+            public void run() {
+                if (System.nanoTime() - scheduled < delayNanos) {
+                    early.incrementAndGet();
+                }
+                latch.countDown();
+                if (latch.getCount() > 0) {
+                    scheduleChained(loop, delayNanos, latch, early);
+                }
+            }
+        }, delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Test(timeout = 5000)
+    public void testScheduleEarlierTask() throws Exception {
+        EventLoop loop = group.next();
+        // Arm the timer for a far away deadline first.
+        ScheduledFuture<?> future = loop.schedule(new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        }, 1, TimeUnit.HOURS);
+        Thread.sleep(10);
+
+        final CountDownLatch latch = new CountDownLatch(1);
+        loop.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 10, TimeUnit.MILLISECONDS);
+        assertTrue(latch.await(1, TimeUnit.SECONDS));
+        assertTrue(future.cancel(false));
+    }
+
+    @Test(timeout = 5000)
+    public void testCancelScheduledTask() throws Exception {
+        EventLoop loop = group.next();
+        final CountDownLatch latch = new CountDownLatch(1);
+        ScheduledFuture<?> future = loop.schedule(new Runnable() {
+            @Override
+            public void run() {
+                latch.countDown();
+            }
+        }, 20, TimeUnit.MILLISECONDS);
+        assertTrue(future.cancel(false));
+        assertFalse(latch.await(100, TimeUnit.MILLISECONDS));
+
+        // The event loop blocks without a timeout now but must still be woken up for new tasks.
+        loop.submit(new Runnable() {
+            @Override
+            public void run() {
+                // NOOP
+            }
+        }).sync();
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.util.NetUtil;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollIncomingCpuSteeringTest {
+    // CPU 0 is the only one we can expect to exist.
+    private static final int CPU = 0;
+
+    @Test(timeout = 10000)
+    public void testThreadAffinity() throws Exception {
+        EpollEventLoopGroup group = new EpollEventLoopGroup(1, new CpuAffinityThreadFactory("affinity", CPU));
+        try {
+            EpollEventLoop loop = (EpollEventLoop) group.next();
+            int cpu = loop.submit(new Callable<Integer>() {
+                @Override
+                public Integer call() {
+                    return Native.threadAffinity();
+                }
+            }).sync().getNow();
+            assertEquals(CPU, cpu);
+            assertEquals(CPU, loop.cpu());
+        } finally {
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Test
+    public void testProgram() {
+        assertEquals((3 + 2 * 2) * 4, EpollIncomingCpuSteering.program(new int[] { 3, -1, 5 }).length);
+        assertEquals(3 * 4, EpollIncomingCpuSteering.program(new int[] { -1, -1 }).length);
+    }
+
+    @Test(timeout = 10000)
+    public void testSteering() throws Exception {
+        final int loops = 2;
+        EpollEventLoopGroup group = new EpollEventLoopGroup(loops, new CpuAffinityThreadFactory("affinity", CPU));
+        EpollEventLoopGroup clientGroup = new EpollEventLoopGroup(1);
+        List<Channel> servers = null;
+        List<Channel> clients = new ArrayList<Channel>();
+        try {
+            final int connections = 32;
+            CountDownLatch latch = new CountDownLatch(connections);
+            AtomicInteger misrouted = new AtomicInteger();
+            SteeringCheckHandler handler = new SteeringCheckHandler(latch, misrouted);
+            servers = new ServerBootstrap().group(group)
+                    .channel(EpollServerSocketChannel.class)
+                    .option(EpollChannelOption.SO_REUSEPORT, true)
+                    .childHandler(handler)
+                    .bindPerChildLoop(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().getNow();
+            for (Channel server: servers) {
+                Assume.assumeTrue(((EpollEventLoop) server.eventLoop()).cpu() == CPU);
+            }
+            EpollIncomingCpuSteering.attach(servers);
+            // All event loops are pinned to the same CPU, so the first listener must accept all connections.
+            handler.expectedServer = servers.get(0);
+
+            Bootstrap cb = new Bootstrap().group(clientGroup)
+                    .channel(EpollSocketChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            // NOOP
+                        }
+                    });
+            for (int i = 0; i < connections; i++) {
+                clients.add(cb.connect(servers.get(0).localAddress()).sync().channel());
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, misrouted.get());
+        } finally {
+            for (Channel client: clients) {
+                client.close().sync();
+            }
+            if (servers != null) {
+                for (Channel server: servers) {
+                    server.close().sync();
+                }
+            }
+            clientGroup.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+            group.shutdownGracefully(0, 0, TimeUnit.SECONDS).sync();
+        }
+    }
+
+    @Sharable
+    private static final class SteeringCheckHandler extends ChannelInboundHandlerAdapter {
+        private final CountDownLatch latch;
+        private final AtomicInteger misrouted;
+        volatile Channel expectedServer;
+
+        SteeringCheckHandler(CountDownLatch latch, AtomicInteger misrouted) {
+            this.latch = latch;
+            this.misrouted = misrouted;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            int incomingCpu = ((EpollSocketChannel) ctx.channel()).config().getIncomingCpu();
+            if (incomingCpu == CPU && ctx.channel().parent() != expectedServer) {
+                misrouted.incrementAndGet();
+            }
+            latch.countDown();
+            ctx.fireChannelActive();
+        }
+    }
+}
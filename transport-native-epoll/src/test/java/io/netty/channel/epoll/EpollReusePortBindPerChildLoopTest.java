@@ -0,0 +1,136 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.EventLoop;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.Future;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EpollReusePortBindPerChildLoopTest {
+    private static final int LOOPS = 4;
+    private static EpollEventLoopGroup group;
+
+    @BeforeClass
+    public static void beforeClass() {
+        group = new EpollEventLoopGroup(LOOPS);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testAcceptOnServerLoop() throws Exception {
+        final int clients = 64;
+        final CountDownLatch latch = new CountDownLatch(clients);
+        final AtomicInteger mismatches = new AtomicInteger();
+        Future<List<Channel>> future = new ServerBootstrap().group(group)
+                .channel(EpollServerSocketChannel.class)
+                .option(EpollChannelOption.SO_REUSEPORT, true)
+                .childHandler(new AcceptedHandler(latch, mismatches))
+                .bindPerChildLoop(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync();
+        List<Channel> servers = future.getNow();
+        List<Channel> clientChannels = new ArrayList<Channel>(clients);
+        try {
+            assertEquals(LOOPS, servers.size());
+            Set<EventLoop> loops = new HashSet<EventLoop>();
+            int port = ((InetSocketAddress) servers.get(0).localAddress()).getPort();
+            for (Channel server: servers) {
+                assertTrue(server.isActive());
+                assertTrue(loops.add(server.eventLoop()));
+                assertEquals(port, ((InetSocketAddress) server.localAddress()).getPort());
+            }
+
+            Bootstrap cb = new Bootstrap().group(group)
+                    .channel(EpollSocketChannel.class)
+                    .handler(new ChannelInitializer<Channel>() {
+                        @Override
+                        protected void initChannel(Channel ch) {
+                            // NOOP
+                        }
+                    });
+            for (int i = 0; i < clients; i++) {
+                clientChannels.add(cb.connect(servers.get(0).localAddress()).sync().channel());
+            }
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            assertEquals(0, mismatches.get());
+        } finally {
+            for (Channel ch: clientChannels) {
+                ch.close().sync();
+            }
+            for (Channel server: servers) {
+                server.close().sync();
+            }
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testBindFailure() throws Exception {
+        // Without SO_REUSEPORT only the first ServerChannel can be bound.
+        Future<List<Channel>> future = new ServerBootstrap().group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter())
+                .bindPerChildLoop(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).await();
+        assertFalse(future.isSuccess());
+        assertTrue(future.cause() instanceof IOException);
+    }
+
+    @Sharable
+    private static final class AcceptedHandler extends ChannelInboundHandlerAdapter {
+        private final CountDownLatch latch;
+        private final AtomicInteger mismatches;
+
+        AcceptedHandler(CountDownLatch latch, AtomicInteger mismatches) {
+            this.latch = latch;
+            this.mismatches = mismatches;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            // The accepted channel must be served by the same loop that accepted it.
+            if (ctx.channel().eventLoop() != ctx.channel().parent().eventLoop()) {
+                mismatches.incrementAndGet();
+            }
+            latch.countDown();
+            ctx.fireChannelActive();
+        }
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.FixedRecvByteBufAllocator;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.testsuite.transport.TestsuitePermutation;
+import io.netty.testsuite.transport.socket.AbstractDatagramTest;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollSegmentedDatagramPacketTest extends AbstractDatagramTest {
+
+    private static final int SEGMENT_SIZE = 100;
+    private static final int SEGMENTS = 10;
+    // Coalesced these are bigger than the 2048 bytes of the default RecvByteBufAllocator.
+    private static final int MANY_SEGMENTS = 40;
+    // The last segment is smaller than SEGMENT_SIZE.
+    private static final int LAST_SEGMENT_SIZE = 42;
+
+    @Override
+    protected List<TestsuitePermutation.BootstrapComboFactory<Bootstrap, Bootstrap>> newFactories() {
+        return EpollSocketTestPermutation.INSTANCE.epollOnlyDatagram();
+    }
+
+    @Test
+    public void testSendSegmented() throws Throwable {
+        run();
+    }
+
+    public void testSendSegmented(Bootstrap sb, Bootstrap cb) throws Throwable {
+        testSegmented(sb, cb, false, SEGMENTS);
+    }
+
+    @Test
+    public void testSendSegmentedReceiveGro() throws Throwable {
+        run();
+    }
+
+    public void testSendSegmentedReceiveGro(Bootstrap sb, Bootstrap cb) throws Throwable {
+        sb.option(ChannelOption.RCVBUF_ALLOCATOR, new FixedRecvByteBufAllocator(65536));
+        testSegmented(sb, cb, true, SEGMENTS);
+    }
+
+    @Test
+    public void testSendSegmentedReceiveGroDefaultBuffer() throws Throwable {
+        run();
+    }
+
+    public void testSendSegmentedReceiveGroDefaultBuffer(Bootstrap sb, Bootstrap cb) throws Throwable {
+        // The coalesced datagram must not be truncated to the size of the buffers of the default allocator.
+        testSegmented(sb, cb, true, MANY_SEGMENTS);
+    }
+
+    private void testSegmented(Bootstrap sb, Bootstrap cb, boolean gro, int segments) throws Throwable {
+        Assume.assumeTrue(SegmentedDatagramPacket.isSupported());
+
+        final CountDownLatch latch = new CountDownLatch(segments);
+        final Queue<Integer> sizes = new ConcurrentLinkedQueue<Integer>();
+        if (gro) {
+            sb.option(EpollChannelOption.UDP_GRO, true);
+        }
+        sb.handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, DatagramPacket msg) {
+                ByteBuf content = msg.content();
+                int size = content.readableBytes();
+                // Each segment is filled with its index.
+                byte expected = content.getByte(0);
+                for (int i = 1; i < size; i++) {
+                    if (content.getByte(i) != expected) {
+                        size = -1;
+                        break;
+                    }
+                }
+                sizes.add(size);
+                latch.countDown();
+            }
+        });
+        Channel sc = sb.bind().sync().channel();
+        Channel cc = cb.handler(new SimpleChannelInboundHandler<Object>() {
+            @Override
+            protected void channelRead0(ChannelHandlerContext ctx, Object msg) {
+                // NOOP
+            }
+        }).bind().sync().channel();
+        try {
+            ByteBuf buf = Unpooled.directBuffer();
+            for (int i = 0; i < segments; i++) {
+                int len = i == segments - 1 ? LAST_SEGMENT_SIZE : SEGMENT_SIZE;
+                for (int j = 0; j < len; j++) {
+                    buf.writeByte(i);
+                }
+            }
+            cc.writeAndFlush(new SegmentedDatagramPacket(buf, SEGMENT_SIZE, addr)).sync();
+
+            assertTrue(latch.await(10, TimeUnit.SECONDS));
+            int full = 0;
+            int last = 0;
+            for (Integer size : sizes) {
+                if (size == SEGMENT_SIZE) {
+                    full++;
+                } else if (size == LAST_SEGMENT_SIZE) {
+                    last++;
+                }
+            }
+            assertEquals(segments - 1, full);
+            assertEquals(1, last);
+        } finally {
+            cc.close().sync();
+            sc.close().sync();
+        }
+    }
+}
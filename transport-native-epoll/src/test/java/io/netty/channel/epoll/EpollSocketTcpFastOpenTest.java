@@ -0,0 +1,183 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelInitializer;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EpollSocketTcpFastOpenTest {
+    private static final Random RANDOM = new Random();
+    private static EpollEventLoopGroup group;
+    private static Channel server;
+    private static CollectHandler collector;
+
+    @BeforeClass
+    public static void beforeClass() {
+        group = new EpollEventLoopGroup(2);
+        collector = new CollectHandler();
+        server = new ServerBootstrap().group(group)
+                .channel(EpollServerSocketChannel.class)
+                .option(EpollChannelOption.TCP_FASTOPEN, 16)
+                .childHandler(collector)
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).syncUninterruptibly().channel();
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        if (server != null) {
+            server.close().syncUninterruptibly();
+        }
+        collector.received.release();
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 10000)
+    public void testSmallWriteBeforeConnect() throws Exception {
+        // The first connect only fetches the TCP Fast Open cookie, if the server supports it at all.
+        testWriteBeforeConnect(64);
+        testWriteBeforeConnect(64);
+    }
+
+    @Test(timeout = 10000)
+    public void testLargeWriteBeforeConnect() throws Exception {
+        // More than fits into the SYN, so the rest must be written once connected.
+        testWriteBeforeConnect(256 * 1024);
+        testWriteBeforeConnect(256 * 1024);
+    }
+
+    @Test(timeout = 10000)
+    public void testConnectWithoutData() throws Exception {
+        Channel client = newBootstrap().connect(server.localAddress()).sync().channel();
+        try {
+            assertTrue(((EpollSocketChannel) client).config().isTcpFastOpenConnect());
+            testWrite(client, 128);
+        } finally {
+            client.close().sync();
+        }
+    }
+
+    private static void testWriteBeforeConnect(int size) throws Exception {
+        byte[] bytes = new byte[size];
+        RANDOM.nextBytes(bytes);
+        collector.expect(bytes);
+
+        Channel client = newBootstrap().register().sync().channel();
+        try {
+            // Data flushed before the connect is kept and sent with the SYN, or once connected.
+            ChannelFuture writeFuture = client.writeAndFlush(Unpooled.directBuffer(size).writeBytes(bytes));
+            assertFalse(writeFuture.isDone());
+            client.connect(server.localAddress()).sync();
+            writeFuture.sync();
+            collector.await();
+        } finally {
+            client.close().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testUnflushedWriteBeforeConnect() throws Exception {
+        byte[] bytes = new byte[64];
+        RANDOM.nextBytes(bytes);
+        collector.expect(bytes);
+
+        Channel client = newBootstrap().register().sync().channel();
+        try {
+            ChannelFuture writeFuture = client.write(Unpooled.directBuffer(bytes.length).writeBytes(bytes));
+            client.connect(server.localAddress()).sync();
+            // The connect must not flush what the user did not flush.
+            assertFalse(writeFuture.await(500));
+            client.flush();
+            writeFuture.sync();
+            collector.await();
+        } finally {
+            client.close().sync();
+        }
+    }
+
+    private static void testWrite(Channel client, int size) throws Exception {
+        byte[] bytes = new byte[size];
+        RANDOM.nextBytes(bytes);
+        collector.expect(bytes);
+        client.writeAndFlush(Unpooled.wrappedBuffer(bytes)).sync();
+        collector.await();
+    }
+
+    private static Bootstrap newBootstrap() {
+        return new Bootstrap().group(group)
+                .channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.TCP_FASTOPEN_CONNECT, true)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        // NOOP
+                    }
+                });
+    }
+
+    @Sharable
+    private static final class CollectHandler extends ChannelInboundHandlerAdapter {
+        final ByteBuf received = Unpooled.buffer();
+        private volatile byte[] expected;
+
+        synchronized void expect(byte[] expected) {
+            received.clear();
+            this.expected = expected;
+        }
+
+        void await() throws InterruptedException {
+            byte[] expected = this.expected;
+            for (;;) {
+                synchronized (this) {
+                    if (received.readableBytes() >= expected.length) {
+                        assertEquals(Unpooled.wrappedBuffer(expected), received);
+                        return;
+                    }
+                    wait(100);
+                }
+            }
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            synchronized (this) {
+                received.writeBytes(buf);
+                notifyAll();
+            }
+            buf.release();
+        }
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoopGroup;
+import io.netty.util.NetUtil;
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.hamcrest.CoreMatchers.instanceOf;
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class EpollSocketZeroCopyTest {
+    private static final Random RANDOM = new Random();
+    private static EventLoopGroup GROUP;
+
+    @BeforeClass
+    public static void beforeClass() {
+        Assume.assumeTrue(Native.IS_SUPPORTING_MSG_ZEROCOPY);
+        GROUP = new EpollEventLoopGroup(2);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        if (GROUP != null) {
+            GROUP.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testOptions() throws Exception {
+        EpollSocketChannel ch = new EpollSocketChannel();
+        try {
+            EpollSocketChannelConfig config = ch.config();
+            assertFalse(config.getOption(EpollChannelOption.SO_ZEROCOPY));
+            assertTrue(config.setOption(EpollChannelOption.SO_ZEROCOPY, true));
+            assertTrue(config.getOption(EpollChannelOption.SO_ZEROCOPY));
+            assertTrue(config.setOption(EpollChannelOption.ZEROCOPY_THRESHOLD, 4096));
+            assertEquals(4096, (int) config.getOption(EpollChannelOption.ZEROCOPY_THRESHOLD));
+            assertTrue(config.setOption(EpollChannelOption.SO_ZEROCOPY, false));
+            assertFalse(config.isZeroCopy());
+        } finally {
+            ch.fd().close();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testZeroCopyWrite() throws Throwable {
+        // Mix buffers below and above the threshold to also exercise the gathering writes in between.
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+        int expected = 0;
+        for (int i = 0; i < 64; i++) {
+            int size = i % 3 == 0 ? 128 : 64 * 1024;
+            byte[] bytes = new byte[size];
+            RANDOM.nextBytes(bytes);
+            buffers.add(Unpooled.directBuffer(size).writeBytes(bytes));
+            expected += size;
+        }
+        final ByteBuf expectedBytes = Unpooled.buffer(expected);
+        for (ByteBuf buf: buffers) {
+            expectedBytes.writeBytes(buf, buf.readerIndex(), buf.readableBytes());
+        }
+
+        final ByteBuf received = Unpooled.buffer(expected);
+        final CountDownLatch receivedLatch = new CountDownLatch(1);
+        Channel server = new ServerBootstrap().group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ByteBuf buf = (ByteBuf) msg;
+                        received.writeBytes(buf);
+                        buf.release();
+                        if (received.readableBytes() == expectedBytes.readableBytes()) {
+                            receivedLatch.countDown();
+                        }
+                    }
+                })
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).syncUninterruptibly().channel();
+        EpollSocketChannel client = (EpollSocketChannel) new Bootstrap().group(GROUP)
+                .channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .option(EpollChannelOption.ZEROCOPY_THRESHOLD, 16 * 1024)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(server.localAddress()).syncUninterruptibly().channel();
+        try {
+            List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+            for (ByteBuf buf: buffers) {
+                futures.add(client.write(buf));
+            }
+            client.flush();
+
+            for (int i = 0; i < futures.size(); i++) {
+                ChannelFuture future = futures.get(i).sync();
+                // Once the write is complete the kernel is done with the memory, and so it must be released.
+                assertEquals(0, buffers.get(i).refCnt());
+                for (int j = 0; j < i; j++) {
+                    assertTrue(futures.get(j).isDone());
+                }
+                assertTrue(future.isSuccess());
+            }
+
+            assertTrue(receivedLatch.await(10, TimeUnit.SECONDS));
+            assertEquals(expectedBytes, received);
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+            expectedBytes.release();
+            received.release();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testPartialZeroCopyWrite() throws Throwable {
+        final AtomicReference<Channel> accepted = new AtomicReference<Channel>();
+        final CountDownLatch acceptedLatch = new CountDownLatch(1);
+        final int size = 4 * 1024 * 1024;
+        final ByteBuf received = Unpooled.buffer(size);
+        final CountDownLatch receivedLatch = new CountDownLatch(1);
+        Channel server = new ServerBootstrap().group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .option(ChannelOption.SO_RCVBUF, 16 * 1024)
+                // Do not read at first, so the buffer can only be written partially.
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        accepted.set(ctx.channel());
+                        acceptedLatch.countDown();
+                    }
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ByteBuf buf = (ByteBuf) msg;
+                        received.writeBytes(buf);
+                        buf.release();
+                        if (received.readableBytes() == size) {
+                            receivedLatch.countDown();
+                        }
+                    }
+                })
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).syncUninterruptibly().channel();
+        EpollSocketChannel client = (EpollSocketChannel) new Bootstrap().group(GROUP)
+                .channel(EpollSocketChannel.class)
+                .option(ChannelOption.SO_SNDBUF, 16 * 1024)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .option(EpollChannelOption.ZEROCOPY_THRESHOLD, 16 * 1024)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(server.localAddress()).syncUninterruptibly().channel();
+        byte[] bytes = new byte[size];
+        RANDOM.nextBytes(bytes);
+        ByteBuf buf = Unpooled.directBuffer(size).writeBytes(bytes);
+        try {
+            assertTrue(acceptedLatch.await(10, TimeUnit.SECONDS));
+            ChannelFuture future = client.writeAndFlush(buf);
+            // Give the event loop the chance to send the first part of the buffer, whose sends may complete before
+            // the rest of the buffer was written.
+            Thread.sleep(500);
+            assertFalse(future.isDone());
+            assertTrue(buf.isReadable());
+            assertEquals(1, buf.refCnt());
+
+            accepted.get().config().setAutoRead(true);
+            assertTrue(future.await(10, TimeUnit.SECONDS));
+            assertTrue(future.isSuccess());
+            assertEquals(0, buf.refCnt());
+
+            assertTrue(receivedLatch.await(10, TimeUnit.SECONDS));
+            assertEquals(Unpooled.wrappedBuffer(bytes), received);
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+            received.release();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testCloseWithPendingCompletions() throws Throwable {
+        final AtomicReference<Channel> accepted = new AtomicReference<Channel>();
+        final CountDownLatch acceptedLatch = new CountDownLatch(1);
+        final AtomicReference<Throwable> serverCause = new AtomicReference<Throwable>();
+        Channel server = new ServerBootstrap().group(GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .option(ChannelOption.SO_RCVBUF, 16 * 1024)
+                // Do not read, so the sends of the client stay queued in the kernel.
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelInboundHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) {
+                        accepted.set(ctx.channel());
+                        acceptedLatch.countDown();
+                    }
+
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) {
+                        ((ByteBuf) msg).release();
+                    }
+
+                    @Override
+                    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) {
+                        serverCause.compareAndSet(null, cause);
+                        ctx.close();
+                    }
+                })
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).syncUninterruptibly().channel();
+        EpollSocketChannel client = (EpollSocketChannel) new Bootstrap().group(GROUP)
+                .channel(EpollSocketChannel.class)
+                .option(ChannelOption.SO_SNDBUF, 16 * 1024)
+                .option(EpollChannelOption.SO_ZEROCOPY, true)
+                .option(EpollChannelOption.ZEROCOPY_THRESHOLD, 16 * 1024)
+                .handler(new ChannelInboundHandlerAdapter())
+                .connect(server.localAddress()).syncUninterruptibly().channel();
+        try {
+            assertTrue(acceptedLatch.await(10, TimeUnit.SECONDS));
+            List<ByteBuf> buffers = new ArrayList<ByteBuf>();
+            List<ChannelFuture> futures = new ArrayList<ChannelFuture>();
+            for (int i = 0; i < 16; i++) {
+                ByteBuf buf = Unpooled.directBuffer(256 * 1024).writeZero(256 * 1024);
+                buffers.add(buf);
+                futures.add(client.write(buf));
+            }
+            client.flush();
+            // Give the event loop the chance to hand some of the buffers to the kernel.
+            Thread.sleep(500);
+
+            client.close().syncUninterruptibly();
+            boolean failed = false;
+            for (int i = 0; i < futures.size(); i++) {
+                ChannelFuture future = futures.get(i).awaitUninterruptibly();
+                failed |= !future.isSuccess();
+                assertEquals(0, buffers.get(i).refCnt());
+            }
+            assertTrue(failed);
+
+            // The connection must have been reset, so the kernel did not send anything from the released buffers.
+            Channel child = accepted.get();
+            child.config().setAutoRead(true);
+            child.closeFuture().syncUninterruptibly();
+            assertThat(serverCause.get(), is(instanceOf(IOException.class)));
+        } finally {
+            client.close().syncUninterruptibly();
+            server.close().syncUninterruptibly();
+        }
+    }
+}
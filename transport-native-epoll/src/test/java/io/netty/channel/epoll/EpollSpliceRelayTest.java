@@ -0,0 +1,307 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.FutureListener;
+import io.netty.util.concurrent.Promise;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EpollSpliceRelayTest {
+    private static final Random RANDOM = new Random();
+    private static EpollEventLoopGroup group;
+
+    @BeforeClass
+    public static void beforeClass() {
+        group = new EpollEventLoopGroup(2);
+    }
+
+    @AfterClass
+    public static void afterClass() {
+        group.shutdownGracefully(0, 0, TimeUnit.SECONDS).syncUninterruptibly();
+    }
+
+    @Test(timeout = 30000)
+    public void testEchoEdgeTriggered() throws Throwable {
+        testEcho(EpollMode.EDGE_TRIGGERED);
+    }
+
+    @Test(timeout = 30000)
+    public void testEchoLevelTriggered() throws Throwable {
+        testEcho(EpollMode.LEVEL_TRIGGERED);
+    }
+
+    private static void testEcho(EpollMode mode) throws Throwable {
+        Channel backend = newServer(new EchoHandler());
+        Proxy proxy = new Proxy(backend.localAddress(), mode);
+        Channel proxyServer = newServer(proxy, proxy.mode);
+        Collector collector = new Collector();
+        Channel client = newClient(proxyServer, collector);
+        try {
+            byte[] data = new byte[4 * 1024 * 1024];
+            RANDOM.nextBytes(data);
+            client.writeAndFlush(Unpooled.wrappedBuffer(data)).sync();
+            collector.await(data);
+
+            EpollSpliceRelay relay = proxy.relays.take();
+            assertEquals(data.length, relay.firstToSecondBytes());
+            assertEquals(data.length, relay.secondToFirstBytes());
+
+            client.close().sync();
+            // Closing one side ends the relay and closes the other side as well.
+            relay.terminationFuture().sync();
+        } finally {
+            client.close().sync();
+            proxyServer.close().sync();
+            backend.close().sync();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testHalfClosure() throws Throwable {
+        final byte[] response = new byte[1024];
+        RANDOM.nextBytes(response);
+        Channel backend = newServer(new ResponseOnShutdownHandler(response));
+        Proxy proxy = new Proxy(backend.localAddress(), EpollMode.EDGE_TRIGGERED);
+        Channel proxyServer = newServer(proxy, proxy.mode);
+        Collector collector = new Collector();
+        Channel client = newClient(proxyServer, collector);
+        try {
+            byte[] data = new byte[128 * 1024];
+            RANDOM.nextBytes(data);
+            client.writeAndFlush(Unpooled.wrappedBuffer(data)).sync();
+            ((EpollSocketChannel) client).shutdownOutput().sync();
+            collector.await(response);
+
+            EpollSpliceRelay relay = proxy.relays.take();
+            // Both directions were shut down so the relay is done and closed both channels.
+            relay.terminationFuture().sync();
+            assertEquals(data.length, relay.firstToSecondBytes());
+            assertEquals(response.length, relay.secondToFirstBytes());
+            client.closeFuture().sync();
+        } finally {
+            client.close().sync();
+            proxyServer.close().sync();
+            backend.close().sync();
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testBackpressure() throws Throwable {
+        final Collector backendCollector = new Collector();
+        Channel backend = new ServerBootstrap().group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(backendCollector)
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+        Proxy proxy = new Proxy(backend.localAddress(), EpollMode.EDGE_TRIGGERED);
+        Channel proxyServer = newServer(proxy, proxy.mode);
+        Channel client = newClient(proxyServer, new Collector());
+        try {
+            byte[] data = new byte[32 * 1024 * 1024];
+            RANDOM.nextBytes(data);
+            ChannelFuture writeFuture = client.writeAndFlush(Unpooled.wrappedBuffer(data));
+            EpollSpliceRelay relay = proxy.relays.take();
+
+            // The backend does not read, so the relay must stop once the socket buffers and the pipe are full.
+            long relayed;
+            do {
+                relayed = relay.firstToSecondBytes();
+                Thread.sleep(200);
+            } while (relay.firstToSecondBytes() != relayed);
+            assertTrue(relayed < data.length);
+            assertTrue(!writeFuture.isDone());
+
+            Channel accepted = backendCollector.channel;
+            accepted.config().setAutoRead(true);
+            backendCollector.await(data);
+            writeFuture.sync();
+            assertEquals(data.length, relay.firstToSecondBytes());
+        } finally {
+            client.close().sync();
+            proxyServer.close().sync();
+            backend.close().sync();
+        }
+    }
+
+    private static Channel newServer(ChannelHandler childHandler) throws InterruptedException {
+        return newServer(childHandler, EpollMode.EDGE_TRIGGERED);
+    }
+
+    private static Channel newServer(ChannelHandler childHandler, EpollMode mode) throws InterruptedException {
+        return new ServerBootstrap().group(group)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(EpollChannelOption.EPOLL_MODE, mode)
+                .childHandler(childHandler)
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+    }
+
+    private static Channel newClient(Channel server, ChannelHandler handler) throws InterruptedException {
+        return new Bootstrap().group(group)
+                .channel(EpollSocketChannel.class)
+                .option(ChannelOption.ALLOW_HALF_CLOSURE, true)
+                .handler(handler)
+                .connect(server.localAddress()).sync().channel();
+    }
+
+    /**
+     * Connects every accepted channel to the backend and relays between both.
+     */
+    @Sharable
+    private static final class Proxy extends ChannelInboundHandlerAdapter {
+        final BlockingQueue<EpollSpliceRelay> relays = new LinkedBlockingQueue<EpollSpliceRelay>();
+        private final SocketAddress backend;
+        final EpollMode mode;
+
+        Proxy(SocketAddress backend, EpollMode mode) {
+            this.backend = backend;
+            this.mode = mode;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            final EpollSocketChannel inbound = (EpollSocketChannel) ctx.channel();
+            new Bootstrap().group(inbound.eventLoop())
+                    .channel(EpollSocketChannel.class)
+                    .option(EpollChannelOption.EPOLL_MODE, mode)
+                    .handler(new ChannelInboundHandlerAdapter())
+                    .connect(backend).addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) {
+                            if (!future.isSuccess()) {
+                                inbound.close();
+                                return;
+                            }
+                            EpollSpliceRelay relay = new EpollSpliceRelay(
+                                    inbound, (EpollSocketChannel) future.channel());
+                            relay.start();
+                            relays.add(relay);
+                        }
+                    });
+        }
+    }
+
+    @Sharable
+    private static final class EchoHandler extends ChannelInboundHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.writeAndFlush(msg);
+        }
+    }
+
+    private static final class ResponseOnShutdownHandler extends ChannelInboundHandlerAdapter {
+        private final byte[] response;
+
+        ResponseOnShutdownHandler(byte[] response) {
+            this.response = response;
+        }
+
+        @Override
+        public boolean isSharable() {
+            return true;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            ctx.channel().config().setOption(ChannelOption.ALLOW_HALF_CLOSURE, true);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ((ByteBuf) msg).release();
+        }
+
+        @Override
+        public void userEventTriggered(ChannelHandlerContext ctx, Object evt) {
+            if (evt instanceof ChannelInputShutdownEvent) {
+                ctx.writeAndFlush(Unpooled.wrappedBuffer(response)).addListener(ChannelFutureListener.CLOSE);
+            }
+        }
+    }
+
+    @Sharable
+    private static final class Collector extends ChannelInboundHandlerAdapter {
+        private final ByteBuf received = Unpooled.buffer();
+        private final Promise<Void> done = group.next().newPromise();
+        private byte[] expected;
+        volatile Channel channel;
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) {
+            channel = ctx.channel();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ByteBuf buf = (ByteBuf) msg;
+            synchronized (this) {
+                received.writeBytes(buf);
+                check();
+            }
+            buf.release();
+        }
+
+        private void check() {
+            if (expected != null && received.readableBytes() >= expected.length) {
+                if (received.equals(Unpooled.wrappedBuffer(expected))) {
+                    done.trySuccess(null);
+                } else {
+                    done.tryFailure(new AssertionError("received data does not match"));
+                }
+            }
+        }
+
+        void await(byte[] expected) throws Throwable {
+            synchronized (this) {
+                this.expected = expected;
+                check();
+            }
+            done.addListener(new FutureListener<Void>() {
+                @Override
+                public void operationComplete(Future<Void> future) {
+                    received.release();
+                }
+            });
+            done.sync();
+        }
+    }
+}
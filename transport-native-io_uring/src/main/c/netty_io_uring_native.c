@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#define _GNU_SOURCE
+#include <jni.h>
+#include <stdint.h>
+#include <stdio.h>
+#include <stdlib.h>
+#include <string.h>
+#include <errno.h>
+#include <unistd.h>
+#include <dlfcn.h>
+#include <sys/mman.h>
+#include <sys/syscall.h>
+
+// We do not depend on liburing or on recent kernel headers. The ABI of io_uring is stable, so we just define the
+// structures and constants we need here. See include/uapi/linux/io_uring.h in the linux kernel sources.
+#ifndef __NR_io_uring_setup
+#define __NR_io_uring_setup 425
+#endif
+#ifndef __NR_io_uring_enter
+#define __NR_io_uring_enter 426
+#endif
+
+#define NETTY_IORING_OFF_SQ_RING 0ULL
+#define NETTY_IORING_OFF_CQ_RING 0x8000000ULL
+#define NETTY_IORING_OFF_SQES 0x10000000ULL
+#define NETTY_IORING_FEAT_SINGLE_MMAP (1U << 0)
+
+struct netty_io_sqring_offsets {
+    uint32_t head;
+    uint32_t tail;
+    uint32_t ring_mask;
+    uint32_t ring_entries;
+    uint32_t flags;
+    uint32_t dropped;
+    uint32_t array;
+    uint32_t resv1;
+    uint64_t resv2;
+};
+
+struct netty_io_cqring_offsets {
+    uint32_t head;
+    uint32_t tail;
+    uint32_t ring_mask;
+    uint32_t ring_entries;
+    uint32_t overflow;
+    uint32_t cqes;
+    uint32_t flags;
+    uint32_t resv1;
+    uint64_t resv2;
+};
+
+struct netty_io_uring_params {
+    uint32_t sq_entries;
+    uint32_t cq_entries;
+    uint32_t flags;
+    uint32_t sq_thread_cpu;
+    uint32_t sq_thread_idle;
+    uint32_t features;
+    uint32_t wq_fd;
+    uint32_t resv[3];
+    struct netty_io_sqring_offsets sq_off;
+    struct netty_io_cqring_offsets cq_off;
+};
+
+// The size of one submission queue entry and one completion queue entry in bytes.
+#define NETTY_IO_URING_SQE_SIZE 64
+#define NETTY_IO_URING_CQE_SIZE 16
+
+// Number of values returned by ioUringSetup0(...). Must be kept in sync with RingBuffer.java.
+#define NETTY_IO_URING_RING_VALUES 19
+
+static void throwIOException(JNIEnv* env, const char* message, int err) {
+    char buf[256];
+    snprintf(buf, sizeof(buf), "%s%s", message, strerror(err));
+    jclass ioExceptionClass = (*env)->FindClass(env, "java/io/IOException");
+    if (ioExceptionClass == NULL) {
+        // pending exception...
+        return;
+    }
+    (*env)->ThrowNew(env, ioExceptionClass, buf);
+}
+
+// JNI Registered Methods Begin
+static jlongArray netty_io_uring_native_ioUringSetup0(JNIEnv* env, jclass clazz, jint entries) {
+    struct netty_io_uring_params params;
+    memset(&params, 0, sizeof(params));
+
+    int ringFd = (int) syscall(__NR_io_uring_setup, (unsigned) entries, &params);
+    if (ringFd < 0) {
+        throwIOException(env, "io_uring_setup() failed: ", errno);
+        return NULL;
+    }
+
+    size_t sqRingSize = params.sq_off.array + params.sq_entries * sizeof(uint32_t);
+    size_t cqRingSize = params.cq_off.cqes + params.cq_entries * NETTY_IO_URING_CQE_SIZE;
+    size_t sqesSize = params.sq_entries * NETTY_IO_URING_SQE_SIZE;
+    if ((params.features & NETTY_IORING_FEAT_SINGLE_MMAP) != 0) {
+        if (cqRingSize > sqRingSize) {
+            sqRingSize = cqRingSize;
+        }
+        cqRingSize = sqRingSize;
+    }
+
+    void* sqRing = mmap(NULL, sqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                        ringFd, NETTY_IORING_OFF_SQ_RING);
+    if (sqRing == MAP_FAILED) {
+        int err = errno;
+        close(ringFd);
+        throwIOException(env, "mmap() of the submission queue failed: ", err);
+        return NULL;
+    }
+
+    void* cqRing;
+    if ((params.features & NETTY_IORING_FEAT_SINGLE_MMAP) != 0) {
+        cqRing = sqRing;
+    } else {
+        cqRing = mmap(NULL, cqRingSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                      ringFd, NETTY_IORING_OFF_CQ_RING);
+        if (cqRing == MAP_FAILED) {
+            int err = errno;
+            munmap(sqRing, sqRingSize);
+            close(ringFd);
+            throwIOException(env, "mmap() of the completion queue failed: ", err);
+            return NULL;
+        }
+    }
+
+    void* sqes = mmap(NULL, sqesSize, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE,
+                      ringFd, NETTY_IORING_OFF_SQES);
+    if (sqes == MAP_FAILED) {
+        int err = errno;
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        throwIOException(env, "mmap() of the submission queue entries failed: ", err);
+        return NULL;
+    }
+
+    jlong values[NETTY_IO_URING_RING_VALUES];
+    values[0] = (jlong) ringFd;
+    values[1] = (jlong) params.features;
+
+    values[2] = (jlong) sqRing;
+    values[3] = (jlong) sqRingSize;
+    values[4] = (jlong) sqes;
+    values[5] = (jlong) sqesSize;
+    values[6] = (jlong) (sqRing + params.sq_off.head);
+    values[7] = (jlong) (sqRing + params.sq_off.tail);
+    values[8] = (jlong) (sqRing + params.sq_off.flags);
+    values[9] = (jlong) (sqRing + params.sq_off.array);
+    values[10] = (jlong) *((uint32_t*) (sqRing + params.sq_off.ring_mask));
+    values[11] = (jlong) *((uint32_t*) (sqRing + params.sq_off.ring_entries));
+
+    values[12] = (jlong) cqRing;
+    values[13] = (jlong) cqRingSize;
+    values[14] = (jlong) (cqRing + params.cq_off.head);
+    values[15] = (jlong) (cqRing + params.cq_off.tail);
+    values[16] = (jlong) (cqRing + params.cq_off.cqes);
+    values[17] = (jlong) *((uint32_t*) (cqRing + params.cq_off.ring_mask));
+    values[18] = (jlong) *((uint32_t*) (cqRing + params.cq_off.ring_entries));
+
+    jlongArray array = (*env)->NewLongArray(env, NETTY_IO_URING_RING_VALUES);
+    if (array == NULL) {
+        // pending exception...
+        munmap(sqes, sqesSize);
+        if (cqRing != sqRing) {
+            munmap(cqRing, cqRingSize);
+        }
+        munmap(sqRing, sqRingSize);
+        close(ringFd);
+        return NULL;
+    }
+    (*env)->SetLongArrayRegion(env, array, 0, NETTY_IO_URING_RING_VALUES, values);
+    return array;
+}
+
+static jint netty_io_uring_native_ioUringEnter0(JNIEnv* env, jclass clazz, jint ringFd, jint toSubmit,
+                                                jint minComplete, jint flags) {
+    int result;
+    int err;
+    do {
+        result = (int) syscall(__NR_io_uring_enter, ringFd, toSubmit, minComplete, flags, NULL, 0);
+        if (result >= 0) {
+            return result;
+        }
+        // io_uring_enter(...) only returns -1 / EINTR if nothing was submitted, so it is safe to just retry.
+    } while ((err = errno) == EINTR);
+    return -err;
+}
+
+static void netty_io_uring_native_ioUringExit0(JNIEnv* env, jclass clazz, jint ringFd,
+                                              jlong sqRing, jlong sqRingSize, jlong sqes, jlong sqesSize,
+                                              jlong cqRing, jlong cqRingSize) {
+    munmap((void*) sqes, (size_t) sqesSize);
+    if (cqRing != sqRing) {
+        munmap((void*) cqRing, (size_t) cqRingSize);
+    }
+    munmap((void*) sqRing, (size_t) sqRingSize);
+    close(ringFd);
+}
+// JNI Registered Methods End
+
+// JNI Method Registration Table Begin
+static const JNINativeMethod method_table[] = {
+  { "ioUringSetup0", "(I)[J", (void *) netty_io_uring_native_ioUringSetup0 },
+  { "ioUringEnter0", "(IIII)I", (void *) netty_io_uring_native_ioUringEnter0 },
+  { "ioUringExit0", "(IJJJJJJ)V", (void *) netty_io_uring_native_ioUringExit0 }
+};
+static const jint method_table_size = sizeof(method_table) / sizeof(method_table[0]);
+// JNI Method Registration Table End
+
+static char* prepend(const char* prefix, const char* str) {
+    if (prefix == NULL) {
+        char* result = (char*) malloc(sizeof(char) * (strlen(str) + 1));
+        strcpy(result, str);
+        return result;
+    }
+    char* result = (char*) malloc(sizeof(char) * (strlen(prefix) + strlen(str) + 1));
+    strcpy(result, prefix);
+    strcat(result, str);
+    return result;
+}
+
+static jint netty_io_uring_native_JNI_OnLoad(JNIEnv* env, const char* packagePrefix) {
+    char* nettyClassName = prepend(packagePrefix, "io/netty/channel/uring/Native");
+    jclass nativeCls = (*env)->FindClass(env, nettyClassName);
+    free(nettyClassName);
+    nettyClassName = NULL;
+    if (nativeCls == NULL) {
+        // pending exception...
+        return JNI_ERR;
+    }
+    if ((*env)->RegisterNatives(env, nativeCls, method_table, method_table_size) != 0) {
+        return JNI_ERR;
+    }
+    return JNI_VERSION_1_6;
+}
+
+/**
+ * The expected format of the library name is "lib<>netty-transport-native-io_uring" where the <> portion is what we
+ * will return.
+ */
+static char* parsePackagePrefix(const char* libraryPathName, jint* status) {
+    char* packageNameEnd = strstr(libraryPathName, "netty-transport-native-io_uring");
+    if (packageNameEnd == NULL) {
+        *status = JNI_ERR;
+        return NULL;
+    }
+    char* packagePrefix = NULL;
+    // Search backwards for the "lib" prefix of the library file name.
+    char* temp = packageNameEnd;
+    while (temp - 3 >= libraryPathName) {
+        if (strncmp(temp - 3, "lib", 3) == 0) {
+            packagePrefix = temp;
+            break;
+        }
+        --temp;
+    }
+    if (packagePrefix == NULL) {
+        *status = JNI_ERR;
+        return NULL;
+    }
+    if (packagePrefix == packageNameEnd) {
+        return NULL;
+    }
+    // packagePrefix length is > 0
+    // Make a copy so we can modify the value without impacting libraryPathName.
+    size_t packagePrefixLen = packageNameEnd - packagePrefix;
+    packagePrefix = strndup(packagePrefix, packagePrefixLen);
+    // Make sure the packagePrefix is in the correct format for the JNI functions it will be used with.
+    temp = packagePrefix;
+    packageNameEnd = packagePrefix + packagePrefixLen;
+    // Package names must be sanitized, in JNI packages names are separated by '/' characters.
+    for (; temp != packageNameEnd; ++temp) {
+        if (*temp == '-') {
+            *temp = '/';
+        }
+    }
+    // Make sure packagePrefix is terminated with the '/' JNI package separator.
+    if(*(--temp) != '/') {
+        temp = packagePrefix;
+        packagePrefix = prepend(packagePrefix, "/");
+        free(temp);
+    }
+    return packagePrefix;
+}
+
+jint JNI_OnLoad(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void**) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    }
+
+    Dl_info dlinfo;
+    jint status = 0;
+    // We need to use an address of a function that is uniquely part of this library, so choose a static
+    // function. See https://github.com/netty/netty/issues/4840.
+    if (!dladdr((void*) parsePackagePrefix, &dlinfo)) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI call to dladdr failed!\n");
+        return JNI_ERR;
+    }
+    char* packagePrefix = parsePackagePrefix(dlinfo.dli_fname, &status);
+    if (status == JNI_ERR) {
+        fprintf(stderr, "FATAL: transport-native-io_uring JNI encountered unexpected dlinfo.dli_fname: %s\n",
+                dlinfo.dli_fname);
+        return JNI_ERR;
+    }
+
+    jint ret = netty_io_uring_native_JNI_OnLoad(env, packagePrefix);
+
+    if (packagePrefix != NULL) {
+      free(packagePrefix);
+      packagePrefix = NULL;
+    }
+
+    return ret;
+}
@@ -0,0 +1,283 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.EventLoop;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.unix.Socket;
+import io.netty.channel.unix.UnixChannel;
+import io.netty.util.ReferenceCountUtil;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.NotYetConnectedException;
+import java.nio.channels.UnresolvedAddressException;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+abstract class AbstractIOUringChannel extends AbstractChannel implements UnixChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false);
+    private final Socket socket;
+
+    protected volatile boolean active;
+
+    // The following fields are only accessed from the EventLoop.
+
+    // The id which is used to map completions to this channel, assigned on registration.
+    int id;
+    // The IOUringEventLoop.KIND_* flags of the operations which are currently in flight.
+    int ioState;
+    // true once the channel was deregistered from the IOUringEventLoop.
+    boolean removed = true;
+
+    AbstractIOUringChannel(Channel parent, Socket socket, boolean active) {
+        super(parent);
+        this.socket = checkNotNull(socket, "socket");
+        this.active = active;
+    }
+
+    boolean isIoStateSet(int kind) {
+        return (ioState & kind) != 0;
+    }
+
+    @Override
+    public final Socket fd() {
+        return socket;
+    }
+
+    @Override
+    public abstract IOUringChannelConfig config();
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        active = false;
+        try {
+            doDeregister();
+        } finally {
+            socket.close();
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof IOUringEventLoop;
+    }
+
+    @Override
+    protected boolean isMigrationSupported() {
+        // The submitted operations of this channel complete on the ring of its current event loop.
+        return false;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return socket.isOpen();
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        ((IOUringEventLoop) eventLoop()).add(this);
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        ((IOUringEventLoop) eventLoop()).remove(this);
+    }
+
+    @Override
+    protected final void doBeginRead() throws Exception {
+        // Channel.read() or ChannelHandlerContext.read() was called
+        final AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        unsafe.readPending = true;
+        unsafe.scheduleRead();
+    }
+
+    @Override
+    protected abstract AbstractIOUringUnsafe newUnsafe();
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the original one.
+     */
+    protected final ByteBuf newDirectBuffer(ByteBuf buf) {
+        return newDirectBuffer(buf, buf);
+    }
+
+    /**
+     * Returns an off-heap copy of the specified {@link ByteBuf}, and releases the specified holder.
+     * The caller must ensure that the holder releases the original {@link ByteBuf} when the holder is released by
+     * this method.
+     */
+    protected final ByteBuf newDirectBuffer(Object holder, ByteBuf buf) {
+        final int readableBytes = buf.readableBytes();
+        if (readableBytes == 0) {
+            ReferenceCountUtil.safeRelease(holder);
+            return Unpooled.EMPTY_BUFFER;
+        }
+
+        final ByteBufAllocator alloc = alloc();
+        if (alloc.isDirectBufferPooled()) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        final ByteBuf directBuf = ByteBufUtil.threadLocalDirectBuffer();
+        if (directBuf == null) {
+            return newDirectBuffer0(holder, buf, alloc, readableBytes);
+        }
+
+        directBuf.writeBytes(buf, buf.readerIndex(), readableBytes);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    private static ByteBuf newDirectBuffer0(Object holder, ByteBuf buf, ByteBufAllocator alloc, int capacity) {
+        final ByteBuf directBuf = alloc.directBuffer(capacity);
+        directBuf.writeBytes(buf, buf.readerIndex(), capacity);
+        ReferenceCountUtil.safeRelease(holder);
+        return directBuf;
+    }
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    protected abstract class AbstractIOUringUnsafe extends AbstractUnsafe {
+        boolean readPending;
+
+        /**
+         * Submit the operation which reads from the socket, if there is none in flight yet.
+         */
+        abstract void scheduleRead() throws IOException;
+
+        /**
+         * Called once a {@link IOUringEventLoop#KIND_READ} operation completed with the given result.
+         */
+        void readComplete(int res) {
+            throw new IllegalStateException();
+        }
+
+        /**
+         * Called once a {@link IOUringEventLoop#KIND_WRITE} operation completed with the given result.
+         */
+        void writeComplete(int res) {
+            throw new IllegalStateException();
+        }
+
+        /**
+         * Called once a {@link IOUringEventLoop#KIND_POLL_IN} operation completed with the given result.
+         */
+        void pollInReady(int res) {
+            throw new IllegalStateException();
+        }
+
+        /**
+         * Called once a {@link IOUringEventLoop#KIND_POLL_OUT} operation completed with the given result.
+         */
+        void pollOutReady(int res) {
+            throw new IllegalStateException();
+        }
+
+        /**
+         * Release all memory which was kept alive for operations which are in flight. Called once the ring was
+         * closed and so no completion will be delivered anymore.
+         */
+        void releaseResources() {
+            // NOOP
+        }
+
+        /**
+         * Returns {@code true} if a completion should be ignored as the channel was closed or deregistered in the
+         * meantime.
+         */
+        final boolean isStale(int res) {
+            return removed || res == Native.ERRNO_ECANCELED_NEGATIVE;
+        }
+
+        /**
+         * Shutdown the input side of the channel.
+         */
+        void shutdownInput() {
+            if (!socket.isInputShutdown()) {
+                if (Boolean.TRUE.equals(config().getOption(ChannelOption.ALLOW_HALF_CLOSURE))) {
+                    try {
+                        socket.shutdown(true, false);
+                        readPending = false;
+                    } catch (IOException ignored) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        fireEventAndClose(ChannelInputShutdownEvent.INSTANCE);
+                        return;
+                    } catch (NotYetConnectedException ignore) {
+                        // We attempted to shutdown and failed, which means the input has already effectively been
+                        // shutdown.
+                        fireEventAndClose(ChannelInputShutdownEvent.INSTANCE);
+                        return;
+                    }
+                    pipeline().fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                } else {
+                    close(voidPromise());
+                }
+            }
+        }
+
+        private void fireEventAndClose(Object evt) {
+            pipeline().fireUserEventTriggered(evt);
+            close(voidPromise());
+        }
+
+        @Override
+        protected void flush0() {
+            // Flush immediately only when there's no write in flight.
+            // If there's one, the completion will call forceFlush() later,
+            // and thus there's no need to call it now.
+            if (isIoStateSet(IOUringEventLoop.KIND_WRITE | IOUringEventLoop.KIND_POLL_OUT)) {
+                return;
+            }
+            super.flush0();
+        }
+
+        /**
+         * Directly call {@code super.flush0()} to force a flush now.
+         */
+        final void forceFlush() {
+            super.flush0();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * The completion queue of an io_uring instance.
+ *
+ * <pre>
+ * struct io_uring_cqe {
+ *   __u64 user_data;
+ *   __s32 res;
+ *   __u32 flags;
+ * };
+ * </pre>
+ */
+final class IOUringCompletionQueue {
+    private static final int CQE_SIZE = 16;
+
+    private static final int CQE_USER_DATA_FIELD = 0;
+    private static final int CQE_RES_FIELD = 8;
+
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long cqesAddress;
+    private final int ringMask;
+
+    private int head;
+
+    /**
+     * Callback which is notified for each completion.
+     */
+    interface CompletionCallback {
+        void handle(int res, long userData);
+    }
+
+    IOUringCompletionQueue(long kHeadAddress, long kTailAddress, long cqesAddress, int ringMask) {
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.cqesAddress = cqesAddress;
+        this.ringMask = ringMask;
+        head = PlatformDependent.getIntVolatile(kHeadAddress);
+    }
+
+    /**
+     * Returns the number of completions which are ready to be processed.
+     */
+    int count() {
+        return PlatformDependent.getIntVolatile(kTailAddress) - head;
+    }
+
+    /**
+     * Process all ready completions and return how many were processed.
+     */
+    int process(CompletionCallback callback) {
+        int tail = PlatformDependent.getIntVolatile(kTailAddress);
+        int processed = 0;
+        while (head != tail) {
+            long cqe = cqesAddress + (long) (head & ringMask) * CQE_SIZE;
+            long userData = PlatformDependent.getLong(cqe + CQE_USER_DATA_FIELD);
+            int res = PlatformDependent.getInt(cqe + CQE_RES_FIELD);
+
+            // Release the slot before calling the callback, so the kernel can reuse it as soon as possible.
+            head++;
+            PlatformDependent.putIntOrdered(kHeadAddress, head);
+            processed++;
+
+            callback.handle(res, userData);
+
+            if (head == tail) {
+                // Pick up completions which were produced while we processed the others.
+                tail = PlatformDependent.getIntVolatile(kTailAddress);
+            }
+        }
+        return processed;
+    }
+}
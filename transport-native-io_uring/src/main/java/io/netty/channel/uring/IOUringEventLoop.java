@@ -0,0 +1,458 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SelectStrategy;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.uring.AbstractIOUringChannel.AbstractIOUringUnsafe;
+import io.netty.channel.unix.FileDescriptor;
+import io.netty.util.IntSupplier;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.internal.MpscChunkedQueue;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link io.netty.channel.EventLoop} which uses io_uring under the covers. Only works on Linux!
+ *
+ * All operations of the registered channels are written to the submission queue as they happen and handed to the
+ * kernel with a single {@code io_uring_enter(...)} call per loop iteration, which also waits for the completions.
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop implements IOUringCompletionQueue.CompletionCallback {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+    private static final AtomicIntegerFieldUpdater<IOUringEventLoop> WAKEN_UP_UPDATER;
+
+    static {
+        // Ensure JNI is initialized by the time this class is loaded by this time!
+        IOUring.ensureAvailability();
+        AtomicIntegerFieldUpdater<IOUringEventLoop> updater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(IOUringEventLoop.class, "wakenUp");
+        if (updater == null) {
+            updater = AtomicIntegerFieldUpdater.newUpdater(IOUringEventLoop.class, "wakenUp");
+        }
+        WAKEN_UP_UPDATER = updater;
+    }
+
+    // The user_data of each submission holds the id of the channel in the upper 32 bits and the kind of the
+    // operation in the lower bits. The kinds of the channel operations are also used as flags to track which
+    // operations are in flight, see AbstractIOUringChannel.ioState.
+    static final int KIND_READ = 1;
+    static final int KIND_WRITE = 1 << 1;
+    static final int KIND_POLL_IN = 1 << 2;
+    static final int KIND_POLL_OUT = 1 << 3;
+    private static final int KIND_CANCEL = 1 << 4;
+    private static final int KIND_EVENTFD_POLL = 1 << 5;
+    private static final int KIND_TIMEOUT = 1 << 6;
+
+    // Id used for the operations that belong to the EventLoop itself.
+    private static final int LOOP_ID = 0;
+
+    private static final long NO_TIMEOUT = -1;
+
+    private final IntObjectMap<AbstractIOUringChannel> channels = new IntObjectHashMap<AbstractIOUringChannel>(4096);
+    private final RingBuffer ringBuffer;
+    private final IOUringSubmissionQueue submissionQueue;
+    private final IOUringCompletionQueue completionQueue;
+    private final FileDescriptor eventFd;
+    // Memory for the struct __kernel_timespec used for IORING_OP_TIMEOUT.
+    private final long timespecAddress;
+    private final SelectStrategy selectStrategy;
+    private final IntSupplier selectNowSupplier = new IntSupplier() {
+        @Override
+        public int get() throws Exception {
+            return submitNow();
+        }
+    };
+    private boolean eventFdPollPending;
+    private long timeoutDeadline = NO_TIMEOUT;
+    private int nextChannelId = LOOP_ID;
+    private volatile int wakenUp;
+    private volatile int ioRatio = 50;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, int ringSize,
+                     SelectStrategy strategy, RejectedExecutionHandler rejectedExecutionHandler) {
+        super(parent, executor, false, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler);
+        selectStrategy = ObjectUtil.checkNotNull(strategy, "strategy");
+        boolean success = false;
+        RingBuffer ringBuffer = null;
+        FileDescriptor eventFd = null;
+        try {
+            try {
+                this.ringBuffer = ringBuffer = Native.createRingBuffer(
+                        ringSize == 0 ? Native.DEFAULT_RING_SIZE : ringSize);
+            } catch (IOException e) {
+                throw new IllegalStateException("Unable to create io_uring instance", e);
+            }
+            this.eventFd = eventFd = io.netty.channel.epoll.Native.newEventFd();
+            submissionQueue = ringBuffer.submissionQueue();
+            completionQueue = ringBuffer.completionQueue();
+            timespecAddress = PlatformDependent.allocateMemory(16);
+            success = true;
+        } finally {
+            if (!success) {
+                if (ringBuffer != null) {
+                    ringBuffer.close();
+                }
+                if (eventFd != null) {
+                    try {
+                        eventFd.close();
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+            // write to the eventfd which will then complete the pending poll and so wake-up io_uring_enter(...)
+            io.netty.channel.epoll.Native.eventFdWrite(eventFd.intValue(), 1L);
+        }
+    }
+
+    /**
+     * Register the given channel with this {@link io.netty.channel.EventLoop}.
+     */
+    void add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int id;
+        do {
+            id = ++nextChannelId;
+        } while (id == LOOP_ID || channels.containsKey(id));
+        ch.id = id;
+        ch.removed = false;
+        channels.put(id, ch);
+    }
+
+    /**
+     * Deregister the given channel from this {@link io.netty.channel.EventLoop}. All operations which are still in
+     * flight are cancelled and the channel is only forgotten once all of them were completed, as the kernel may still
+     * use the memory that belongs to them until then.
+     */
+    void remove(AbstractIOUringChannel ch) throws IOException {
+        if (ch.removed) {
+            // Was removed already, for example as part of prepareToClose() when SO_LINGER is used.
+            return;
+        }
+        assert inEventLoop();
+        ch.removed = true;
+        int ioState = ch.ioState;
+        if (ioState == 0) {
+            channels.remove(ch.id);
+            return;
+        }
+        for (int kind = KIND_READ; kind <= KIND_POLL_OUT; kind <<= 1) {
+            if ((ioState & kind) != 0) {
+                submissionQueue.enqueue(Native.IORING_OP_ASYNC_CANCEL, -1, userData(ch.id, kind), 0, 0, 0,
+                        userData(ch.id, KIND_CANCEL));
+            }
+        }
+        // Submit now as the file descriptor may be closed and re-used directly after this method returns.
+        submissionQueue.submit();
+    }
+
+    void submitRead(AbstractIOUringChannel ch, long address, int length) throws IOException {
+        // Use MSG_DONTWAIT as otherwise the kernel may park the operation until there is data to read, even though the
+        // socket is non-blocking. We need to know when there is nothing left to read to fire channelReadComplete().
+        enqueue(ch, Native.IORING_OP_RECV, address, length, Native.MSG_DONTWAIT, KIND_READ);
+    }
+
+    void submitAccept(AbstractIOUringChannel ch) throws IOException {
+        // We do not care about the remote address here as it is retrieved via getpeername(...) later.
+        enqueue(ch, Native.IORING_OP_ACCEPT, 0, 0, Native.SOCK_NONBLOCK | Native.SOCK_CLOEXEC, KIND_READ);
+    }
+
+    void submitWritev(AbstractIOUringChannel ch, long iovAddress, int iovCount) throws IOException {
+        enqueue(ch, Native.IORING_OP_WRITEV, iovAddress, iovCount, 0, KIND_WRITE);
+    }
+
+    void submitPollIn(AbstractIOUringChannel ch) throws IOException {
+        enqueue(ch, Native.IORING_OP_POLL_ADD, 0, 0, Native.POLLIN, KIND_POLL_IN);
+    }
+
+    void submitPollOut(AbstractIOUringChannel ch) throws IOException {
+        enqueue(ch, Native.IORING_OP_POLL_ADD, 0, 0, Native.POLLOUT, KIND_POLL_OUT);
+    }
+
+    private void enqueue(AbstractIOUringChannel ch, byte op, long address, int length, int opFlags, int kind)
+            throws IOException {
+        assert inEventLoop();
+        assert (ch.ioState & kind) == 0;
+        submissionQueue.enqueue(op, ch.fd().intValue(), address, length, 0, opFlags, userData(ch.id, kind));
+        ch.ioState |= kind;
+    }
+
+    private static long userData(int id, int kind) {
+        return ((long) id << 32) | kind;
+    }
+
+    @Override
+    public void handle(int res, long userData) {
+        int id = (int) (userData >>> 32);
+        int kind = (int) userData;
+        if (id == LOOP_ID) {
+            if (kind == KIND_EVENTFD_POLL) {
+                // Reset the eventfd so the next poll will only complete once we were woken up again.
+                io.netty.channel.epoll.Native.eventFdRead(eventFd.intValue());
+                eventFdPollPending = false;
+            } else if (kind == KIND_TIMEOUT && res != Native.ERRNO_ECANCELED_NEGATIVE) {
+                timeoutDeadline = NO_TIMEOUT;
+            }
+            return;
+        }
+        if (kind == KIND_CANCEL) {
+            return;
+        }
+        AbstractIOUringChannel ch = channels.get(id);
+        if (ch == null) {
+            return;
+        }
+        ch.ioState &= ~kind;
+        try {
+            AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) ch.unsafe();
+            switch (kind) {
+                case KIND_READ:
+                    unsafe.readComplete(res);
+                    break;
+                case KIND_WRITE:
+                    unsafe.writeComplete(res);
+                    break;
+                case KIND_POLL_IN:
+                    unsafe.pollInReady(res);
+                    break;
+                case KIND_POLL_OUT:
+                    unsafe.pollOutReady(res);
+                    break;
+                default:
+                    throw new Error();
+            }
+        } finally {
+            if (ch.removed && ch.ioState == 0 && channels.get(id) == ch) {
+                channels.remove(id);
+            }
+        }
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
+        // This event loop never calls takeTask(), so it can use a non-blocking queue which does not allocate a node
+        // per task and which is drained in batches by runAllTasksFrom(...).
+        return new MpscChunkedQueue<Runnable>(maxPendingTasks);
+    }
+
+    @Override
+    public int registeredChannels() {
+        return channels.size();
+    }
+
+    /**
+     * Returns the percentage of the desired amount of time spent for I/O in the event loop.
+     */
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    /**
+     * Sets the percentage of the desired amount of time spent for I/O in the event loop.  The default value is
+     * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
+     */
+    public void setIoRatio(int ioRatio) {
+        if (ioRatio <= 0 || ioRatio > 100) {
+            throw new IllegalArgumentException("ioRatio: " + ioRatio + " (expected: 0 < ioRatio <= 100)");
+        }
+        this.ioRatio = ioRatio;
+    }
+
+    private int ioUringWait(boolean oldWakenUp) throws IOException {
+        if (!eventFdPollPending) {
+            // Keep a poll on the eventfd in flight so wakeup(...) will complete it and so wake us up. We can not use
+            // a read here as the eventfd is non-blocking and so the read would complete with EAGAIN directly.
+            submissionQueue.enqueue(Native.IORING_OP_POLL_ADD, eventFd.intValue(), 0, 0, 0, Native.POLLIN,
+                    userData(LOOP_ID, KIND_EVENTFD_POLL));
+            eventFdPollPending = true;
+        }
+
+        long currentTimeNanos = System.nanoTime();
+        long delayNanos = delayNanos(currentTimeNanos);
+        if (delayNanos <= 0 || oldWakenUp && hasTasks()) {
+            return submitNow();
+        }
+
+        // If a task was submitted when wakenUp value was 1, the task didn't get a chance to produce wakeup event.
+        // So we need to check task queue again before calling io_uring_enter. If we don't, the task might be pended
+        // until the timeout fired.
+        if (hasTasks() && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+            return submitNow();
+        }
+
+        armTimeout(currentTimeNanos + delayNanos, delayNanos);
+        submissionQueue.submitAndWait();
+        return completionQueue.count();
+    }
+
+    private int submitNow() throws IOException {
+        submissionQueue.submit();
+        return completionQueue.count();
+    }
+
+    /**
+     * Make sure a {@code IORING_OP_TIMEOUT} will complete no later than the given deadline. As the timeout is
+     * specified in nanoseconds we do not need to round to milliseconds like when using {@code epoll_wait(...)}.
+     */
+    private void armTimeout(long deadlineNanos, long delayNanos) throws IOException {
+        if (timeoutDeadline != NO_TIMEOUT) {
+            if (timeoutDeadline <= deadlineNanos) {
+                // The timeout which is in flight will wake us up early enough.
+                return;
+            }
+            submissionQueue.enqueue(Native.IORING_OP_TIMEOUT_REMOVE, -1, userData(LOOP_ID, KIND_TIMEOUT), 0, 0, 0,
+                    userData(LOOP_ID, KIND_CANCEL));
+        }
+        PlatformDependent.putLong(timespecAddress, delayNanos / 1000000000L);
+        PlatformDependent.putLong(timespecAddress + 8, delayNanos % 1000000000L);
+        submissionQueue.enqueue(Native.IORING_OP_TIMEOUT, -1, timespecAddress, 1, 0, 0,
+                userData(LOOP_ID, KIND_TIMEOUT));
+        timeoutDeadline = deadlineNanos;
+    }
+
+    @Override
+    protected void run() {
+        for (;;) {
+            try {
+                int strategy = selectStrategy.calculateStrategy(selectNowSupplier, hasTasks());
+                switch (strategy) {
+                    case SelectStrategy.CONTINUE:
+                        continue;
+                    case SelectStrategy.BUSY_WAIT:
+                        // fall-through to SELECT since the busy-wait is not supported with io_uring
+                    case SelectStrategy.SELECT:
+                        strategy = ioUringWait(WAKEN_UP_UPDATER.getAndSet(this, 0) == 1);
+
+                        // See EpollEventLoop.run() for why we need to wake-up again here.
+                        if (wakenUp == 1) {
+                            io.netty.channel.epoll.Native.eventFdWrite(eventFd.intValue(), 1L);
+                        }
+                    default:
+                        // fallthrough
+                }
+
+                final int ioRatio = this.ioRatio;
+                if (ioRatio == 100) {
+                    try {
+                        if (strategy > 0) {
+                            completionQueue.process(this);
+                        }
+                    } finally {
+                        // Ensure we always run tasks.
+                        runAllTasks();
+                    }
+                } else {
+                    final long ioStartTime = System.nanoTime();
+
+                    try {
+                        if (strategy > 0) {
+                            completionQueue.process(this);
+                        }
+                    } finally {
+                        // Ensure we always run tasks.
+                        final long ioTime = System.nanoTime() - ioStartTime;
+                        runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                    }
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+            // Always handle shutdown even if the loop processing threw an exception.
+            try {
+                if (isShuttingDown()) {
+                    closeAll();
+                    if (confirmShutdown()) {
+                        break;
+                    }
+                }
+            } catch (Throwable t) {
+                handleLoopException(t);
+            }
+        }
+    }
+
+    private static void handleLoopException(Throwable t) {
+        logger.warn("Unexpected exception in the io_uring loop.", t);
+
+        // Prevent possible consecutive immediate failures that lead to
+        // excessive CPU consumption.
+        try {
+            Thread.sleep(1000);
+        } catch (InterruptedException e) {
+            // Ignore.
+        }
+    }
+
+    private void closeAll() {
+        try {
+            submissionQueue.submit();
+            completionQueue.process(this);
+        } catch (IOException ignore) {
+            // ignore on close
+        }
+        Collection<AbstractIOUringChannel> array = new ArrayList<AbstractIOUringChannel>(channels.size());
+
+        for (AbstractIOUringChannel channel: channels.values()) {
+            if (!channel.removed) {
+                array.add(channel);
+            }
+        }
+
+        for (AbstractIOUringChannel ch: array) {
+            ch.unsafe().close(ch.unsafe().voidPromise());
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        try {
+            try {
+                eventFd.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close the event fd.", e);
+            }
+            // Closing the ring will cancel all operations which are still in flight.
+            ringBuffer.close();
+            // Give the channels a chance to release the memory which belonged to the cancelled operations.
+            for (AbstractIOUringChannel ch: channels.values()) {
+                ((AbstractIOUringUnsafe) ch.unsafe()).releaseResources();
+            }
+            channels.clear();
+        } finally {
+            // release native memory
+            PlatformDependent.freeMemory(timespecAddress);
+        }
+    }
+}
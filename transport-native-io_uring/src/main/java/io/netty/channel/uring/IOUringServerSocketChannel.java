@@ -0,0 +1,202 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.Socket;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static io.netty.channel.unix.Socket.newSocketStream;
+
+/**
+ * {@link ServerSocketChannel} implementation that uses linux io_uring to accept new connections.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+
+    private final IOUringServerSocketChannelConfig config;
+    private volatile InetSocketAddress local;
+
+    public IOUringServerSocketChannel() {
+        super(null, newSocketStream(), false);
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        InetSocketAddress addr = (InetSocketAddress) localAddress;
+        checkResolvable(addr);
+        fd().bind(addr);
+        local = fd().localAddress();
+        fd().listen(config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected InetSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected InetSocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) throws Exception {
+        throw new UnsupportedOperationException();
+    }
+
+    private final class IOUringServerSocketUnsafe extends AbstractIOUringUnsafe {
+
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void scheduleRead() throws IOException {
+            if (!isIoStateSet(IOUringEventLoop.KIND_POLL_IN | IOUringEventLoop.KIND_READ) && !removed) {
+                // Wait until there is a connection to accept, as the socket is non-blocking the accept would complete
+                // with EAGAIN directly otherwise.
+                ((IOUringEventLoop) eventLoop()).submitPollIn(IOUringServerSocketChannel.this);
+            }
+        }
+
+        @Override
+        void pollInReady(int res) {
+            if (isStale(res) || isIoStateSet(IOUringEventLoop.KIND_READ)) {
+                // If there is still an accept in flight it will take care of scheduling the next one once it completed.
+                return;
+            }
+            if (!readPending && !config().isAutoRead()) {
+                // The user is not interested in accepting anymore, doBeginRead() will schedule a new poll later.
+                return;
+            }
+            recvBufAllocHandle().reset(config());
+            try {
+                ((IOUringEventLoop) eventLoop()).submitAccept(IOUringServerSocketChannel.this);
+            } catch (Throwable t) {
+                readComplete0(t);
+            }
+        }
+
+        @Override
+        void readComplete(int res) {
+            if (isStale(res)) {
+                if (res >= 0) {
+                    // The connection was accepted while we closed the channel, just close it again.
+                    closeAcceptedSocket(res);
+                }
+                return;
+            }
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            if (res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                // this means everything was handled for now
+                readComplete0(null);
+                return;
+            }
+            if (res < 0) {
+                readComplete0(Errors.newIOException("accept", res));
+                return;
+            }
+
+            Throwable exception = null;
+            try {
+                // lastBytesRead represents the fd. We use lastBytesRead because it must be set so that the
+                // RecvByteBufAllocator.Handle knows if it should try to read again or not when autoRead is enabled.
+                allocHandle.lastBytesRead(res);
+                allocHandle.incMessagesRead(1);
+                readPending = false;
+                Socket socket = new Socket(res);
+                pipeline().fireChannelRead(new IOUringSocketChannel(
+                        IOUringServerSocketChannel.this, socket, socket.remoteAddress()));
+                // We do not submit the next accept directly even if there may be more connections to accept, as the
+                // kernel may park it until the next connection arrives and so delay channelReadComplete(). The poll
+                // submitted by readComplete0(...) completes directly if there are more connections pending.
+            } catch (Throwable t) {
+                exception = t;
+            }
+            readComplete0(exception);
+        }
+
+        private void readComplete0(Throwable exception) {
+            final ChannelPipeline pipeline = pipeline();
+            recvBufAllocHandle().readComplete();
+            pipeline.fireChannelReadComplete();
+
+            if (exception != null) {
+                pipeline.fireExceptionCaught(exception);
+            }
+            if (readPending || config().isAutoRead()) {
+                try {
+                    scheduleRead();
+                } catch (Throwable t) {
+                    pipeline.fireExceptionCaught(t);
+                    close(voidPromise());
+                }
+            }
+        }
+
+        private void closeAcceptedSocket(int fd) {
+            try {
+                new Socket(fd).close();
+            } catch (IOException ignore) {
+                // ignore
+            }
+        }
+    }
+}
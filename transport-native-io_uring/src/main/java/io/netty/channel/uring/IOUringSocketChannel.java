@@ -0,0 +1,755 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.unix.Errors;
+import io.netty.channel.unix.IovArray;
+import io.netty.channel.unix.Limits;
+import io.netty.channel.unix.Socket;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.ThrowableUtil;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.UnknownHostException;
+import java.nio.channels.AlreadyConnectedException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ConnectionPendingException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.channel.unix.Socket.newSocketStream;
+
+/**
+ * {@link SocketChannel} implementation that uses linux io_uring to submit its reads and writes.
+ */
+public final class IOUringSocketChannel extends AbstractIOUringChannel implements SocketChannel {
+    private static final ChannelMetadata METADATA = new ChannelMetadata(false, 16);
+    private static final String EXPECTED_TYPES = " (expected: " + StringUtil.simpleClassName(ByteBuf.class) + ')';
+    private static final ClosedChannelException DO_CLOSE_CLOSED_CHANNEL_EXCEPTION = ThrowableUtil.unknownStackTrace(
+            new ClosedChannelException(), IOUringSocketChannel.class, "doClose()");
+
+    private final IOUringSocketChannelConfig config;
+
+    private volatile InetSocketAddress local;
+    private volatile InetSocketAddress remote;
+    private InetSocketAddress requestedRemote;
+
+    /**
+     * The future of the current connection attempt.  If not null, subsequent
+     * connection attempts will fail.
+     */
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+
+    // Only accessed from the EventLoop. The IovArray is lazy created on the first write and holds the iovecs of the
+    // IORING_OP_WRITEV which is in flight.
+    private IovArray iovArray;
+    // The failure of the last write which will be propagated by the next doWrite(...) call.
+    private IOException writeFailure;
+
+    IOUringSocketChannel(Channel parent, Socket fd, InetSocketAddress remote) {
+        super(parent, fd, true);
+        config = new IOUringSocketChannelConfig(this);
+        // Directly cache the remote and local addresses
+        // See https://github.com/netty/netty/issues/2359
+        this.remote = remote;
+        local = fd.localAddress();
+    }
+
+    public IOUringSocketChannel() {
+        super(null, newSocketStream(), false);
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return METADATA;
+    }
+
+    @Override
+    protected void doBind(SocketAddress local) throws Exception {
+        InetSocketAddress localAddress = (InetSocketAddress) local;
+        fd().bind(localAddress);
+        this.local = fd().localAddress();
+    }
+
+    @Override
+    public IOUringSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ServerSocketChannel parent() {
+        return (ServerSocketChannel) super.parent();
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringSocketChannelUnsafe();
+    }
+
+    private static InetSocketAddress computeRemoteAddr(InetSocketAddress remoteAddr, InetSocketAddress osRemoteAddr) {
+        if (osRemoteAddr != null) {
+            if (PlatformDependent.javaVersion() >= 7) {
+                try {
+                    // Only try to construct a new InetSocketAddress if we using java >= 7 as getHostString() does not
+                    // exists in earlier releases and so the retrieval of the hostname could block the EventLoop if a
+                    // reverse lookup would be needed.
+                    return new InetSocketAddress(InetAddress.getByAddress(remoteAddr.getHostString(),
+                            osRemoteAddr.getAddress().getAddress()),
+                            osRemoteAddr.getPort());
+                } catch (UnknownHostException ignore) {
+                    // Should never happen but fallback to osRemoteAddr anyway.
+                }
+            }
+            return osRemoteAddr;
+        }
+        return remoteAddr;
+    }
+
+    /**
+     * Connect to the remote peer
+     */
+    private boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress != null) {
+            checkResolvable((InetSocketAddress) localAddress);
+        }
+        InetSocketAddress remoteAddr = (InetSocketAddress) remoteAddress;
+        checkResolvable(remoteAddr);
+
+        if (remote != null) {
+            // Check if already connected before trying to connect. This is needed as connect(...) will not return -1
+            // and set errno to EISCONN if a previous connect(...) attempt was setting errno to EINPROGRESS and finished
+            // later.
+            throw new AlreadyConnectedException();
+        }
+
+        if (localAddress != null) {
+            fd().bind(localAddress);
+        }
+
+        boolean success = false;
+        try {
+            boolean connected = fd().connect(remoteAddress);
+            if (connected) {
+                remote = computeRemoteAddr(remoteAddr, fd().remoteAddress());
+            } else {
+                // Store for later usage in doFinishConnect()
+                requestedRemote = remoteAddr;
+                ((IOUringEventLoop) eventLoop()).submitPollOut(this);
+            }
+            // We always need to set the localAddress even if not connected yet as the bind already took place.
+            //
+            // See https://github.com/netty/netty/issues/3463
+            local = fd().localAddress();
+            success = true;
+            return connected;
+        } finally {
+            if (!success) {
+                doClose();
+            }
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        ChannelPromise promise = connectPromise;
+        if (promise != null) {
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(DO_CLOSE_CLOSED_CHANNEL_EXCEPTION);
+            connectPromise = null;
+        }
+
+        ScheduledFuture<?> future = connectTimeoutFuture;
+        if (future != null) {
+            future.cancel(false);
+            connectTimeoutFuture = null;
+        }
+        super.doClose();
+        if (iovArray != null && !isIoStateSet(IOUringEventLoop.KIND_WRITE)) {
+            // There is no write in flight anymore so we can release the memory directly.
+            iovArray.release();
+            iovArray = null;
+        }
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        IOException failure = writeFailure;
+        if (failure != null) {
+            writeFailure = null;
+            throw failure;
+        }
+        if (isIoStateSet(IOUringEventLoop.KIND_WRITE | IOUringEventLoop.KIND_POLL_OUT)) {
+            // We will be called again once the operation in flight completed.
+            return;
+        }
+        // Remove all empty buffers first as a write of zero bytes would complete with 0 as well.
+        for (;;) {
+            Object msg = in.current();
+            if (msg == null) {
+                // Everything was written.
+                return;
+            }
+            if (((ByteBuf) msg).isReadable()) {
+                break;
+            }
+            in.remove();
+        }
+
+        IovArray array = iovArray;
+        if (array == null) {
+            iovArray = array = new IovArray();
+        }
+        array.clear();
+        in.forEachFlushedMessage(array);
+        assert array.count() > 0;
+
+        // The memory of the buffers stays valid until the write completed as we only remove them from the
+        // ChannelOutboundBuffer after that.
+        ((IOUringEventLoop) eventLoop()).submitWritev(this, array.memoryAddress(0), array.count());
+    }
+
+    @Override
+    protected Object filterOutboundMessage(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (!buf.hasMemoryAddress()) {
+                if (buf instanceof CompositeByteBuf) {
+                    // Special handling of CompositeByteBuf to reduce memory copies if some of the Components
+                    // in the CompositeByteBuf are backed by a memoryAddress.
+                    CompositeByteBuf comp = (CompositeByteBuf) buf;
+                    if (!comp.isDirect() || comp.nioBufferCount() > Limits.IOV_MAX) {
+                        // more then 1024 buffers for gathering writes so just do a memory copy.
+                        buf = newDirectBuffer(buf);
+                        assert buf.hasMemoryAddress();
+                    }
+                } else {
+                    // We can only handle buffers with memory address so we need to copy if a non direct is
+                    // passed to write.
+                    buf = newDirectBuffer(buf);
+                    assert buf.hasMemoryAddress();
+                }
+            }
+            return buf;
+        }
+
+        throw new UnsupportedOperationException(
+                "unsupported message type: " + StringUtil.simpleClassName(msg) + EXPECTED_TYPES);
+    }
+
+    private void shutdownOutput0(final ChannelPromise promise) {
+        try {
+            fd().shutdown(false, true);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    private void shutdownInput0(final ChannelPromise promise) {
+        try {
+            fd().shutdown(true, false);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    private void shutdown0(final ChannelPromise promise) {
+        try {
+            fd().shutdown(true, true);
+            promise.setSuccess();
+        } catch (Throwable cause) {
+            promise.setFailure(cause);
+        }
+    }
+
+    @Override
+    public boolean isOutputShutdown() {
+        return fd().isOutputShutdown();
+    }
+
+    @Override
+    public boolean isInputShutdown() {
+        return fd().isInputShutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return fd().isShutdown();
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        Executor closeExecutor = ((IOUringSocketChannelUnsafe) unsafe()).prepareToClose();
+        if (closeExecutor != null) {
+            closeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownOutput0(promise);
+                }
+            });
+        } else {
+            EventLoop loop = eventLoop();
+            if (loop.inEventLoop()) {
+                shutdownOutput0(promise);
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        shutdownOutput0(promise);
+                    }
+                });
+            }
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdownInput() {
+        return shutdownInput(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdownInput(final ChannelPromise promise) {
+        Executor closeExecutor = ((IOUringSocketChannelUnsafe) unsafe()).prepareToClose();
+        if (closeExecutor != null) {
+            closeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownInput0(promise);
+                }
+            });
+        } else {
+            EventLoop loop = eventLoop();
+            if (loop.inEventLoop()) {
+                shutdownInput0(promise);
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        shutdownInput0(promise);
+                    }
+                });
+            }
+        }
+        return promise;
+    }
+
+    @Override
+    public ChannelFuture shutdown() {
+        return shutdown(newPromise());
+    }
+
+    @Override
+    public ChannelFuture shutdown(final ChannelPromise promise) {
+        Executor closeExecutor = ((IOUringSocketChannelUnsafe) unsafe()).prepareToClose();
+        if (closeExecutor != null) {
+            closeExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdown0(promise);
+                }
+            });
+        } else {
+            EventLoop loop = eventLoop();
+            if (loop.inEventLoop()) {
+                shutdown0(promise);
+            } else {
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        shutdown0(promise);
+                    }
+                });
+            }
+        }
+        return promise;
+    }
+
+    private final class IOUringSocketChannelUnsafe extends AbstractIOUringUnsafe {
+        // The buffer which is used by the IORING_OP_RECV which is in flight.
+        private ByteBuf readBuffer;
+
+        @Override
+        protected Executor prepareToClose() {
+            try {
+                // Check isOpen() first as otherwise it will throw a RuntimeException
+                // when call getSoLinger() as the fd is not valid anymore.
+                if (isOpen() && config().getSoLinger() > 0) {
+                    // We need to remove the channel from the loop so we not try to read or write until the actual
+                    // close happens which may be later due SO_LINGER handling.
+                    // See https://github.com/netty/netty/issues/4449
+                    ((IOUringEventLoop) eventLoop()).remove(IOUringSocketChannel.this);
+                    return GlobalEventExecutor.INSTANCE;
+                }
+            } catch (Throwable ignore) {
+                // Ignore the error as the underlying channel may be closed in the meantime and so
+                // getSoLinger() may produce an exception. In this case we just return null.
+                // See https://github.com/netty/netty/issues/4449
+            }
+            return null;
+        }
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new ConnectionPendingException();
+                }
+
+                boolean wasActive = isActive();
+                if (doConnect(remoteAddress, localAddress)) {
+                    fulfillConnectPromise(promise, wasActive);
+                } else {
+                    connectPromise = promise;
+                    requestedRemoteAddress = remoteAddress;
+
+                    // Schedule connect timeout.
+                    int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                    if (connectTimeoutMillis > 0) {
+                        connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                ChannelPromise connectPromise = IOUringSocketChannel.this.connectPromise;
+                                ConnectTimeoutException cause =
+                                        new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                                if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                    close(voidPromise());
+                                }
+                            }
+                        }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                    }
+
+                    promise.addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (future.isCancelled()) {
+                                if (connectTimeoutFuture != null) {
+                                    connectTimeoutFuture.cancel(false);
+                                }
+                                connectPromise = null;
+                                close(voidPromise());
+                            }
+                        }
+                    });
+                }
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(annotateConnectException(t, remoteAddress));
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+            active = true;
+
+            // Get the state as trySuccess() may trigger an ChannelFutureListener that will close the Channel.
+            // We still need to ensure we call fireChannelActive() in this case.
+            boolean active = isActive();
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && active) {
+                pipeline().fireChannelActive();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+
+        private void finishConnect() {
+            // Note this method is invoked by the event loop only if the connection attempt was
+            // neither cancelled nor timed out.
+
+            assert eventLoop().inEventLoop();
+
+            boolean connectStillInProgress = false;
+            try {
+                boolean wasActive = isActive();
+                if (!doFinishConnect()) {
+                    connectStillInProgress = true;
+                    return;
+                }
+                fulfillConnectPromise(connectPromise, wasActive);
+            } catch (Throwable t) {
+                fulfillConnectPromise(connectPromise, annotateConnectException(t, requestedRemoteAddress));
+            } finally {
+                if (!connectStillInProgress) {
+                    // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+                    // See https://github.com/netty/netty/issues/1770
+                    if (connectTimeoutFuture != null) {
+                        connectTimeoutFuture.cancel(false);
+                    }
+                    connectPromise = null;
+                }
+            }
+        }
+
+        /**
+         * Finish the connect
+         */
+        private boolean doFinishConnect() throws Exception {
+            if (fd().finishConnect()) {
+                remote = computeRemoteAddr(requestedRemote, fd().remoteAddress());
+                requestedRemote = null;
+                return true;
+            }
+            ((IOUringEventLoop) eventLoop()).submitPollOut(IOUringSocketChannel.this);
+            return false;
+        }
+
+        @Override
+        void scheduleRead() throws IOException {
+            if (!isIoStateSet(IOUringEventLoop.KIND_POLL_IN | IOUringEventLoop.KIND_READ) && !removed &&
+                    !fd().isInputShutdown()) {
+                // Wait until there is something to read, as the socket is non-blocking a read would complete with
+                // EAGAIN directly otherwise.
+                ((IOUringEventLoop) eventLoop()).submitPollIn(IOUringSocketChannel.this);
+            }
+        }
+
+        @Override
+        void pollInReady(int res) {
+            if (isStale(res) || isIoStateSet(IOUringEventLoop.KIND_READ)) {
+                // If there is still a read in flight it will take care of scheduling the next one once it completed.
+                return;
+            }
+            if (!readPending && !config().isAutoRead()) {
+                // The user is not interested in reading anymore, doBeginRead() will schedule a new poll later.
+                return;
+            }
+            recvBufAllocHandle().reset(config());
+            try {
+                submitRead();
+            } catch (Throwable t) {
+                handleReadException(t);
+            }
+        }
+
+        private void submitRead() throws IOException {
+            RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            // we use a direct buffer here as the native implementations only be able
+            // to handle direct buffers.
+            ByteBuf byteBuf = allocHandle.allocate(config().getAllocator());
+            try {
+                allocHandle.attemptedBytesRead(byteBuf.writableBytes());
+                ((IOUringEventLoop) eventLoop()).submitRead(IOUringSocketChannel.this,
+                        byteBuf.memoryAddress() + byteBuf.writerIndex(), byteBuf.writableBytes());
+                readBuffer = byteBuf;
+                byteBuf = null;
+            } finally {
+                if (byteBuf != null) {
+                    byteBuf.release();
+                }
+            }
+        }
+
+        @Override
+        void readComplete(int res) {
+            final ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            if (isStale(res)) {
+                byteBuf.release();
+                return;
+            }
+
+            final RecvByteBufAllocator.Handle allocHandle = recvBufAllocHandle();
+            final ChannelPipeline pipeline = pipeline();
+            if (res <= 0) {
+                // nothing was read, release the buffer.
+                byteBuf.release();
+                if (res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                    allocHandle.lastBytesRead(0);
+                    allocHandle.readComplete();
+                    pipeline.fireChannelReadComplete();
+                    scheduleReadIfNeeded();
+                    return;
+                }
+                allocHandle.lastBytesRead(-1);
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                if (res < 0) {
+                    pipeline.fireExceptionCaught(Errors.newIOException("read", res));
+                }
+                shutdownInput();
+                return;
+            }
+
+            allocHandle.lastBytesRead(res);
+            allocHandle.incMessagesRead(1);
+            byteBuf.writerIndex(byteBuf.writerIndex() + res);
+            readPending = false;
+            pipeline.fireChannelRead(byteBuf);
+
+            try {
+                // If the input was shutdown or the channel was closed in fireChannelRead(...) we must not read again.
+                if (!removed && !fd().isInputShutdown() && allocHandle.continueReading()) {
+                    // There is most likely more data to read so submit the next read directly.
+                    submitRead();
+                    return;
+                }
+                allocHandle.readComplete();
+                pipeline.fireChannelReadComplete();
+                scheduleReadIfNeeded();
+            } catch (Throwable t) {
+                handleReadException(t);
+            }
+        }
+
+        private void scheduleReadIfNeeded() {
+            if (readPending || config().isAutoRead()) {
+                try {
+                    scheduleRead();
+                } catch (Throwable t) {
+                    pipeline().fireExceptionCaught(t);
+                    close(voidPromise());
+                }
+            }
+        }
+
+        private void handleReadException(Throwable cause) {
+            recvBufAllocHandle().readComplete();
+            pipeline().fireChannelReadComplete();
+            pipeline().fireExceptionCaught(cause);
+            if (cause instanceof IOException) {
+                shutdownInput();
+            }
+        }
+
+        @Override
+        void writeComplete(int res) {
+            if (removed) {
+                // The channel was closed while the write was in flight.
+                if (iovArray != null && !isOpen()) {
+                    iovArray.release();
+                    iovArray = null;
+                }
+                return;
+            }
+            if (res >= 0) {
+                outboundBuffer().removeBytes(res);
+            } else if (res == Errors.ERRNO_EAGAIN_NEGATIVE) {
+                try {
+                    // Wait until the socket is writable again.
+                    ((IOUringEventLoop) eventLoop()).submitPollOut(IOUringSocketChannel.this);
+                    return;
+                } catch (IOException e) {
+                    writeFailure = e;
+                }
+            } else {
+                writeFailure = Errors.newIOException("writev", res);
+            }
+            forceFlush();
+        }
+
+        @Override
+        void pollOutReady(int res) {
+            if (isStale(res)) {
+                return;
+            }
+            if (connectPromise != null) {
+                // pending connect which is now complete so handle it.
+                finishConnect();
+            } else {
+                forceFlush();
+            }
+        }
+
+        @Override
+        void releaseResources() {
+            if (readBuffer != null) {
+                readBuffer.release();
+                readBuffer = null;
+            }
+            if (iovArray != null) {
+                iovArray.release();
+                iovArray = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.io.IOException;
+
+/**
+ * The submission queue of an io_uring instance. Entries are only written into the shared memory here and handed to
+ * the kernel in batches once {@link #submit()} or {@link #submitAndWait()} is called.
+ *
+ * <pre>
+ * struct io_uring_sqe {
+ *   __u8  opcode;
+ *   __u8  flags;
+ *   __u16 ioprio;
+ *   __s32 fd;
+ *   __u64 off;
+ *   __u64 addr;
+ *   __u32 len;
+ *   __u32 op_flags;
+ *   __u64 user_data;
+ *   __u64 __pad[3];
+ * };
+ * </pre>
+ */
+final class IOUringSubmissionQueue {
+    private static final int SQE_SIZE = 64;
+
+    private static final int SQE_OP_CODE_FIELD = 0;
+    private static final int SQE_FD_FIELD = 4;
+    private static final int SQE_OFFSET_FIELD = 8;
+    private static final int SQE_ADDRESS_FIELD = 16;
+    private static final int SQE_LEN_FIELD = 24;
+    private static final int SQE_OP_FLAGS_FIELD = 28;
+    private static final int SQE_USER_DATA_FIELD = 32;
+
+    private final int ringFd;
+    private final long kHeadAddress;
+    private final long kTailAddress;
+    private final long sqesAddress;
+    private final int ringMask;
+    private final int ringEntries;
+
+    private int tail;
+
+    IOUringSubmissionQueue(int ringFd, long kHeadAddress, long kTailAddress, long kArrayAddress, long sqesAddress,
+                           int ringMask, int ringEntries) {
+        this.ringFd = ringFd;
+        this.kHeadAddress = kHeadAddress;
+        this.kTailAddress = kTailAddress;
+        this.sqesAddress = sqesAddress;
+        this.ringMask = ringMask;
+        this.ringEntries = ringEntries;
+        tail = PlatformDependent.getIntVolatile(kTailAddress);
+
+        // We always use the sqe with the same index as the slot in the array, so we can just fill it once.
+        for (int i = 0; i < ringEntries; i++) {
+            PlatformDependent.putInt(kArrayAddress + i * 4L, i);
+        }
+    }
+
+    /**
+     * Enqueue a new submission queue entry. If the queue is full all pending entries are submitted first.
+     */
+    void enqueue(byte op, int fd, long address, int length, long offset, int opFlags, long userData)
+            throws IOException {
+        if (tail - PlatformDependent.getIntVolatile(kHeadAddress) == ringEntries) {
+            // The queue is full, hand the pending entries to the kernel so we can reuse the slots.
+            submit();
+        }
+        long sqe = sqesAddress + (long) (tail & ringMask) * SQE_SIZE;
+        tail++;
+
+        PlatformDependent.setMemory(sqe, SQE_SIZE, (byte) 0);
+        PlatformDependent.putByte(sqe + SQE_OP_CODE_FIELD, op);
+        PlatformDependent.putInt(sqe + SQE_FD_FIELD, fd);
+        PlatformDependent.putLong(sqe + SQE_OFFSET_FIELD, offset);
+        PlatformDependent.putLong(sqe + SQE_ADDRESS_FIELD, address);
+        PlatformDependent.putInt(sqe + SQE_LEN_FIELD, length);
+        PlatformDependent.putInt(sqe + SQE_OP_FLAGS_FIELD, opFlags);
+        PlatformDependent.putLong(sqe + SQE_USER_DATA_FIELD, userData);
+    }
+
+    /**
+     * Returns the number of entries which were enqueued but not consumed by the kernel yet.
+     */
+    int pending() {
+        return tail - PlatformDependent.getIntVolatile(kHeadAddress);
+    }
+
+    /**
+     * Submit all pending entries without waiting for any completion.
+     */
+    int submit() throws IOException {
+        return submit(0, 0);
+    }
+
+    /**
+     * Submit all pending entries and block until at least one completion is ready.
+     */
+    int submitAndWait() throws IOException {
+        return submit(1, Native.IORING_ENTER_GETEVENTS);
+    }
+
+    private int submit(int minComplete, int flags) throws IOException {
+        int toSubmit = pending();
+        if (toSubmit == 0 && minComplete == 0) {
+            return 0;
+        }
+        // Publish the entries to the kernel. The ordered write makes sure the entries itself are visible before.
+        PlatformDependent.putIntOrdered(kTailAddress, tail);
+        return Native.ioUringEnter(ringFd, toSubmit, minComplete, flags);
+    }
+}
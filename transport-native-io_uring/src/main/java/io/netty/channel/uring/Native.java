@@ -0,0 +1,106 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.epoll.Epoll;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+
+import java.io.IOException;
+import java.util.Locale;
+
+import static io.netty.channel.unix.Errors.newIOException;
+
+/**
+ * Native helper methods
+ * <p><strong>Internal usage only!</strong>
+ */
+final class Native {
+    static {
+        // The io.netty.channel.unix classes we depend upon (Socket, FileDescriptor, IovArray, ...) are backed by the
+        // JNI code of netty-transport-native-epoll, so make sure it is loaded first.
+        Epoll.ensureAvailability();
+        try {
+            // First, try calling a side-effect free JNI method to see if the library was already
+            // loaded by the application.
+            ioUringEnter0(-1, 0, 0, 0);
+        } catch (UnsatisfiedLinkError ignore) {
+            // The library was not previously loaded, load it now.
+            loadNativeLibrary();
+        }
+    }
+
+    // The io_uring ABI is stable so we can just define the constants we need here.
+    // See include/uapi/linux/io_uring.h in the linux kernel sources.
+    static final byte IORING_OP_POLL_ADD = 6;
+    static final byte IORING_OP_TIMEOUT = 11;
+    static final byte IORING_OP_TIMEOUT_REMOVE = 12;
+    static final byte IORING_OP_ACCEPT = 13;
+    static final byte IORING_OP_ASYNC_CANCEL = 14;
+    static final byte IORING_OP_WRITEV = 2;
+    static final byte IORING_OP_RECV = 27;
+
+    static final int IORING_ENTER_GETEVENTS = 1;
+
+    static final int IORING_FEAT_NODROP = 1 << 1;
+    static final int IORING_FEAT_SUBMIT_STABLE = 1 << 2;
+    static final int IORING_FEAT_FAST_POLL = 1 << 5;
+
+    static final int POLLIN = 0x1;
+    static final int POLLOUT = 0x4;
+
+    static final int MSG_DONTWAIT = 0x40;
+
+    static final int SOCK_NONBLOCK = 04000;
+    static final int SOCK_CLOEXEC = 02000000;
+
+    static final int ERRNO_ECANCELED_NEGATIVE = -125;
+    static final int ERRNO_ETIME_NEGATIVE = -62;
+
+    static final int DEFAULT_RING_SIZE = Math.max(64, SystemPropertyUtil.getInt("io.netty.uring.ringSize", 4096));
+
+    static RingBuffer createRingBuffer(int ringSize) throws IOException {
+        long[] values = ioUringSetup0(ringSize);
+        return new RingBuffer(values);
+    }
+
+    static int ioUringEnter(int ringFd, int toSubmit, int minComplete, int flags) throws IOException {
+        int res = ioUringEnter0(ringFd, toSubmit, minComplete, flags);
+        if (res < 0) {
+            throw newIOException("io_uring_enter", res);
+        }
+        return res;
+    }
+
+    static native long[] ioUringSetup0(int entries) throws IOException;
+    static native int ioUringEnter0(int ringFd, int toSubmit, int minComplete, int flags);
+    static native void ioUringExit0(int ringFd, long sqRing, long sqRingSize, long sqes, long sqesSize,
+                                    long cqRing, long cqRingSize);
+
+    private Native() {
+        // utility
+    }
+
+    private static void loadNativeLibrary() {
+        String name = SystemPropertyUtil.get("os.name").toLowerCase(Locale.UK).trim();
+        if (!name.startsWith("linux")) {
+            throw new IllegalStateException("Only supported on Linux");
+        }
+        NativeLibraryLoader.load(SystemPropertyUtil.get("io.netty.packagePrefix", "").replace('.', '-') +
+            "netty-transport-native-io_uring", PlatformDependent.getClassLoader(Native.class));
+    }
+}
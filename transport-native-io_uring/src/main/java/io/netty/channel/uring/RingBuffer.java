@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+/**
+ * The memory mapped submission and completion queues of one io_uring instance.
+ */
+final class RingBuffer {
+    private final int ringFd;
+    private final int features;
+    private final long sqRingAddress;
+    private final long sqRingSize;
+    private final long sqesAddress;
+    private final long sqesSize;
+    private final long cqRingAddress;
+    private final long cqRingSize;
+    private final IOUringSubmissionQueue submissionQueue;
+    private final IOUringCompletionQueue completionQueue;
+    private boolean closed;
+
+    /**
+     * Create a new instance from the values returned by {@link Native#ioUringSetup0(int)}.
+     */
+    RingBuffer(long[] values) {
+        ringFd = (int) values[0];
+        features = (int) values[1];
+        sqRingAddress = values[2];
+        sqRingSize = values[3];
+        sqesAddress = values[4];
+        sqesSize = values[5];
+        submissionQueue = new IOUringSubmissionQueue(ringFd, values[6], values[7], values[9], sqesAddress,
+                (int) values[10], (int) values[11]);
+        cqRingAddress = values[12];
+        cqRingSize = values[13];
+        completionQueue = new IOUringCompletionQueue(values[14], values[15], values[16], (int) values[17]);
+    }
+
+    int fd() {
+        return ringFd;
+    }
+
+    int features() {
+        return features;
+    }
+
+    IOUringSubmissionQueue submissionQueue() {
+        return submissionQueue;
+    }
+
+    IOUringCompletionQueue completionQueue() {
+        return completionQueue;
+    }
+
+    /**
+     * Unmap the rings and close the io_uring file descriptor. Once closed further using of it may crash the JVM!
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Native.ioUringExit0(ringFd, sqRingAddress, sqRingSize, sqesAddress, sqesSize, cqRingAddress, cqRingSize);
+    }
+}
@@ -25,13 +25,23 @@ import io.netty.channel.ChannelInboundHandlerAdapter;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.util.AttributeKey;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.Promise;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
@@ -137,8 +147,129 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         return this;
     }
 
+    /**
+     * Create one {@link ServerChannel} for each {@link EventLoop} of the child {@link EventLoopGroup} and bind all of
+     * them to the given {@code localAddress}. Each {@link ServerChannel} is registered with its own child
+     * {@link EventLoop} and registers the {@link Channel}s it accepts with the same {@link EventLoop}. This way
+     * accepted {@link Channel}s are never handed over to another thread and there is no single acceptor that could
+     * become a bottleneck. The parent {@link EventLoopGroup} is not used, so setting only the child
+     * {@link EventLoopGroup} via {@link #group(EventLoopGroup)} is enough.
+     * <p>
+     * This requires a transport which allows to bind multiple {@link ServerChannel}s to the same address and which
+     * balances incoming connections between them, like the epoll transport with {@code EpollChannelOption.SO_REUSEPORT}
+     * set via {@link #option(ChannelOption, Object)}. If the port of {@code localAddress} is {@code 0}, all
+     * {@link ServerChannel}s are bound to the port the first one was bound to.
+     *
+     * @return the {@link Future} which is notified with the bound {@link ServerChannel}s once all of them are bound.
+     *         If one of them could not be bound, all of them are closed and the {@link Future} is failed.
+     */
+    public Future<List<Channel>> bindPerChildLoop(SocketAddress localAddress) {
+        if (localAddress == null) {
+            throw new NullPointerException("localAddress");
+        }
+        // Only validate what is needed here, as the parent group is not used.
+        if (childGroup == null) {
+            throw new IllegalStateException("childGroup not set");
+        }
+        if (channelFactory() == null) {
+            throw new IllegalStateException("channel or channelFactory not set");
+        }
+        if (childHandler == null) {
+            throw new IllegalStateException("childHandler not set");
+        }
+        List<EventLoop> loops = new ArrayList<EventLoop>();
+        for (EventExecutor executor: childGroup) {
+            loops.add((EventLoop) executor);
+        }
+        Promise<List<Channel>> promise = GlobalEventExecutor.INSTANCE.newPromise();
+        bindPerChildLoop0(loops, localAddress, new ArrayList<Channel>(loops.size()), promise);
+        return promise;
+    }
+
+    /**
+     * Create one {@link ServerChannel} for each {@link EventLoop} of the child {@link EventLoopGroup} and bind all of
+     * them.
+     *
+     * @see #bindPerChildLoop(SocketAddress)
+     */
+    public Future<List<Channel>> bindPerChildLoop(int inetPort) {
+        return bindPerChildLoop(new InetSocketAddress(inetPort));
+    }
+
+    private void bindPerChildLoop0(final List<EventLoop> loops, final SocketAddress localAddress,
+                                   final List<Channel> channels, final Promise<List<Channel>> promise) {
+        if (channels.size() == loops.size()) {
+            promise.setSuccess(Collections.unmodifiableList(channels));
+            return;
+        }
+        final EventLoop loop = loops.get(channels.size());
+        final Channel channel;
+        try {
+            channel = channelFactory().newChannel();
+        } catch (Throwable t) {
+            failPerChildLoop(channels, t, promise);
+            return;
+        }
+        channels.add(channel);
+        try {
+            // Let the acceptor register the accepted channels with the loop of the ServerChannel itself.
+            init(channel, loop);
+        } catch (Throwable t) {
+            failPerChildLoop(channels, t, promise);
+            return;
+        }
+        loop.register(channel).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (!future.isSuccess()) {
+                    failPerChildLoop(channels, future.cause(), promise);
+                    return;
+                }
+                // Give user handlers a chance to set up the pipeline in channelRegistered() like bind() does.
+                loop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        channel.bind(localAddress).addListener(new ChannelFutureListener() {
+                            @Override
+                            public void operationComplete(ChannelFuture future) {
+                                if (!future.isSuccess()) {
+                                    failPerChildLoop(channels, future.cause(), promise);
+                                    return;
+                                }
+                                SocketAddress nextAddress = localAddress;
+                                if (localAddress instanceof InetSocketAddress &&
+                                        ((InetSocketAddress) localAddress).getPort() == 0) {
+                                    // Bind the other ServerChannels to the port that was picked for the first one.
+                                    InetSocketAddress address = (InetSocketAddress) localAddress;
+                                    nextAddress = new InetSocketAddress(address.getAddress(),
+                                            ((InetSocketAddress) channel.localAddress()).getPort());
+                                }
+                                bindPerChildLoop0(loops, nextAddress, channels, promise);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+    }
+
+    private static void failPerChildLoop(List<Channel> channels, Throwable cause, Promise<List<Channel>> promise) {
+        for (Channel channel: channels) {
+            if (channel.isRegistered()) {
+                channel.close();
+            } else {
+                channel.unsafe().closeForcibly();
+            }
+        }
+        promise.setFailure(cause);
+    }
+
     @Override
     void init(Channel channel) throws Exception {
+        init(channel, childGroup);
+    }
+
+    private void init(Channel channel, final EventLoopGroup currentChildGroup) throws Exception {
         // 1.设置option和attr
         final Map<ChannelOption<?>, Object> options = options0();
         synchronized (options) {
@@ -156,7 +287,6 @@ public class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, ServerCh
         // 2.设置新接入channel的option和attr
         ChannelPipeline p = channel.pipeline();
 
-        final EventLoopGroup currentChildGroup = childGroup;
         final ChannelHandler currentChildHandler = childHandler;
         final Entry<ChannelOption<?>, Object>[] currentChildOptions;
         final Entry<AttributeKey<?>, Object>[] currentChildAttrs;
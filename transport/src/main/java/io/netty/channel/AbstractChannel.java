@@ -18,8 +18,10 @@ package io.netty.channel;
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.util.DefaultAttributeMap;
 import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.ObjectUtil;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.ThrowableUtil;
+import io.netty.util.internal.UnstableApi;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
@@ -275,6 +277,62 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
         return pipeline.deregister(promise);
     }
 
+    /**
+     * Moves this {@link Channel} to another {@link EventLoop} of the same {@link EventLoopGroup} without closing it,
+     * for example to move busy {@link Channel}s off an overloaded {@link EventLoop}.
+     *
+     * @see #migrate(EventLoop, ChannelPromise)
+     */
+    @UnstableApi
+    public ChannelFuture migrate(EventLoop eventLoop) {
+        return migrate(eventLoop, newPromise());
+    }
+
+    /**
+     * Moves this {@link Channel} to another {@link EventLoop} of the same {@link EventLoopGroup} without closing it,
+     * for example to move busy {@link Channel}s off an overloaded {@link EventLoop}, and notifies the given
+     * {@link ChannelPromise} once the new {@link EventLoop} took over.
+     * <p>
+     * The current {@link EventLoop} stops the I/O of this {@link Channel} at once, and hands it over once it ran all
+     * tasks which were submitted to it before. The new {@link EventLoop} registers this {@link Channel}, writes its
+     * pending outbound data and then runs all tasks which were submitted via the {@link ChannelHandlerContext}s while
+     * the {@link Channel} was migrated, in submission order. No {@code channelUnregistered} and
+     * {@code channelRegistered} events are fired and {@link #isRegistered()} returns {@code false} during the
+     * migration.
+     * <p>
+     * Only a {@link Channel} whose {@link ChannelOption#ALLOW_MIGRATION} was set before it was registered can be
+     * migrated, and not while a connection attempt is in progress. Tasks which were scheduled via
+     * {@link ChannelHandlerContext#executor()} move to the new {@link EventLoop} together with this {@link Channel}.
+     * Tasks which were scheduled via or submitted to the old {@link EventLoop} directly may still run on it, so such
+     * tasks should use {@link ChannelHandlerContext#executor()} again for the work they do on this {@link Channel}.
+     * A {@link Channel} which does not use auto read must call {@link #read()} again after the migration.
+     */
+    @UnstableApi
+    public ChannelFuture migrate(final EventLoop eventLoop, final ChannelPromise promise) {
+        ObjectUtil.checkNotNull(eventLoop, "eventLoop");
+        ObjectUtil.checkNotNull(promise, "promise");
+        final EventLoop currentEventLoop = this.eventLoop;
+        if (currentEventLoop == null) {
+            promise.setFailure(new IllegalStateException("channel not registered to an event loop"));
+            return promise;
+        }
+        if (currentEventLoop.inEventLoop()) {
+            ((AbstractUnsafe) unsafe).migrate(eventLoop, promise);
+        } else {
+            try {
+                currentEventLoop.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        ((AbstractUnsafe) unsafe).migrate(eventLoop, promise);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                promise.setFailure(e);
+            }
+        }
+        return promise;
+    }
+
     @Override
     public Channel read() {
         pipeline.read();
@@ -528,6 +586,121 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
             }
         }
 
+        final void migrate(final EventLoop newEventLoop, final ChannelPromise promise) {
+            assertEventLoop();
+
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+            final EventLoop oldEventLoop = eventLoop;
+            if (newEventLoop == oldEventLoop) {
+                safeSetSuccess(promise);
+                return;
+            }
+            final ChannelMigrationEventLoop migrationEventLoop = pipeline.migratableEventLoop;
+            if (migrationEventLoop == null) {
+                safeSetFailure(promise, new IllegalStateException(
+                        "migration not allowed (see ChannelOption.ALLOW_MIGRATION)"));
+                return;
+            }
+            if (!registered || migrationEventLoop.isMigrating()) {
+                safeSetFailure(promise, new IllegalStateException(
+                        registered ? "channel is migrated already" : "channel not registered to an event loop"));
+                return;
+            }
+            if (isConnectPending()) {
+                safeSetFailure(promise, new IllegalStateException("connection attempt in progress"));
+                return;
+            }
+            if (!isCompatible(newEventLoop)) {
+                safeSetFailure(promise, new IllegalStateException(
+                        "channel can not be migrated to event loop type: " + newEventLoop.getClass().getName()));
+                return;
+            }
+            if (oldEventLoop.parent() == null || oldEventLoop.parent() != newEventLoop.parent()) {
+                safeSetFailure(promise, new IllegalArgumentException("event loop of another group: " + newEventLoop));
+                return;
+            }
+            if (newEventLoop.isShuttingDown()) {
+                safeSetFailure(promise, new IllegalStateException("event loop is shutting down: " + newEventLoop));
+                return;
+            }
+
+            final boolean wasActive = isActive();
+            try {
+                doDeregister();
+            } catch (Throwable t) {
+                close(voidPromise());
+                safeSetFailure(promise, t);
+                return;
+            }
+            registered = false;
+
+            // From now on all tasks which are submitted via the ChannelHandlerContexts are kept by the
+            // ChannelMigrationEventLoop until the new EventLoop took over. The tasks which were submitted before are
+            // in the task queue of the old EventLoop already, so they run before the hand-over task.
+            migrationEventLoop.startMigration();
+            Runnable handOverTask = new Runnable() {
+                @Override
+                public void run() {
+                    migrationEventLoop.beginHandOver();
+                    AbstractChannel.this.eventLoop = newEventLoop;
+                    try {
+                        migrationEventLoop.handOver(new Runnable() {
+                            @Override
+                            public void run() {
+                                completeMigration(wasActive, promise);
+                            }
+                        });
+                    } catch (Throwable t) {
+                        AbstractChannel.this.eventLoop = oldEventLoop;
+                        logger.warn("Force-closing a channel whose migration was not accepted by an event loop: {}",
+                                AbstractChannel.this, t);
+                        closeForcibly();
+                        closeFuture.setClosed();
+                        safeSetFailure(promise, t);
+                        // Let the kept tasks fail on the closed channel.
+                        migrationEventLoop.abortHandOver();
+                    }
+                }
+            };
+            try {
+                oldEventLoop.execute(handOverTask);
+            } catch (RejectedExecutionException e) {
+                // The old EventLoop is shutting down, so there are no tasks left which it needs to run first.
+                handOverTask.run();
+            }
+        }
+
+        private void completeMigration(boolean wasActive, ChannelPromise promise) {
+            if (!isOpen()) {
+                // The channel was closed during the migration, which did not fire these events as the channel was
+                // not registered.
+                if (wasActive) {
+                    pipeline.fireChannelInactive();
+                }
+                pipeline.fireChannelUnregistered();
+                safeSetFailure(promise, ENSURE_OPEN_CLOSED_CHANNEL_EXCEPTION);
+                return;
+            }
+            try {
+                doRegister();
+            } catch (Throwable t) {
+                registered = true;
+                close(voidPromise());
+                safeSetFailure(promise, t);
+                return;
+            }
+            registered = true;
+
+            if (isActive() && config().isAutoRead()) {
+                beginRead();
+            }
+            // Write the data which was flushed, but not written by the old EventLoop.
+            flush0();
+            safeSetSuccess(promise);
+        }
+
         @Override
         public final void bind(final SocketAddress localAddress, final ChannelPromise promise) {
             assertEventLoop();
@@ -968,6 +1141,53 @@ public abstract class AbstractChannel extends DefaultAttributeMap implements Cha
      */
     protected abstract boolean isCompatible(EventLoop loop);
 
+    /**
+     * Return {@code true} if this instance can be moved to another {@link EventLoop} via
+     * {@link #migrate(EventLoop, ChannelPromise)}.
+     *
+     * Sub-classes may override this method
+     */
+    protected boolean isMigrationSupported() {
+        return true;
+    }
+
+    /**
+     * Return {@code true} if a connection attempt of this instance is in progress, during which it can not be moved
+     * to another {@link EventLoop}.
+     *
+     * Sub-classes may override this method
+     */
+    protected boolean isConnectPending() {
+        return false;
+    }
+
+    /**
+     * Returns {@code true} if this instance can be moved to another {@link EventLoop}.
+     */
+    final boolean isMigrationAllowed() {
+        return pipeline.migratableEventLoop != null;
+    }
+
+    /**
+     * Allows or disallows to move this instance to another {@link EventLoop} and returns {@code false} if it does
+     * not support it. This can only be changed before this instance is registered, as the
+     * {@link ChannelHandlerContext}s then use a {@link ChannelMigrationEventLoop} which follows it to the new
+     * {@link EventLoop}.
+     */
+    final boolean setMigrationAllowed(boolean migrationAllowed) {
+        if (migrationAllowed == isMigrationAllowed()) {
+            return true;
+        }
+        if (migrationAllowed && !isMigrationSupported()) {
+            return false;
+        }
+        if (eventLoop != null) {
+            throw new IllegalStateException("channel registered already");
+        }
+        pipeline.migratableEventLoop = migrationAllowed ? new ChannelMigrationEventLoop(this) : null;
+        return true;
+    }
+
     /**
      * Returns the {@link SocketAddress} which is bound locally.
      */
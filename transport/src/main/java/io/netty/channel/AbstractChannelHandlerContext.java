@@ -122,7 +122,8 @@ abstract class AbstractChannelHandlerContext extends DefaultAttributeMap
     @Override
     public EventExecutor executor() {
         if (executor == null) {
-            return channel().eventLoop();
+            EventLoop migratableEventLoop = pipeline.migratableEventLoop;
+            return migratableEventLoop == null ? channel().eventLoop() : migratableEventLoop;
         } else {
             return executor;
         }
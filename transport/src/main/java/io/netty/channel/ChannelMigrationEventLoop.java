@@ -0,0 +1,298 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.AbstractScheduledEventExecutor;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.ObjectUtil;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link EventLoop} of the {@link ChannelHandlerContext}s of a {@link Channel} which may be migrated from one
+ * {@link EventLoop} to another via {@link AbstractChannel#migrate(EventLoop)}. It runs all tasks on the current
+ * {@link EventLoop} of the {@link Channel}.
+ * <p>
+ * The old {@link EventLoop} stays the owner of the {@link Channel} until it ran all tasks which were submitted to it
+ * before the migration started. All tasks which are submitted in the mean time are kept in submission order and are
+ * handed over to the new {@link EventLoop} together with the {@link Channel}, so they run after all earlier tasks.
+ * No thread is in this {@link EventLoop} from the hand-over until the new {@link EventLoop} starts to run the kept
+ * tasks.
+ * <p>
+ * Scheduled tasks are kept by this instance and are run by a single timer on the current {@link EventLoop}, which
+ * is moved to the new {@link EventLoop} together with the {@link Channel}.
+ */
+final class ChannelMigrationEventLoop extends AbstractScheduledEventExecutor implements EventLoop {
+
+    private final AbstractChannel channel;
+    private final Runnable runScheduledTasksTask = new Runnable() {
+        @Override
+        public void run() {
+            runScheduledTasks();
+        }
+    };
+    private final Runnable armTimerTask = new Runnable() {
+        @Override
+        public void run() {
+            armTimer();
+        }
+    };
+    // Guarded by this, not null from the start of a migration until the new EventLoop ran all kept tasks.
+    private Queue<Runnable> tasks;
+    // true from the hand-over until the new EventLoop starts to run the kept tasks.
+    private volatile boolean handingOver;
+    // Only accessed by the current EventLoop of the channel.
+    private ScheduledFuture<?> timer;
+    private long timerDeadlineNanos;
+
+    ChannelMigrationEventLoop(AbstractChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * Returns {@code true} if the {@link Channel} is migrated at the moment.
+     */
+    synchronized boolean isMigrating() {
+        return tasks != null;
+    }
+
+    /**
+     * Keeps all tasks which are submitted to this instance from now on until the {@link Channel} was handed over.
+     * As the tasks which were submitted before were passed to the old {@link EventLoop} while holding the same lock,
+     * a task which is submitted to the old {@link EventLoop} after this call runs after all of them.
+     * <p>
+     * This method MUST be called by the old {@link EventLoop}.
+     */
+    void startMigration() {
+        assert inEventLoop();
+        synchronized (this) {
+            tasks = new ArrayDeque<Runnable>();
+        }
+    }
+
+    /**
+     * Stops the {@link #inEventLoop(Thread)} of all threads and the timer of the old {@link EventLoop}. The caller
+     * must make the new {@link EventLoop} the {@link EventLoop} of the {@link Channel} after this call and then call
+     * {@link #handOver(Runnable)}.
+     * <p>
+     * This method MUST be called by the old {@link EventLoop}.
+     */
+    void beginHandOver() {
+        assert inEventLoop();
+        handingOver = true;
+        cancelTimer();
+    }
+
+    /**
+     * Makes the current {@link EventLoop} of the {@link Channel} the owner of it. The {@link EventLoop} first runs
+     * the given task and then all tasks which were kept by this instance. All tasks which are submitted after that
+     * are passed to the {@link EventLoop} directly.
+     */
+    void handOver(final Runnable firstTask) {
+        assert handingOver;
+        channel.eventLoop().execute(new Runnable() {
+            @Override
+            public void run() {
+                handingOver = false;
+                try {
+                    firstTask.run();
+                } finally {
+                    armTimer();
+                    runTasks();
+                }
+            }
+        });
+    }
+
+    /**
+     * Makes the old {@link EventLoop} the owner of the {@link Channel} again, after the caller made it the
+     * {@link EventLoop} of the {@link Channel} again, and runs all kept tasks.
+     * <p>
+     * This method MUST be called by the old {@link EventLoop}.
+     */
+    void abortHandOver() {
+        handingOver = false;
+        assert inEventLoop();
+        armTimer();
+        runTasks();
+    }
+
+    private void runTasks() {
+        for (;;) {
+            Runnable task;
+            synchronized (this) {
+                task = tasks.poll();
+                if (task == null) {
+                    tasks = null;
+                    return;
+                }
+            }
+            safeExecute(task);
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        ObjectUtil.checkNotNull(command, "command");
+        synchronized (this) {
+            if (tasks != null) {
+                tasks.add(command);
+                return;
+            }
+            // Submit while holding the lock, so a migration which starts concurrently hands the channel over only
+            // after the old EventLoop ran the command.
+            channel.eventLoop().execute(command);
+        }
+    }
+
+    @Override
+    public boolean inEventLoop(Thread thread) {
+        // Read the EventLoop first: if it is the new one already, handingOver was set before.
+        EventLoop eventLoop = channel.eventLoop();
+        return !handingOver && eventLoop.inEventLoop(thread);
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        return afterSchedule(super.schedule(command, delay, unit));
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        return afterSchedule(super.schedule(callable, delay, unit));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        return afterSchedule(super.scheduleAtFixedRate(command, initialDelay, period, unit));
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        return afterSchedule(super.scheduleWithFixedDelay(command, initialDelay, delay, unit));
+    }
+
+    private <V> ScheduledFuture<V> afterSchedule(ScheduledFuture<V> future) {
+        // If the task was scheduled from another thread, it is added by a task which runs before this one.
+        if (inEventLoop()) {
+            armTimer();
+        } else {
+            execute(armTimerTask);
+        }
+        return future;
+    }
+
+    private void armTimer() {
+        long deadlineNanos = nextScheduledTaskDeadlineNanos();
+        if (deadlineNanos == -1 || timer != null && timerDeadlineNanos <= deadlineNanos) {
+            return;
+        }
+        cancelTimer();
+        timerDeadlineNanos = deadlineNanos;
+        timer = channel.eventLoop().schedule(
+                runScheduledTasksTask, Math.max(0, deadlineNanos - nanoTime()), TimeUnit.NANOSECONDS);
+    }
+
+    private void cancelTimer() {
+        if (timer != null) {
+            timer.cancel(false);
+            timer = null;
+        }
+    }
+
+    private void runScheduledTasks() {
+        timer = null;
+        long nanoTime = nanoTime();
+        for (;;) {
+            if (!inEventLoop()) {
+                // A task migrated the channel and it was handed over already.
+                return;
+            }
+            Runnable task = pollScheduledTask(nanoTime);
+            if (task == null) {
+                break;
+            }
+            task.run();
+        }
+        armTimer();
+    }
+
+    @Override
+    public EventLoopGroup parent() {
+        return channel.eventLoop().parent();
+    }
+
+    @Override
+    public EventLoop next() {
+        return this;
+    }
+
+    @Override
+    public ChannelFuture register(Channel channel) {
+        return this.channel.eventLoop().register(channel);
+    }
+
+    @Override
+    public ChannelFuture register(ChannelPromise promise) {
+        return channel.eventLoop().register(promise);
+    }
+
+    @Deprecated
+    @Override
+    public ChannelFuture register(Channel channel, ChannelPromise promise) {
+        return this.channel.eventLoop().register(channel, promise);
+    }
+
+    @Override
+    public boolean isShuttingDown() {
+        return channel.eventLoop().isShuttingDown();
+    }
+
+    @Override
+    public Future<?> shutdownGracefully(long quietPeriod, long timeout, TimeUnit unit) {
+        return channel.eventLoop().shutdownGracefully(quietPeriod, timeout, unit);
+    }
+
+    @Override
+    public Future<?> terminationFuture() {
+        return channel.eventLoop().terminationFuture();
+    }
+
+    @Deprecated
+    @Override
+    public void shutdown() {
+        channel.eventLoop().shutdown();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return channel.eventLoop().isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return channel.eventLoop().isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return channel.eventLoop().awaitTermination(timeout, unit);
+    }
+}
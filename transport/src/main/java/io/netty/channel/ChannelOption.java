@@ -131,6 +131,12 @@ public class ChannelOption<T> extends AbstractConstant<ChannelOption<T>> {
     public static final ChannelOption<Boolean> SINGLE_EVENTEXECUTOR_PER_GROUP =
             valueOf("SINGLE_EVENTEXECUTOR_PER_GROUP");
 
+    /**
+     * Allows to move an {@link AbstractChannel} to another {@link EventLoop} via
+     * {@link AbstractChannel#migrate(EventLoop)}. Must be set before the {@link Channel} is registered.
+     */
+    public static final ChannelOption<Boolean> ALLOW_MIGRATION = valueOf("ALLOW_MIGRATION");
+
     /**
      * Creates a new {@link ChannelOption} with the specified unique {@code name}.
      */
@@ -280,6 +280,52 @@ public final class ChannelOutboundBuffer {
         return remove0(cause, true);
     }
 
+    /**
+     * Will remove the current message like {@link #remove()}, but neither release it nor notify its
+     * {@link ChannelPromise}. This is meant for transports which hand the memory of the message over to the operating
+     * system and so must not release it before the operating system signaled that it is done with it.
+     * <p>
+     * The ownership of the message is transferred to the caller, which must release it and complete the returned
+     * {@link ChannelPromise} once done. The outcome is propagated to the {@link ChannelPromise} of the message. Until
+     * then the message is still accounted in the pending bytes and so in the writability of the {@link Channel}.
+     * Returns {@code null} if no flushed message exists or if the current message was cancelled before.
+     */
+    public ChannelPromise removeDeferred() {
+        Entry e = flushedEntry;
+        if (e == null) {
+            clearNioBuffers();
+            return null;
+        }
+        final ChannelPromise promise = e.promise;
+        final int size = e.pendingSize;
+        final boolean cancelled = e.cancelled;
+
+        removeEntry(e);
+
+        // recycle the entry
+        e.recycle();
+
+        if (cancelled) {
+            // the message was released and the pending bytes decremented when it was canceled.
+            return null;
+        }
+        ChannelPromise deferred = channel.newPromise();
+        deferred.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    decrementPendingOutboundBytes(size, false, true);
+                    safeSuccess(promise);
+                } else {
+                    // Transports only fail it when the channel is closed, so do not notify about writability changes.
+                    decrementPendingOutboundBytes(size, false, false);
+                    safeFail(promise, future.cause());
+                }
+            }
+        });
+        return deferred;
+    }
+
     /**
     * @Date:  2020-11-14
     * @Param:
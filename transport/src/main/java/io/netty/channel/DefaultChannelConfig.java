@@ -25,6 +25,7 @@ import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 import static io.netty.channel.ChannelOption.ALLOCATOR;
+import static io.netty.channel.ChannelOption.ALLOW_MIGRATION;
 import static io.netty.channel.ChannelOption.AUTO_CLOSE;
 import static io.netty.channel.ChannelOption.AUTO_READ;
 import static io.netty.channel.ChannelOption.CONNECT_TIMEOUT_MILLIS;
@@ -97,7 +98,7 @@ public class DefaultChannelConfig implements ChannelConfig {
                 CONNECT_TIMEOUT_MILLIS, MAX_MESSAGES_PER_READ, WRITE_SPIN_COUNT,
                 ALLOCATOR, AUTO_READ, AUTO_CLOSE, RCVBUF_ALLOCATOR, WRITE_BUFFER_HIGH_WATER_MARK,
                 WRITE_BUFFER_LOW_WATER_MARK, WRITE_BUFFER_WATER_MARK, MESSAGE_SIZE_ESTIMATOR,
-                SINGLE_EVENTEXECUTOR_PER_GROUP);
+                SINGLE_EVENTEXECUTOR_PER_GROUP, ALLOW_MIGRATION);
     }
 
     protected Map<ChannelOption<?>, Object> getOptions(
@@ -171,6 +172,9 @@ public class DefaultChannelConfig implements ChannelConfig {
         if (option == SINGLE_EVENTEXECUTOR_PER_GROUP) {
             return (T) Boolean.valueOf(getPinEventExecutorPerGroup());
         }
+        if (option == ALLOW_MIGRATION) {
+            return (T) Boolean.valueOf(getAllowMigration());
+        }
         return null;
     }
 
@@ -203,6 +207,8 @@ public class DefaultChannelConfig implements ChannelConfig {
             setMessageSizeEstimator((MessageSizeEstimator) value);
         } else if (option == SINGLE_EVENTEXECUTOR_PER_GROUP) {
             setPinEventExecutorPerGroup((Boolean) value);
+        } else if (option == ALLOW_MIGRATION) {
+            return setAllowMigration((Boolean) value);
         } else {
             return false;
         }
@@ -444,4 +450,15 @@ public class DefaultChannelConfig implements ChannelConfig {
         return pinEventExecutor;
     }
 
+    private boolean setAllowMigration(boolean allowMigration) {
+        if (channel instanceof AbstractChannel) {
+            return ((AbstractChannel) channel).setMigrationAllowed(allowMigration);
+        }
+        return !allowMigration;
+    }
+
+    private boolean getAllowMigration() {
+        return channel instanceof AbstractChannel && ((AbstractChannel) channel).isMigrationAllowed();
+    }
+
 }
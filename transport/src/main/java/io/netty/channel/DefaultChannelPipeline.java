@@ -84,6 +84,13 @@ public class DefaultChannelPipeline implements ChannelPipeline {
      */
     private boolean registered;
 
+    /**
+     * The {@link EventLoop} of the handlers without an own {@link EventExecutor} if the {@link AbstractChannel} may be
+     * migrated to another {@link EventLoop}, or {@code null}. Only set before the {@link AbstractChannel} is
+     * registered, so the registration publishes it to the {@link EventLoop}.
+     */
+    ChannelMigrationEventLoop migratableEventLoop;
+
     protected DefaultChannelPipeline(Channel channel) {
         this.channel = ObjectUtil.checkNotNull(channel, "channel");
         succeededFuture = new SucceededChannelFuture(channel, null);
@@ -16,6 +16,7 @@
 package io.netty.channel;
 
 import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.concurrent.RejectedExecutionHandlers;
 
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
@@ -46,6 +47,10 @@ public class DefaultEventLoop extends SingleThreadEventLoop {
         super(parent, executor, true);
     }
 
+    public DefaultEventLoop(EventLoopGroup parent, Executor executor, boolean useTimingWheel) {
+        super(parent, executor, true, DEFAULT_MAX_PENDING_TASKS, RejectedExecutionHandlers.reject(), useTimingWheel);
+    }
+
     @Override
     protected void run() {
         for (;;) {
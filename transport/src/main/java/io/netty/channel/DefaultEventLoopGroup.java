@@ -15,6 +15,8 @@
  */
 package io.netty.channel;
 
+import io.netty.util.concurrent.EventExecutorChooserFactory;
+
 import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
@@ -59,8 +61,35 @@ public class DefaultEventLoopGroup extends MultithreadEventLoopGroup {
         super(nThreads, executor);
     }
 
+    /**
+     * Create a new instance
+     *
+     * @param nThreads          the number of threads to use
+     * @param executor          the Executor to use, or {@code null} if the default should be used.
+     * @param useTimingWheel    {@code true} if the child event loops should keep their scheduled tasks in a timing
+     *                          wheel instead of a binary heap.
+     */
+    public DefaultEventLoopGroup(int nThreads, Executor executor, boolean useTimingWheel) {
+        super(nThreads, executor, useTimingWheel);
+    }
+
+    /**
+     * Create a new instance
+     *
+     * @param nThreads          the number of threads to use
+     * @param executor          the Executor to use, or {@code null} if the default should be used.
+     * @param chooserFactory    the {@link EventExecutorChooserFactory} which chooses the {@link EventLoop} of
+     *                          {@link #next()}.
+     */
+    public DefaultEventLoopGroup(int nThreads, Executor executor, EventExecutorChooserFactory chooserFactory) {
+        super(nThreads, executor, chooserFactory);
+    }
+
     @Override
     protected EventLoop newChild(Executor executor, Object... args) throws Exception {
+        if (args.length > 0) {
+            return new DefaultEventLoop(this, executor, (Boolean) args[0]);
+        }
         return new DefaultEventLoop(this, executor);
     }
 }
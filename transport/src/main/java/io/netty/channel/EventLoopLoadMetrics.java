@@ -0,0 +1,63 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory;
+import io.netty.util.concurrent.LoadAwareEventExecutorChooserFactory.LoadMetric;
+import io.netty.util.internal.UnstableApi;
+
+/**
+ * {@link LoadMetric}s of {@link EventLoop}s which can be used with a {@link LoadAwareEventExecutorChooserFactory}
+ * to choose the {@link EventLoop} of new {@link Channel}s, for example:
+ * <pre>
+ * new NioEventLoopGroup(0, null, LoadAwareEventExecutorChooserFactory.leastLoaded(
+ *         EventLoopLoadMetrics.REGISTERED_CHANNELS), SelectorProvider.provider(),
+ *         DefaultSelectStrategyFactory.INSTANCE);
+ * </pre>
+ */
+@UnstableApi
+public final class EventLoopLoadMetrics {
+
+    /**
+     * Uses the number of {@link SingleThreadEventLoop#registeredChannels()} plus the number of
+     * {@link SingleThreadEventLoop#pendingTasks()} as load, as a registration is a pending task until the
+     * {@link EventLoop} processes it. Returns {@code 0} if the {@link EventLoop} does not support counting its
+     * {@link Channel}s.
+     */
+    public static final LoadMetric REGISTERED_CHANNELS = new LoadMetric() {
+        @Override
+        public long load(EventExecutor executor) {
+            if (executor instanceof SingleThreadEventLoop) {
+                SingleThreadEventLoop loop = (SingleThreadEventLoop) executor;
+                int registeredChannels = loop.registeredChannels();
+                if (registeredChannels >= 0) {
+                    return (long) registeredChannels + loop.pendingTasks();
+                }
+            }
+            return 0;
+        }
+    };
+
+    /**
+     * Uses the number of pending tasks as load.
+     *
+     * @see LoadAwareEventExecutorChooserFactory#PENDING_TASKS
+     */
+    public static final LoadMetric PENDING_TASKS = LoadAwareEventExecutorChooserFactory.PENDING_TASKS;
+
+    private EventLoopLoadMetrics() { }
+}
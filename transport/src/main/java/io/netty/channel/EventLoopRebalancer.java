@@ -0,0 +1,284 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
+import io.netty.util.internal.ObjectUtil;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.UnstableApi;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Periodically moves the busiest {@link Channel}s off {@link EventLoop}s which are much busier than the other
+ * {@link EventLoop}s of the same {@link EventLoopGroup}, using {@link AbstractChannel#migrate(EventLoop)}.
+ * <p>
+ * The load of an {@link EventLoop} is the time it spent on processing I/O and tasks during the last period, as
+ * returned by {@link SingleThreadEventLoop#busyTimeNanos()}. {@link EventLoop}s which do not support it are ignored.
+ * Only {@link Channel}s which allow it via {@link ChannelOption#ALLOW_MIGRATION} and have the {@link ChannelHandler}
+ * returned by {@link #newHandler()} in their {@link ChannelPipeline} are considered, and the share of a
+ * {@link Channel} in the load of its {@link EventLoop} is estimated by the number of messages it read and wrote. At
+ * most one {@link Channel} is migrated per period, so the load of the {@link EventLoop}s can settle before the next
+ * decision.
+ * <pre>
+ * EventLoopRebalancer rebalancer = new EventLoopRebalancer(childGroup, 1, TimeUnit.SECONDS);
+ * rebalancer.start();
+ * ...
+ * serverBootstrap.childOption(ChannelOption.ALLOW_MIGRATION, true);
+ * ...
+ * ch.pipeline().addFirst(rebalancer.newHandler());
+ * </pre>
+ */
+@UnstableApi
+public final class EventLoopRebalancer {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EventLoopRebalancer.class);
+
+    private final EventLoopGroup group;
+    private final EventExecutor executor;
+    private final long intervalNanos;
+    private final double minImbalance;
+    private final Set<ActivityHandler> handlers =
+            Collections.newSetFromMap(PlatformDependent.<ActivityHandler, Boolean>newConcurrentHashMap());
+    // Only accessed by the executor.
+    private final Map<SingleThreadEventLoop, Long> lastBusyTimes =
+            new IdentityHashMap<SingleThreadEventLoop, Long>();
+    private final Runnable rebalanceTask = new Runnable() {
+        @Override
+        public void run() {
+            rebalance();
+        }
+    };
+    private ScheduledFuture<?> rebalanceFuture;
+
+    /**
+     * Creates a new instance which runs every {@code interval} on the {@link GlobalEventExecutor} and migrates a
+     * {@link Channel} if the busy time of two {@link EventLoop}s differs by more than 20% of the interval.
+     *
+     * @param group     the {@link EventLoopGroup} whose {@link EventLoop}s are balanced
+     * @param interval  the interval between two rebalancing decisions
+     * @param unit      the {@link TimeUnit} of {@code interval}
+     */
+    public EventLoopRebalancer(EventLoopGroup group, long interval, TimeUnit unit) {
+        this(group, GlobalEventExecutor.INSTANCE, interval, unit, 0.2);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param group         the {@link EventLoopGroup} whose {@link EventLoop}s are balanced
+     * @param executor      the {@link EventExecutor} which runs the rebalancing decisions
+     * @param interval      the interval between two rebalancing decisions
+     * @param unit          the {@link TimeUnit} of {@code interval}
+     * @param minImbalance  the minimal difference between the busy time of the busiest and the least busy
+     *                      {@link EventLoop} during an interval, as a fraction of the interval, for which a
+     *                      {@link Channel} is migrated
+     */
+    public EventLoopRebalancer(EventLoopGroup group, EventExecutor executor, long interval, TimeUnit unit,
+                               double minImbalance) {
+        this.group = ObjectUtil.checkNotNull(group, "group");
+        this.executor = ObjectUtil.checkNotNull(executor, "executor");
+        ObjectUtil.checkNotNull(unit, "unit");
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval: " + interval + " (expected: > 0)");
+        }
+        if (minImbalance <= 0 || minImbalance > 1) {
+            throw new IllegalArgumentException("minImbalance: " + minImbalance + " (expected: 0 < minImbalance <= 1)");
+        }
+        intervalNanos = unit.toNanos(interval);
+        this.minImbalance = minImbalance;
+    }
+
+    /**
+     * Starts the periodic rebalancing. Calling this method on a started instance has no effect.
+     */
+    public synchronized void start() {
+        if (rebalanceFuture == null) {
+            rebalanceFuture = executor.scheduleWithFixedDelay(
+                    rebalanceTask, intervalNanos, intervalNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * Stops the periodic rebalancing. {@link Channel}s which are currently migrated are not affected.
+     */
+    public synchronized void stop() {
+        if (rebalanceFuture != null) {
+            rebalanceFuture.cancel(false);
+            rebalanceFuture = null;
+        }
+    }
+
+    /**
+     * Returns a new {@link ChannelHandler} which makes the {@link Channel} of its {@link ChannelPipeline} a
+     * candidate for migration. The returned {@link ChannelHandler} must not be shared between {@link Channel}s.
+     */
+    public ChannelHandler newHandler() {
+        return new ActivityHandler();
+    }
+
+    // visible for testing
+    void rebalance() {
+        // Sample the busy time of all event loops during the last period.
+        Map<SingleThreadEventLoop, Long> busyTimes = new IdentityHashMap<SingleThreadEventLoop, Long>();
+        for (EventExecutor e: group) {
+            if (!(e instanceof SingleThreadEventLoop)) {
+                continue;
+            }
+            SingleThreadEventLoop loop = (SingleThreadEventLoop) e;
+            long busyTime = loop.busyTimeNanos();
+            if (busyTime < 0) {
+                continue;
+            }
+            Long lastBusyTime = lastBusyTimes.put(loop, busyTime);
+            if (lastBusyTime != null) {
+                busyTimes.put(loop, busyTime - lastBusyTime);
+            }
+        }
+
+        // Sample the activity of all channels during the last period, even if nothing is migrated, so the next
+        // period starts from a fresh baseline.
+        Map<EventLoop, Long> loopActivities = new IdentityHashMap<EventLoop, Long>();
+        for (ActivityHandler handler: handlers) {
+            long activity = handler.activity;
+            handler.lastActivityDelta = activity - handler.lastActivity;
+            handler.lastActivity = activity;
+            EventLoop loop = handler.channel.eventLoop();
+            Long loopActivity = loopActivities.get(loop);
+            loopActivities.put(loop, (loopActivity == null ? 0 : loopActivity) + handler.lastActivityDelta);
+        }
+
+        if (busyTimes.size() < 2) {
+            return;
+        }
+
+        SingleThreadEventLoop busiest = null;
+        SingleThreadEventLoop leastBusy = null;
+        for (Map.Entry<SingleThreadEventLoop, Long> entry: busyTimes.entrySet()) {
+            SingleThreadEventLoop loop = entry.getKey();
+            long busyTime = entry.getValue();
+            if (busiest == null || busyTime > busyTimes.get(busiest)) {
+                busiest = loop;
+            }
+            if (leastBusy == null || busyTime < busyTimes.get(leastBusy)) {
+                leastBusy = loop;
+            }
+        }
+        long busiestTime = busyTimes.get(busiest);
+        long gap = busiestTime - busyTimes.get(leastBusy);
+        if (gap <= intervalNanos * minImbalance) {
+            return;
+        }
+        Long busiestActivity = loopActivities.get(busiest);
+        if (busiestActivity == null || busiestActivity <= 0) {
+            return;
+        }
+
+        // Choose the busiest channel whose migration does not make the least busy loop busier than the busiest
+        // one was, so channels do not bounce between the two loops.
+        ActivityHandler candidate = null;
+        long candidateTime = 0;
+        for (ActivityHandler handler: handlers) {
+            if (handler.channel.eventLoop() != busiest || !handler.channel.isActive()) {
+                continue;
+            }
+            long estimatedTime = (long) ((double) busiestTime * handler.lastActivityDelta / busiestActivity);
+            if (estimatedTime > candidateTime && estimatedTime <= gap / 2) {
+                candidate = handler;
+                candidateTime = estimatedTime;
+            }
+        }
+        if (candidate == null) {
+            return;
+        }
+
+        final Channel channel = candidate.channel;
+        if (logger.isDebugEnabled()) {
+            logger.debug("Migrating {} from {} to {} (estimated busy time: {}ns of {}ns)",
+                    channel, busiest, leastBusy, candidateTime, busiestTime);
+        }
+        ((AbstractChannel) channel).migrate(leastBusy).addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) {
+                if (!future.isSuccess() && logger.isDebugEnabled()) {
+                    logger.debug("Failed to migrate {}", channel, future.cause());
+                }
+            }
+        });
+    }
+
+    private final class ActivityHandler extends ChannelDuplexHandler {
+        private Channel channel;
+        // Only written by the event loop of the channel.
+        private volatile long activity;
+        // Only accessed by the executor of the rebalancer.
+        private long lastActivity;
+        private long lastActivityDelta;
+
+        @Override
+        public void handlerAdded(ChannelHandlerContext ctx) {
+            Channel channel = ctx.channel();
+            if (!(channel instanceof AbstractChannel)) {
+                throw new IllegalArgumentException(
+                        "unsupported channel type: " + channel.getClass().getName() + " (expected: AbstractChannel)");
+            }
+            if (!((AbstractChannel) channel).isMigrationAllowed()) {
+                throw new IllegalArgumentException("migration not allowed (see ChannelOption.ALLOW_MIGRATION)");
+            }
+            this.channel = channel;
+            if (channel.isActive()) {
+                handlers.add(this);
+            }
+        }
+
+        @Override
+        public void handlerRemoved(ChannelHandlerContext ctx) {
+            handlers.remove(this);
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            handlers.add(this);
+            ctx.fireChannelActive();
+        }
+
+        @Override
+        public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+            handlers.remove(this);
+            ctx.fireChannelInactive();
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            activity++;
+            ctx.fireChannelRead(msg);
+        }
+
+        @Override
+        public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
+            activity++;
+            ctx.write(msg, promise);
+        }
+    }
+}
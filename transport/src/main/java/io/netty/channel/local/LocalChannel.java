@@ -160,6 +160,12 @@ public class LocalChannel extends AbstractChannel {
         return loop instanceof SingleThreadEventLoop;
     }
 
+    @Override
+    protected boolean isMigrationSupported() {
+        // The peer hands over its messages via the event loop of this channel.
+        return false;
+    }
+
     @Override
     protected SocketAddress localAddress0() {
         return localAddress;
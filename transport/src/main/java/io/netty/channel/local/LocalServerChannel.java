@@ -80,6 +80,12 @@ public class LocalServerChannel extends AbstractServerChannel {
         return loop instanceof SingleThreadEventLoop;
     }
 
+    @Override
+    protected boolean isMigrationSupported() {
+        // The accepted channels are registered via the event loop of this channel.
+        return false;
+    }
+
     @Override
     protected SocketAddress localAddress0() {
         return localAddress;
@@ -377,6 +377,11 @@ public abstract class AbstractNioChannel extends AbstractChannel {
         return loop instanceof NioEventLoop;
     }
 
+    @Override
+    protected boolean isConnectPending() {
+        return connectPromise != null;
+    }
+
     @Override
     protected void doRegister() throws Exception {
         boolean selected = false;
@@ -23,6 +23,7 @@ import io.netty.channel.SelectStrategy;
 import io.netty.channel.SingleThreadEventLoop;
 import io.netty.util.IntSupplier;
 import io.netty.util.concurrent.RejectedExecutionHandler;
+import io.netty.util.internal.MpscChunkedQueue;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
 import io.netty.util.internal.logging.InternalLogger;
@@ -43,7 +44,6 @@ import java.util.ConcurrentModificationException;
 import java.util.Iterator;
 import java.util.Queue;
 import java.util.Set;
-import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -71,12 +71,6 @@ public final class NioEventLoop extends SingleThreadEventLoop {
             return selectNow();
         }
     };
-    private final Callable<Integer> pendingTasksCallable = new Callable<Integer>() {
-        @Override
-        public Integer call() throws Exception {
-            return NioEventLoop.super.pendingTasks();
-        }
-    };
 
     // Workaround for JDK NIO bug.
     //
@@ -134,10 +128,18 @@ public final class NioEventLoop extends SingleThreadEventLoop {
     private volatile int ioRatio = 50;
     private int cancelledKeys;
     private boolean needsToSelectAgain;
+    // Only written by the event loop itself.
+    private volatile long busyTimeNanos;
 
     NioEventLoop(NioEventLoopGroup parent, Executor executor, SelectorProvider selectorProvider,
                  SelectStrategy strategy, RejectedExecutionHandler rejectedExecutionHandler) {
-        super(parent, executor, false, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler);
+        this(parent, executor, selectorProvider, strategy, rejectedExecutionHandler, DEFAULT_USE_TIMING_WHEEL);
+    }
+
+    NioEventLoop(NioEventLoopGroup parent, Executor executor, SelectorProvider selectorProvider,
+                 SelectStrategy strategy, RejectedExecutionHandler rejectedExecutionHandler,
+                 boolean useTimingWheel) {
+        super(parent, executor, false, DEFAULT_MAX_PENDING_TASKS, rejectedExecutionHandler, useTimingWheel);
         if (selectorProvider == null) {
             throw new NullPointerException("selectorProvider");
         }
@@ -242,20 +244,19 @@ public final class NioEventLoop extends SingleThreadEventLoop {
 
     @Override
     protected Queue<Runnable> newTaskQueue(int maxPendingTasks) {
-        // This event loop never calls takeTask()
-        return PlatformDependent.newMpscQueue(maxPendingTasks);
+        // This event loop never calls takeTask(), so it can use a non-blocking queue which does not allocate a node
+        // per task and which is drained in batches by runAllTasksFrom(...).
+        return new MpscChunkedQueue<Runnable>(maxPendingTasks);
     }
 
     @Override
-    public int pendingTasks() {
-        // As we use a MpscQueue we need to ensure pendingTasks() is only executed from within the EventLoop as
-        // otherwise we may see unexpected behavior (as size() is only allowed to be called by a single consumer).
-        // See https://github.com/netty/netty/issues/5297
-        if (inEventLoop()) {
-            return super.pendingTasks();
-        } else {
-            return submit(pendingTasksCallable).syncUninterruptibly().getNow();
-        }
+    public int registeredChannels() {
+        return selector.keys().size() - cancelledKeys;
+    }
+
+    @Override
+    public long busyTimeNanos() {
+        return busyTimeNanos;
     }
 
     /**
@@ -396,6 +397,8 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 switch (selectStrategy.calculateStrategy(selectNowSupplier, hasTasks())) {
                     case SelectStrategy.CONTINUE:
                         continue;
+                    case SelectStrategy.BUSY_WAIT:
+                        // fall-through to SELECT since the busy-wait is not supported with NIO
                     case SelectStrategy.SELECT:
                         select(wakenUp.getAndSet(false));
 
@@ -437,6 +440,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                 cancelledKeys = 0;
                 needsToSelectAgain = false;
                 final int ioRatio = this.ioRatio;
+                final long ioStartTime = System.nanoTime();
                 if (ioRatio == 100) {
                     try {
                         processSelectedKeys();
@@ -445,7 +449,6 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                         runAllTasks();
                     }
                 } else {
-                    final long ioStartTime = System.nanoTime();
                     try {
                         processSelectedKeys();
                     } finally {
@@ -454,6 +457,7 @@ public final class NioEventLoop extends SingleThreadEventLoop {
                         runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
                     }
                 }
+                busyTimeNanos += System.nanoTime() - ioStartTime;
             } catch (Throwable t) {
                 handleLoopException(t);
             }
@@ -89,6 +89,12 @@ public abstract class AbstractOioChannel extends AbstractChannel {
         return loop instanceof ThreadPerChannelEventLoop;
     }
 
+    @Override
+    protected boolean isMigrationSupported() {
+        // Every channel has an own event loop.
+        return false;
+    }
+
     /**
      * Connect to the remote peer using the given localAddress if one is specified or {@code null} otherwise.
      */
@@ -241,6 +241,46 @@ public class ChannelOutboundBufferTest {
         safeClose(ch);
     }
 
+    @Test
+    public void testRemoveDeferred() {
+        final StringBuilder buf = new StringBuilder();
+        EmbeddedChannel ch = new EmbeddedChannel(new ChannelInboundHandlerAdapter() {
+            @Override
+            public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+                buf.append(ctx.channel().isWritable());
+                buf.append(' ');
+            }
+        });
+
+        ch.config().setWriteBufferLowWaterMark(128);
+        ch.config().setWriteBufferHighWaterMark(256);
+
+        ByteBuf msg = buffer().writeZero(257);
+        ChannelFuture future = ch.write(msg);
+        assertThat(buf.toString(), is("false "));
+
+        ChannelOutboundBuffer cob = ch.unsafe().outboundBuffer();
+        cob.addFlush();
+        ChannelPromise deferred = cob.removeDeferred();
+        assertNotNull(deferred);
+        assertTrue(cob.isEmpty());
+
+        // Ensure the message is neither released nor notified and still counts to the pending bytes.
+        assertEquals(1, msg.refCnt());
+        assertFalse(future.isDone());
+        assertThat(cob.totalPendingWriteBytes(), is(257L));
+        assertThat(buf.toString(), is("false "));
+
+        deferred.setSuccess();
+        assertTrue(future.isSuccess());
+        assertThat(cob.totalPendingWriteBytes(), is(0L));
+        assertThat(buf.toString(), is("false true "));
+        assertNull(cob.removeDeferred());
+
+        msg.release();
+        safeClose(ch);
+    }
+
     @Test
     public void testUserDefinedWritability() {
         final StringBuilder buf = new StringBuilder();
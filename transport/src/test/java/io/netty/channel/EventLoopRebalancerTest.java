@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.junit.Test;
+
+import java.net.ServerSocket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class EventLoopRebalancerTest {
+
+    @Test(timeout = 30000)
+    public void testMigratesOneChannelWhichAllowsMigration() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(2);
+        ServerSocket ss = new ServerSocket(0, 16, NetUtil.LOCALHOST);
+        List<Channel> channels = new ArrayList<Channel>();
+        try {
+            EventLoop busy = group.next();
+            EventLoop idle = group.next();
+            EventLoopRebalancer rebalancer =
+                    new EventLoopRebalancer(group, GlobalEventExecutor.INSTANCE, 100, TimeUnit.MILLISECONDS, 0.5);
+
+            // Two channels with a small and one with a large share of the load of the busy loop.
+            Channel small1 = newChannel(busy, ss, rebalancer, true);
+            Channel small2 = newChannel(busy, ss, rebalancer, true);
+            Channel large = newChannel(busy, ss, rebalancer, true);
+            channels.add(small1);
+            channels.add(small2);
+            channels.add(large);
+
+            // A channel which does not allow migration rejects the handler of the rebalancer.
+            ChannelHandler handler = rebalancer.newHandler();
+            Channel pinned = newChannel(busy, ss, handler, false);
+            channels.add(pinned);
+            assertNull(pinned.pipeline().context(handler));
+
+            // Take the baseline.
+            rebalancer.rebalance();
+
+            write(small1, 1);
+            write(small2, 1);
+            write(large, 6);
+            write(pinned, 100);
+            busy.submit(new Runnable() {
+                @Override
+                public void run() {
+                    long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+                    while (System.nanoTime() < deadline) {
+                        // Make the loop busy.
+                    }
+                }
+            }).syncUninterruptibly();
+            // Let the loop account the busy time of the task.
+            Thread.sleep(100);
+
+            rebalancer.rebalance();
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+            while (small1.eventLoop() != idle && small2.eventLoop() != idle) {
+                assertTrue(System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+            // Give a wrong second migration the time to happen.
+            Thread.sleep(200);
+            assertTrue(small1.eventLoop() == busy ^ small2.eventLoop() == busy);
+            assertSame(busy, large.eventLoop());
+            assertSame(busy, pinned.eventLoop());
+        } finally {
+            for (Channel ch: channels) {
+                ch.close().syncUninterruptibly();
+            }
+            ss.close();
+            group.shutdownGracefully();
+        }
+    }
+
+    private static Channel newChannel(EventLoop eventLoop, ServerSocket ss, EventLoopRebalancer rebalancer,
+                                      boolean allowMigration) {
+        return newChannel(eventLoop, ss, rebalancer.newHandler(), allowMigration);
+    }
+
+    private static Channel newChannel(EventLoop eventLoop, ServerSocket ss, ChannelHandler handler,
+                                      boolean allowMigration) {
+        NioSocketChannel ch = new NioSocketChannel();
+        ch.config().setOption(ChannelOption.ALLOW_MIGRATION, allowMigration);
+        ch.pipeline().addLast(handler);
+        eventLoop.register(ch).syncUninterruptibly();
+        ch.connect(ss.getLocalSocketAddress()).syncUninterruptibly();
+        return ch;
+    }
+
+    private static void write(Channel ch, int messages) {
+        for (int i = 0; i < messages; i++) {
+            ch.writeAndFlush(Unpooled.wrappedBuffer(new byte[1])).syncUninterruptibly();
+        }
+    }
+}
@@ -34,6 +34,9 @@ import io.netty.channel.socket.nio.NioServerSocketChannel;
 import io.netty.channel.socket.nio.NioSocketChannel;
 import io.netty.util.CharsetUtil;
 import io.netty.util.NetUtil;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
 import io.netty.util.internal.ThreadLocalRandom;
 import org.junit.Test;
 
@@ -41,12 +44,20 @@ import java.io.DataInput;
 import java.io.DataInputStream;
 import java.io.InputStream;
 import java.net.InetSocketAddress;
+import java.net.ServerSocket;
 import java.net.Socket;
 import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Queue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.junit.Assert.*;
@@ -240,4 +251,216 @@ public class NioSocketChannelTest {
             group.shutdownGracefully();
         }
     }
+
+    @Test(timeout = 30000)
+    public void testMigrateKeepsWriteOrder() throws Exception {
+        final NioEventLoopGroup group = new NioEventLoopGroup(2);
+        final BlockingQueue<Channel> accepted = new LinkedBlockingQueue<Channel>();
+        final CountDownLatch readLatch = new CountDownLatch(1);
+        Channel sc = null;
+        Socket s = null;
+        try {
+            ServerBootstrap sb = new ServerBootstrap();
+            sb.group(group).channel(NioServerSocketChannel.class);
+            sb.childOption(ChannelOption.ALLOW_MIGRATION, true);
+            sb.childHandler(new ChannelInboundHandlerAdapter() {
+                @Override
+                public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                    accepted.add(ctx.channel());
+                    ctx.fireChannelActive();
+                }
+
+                @Override
+                public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                    ReferenceCountUtil.release(msg);
+                    readLatch.countDown();
+                }
+            });
+            sc = sb.bind(0).syncUninterruptibly().channel();
+            s = new Socket(NetUtil.LOCALHOST, ((InetSocketAddress) sc.localAddress()).getPort());
+            final NioSocketChannel ch = (NioSocketChannel) accepted.take();
+
+            final int numbers = 100000;
+            Thread writer = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < numbers; i++) {
+                        ByteBuf buf = Unpooled.buffer(4).writeInt(i);
+                        if (i % 100 == 0) {
+                            ch.writeAndFlush(buf);
+                        } else {
+                            ch.write(buf);
+                        }
+                    }
+                    ch.flush();
+                }
+            });
+            writer.start();
+            for (int i = 0; i < 10; i++) {
+                EventLoop target = group.next();
+                while (target == ch.eventLoop()) {
+                    target = group.next();
+                }
+                ch.migrate(target).syncUninterruptibly();
+                assertSame(target, ch.eventLoop());
+            }
+
+            DataInputStream in = new DataInputStream(s.getInputStream());
+            for (int i = 0; i < numbers; i++) {
+                assertEquals(i, in.readInt());
+            }
+            writer.join();
+
+            // Reads must continue on the new event loop.
+            s.getOutputStream().write(1);
+            s.getOutputStream().flush();
+            readLatch.await();
+        } finally {
+            if (s != null) {
+                s.close();
+            }
+            if (sc != null) {
+                sc.close();
+            }
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    @Test(timeout = 3000)
+    public void testMigrateToEventLoopOfOtherGroupFails() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(1);
+        NioEventLoopGroup otherGroup = new NioEventLoopGroup(1);
+        try {
+            NioSocketChannel ch = new NioSocketChannel();
+            assertTrue(ch.config().setOption(ChannelOption.ALLOW_MIGRATION, true));
+            group.register(ch).syncUninterruptibly();
+            ChannelFuture future = ch.migrate(otherGroup.next()).awaitUninterruptibly();
+            assertThat(future.cause(), is(instanceOf(IllegalArgumentException.class)));
+            assertSame(group.next(), ch.eventLoop());
+            assertTrue(ch.isRegistered());
+            ch.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully();
+            otherGroup.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 3000)
+    public void testMigrateWithoutAllowMigrationFails() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(2);
+        try {
+            NioSocketChannel ch = new NioSocketChannel();
+            group.register(ch).syncUninterruptibly();
+            EventLoop target = group.next();
+            if (target == ch.eventLoop()) {
+                target = group.next();
+            }
+            ChannelFuture future = ch.migrate(target).awaitUninterruptibly();
+            assertThat(future.cause(), is(instanceOf(IllegalStateException.class)));
+            try {
+                ch.config().setOption(ChannelOption.ALLOW_MIGRATION, true);
+                fail();
+            } catch (IllegalStateException expected) {
+                // Can only be set before the registration.
+            }
+            ch.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testMigrateMovesScheduledTasks() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(2);
+        try {
+            final NioSocketChannel ch = new NioSocketChannel();
+            ch.config().setOption(ChannelOption.ALLOW_MIGRATION, true);
+            ch.pipeline().addLast(new ChannelInboundHandlerAdapter());
+            group.register(ch).syncUninterruptibly();
+            final EventExecutor executor = ch.pipeline().firstContext().executor();
+            final EventLoop oldEventLoop = ch.eventLoop();
+            EventLoop target = group.next();
+            if (target == oldEventLoop) {
+                target = group.next();
+            }
+            final EventLoop newEventLoop = target;
+
+            final BlockingQueue<Thread> fixedRateThreads = new LinkedBlockingQueue<Thread>();
+            final AtomicBoolean notInEventLoop = new AtomicBoolean();
+            ScheduledFuture<?> fixedRate = executor.scheduleAtFixedRate(new Runnable() {
+                @Override
+                public void run() {
+                    if (!executor.inEventLoop()) {
+                        notInEventLoop.set(true);
+                    }
+                    fixedRateThreads.add(Thread.currentThread());
+                }
+            }, 0, 10, TimeUnit.MILLISECONDS);
+            ScheduledFuture<Boolean> later = executor.schedule(new Callable<Boolean>() {
+                @Override
+                public Boolean call() {
+                    return newEventLoop.inEventLoop() && executor.inEventLoop();
+                }
+            }, 500, TimeUnit.MILLISECONDS);
+            final AtomicBoolean cancelledRan = new AtomicBoolean();
+            ScheduledFuture<?> cancelled = executor.schedule(new Runnable() {
+                @Override
+                public void run() {
+                    cancelledRan.set(true);
+                }
+            }, 200, TimeUnit.MILLISECONDS);
+            assertTrue(oldEventLoop.inEventLoop(fixedRateThreads.take()));
+
+            ch.migrate(newEventLoop).syncUninterruptibly();
+            assertTrue(cancelled.cancel(false));
+            assertTrue(later.get());
+            fixedRateThreads.clear();
+            assertTrue(newEventLoop.inEventLoop(fixedRateThreads.take()));
+            fixedRate.cancel(false);
+            assertFalse(notInEventLoop.get());
+            assertFalse(cancelledRan.get());
+            ch.close().syncUninterruptibly();
+        } finally {
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testMigrateWhileConnectPendingFails() throws Exception {
+        NioEventLoopGroup group = new NioEventLoopGroup(2);
+        ServerSocket ss = new ServerSocket(0, 1, NetUtil.LOCALHOST);
+        List<Socket> sockets = new ArrayList<Socket>();
+        try {
+            // Fill the backlog of the server socket, so the connection attempt below stays pending.
+            for (;;) {
+                Socket s = new Socket();
+                sockets.add(s);
+                try {
+                    s.connect(ss.getLocalSocketAddress(), 200);
+                } catch (SocketTimeoutException e) {
+                    break;
+                }
+            }
+
+            final NioSocketChannel ch = new NioSocketChannel();
+            ch.config().setOption(ChannelOption.ALLOW_MIGRATION, true);
+            group.register(ch).syncUninterruptibly();
+            EventLoop target = group.next();
+            if (target == ch.eventLoop()) {
+                target = group.next();
+            }
+            ChannelFuture connectFuture = ch.connect(ss.getLocalSocketAddress());
+            ChannelFuture future = ch.migrate(target).awaitUninterruptibly();
+            assertFalse(connectFuture.isDone());
+            assertThat(future.cause(), is(instanceOf(IllegalStateException.class)));
+            assertTrue(ch.isRegistered());
+            ch.close().syncUninterruptibly();
+        } finally {
+            for (Socket s: sockets) {
+                s.close();
+            }
+            ss.close();
+            group.shutdownGracefully();
+        }
+    }
 }